@@ -0,0 +1,62 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.kskelm.baringo.CommentService.CommentListWrapper;
+import com.github.kskelm.baringo.model.Comment;
+import com.github.kskelm.baringo.model.ImgurResponseWrapper;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * A comment with about 260 replies nested six deep, parsed as a
+ * plain Comment (getComment) and through CommentListWrapper's
+ * tree-model deserializer (listCommentReplies).
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CommentBenchmark {
+
+	@Setup
+	public void setup() throws Exception {
+		Gson gson = Fixtures.clientGson();
+		tree = Fixtures.read( "comment-tree.json" );
+		comment = gson.getAdapter( new TypeToken<ImgurResponseWrapper<Comment>>(){} );
+		replies = gson.getAdapter( new TypeToken<ImgurResponseWrapper<CommentListWrapper>>(){} );
+	}
+
+	@Benchmark
+	public Comment comment() throws IOException {
+		return Fixtures.parse( comment, tree ).getData();
+	}
+
+	@Benchmark
+	public CommentListWrapper commentListWrapper() throws IOException {
+		return Fixtures.parse( replies, tree ).getData();
+	}
+
+	private byte[] tree;
+	private TypeAdapter<ImgurResponseWrapper<Comment>> comment;
+	private TypeAdapter<ImgurResponseWrapper<CommentListWrapper>> replies;
+
+}
@@ -0,0 +1,76 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.util.BaringoApiException;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+
+/**
+ * Recorded Imgur responses, and the Gson a real client parses them
+ * with, so the benchmarks measure what a live call does once the
+ * bytes have arrived.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public final class Fixtures {
+
+	/**
+	 * Returns one of the JSON files under /fixtures
+	 * @param name file name, e.g. "album.json"
+	 * @return its bytes
+	 * @throws IOException no such fixture
+	 */
+	public static byte[] read( String name ) throws IOException {
+		try( InputStream in = Fixtures.class.getResourceAsStream( "/fixtures/" + name ) ) {
+			if( in == null ) {
+				throw new IOException( "No such fixture: " + name );
+			} // if
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[8192];
+			int n;
+			while( ( n = in.read( buf ) ) != -1 ) {
+				out.write( buf, 0, n );
+			} // while
+			return out.toByteArray();
+		} // try
+	}
+
+	/**
+	 * Returns the Gson of a client that's built but never used,
+	 * with all of Baringo's adapters (dates, gallery items,
+	 * comment lists) registered
+	 * @return the Gson
+	 * @throws BaringoApiException couldn't build the client
+	 */
+	public static Gson clientGson() throws BaringoApiException {
+		return new BaringoClient.Builder()
+				.clientAuth( "benchmark", "benchmark" )
+				.apiEndpoint( "http://localhost:8080" )
+				.build()
+				.getGson();
+	}
+
+	/**
+	 * Parses the way Retrofit's Gson converter does: a reader over
+	 * the body's bytes, straight into the adapter
+	 * @param adapter what to parse with
+	 * @param json the body
+	 * @return the parsed object
+	 * @throws IOException bad JSON
+	 */
+	public static <T> T parse( TypeAdapter<T> adapter, byte[] json ) throws IOException {
+		return adapter.fromJson( new InputStreamReader( new ByteArrayInputStream( json ), StandardCharsets.UTF_8 ) );
+	}
+
+	private Fixtures() {
+	}
+
+}
@@ -0,0 +1,74 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.kskelm.baringo.mock.MockImgurServer;
+import com.github.kskelm.baringo.model.ImgurResponseWrapper;
+import com.github.kskelm.baringo.model.gallery.GalleryAlbum;
+import com.github.kskelm.baringo.model.gallery.GalleryImage;
+import com.github.kskelm.baringo.model.gallery.GalleryItem;
+import com.github.kskelm.baringo.model.gallery.GalleryItemProxy;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * A 60-item gallery page, parsed the way GalleryService does now
+ * (straight into GalleryAlbum and GalleryImage) and the way it used
+ * to (into GalleryItemProxy, then copied).  Run with -prof gc to
+ * compare what each allocates per page.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class GalleryBenchmark {
+
+	@Setup
+	public void setup() throws Exception {
+		Gson gson = Fixtures.clientGson();
+		// the mock server's page, so there's only the one copy
+		page = MockImgurServer.fixture( "listGallery", "https://imgur.com" ).getBytes( StandardCharsets.UTF_8 );
+		streaming = gson.getAdapter( new TypeToken<ImgurResponseWrapper<List<GalleryItem>>>(){} );
+		proxied = gson.getAdapter( new TypeToken<ImgurResponseWrapper<List<GalleryItemProxy>>>(){} );
+	}
+
+	@Benchmark
+	public List<GalleryItem> streamingAdapter() throws IOException {
+		return Fixtures.parse( streaming, page ).getData();
+	}
+
+	@Benchmark
+	public List<GalleryItem> proxyConversion() throws IOException {
+		List<GalleryItem> items = new ArrayList<>();
+		for( GalleryItemProxy proxy : Fixtures.parse( proxied, page ).getData() ) {
+			items.add( proxy.isAlbum() ? new GalleryAlbum( proxy ) : new GalleryImage( proxy ) );
+		} // for
+		return items;
+	}
+
+	private byte[] page;
+	private TypeAdapter<ImgurResponseWrapper<List<GalleryItem>>> streaming;
+	private TypeAdapter<ImgurResponseWrapper<List<GalleryItemProxy>>> proxied;
+
+}
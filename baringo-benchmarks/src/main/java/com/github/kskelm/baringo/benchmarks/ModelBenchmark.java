@@ -0,0 +1,81 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.kskelm.baringo.model.Album;
+import com.github.kskelm.baringo.model.Image;
+import com.github.kskelm.baringo.model.ImgurResponseWrapper;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * An album with 50 images, a single image, and the client's epoch
+ * seconds date adapter on its own in both directions.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ModelBenchmark {
+
+	@Setup
+	public void setup() throws Exception {
+		Gson gson = Fixtures.clientGson();
+		albumJson = Fixtures.read( "album.json" );
+		imageJson = Fixtures.read( "image.json" );
+		album = gson.getAdapter( new TypeToken<ImgurResponseWrapper<Album>>(){} );
+		image = gson.getAdapter( new TypeToken<ImgurResponseWrapper<Image>>(){} );
+		dates = gson.getAdapter( Date.class );
+	}
+
+	@Benchmark
+	public Album album() throws IOException {
+		return Fixtures.parse( album, albumJson ).getData();
+	}
+
+	@Benchmark
+	public Image image() throws IOException {
+		return Fixtures.parse( image, imageJson ).getData();
+	}
+
+	@Benchmark
+	@OutputTimeUnit( TimeUnit.NANOSECONDS )
+	public Date readDate() throws IOException {
+		return dates.read( new JsonReader( new StringReader( "1460000000" ) ) );
+	}
+
+	@Benchmark
+	@OutputTimeUnit( TimeUnit.NANOSECONDS )
+	public String writeDate() {
+		return dates.toJson( date );
+	}
+
+	private byte[] albumJson;
+	private byte[] imageJson;
+	private TypeAdapter<ImgurResponseWrapper<Album>> album;
+	private TypeAdapter<ImgurResponseWrapper<Image>> image;
+	private TypeAdapter<Date> dates;
+	private final Date date = new Date( 1460000000000L );
+
+}
@@ -0,0 +1,64 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.kskelm.baringo.model.search.CompoundSearchQuery;
+import com.github.kskelm.baringo.util.BaringoApiException;
+
+/**
+ * Building a compound gallery search and turning it into the q
+ * parameter, together and just the string part.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class SearchQueryBenchmark {
+
+	@Setup
+	public void setup() throws BaringoApiException {
+		built = build();
+	}
+
+	@Benchmark
+	public String buildAndFormat() throws BaringoApiException {
+		return build().toString();
+	}
+
+	@Benchmark
+	public String format() {
+		return built.toString();
+	}
+
+	private static CompoundSearchQuery build() throws BaringoApiException {
+		return new CompoundSearchQuery()
+				.title( "cat" )
+					.and( "dog" )
+					.and( "funny" )
+				.extension( "gif" )
+					.or( "mp4" )
+				.user( "someone" )
+					.or( "someoneelse" )
+				.subreddit( "aww" )
+					.or( "pics" );
+	}
+
+	private CompoundSearchQuery built;
+
+}
@@ -0,0 +1,59 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.kskelm.baringo.model.Album;
+import com.github.kskelm.baringo.model.Image;
+import com.github.kskelm.baringo.model.ImgurResponseWrapper;
+import com.github.kskelm.baringo.util.Utils;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Utils.toString, which every model's toString() goes through, on
+ * an image and on an album holding 50 of them.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class UtilsBenchmark {
+
+	@Setup
+	public void setup() throws Exception {
+		Gson gson = Fixtures.clientGson();
+		album = Fixtures.parse( gson.getAdapter( new TypeToken<ImgurResponseWrapper<Album>>(){} ),
+				Fixtures.read( "album.json" ) ).getData();
+		image = album.getImages().get( 0 );
+	}
+
+	@Benchmark
+	public String image() {
+		return Utils.toString( image );
+	}
+
+	@Benchmark
+	public String album() {
+		return Utils.toString( album );
+	}
+
+	private Album album;
+	private Image image;
+
+}
@@ -12,7 +12,6 @@ import com.github.kskelm.baringo.model.Comment;
 import com.github.kskelm.baringo.model.Image;
 import com.github.kskelm.baringo.model.ImgurResponseWrapper;
 import com.github.kskelm.baringo.model.gallery.GalleryItem;
-import com.github.kskelm.baringo.model.gallery.GalleryItemProxy;
 import com.github.kskelm.baringo.model.gallery.GalleryProfile;
 import com.github.kskelm.baringo.util.BaringoApiException;
 import com.github.kskelm.baringo.util.BaringoAuthException;
@@ -41,6 +40,12 @@ public class AccountService {
 	 * @throws BaringoApiException something went pear-shaped
 	 */
 	public Account getAccount( String userName ) throws BaringoApiException {
+		return client.cached( EntityCache.Type.Account, userName,
+				() -> client.getSingleFlight().execute( "GET /3/account/" + userName,
+						() -> fetchAccount( userName ) ) );
+	} // getAccount
+
+	private Account fetchAccount( String userName ) throws BaringoApiException {
 		Call<ImgurResponseWrapper<Account>> call =
 				client.getApi().getAccount( userName );
 
@@ -52,8 +57,8 @@ public class AccountService {
 			return out.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
-		} 
-	} // getAccount
+		}
+	} // fetchAccount
 
 
 	/**
@@ -93,21 +98,36 @@ public class AccountService {
 			int page,
 			Account.GallerySort sort
 			) throws BaringoApiException {
-		Call<ImgurResponseWrapper<List<GalleryItemProxy>>> call =
+		Call<ImgurResponseWrapper<List<GalleryItem>>> call =
 				client.getApi().listAccountGalleryFavorites( userName, page, sort );
 
 		try {
-			Response<ImgurResponseWrapper<List<GalleryItemProxy>>> res = call.execute();
-			ImgurResponseWrapper<List<GalleryItemProxy>> out = res.body();
+			Response<ImgurResponseWrapper<List<GalleryItem>>> res = call.execute();
+			ImgurResponseWrapper<List<GalleryItem>> out = res.body();
 
 			client.throwOnWrapperError( res );
 
-			return client.galleryService().convertToGalleryItems( out.getData() );
+			return out.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} 
 	} // listFavorites
 
+	/**
+	 * Walks every page of {@link #listGalleryFavorites(String, int, Account.GallerySort)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+     * <b>ACCESS: ANONYMOUS</b>
+	 * @param userName name of the user to get favorites for
+	 * @param sort the sort direction for results
+	 * @return every gallery item the user has favorited
+	 */
+	public Paged<GalleryItem> iterateGalleryFavorites( String userName,
+			Account.GallerySort sort ) {
+		return new Paged<>( 0,
+				page -> client.async().accountService().listGalleryFavorites( userName, page, sort ) );
+	} // iterateGalleryFavorites
+
 
 	/**
 	 * Return a list of GalleryItems this user has favorited.
@@ -125,16 +145,16 @@ public class AccountService {
 			throw new BaringoAuthException( "No user logged in", 401 );
 		} // if
 
-		Call<ImgurResponseWrapper<List<GalleryItemProxy>>> call =
+		Call<ImgurResponseWrapper<List<GalleryItem>>> call =
 				client.getApi().listAccountFavorites( userName );
 
 		try {
-			Response<ImgurResponseWrapper<List<GalleryItemProxy>>> res = call.execute();
-			ImgurResponseWrapper<List<GalleryItemProxy>> out = res.body();
+			Response<ImgurResponseWrapper<List<GalleryItem>>> res = call.execute();
+			ImgurResponseWrapper<List<GalleryItem>> out = res.body();
 
 			client.throwOnWrapperError( res );
 
-			return client.galleryService().convertToGalleryItems( out.getData() );
+			return out.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} 
@@ -155,21 +175,34 @@ public class AccountService {
 	 */
 	public List<GalleryItem> listSubmissions( String userName,
 			int page ) throws BaringoApiException {
-		Call<ImgurResponseWrapper<List<GalleryItemProxy>>> call =
+		Call<ImgurResponseWrapper<List<GalleryItem>>> call =
 				client.getApi().listAccountSubmissions( userName, page );
 
 		try {
-			Response<ImgurResponseWrapper<List<GalleryItemProxy>>> res = call.execute();
-			ImgurResponseWrapper<List<GalleryItemProxy>> out = res.body();
+			Response<ImgurResponseWrapper<List<GalleryItem>>> res = call.execute();
+			ImgurResponseWrapper<List<GalleryItem>> out = res.body();
 
 			client.throwOnWrapperError( res );
 
-			return client.galleryService().convertToGalleryItems( out.getData() );
+			return out.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} 
 	} // listSubmissions
 
+	/**
+	 * Walks every page of {@link #listSubmissions(String, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+     * <b>ACCESS: ANONYMOUS</b>
+	 * @param userName name of the user to get submissions for
+	 * @return every gallery item the user has submitted
+	 */
+	public Paged<GalleryItem> iterateSubmissions( String userName ) {
+		return new Paged<>( 0,
+				page -> client.async().accountService().listSubmissions( userName, page ) );
+	} // iterateSubmissions
+
 	/**
 	 * Return the settings on the currently authenticated account.
 	 * <p>
@@ -216,6 +249,7 @@ public class AccountService {
 
 		try {
 			Response<ImgurResponseWrapper<Object>> res = call.execute();
+			client.uncache( EntityCache.Type.Account, userName );
 			client.throwOnWrapperError( res );
 			
 		} catch (IOException e) {
@@ -331,6 +365,19 @@ public class AccountService {
 		} 
 	} // listAlbums
 
+	/**
+	 * Walks every page of {@link #listAlbums(String, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+     * <b>ACCESS: ANONYMOUS or AUTHENTICATED USER</b>
+	 * @param userName the name of the user whose albums we want
+	 * @return every album the user owns
+	 */
+	public Paged<Album> iterateAlbums( String userName ) {
+		return new Paged<>( 0,
+				page -> client.async().accountService().listAlbums( userName, page ) );
+	} // iterateAlbums
+
 	/**
 	 * Returns a list of album IDs associated with the given
 	 * userName, paged 50 at a time
@@ -357,6 +404,19 @@ public class AccountService {
 		} 
 	} // listAlbumIds
 
+	/**
+	 * Walks every page of {@link #listAlbumIds(String, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+     * <b>ACCESS: ANONYMOUS or AUTHENTICATED USER</b>
+	 * @param userName the name of the user whose album ids we want
+	 * @return every album id the user owns
+	 */
+	public Paged<String> iterateAlbumIds( String userName ) {
+		return new Paged<>( 0,
+				page -> client.async().accountService().listAlbumIds( userName, page ) );
+	} // iterateAlbumIds
+
 	/**
 	 * Returns the total number of Albums the given user
 	 * owns.
@@ -428,6 +488,22 @@ public class AccountService {
 			throw new BaringoApiException( e.getMessage() );
 		} 
 	} // listComments
+
+	/**
+	 * Walks every page of {@link #listComments(String, Comment.Sort, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+     * <b>ACCESS: ANONYMOUS</b>
+	 * @param userName the name of the user to fetch comments for
+	 * @param sort a sort direction
+	 * @return every comment the user has made
+	 */
+	public Paged<Comment> iterateComments(
+			String userName,
+			Comment.Sort sort ) {
+		return new Paged<>( 0,
+				page -> client.async().accountService().listComments( userName, sort, page ) );
+	} // iterateComments
 	
 	/**
 	 * Returns a list of comment IDs associated with the given
@@ -457,6 +533,22 @@ public class AccountService {
 		} 
 	} // listCommentIds
 
+	/**
+	 * Walks every page of {@link #listCommentIds(String, Comment.Sort, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+     * <b>ACCESS: ANONYMOUS</b>
+	 * @param userName the name of the user to fetch comment ids for
+	 * @param sort a sort direction
+	 * @return every comment id the user has made
+	 */
+	public Paged<Integer> iterateCommentIds(
+			String userName,
+			Comment.Sort sort ) {
+		return new Paged<>( 0,
+				page -> client.async().accountService().listCommentIds( userName, sort, page ) );
+	} // iterateCommentIds
+
 	/**
 	 * Returns the total number of Comments the given user
 	 * owns.
@@ -510,6 +602,18 @@ public class AccountService {
 			throw new BaringoApiException( e.getMessage() );
 		} 
 	} // listImages
+
+	/**
+	 * Walks every page of {@link #listImages(int)}, prefetching
+	 * the next page while the current one is consumed.
+	 * <p>
+     * <b>ACCESS: AUTHENTICATED USER</b>
+	 * @return every Image the current user owns
+	 */
+	public Paged<Image> iterateImages() {
+		return new Paged<>( 0,
+				page -> client.async().accountService().listImages( page ) );
+	} // iterateImages
 	
 	/**
 	 * Returns a list of image IDs associated with the current
@@ -537,6 +641,18 @@ public class AccountService {
 			throw new BaringoApiException( e.getMessage() );
 		} 
 	} // listImageIds
+
+	/**
+	 * Walks every page of {@link #listImageIds(int)}, prefetching
+	 * the next page while the current one is consumed.
+	 * <p>
+     * <b>ACCESS: AUTHENTICATED USER</b>
+	 * @return every Image ID the current user owns
+	 */
+	public Paged<String> iterateImageIds() {
+		return new Paged<>( 0,
+				page -> client.async().accountService().listImageIds( page ) );
+	} // iterateImageIds
 	
 	/**
 	 * Returns the total number of Images the current user owns.
@@ -34,19 +34,25 @@ public class AlbumService {
 	 * @throws BaringoApiException something went pear-shaped
 	 */
 	public Album getAlbum( String albumId ) throws BaringoApiException {
+		return client.cached( EntityCache.Type.Album, albumId,
+				() -> client.getSingleFlight().execute( "GET /3/album/" + albumId,
+						() -> fetchAlbum( albumId ) ) );
+	} // getAlbum
+
+	private Album fetchAlbum( String albumId ) throws BaringoApiException {
 		Call<ImgurResponseWrapper<Album>> call =
 				client.getApi().getAlbum( albumId );
 
 		try {
-			Response<ImgurResponseWrapper<Album>> res = call.execute();
+			Response<ImgurResponseWrapper<Album>> res = client.executeRead( call, "getAlbum" );
 			ImgurResponseWrapper<Album> out = res.body();
 			client.throwOnWrapperError( res );
 
 			return out.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
-		} 
-	} // getAlbum
+		}
+	} // fetchAlbum
 
 	/**
 	 * Given an album id, return a list of images in that album.
@@ -147,6 +153,7 @@ public class AlbumService {
 
 		try {
 			Response<ImgurResponseWrapper<Boolean>> res = call.execute();
+			client.uncache( EntityCache.Type.Album, album.getId() );
 			ImgurResponseWrapper<Boolean> out = res.body();
 			client.throwOnWrapperError( res );
 			return out.getData();
@@ -175,6 +182,7 @@ public class AlbumService {
 
 		try {
 			Response<ImgurResponseWrapper<Boolean>> res = call.execute();
+			client.uncache( EntityCache.Type.Album, album.getId() );
 			ImgurResponseWrapper<Boolean> out = res.body();
 			client.throwOnWrapperError( res );
 			return out.getData();
@@ -214,6 +222,7 @@ public class AlbumService {
 
 		try {
 			Response<ImgurResponseWrapper<Object>> res = call.execute();
+			client.uncache( EntityCache.Type.Album, album.getId() );
 			client.throwOnWrapperError( res );
 			album.setFavorite( true );
 			return;
@@ -252,6 +261,7 @@ public class AlbumService {
 
 		try {
 			Response<ImgurResponseWrapper<Object>> res = call.execute();
+			client.uncache( EntityCache.Type.Album, album.getId() );
 			client.throwOnWrapperError( res );
 			album.setFavorite( false );
 		} catch (IOException e) {
@@ -305,6 +315,7 @@ public class AlbumService {
 
 		try {
 			Response<ImgurResponseWrapper<Boolean>> res = call.execute();
+			client.uncache( EntityCache.Type.Album, album.getId() );
 			ImgurResponseWrapper<Boolean> out = res.body();
 			client.throwOnWrapperError( res );
 			if( out.getData() ) { // success!
@@ -371,6 +382,7 @@ public class AlbumService {
 
 		try {
 			Response<ImgurResponseWrapper<Boolean>> res = call.execute();
+			client.uncache( EntityCache.Type.Album, album.getId() );
 			ImgurResponseWrapper<Boolean> out = res.body();
 			client.throwOnWrapperError( res );
 			if( out.getData() ) { // success!
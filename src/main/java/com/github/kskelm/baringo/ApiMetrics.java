@@ -0,0 +1,61 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+/**
+ * Gets told about every API call a client makes, so the numbers can
+ * go wherever you keep numbers.  Endpoints are named after the
+ * RetrofittedImgur method that was called, e.g. "getAlbum", not the
+ * URL, so a metric per endpoint stays a handful of metrics instead
+ * of one per album id.
+ * <p>
+ * InProcessMetrics keeps histograms in memory and is enough for
+ * most uses; implement this to feed Micrometer, Dropwizard,
+ * Prometheus or the like instead.  Install one with
+ * BaringoClient.Builder.metrics().
+ * <p>
+ * The calls come on whatever thread is making the request, in the
+ * middle of it, so they need to be thread-safe and quick.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public interface ApiMetrics {
+
+	/**
+	 * A call has gone out and is now in flight
+	 * @param endpoint the RetrofittedImgur method name
+	 */
+	void callStarted( String endpoint );
+
+	/**
+	 * A call's response headers have arrived, or it failed outright.
+	 * The latency includes any retries, since that's what the
+	 * caller waited through.
+	 * @param endpoint the RetrofittedImgur method name
+	 * @param status the HTTP status, or 0 if there was no response
+	 * @param latencyNanos how long the caller waited for it
+	 */
+	void callFinished( String endpoint, int status, long latencyNanos );
+
+	/**
+	 * A response body has been read and closed
+	 * @param endpoint the RetrofittedImgur method name
+	 * @param bytes how many bytes of body were read
+	 */
+	void responseRead( String endpoint, long bytes );
+
+	/**
+	 * A call is about to be retried by the client's RetryPolicy
+	 * @param endpoint the RetrofittedImgur method name
+	 */
+	void retried( String endpoint );
+
+	/**
+	 * A response body has been turned into objects.  The time
+	 * doesn't count waiting on the network for the body, only
+	 * the parsing.
+	 * @param endpoint the RetrofittedImgur method name
+	 * @param nanos how long parsing took
+	 */
+	void deserialized( String endpoint, long nanos );
+
+}
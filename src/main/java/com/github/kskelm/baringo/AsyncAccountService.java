@@ -0,0 +1,275 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.github.kskelm.baringo.model.Account;
+import com.github.kskelm.baringo.model.AccountSettings;
+import com.github.kskelm.baringo.model.Album;
+import com.github.kskelm.baringo.model.ChangedAccountSettings;
+import com.github.kskelm.baringo.model.Comment;
+import com.github.kskelm.baringo.model.Image;
+import com.github.kskelm.baringo.model.gallery.GalleryItem;
+import com.github.kskelm.baringo.model.gallery.GalleryProfile;
+import com.github.kskelm.baringo.util.BaringoAuthException;
+
+
+/**
+ * Asynchronous version of {@link AccountService}.  See there
+ * for details on each call.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class AsyncAccountService {
+
+	/**
+	 * See {@link AccountService#getAccount(String)}
+	 * @param userName the name of the account
+	 * @return future Account object
+	 */
+	public CompletableFuture<Account> getAccount( String userName ) {
+		return client.cachedAsync( EntityCache.Type.Account, userName,
+				() -> client.getSingleFlight().executeAsync( "GET /3/account/" + userName,
+						() -> client.enqueue( client.getApi().getAccount( userName ) ) ) );
+	} // getAccount
+
+	/**
+	 * See {@link AccountService#listGalleryFavorites(String, int)}
+	 * @param userName the userName to return gallery items for
+	 * @param page page number of results to return, starting at 0
+	 * @return future list of gallery items
+	 */
+	public CompletableFuture<List<GalleryItem>> listGalleryFavorites( String userName,
+			int page ) {
+		return listGalleryFavorites( userName, page, Account.GallerySort.newest );
+	} // listGalleryFavorites
+
+	/**
+	 * See {@link AccountService#listGalleryFavorites(String, int, Account.GallerySort)}
+	 * @param userName name of the user to get favorites for
+	 * @param page the page number to return starting at 0
+	 * @param sort the sort direction for results
+	 * @return future list of gallery items
+	 */
+	public CompletableFuture<List<GalleryItem>> listGalleryFavorites( String userName,
+			int page,
+			Account.GallerySort sort ) {
+		return client.enqueue(
+				client.getApi().listAccountGalleryFavorites( userName, page, sort ) );
+	} // listGalleryFavorites
+
+	/**
+	 * See {@link AccountService#listFavorites()}
+	 * @return future list of gallery items
+	 */
+	public CompletableFuture<List<GalleryItem>> listFavorites() {
+		String userName = client.getAuthenticatedUserName();
+		if( userName == null ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 401 ) );
+		} // if
+
+		return client.enqueue(
+				client.getApi().listAccountFavorites( userName ) );
+	} // listFavorites
+
+	/**
+	 * See {@link AccountService#listSubmissions(String, int)}
+	 * @param userName name of the user to get submissions for
+	 * @param page the page number to return starting at 0
+	 * @return future list of gallery items
+	 */
+	public CompletableFuture<List<GalleryItem>> listSubmissions( String userName,
+			int page ) {
+		return client.enqueue(
+				client.getApi().listAccountSubmissions( userName, page ) );
+	} // listSubmissions
+
+	/**
+	 * See {@link AccountService#getAccountSettings()}
+	 * @return future account settings
+	 */
+	public CompletableFuture<AccountSettings> getAccountSettings() {
+		String userName = client.getAuthenticatedUserName();
+		if( userName == null ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 403 ) );
+		} // if
+
+		return client.enqueue( client.getApi().getAccountSettings( userName ) );
+	} // getAccountSettings
+
+	/**
+	 * See {@link AccountService#setAccountSettings(ChangedAccountSettings)}
+	 * @param settings the settings to save
+	 * @return a future that completes when the settings are saved
+	 */
+	public CompletableFuture<Void> setAccountSettings( ChangedAccountSettings settings ) {
+		String userName = client.getAuthenticatedUserName();
+		if( userName == null ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 403 ) );
+		} // if
+
+		return client.whenDone( client.enqueue( client.getApi().setAccountSettings( userName, settings ) ),
+				() -> client.uncache( EntityCache.Type.Account, userName ) )
+				.thenApply( ignored -> (Void)null );
+	} // setAccountSettings
+
+	/**
+	 * See {@link AccountService#getGalleryProfile(String)}
+	 * @param userName the userName for the account to return the profile of
+	 * @return future GalleryProfile
+	 */
+	public CompletableFuture<GalleryProfile> getGalleryProfile( String userName ) {
+		return client.enqueue( client.getApi().getAccountGalleryProfile( userName ) );
+	} // getGalleryProfile
+
+	/**
+	 * See {@link AccountService#isVerified()}
+	 * @return future verification status
+	 */
+	public CompletableFuture<Boolean> isVerified() {
+		String userName = client.getAuthenticatedUserName();
+		if( userName == null ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 403 ) );
+		} // if
+
+		return client.enqueue( client.getApi().isAccountVerified( userName ) );
+	} // isVerified
+
+	/**
+	 * See {@link AccountService#sendVerificationEmail()}
+	 * @return future for whether or not a verification email was sent
+	 */
+	public CompletableFuture<Boolean> sendVerificationEmail() {
+		String userName = client.getAuthenticatedUserName();
+		if( userName == null ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 403 ) );
+		} // if
+
+		return client.enqueue( client.getApi().sendAccountVerificationEmail( userName ) );
+	} // sendVerificationEmail
+
+	/**
+	 * See {@link AccountService#listAlbums(String, int)}
+	 * @param userName the name of the user to fetch albums for
+	 * @param page the page number, starting at 0
+	 * @return future list of Album objects
+	 */
+	public CompletableFuture<List<Album>> listAlbums( String userName, int page ) {
+		return client.enqueue( client.getApi().listAccountAlbums( userName, page ) );
+	} // listAlbums
+
+	/**
+	 * See {@link AccountService#listAlbumIds(String, int)}
+	 * @param userName the name of the user to fetch album ids for
+	 * @param page The page number to fetch, starting at 0
+	 * @return future list of album IDs
+	 */
+	public CompletableFuture<List<String>> listAlbumIds( String userName, int page ) {
+		return client.enqueue( client.getApi().listAccountAlbumIds( userName, page ) );
+	} // listAlbumIds
+
+	/**
+	 * See {@link AccountService#getAlbumCount(String)}
+	 * @param userName The name of the user to fetch an album count for
+	 * @return future number of albums the user owns
+	 */
+	public CompletableFuture<Integer> getAlbumCount( String userName ) {
+		return client.enqueue( client.getApi().getAccountAlbumCount( userName ) );
+	} // getAlbumCount
+
+	/**
+	 * See {@link AccountService#listComments(String, int)}
+	 * @param userName the name of the user to fetch comments for
+	 * @param page the page number, starting at 0
+	 * @return future list of Comment objects
+	 */
+	public CompletableFuture<List<Comment>> listComments( String userName, int page ) {
+		return listComments( userName, Comment.Sort.Newest, page );
+	} // listComments
+
+	/**
+	 * See {@link AccountService#listComments(String, Comment.Sort, int)}
+	 * @param userName the name of the user to fetch comments for
+	 * @param sort a sort direction
+	 * @param page the page number, starting at 0
+	 * @return future list of Comment objects
+	 */
+	public CompletableFuture<List<Comment>> listComments( String userName,
+			Comment.Sort sort,
+			int page ) {
+		return client.enqueue( client.getApi().listAccountComments( userName, sort, page ) );
+	} // listComments
+
+	/**
+	 * See {@link AccountService#listCommentIds(String, Comment.Sort, int)}
+	 * @param userName the name of the user to fetch comment ids for
+	 * @param sort a sort direction
+	 * @param page The page number to fetch, starting at 0
+	 * @return future list of comment IDs
+	 */
+	public CompletableFuture<List<Integer>> listCommentIds( String userName,
+			Comment.Sort sort,
+			int page ) {
+		return client.enqueue( client.getApi().listAccountCommentIds( userName, sort, page ) );
+	} // listCommentIds
+
+	/**
+	 * See {@link AccountService#getCommentCount(String)}
+	 * @param userName The name of the user to fetch a comment count for
+	 * @return future number of comments the user owns
+	 */
+	public CompletableFuture<Integer> getCommentCount( String userName ) {
+		return client.enqueue( client.getApi().getAccountCommentCount( userName ) );
+	} // getCommentCount
+
+	/**
+	 * See {@link AccountService#listImages(int)}
+	 * @param page the page number, starting at 0
+	 * @return future list of Image objects
+	 */
+	public CompletableFuture<List<Image>> listImages( int page ) {
+		String userName = client.getAuthenticatedUserName();
+		if( userName == null ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 401 ) );
+		} // if
+
+		return client.enqueue( client.getApi().listAccountImages( userName, page ) );
+	} // listImages
+
+	/**
+	 * See {@link AccountService#listImageIds(int)}
+	 * @param page The page number to fetch, starting at 0
+	 * @return future list of image IDs
+	 */
+	public CompletableFuture<List<String>> listImageIds( int page ) {
+		String userName = client.getAuthenticatedUserName();
+		if( userName == null ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 401 ) );
+		} // if
+
+		return client.enqueue( client.getApi().listAccountImageIds( userName, page ) );
+	} // listImageIds
+
+	/**
+	 * See {@link AccountService#getImageCount()}
+	 * @return future number of images the user owns
+	 */
+	public CompletableFuture<Integer> getImageCount() {
+		String userName = client.getAuthenticatedUserName();
+		if( userName == null ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 401 ) );
+		} // if
+
+		return client.enqueue( client.getApi().getAccountImageCount( userName ) );
+	} // getImageCount
+
+	// ================================================
+
+	protected AsyncAccountService( BaringoClient client ) {
+		this.client = client;
+	} // constructor
+
+	private BaringoClient client = null;
+
+}
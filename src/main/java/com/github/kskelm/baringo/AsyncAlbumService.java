@@ -0,0 +1,211 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.github.kskelm.baringo.model.Album;
+import com.github.kskelm.baringo.model.Image;
+import com.github.kskelm.baringo.util.BaringoAuthException;
+import com.github.kskelm.baringo.util.Utils;
+
+
+/**
+ * Asynchronous version of {@link AlbumService}.  See there
+ * for details on each call.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class AsyncAlbumService {
+
+	/**
+	 * See {@link AlbumService#getAlbum(String)}
+	 * @param albumId the id of the album to fetch
+	 * @return future Album object
+	 */
+	public CompletableFuture<Album> getAlbum( String albumId ) {
+		return client.cachedAsync( EntityCache.Type.Album, albumId,
+				() -> client.getSingleFlight().executeAsync( "GET /3/album/" + albumId,
+						() -> client.enqueue( client.getApi().getAlbum( albumId ) ) ) );
+	} // getAlbum
+
+	/**
+	 * See {@link AlbumService#getAlbumImages(String)}
+	 * @param albumId the album id to fetch images for
+	 * @return future list of Image objects
+	 */
+	public CompletableFuture<List<Image>> getAlbumImages( String albumId ) {
+		return client.enqueue( client.getApi().getAlbumImages( albumId ) );
+	} // getAlbumImages
+
+	/**
+	 * See {@link AlbumService#addAlbum(Album)}
+	 * @param album the new album to save to Imgur
+	 * @return future for the new album
+	 */
+	public CompletableFuture<Album> addAlbum( final Album album ) {
+		album.prepareForSave(); // create imageid array for saving
+
+		return client.enqueue( client.getApi().createAlbum( album ) )
+				.thenCompose( created -> getAlbum( created.get( "id" ) )
+						.thenApply( saved -> {
+							album.copyFrom( saved );
+							album.setDeleteHash( created.get( "deletehash" ) );
+							return album;
+						} ) );
+	} // addAlbum
+
+	/**
+	 * See {@link AlbumService#updateAlbum(Album)}
+	 * @param album the album to update
+	 * @return future for whether the update worked
+	 */
+	public CompletableFuture<Boolean> updateAlbum( Album album ) {
+		album.prepareForSave(); // create imageid array for saving
+
+		return client.whenDone( client.enqueue( client.getApi().updateAlbum( album.getAPIReferenceKey(), album ) ),
+				() -> client.uncache( EntityCache.Type.Album, album.getId() ) );
+	} // updateAlbum
+
+	/**
+	 * See {@link AlbumService#deleteAlbum(Album)}
+	 * @param album the album to delete
+	 * @return future for whether the delete worked
+	 */
+	public CompletableFuture<Boolean> deleteAlbum( Album album ) {
+		return client.whenDone( client.enqueue( client.getApi().deleteAlbum( album.getAPIReferenceKey() ) ),
+				() -> client.uncache( EntityCache.Type.Album, album.getId() ) );
+	} // deleteAlbum
+
+	/**
+	 * See {@link AlbumService#favoriteAlbum(Album)}
+	 * @param album the album to mark as a favorite
+	 * @return a future that completes when the album is favorited
+	 */
+	public CompletableFuture<Void> favoriteAlbum( final Album album ) {
+		if( !client.authService().isUserAuthenticated() ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 401 ) );
+		} // if
+
+		if( album.isFavorite() ) {
+			return CompletableFuture.completedFuture( null ); // already done
+		} // if
+
+		return client.whenDone( client.enqueue( client.getApi().toggleAlbumFavorite( album.getId() ) ),
+				() -> client.uncache( EntityCache.Type.Album, album.getId() ) )
+				.thenApply( ignored -> {
+					album.setFavorite( true );
+					return (Void)null;
+				} );
+	} // favoriteAlbum
+
+	/**
+	 * See {@link AlbumService#unfavoriteAlbum(Album)}
+	 * @param album the album to unmark as a favorite
+	 * @return a future that completes when the album is unfavorited
+	 */
+	public CompletableFuture<Void> unfavoriteAlbum( final Album album ) {
+		if( !client.authService().isUserAuthenticated() ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 401 ) );
+		} // if
+
+		if( !album.isFavorite() ) {
+			return CompletableFuture.completedFuture( null ); // already done
+		} // if
+
+		return client.whenDone( client.enqueue( client.getApi().toggleAlbumFavorite( album.getId() ) ),
+				() -> client.uncache( EntityCache.Type.Album, album.getId() ) )
+				.thenApply( ignored -> {
+					album.setFavorite( false );
+					return (Void)null;
+				} );
+	} // unfavoriteAlbum
+
+	/**
+	 * See {@link AlbumService#addAlbumImageId(Album, String)}
+	 * @param album the album to add images to
+	 * @param imageId the image to add
+	 * @return future for the updated Album
+	 */
+	public CompletableFuture<Album> addAlbumImageId( Album album, String imageId ) {
+		List<String> imageIds = new ArrayList<>();
+		imageIds.add( imageId );
+		return addAlbumImageIds( album, imageIds );
+	} // addAlbumImageId
+
+	/**
+	 * See {@link AlbumService#addAlbumImageIds(Album, List)}
+	 * @param album the album to add images to
+	 * @param imageIds a list of image ids to add
+	 * @return future for the updated album, or null if it didn't work
+	 */
+	public CompletableFuture<Album> addAlbumImageIds( final Album album, final List<String> imageIds ) {
+		return client.whenDone( client.enqueue( client.getApi().addAlbumImageIds( album.getAPIReferenceKey(), imageIds ) ),
+				() -> client.uncache( EntityCache.Type.Album, album.getId() ) )
+				.thenCompose( success -> {
+					if( !success ) {
+						return CompletableFuture.completedFuture( (Album)null );
+					} // if
+					if( imageIds.size() == 1 ) { // faster just to load the one image
+						return client.async().imageService().getImageInfo( imageIds.get( 0 ) )
+								.thenApply( img -> {
+									album.getImages().add( img );
+									return album;
+								} );
+					} // if
+					return getAlbum( album.getId() )
+							.thenApply( album2 -> {
+								album.setImages( album2.getImages() );
+								return album;
+							} );
+				} );
+	} // addAlbumImageIds
+
+	/**
+	 * See {@link AlbumService#deleteAlbumImageId(Album, String)}
+	 * @param album the album to delete images from
+	 * @param imageId the id of the image to delete from the album
+	 * @return future for the updated album, or null if it didn't work
+	 */
+	public CompletableFuture<Album> deleteAlbumImageId( Album album, String imageId ) {
+		List<String> list = new ArrayList<>();
+		list.add( imageId );
+		return deleteAlbumImageIds( album, list );
+	} // deleteAlbumImageId
+
+	/**
+	 * See {@link AlbumService#deleteAlbumImageIds(Album, List)}
+	 * @param album the album to delete images from
+	 * @param imageIds a list of image ids to delete from the album
+	 * @return future for the updated album, or null if it didn't work
+	 */
+	public CompletableFuture<Album> deleteAlbumImageIds( final Album album, final List<String> imageIds ) {
+		String joinedIds = Utils.joinCSV( imageIds );
+
+		return client.whenDone( client.enqueue( client.getApi().deleteAlbumImageIds( album.getAPIReferenceKey(), joinedIds ) ),
+				() -> client.uncache( EntityCache.Type.Album, album.getId() ) )
+				.thenApply( success -> {
+					if( !success ) {
+						return null;
+					} // if
+					List<Image> newList = new ArrayList<>();
+					for( Image image : album.getImages() ) {
+						if( !imageIds.contains( image.getId() ) ) {
+							newList.add( image );
+						} // if
+					} // for
+					album.setImages( newList );
+					return album;
+				} );
+	} // deleteAlbumImageIds
+
+	// ===================================================
+
+	protected AsyncAlbumService( BaringoClient client ) {
+		this.client = client;
+	} // constructor
+
+	private BaringoClient client = null;
+
+}
@@ -0,0 +1,130 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+/**
+ * The asynchronous face of a BaringoClient.  Every service here
+ * mirrors its synchronous counterpart, except that methods return
+ * a CompletableFuture immediately and the HTTP call runs on
+ * OkHttp's dispatcher.  One thread can keep as many calls in
+ * flight as the dispatcher allows; see
+ * {@link BaringoClient.Builder#asyncConcurrency(int, int)}.
+ * <p>
+ * Futures fail with a BaringoApiException (wrapped in a
+ * CompletionException if you join() them).  Cancelling a future
+ * cancels its HTTP call.
+ * <p>
+ * Callbacks run on OkHttp's dispatcher threads, so don't block in
+ * them; hop to your own executor with the *Async() variants of
+ * thenApply() and friends if you need to.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class AsyncClient {
+
+	/**
+	 * Returns the async account service
+	 * @return the account service
+	 */
+	public AsyncAccountService accountService() {
+		return acctSvc;
+	}
+
+	/**
+	 * Returns the async album service
+	 * @return the album service
+	 */
+	public AsyncAlbumService albumService() {
+		return albSvc;
+	}
+
+	/**
+	 * Returns the async comment service
+	 * @return the comment service
+	 */
+	public AsyncCommentService commentService() {
+		return comSvc;
+	}
+
+	/**
+	 * Returns the async conversation service
+	 * @return the conversation service
+	 */
+	public AsyncConversationService conversationService() {
+		return cnvSvc;
+	}
+
+	/**
+	 * Returns the async custom gallery service
+	 * @return the custom gallery service
+	 */
+	public AsyncCustomGalleryService customGalleryService() {
+		return cusGalSvc;
+	}
+
+	/**
+	 * Returns the async gallery service
+	 * @return the gallery service
+	 */
+	public AsyncGalleryService galleryService() {
+		return galSvc;
+	}
+
+	/**
+	 * Returns the async image service
+	 * @return the image service
+	 */
+	public AsyncImageService imageService() {
+		return imgSvc;
+	}
+
+	/**
+	 * Returns the async meme service
+	 * @return the meme service
+	 */
+	public AsyncMemeService memeService() {
+		return memeSvc;
+	}
+
+	/**
+	 * Returns the async notification service
+	 * @return the notification service
+	 */
+	public AsyncNotificationService notificationService() {
+		return noteSvc;
+	}
+
+	/**
+	 * Returns the async topic service
+	 * @return the topic service
+	 */
+	public AsyncTopicService topicService() {
+		return topSvc;
+	}
+
+	// =========================================================
+
+	protected AsyncClient( BaringoClient client ) {
+		this.acctSvc = new AsyncAccountService( client );
+		this.albSvc = new AsyncAlbumService( client );
+		this.comSvc = new AsyncCommentService( client );
+		this.cnvSvc = new AsyncConversationService( client );
+		this.cusGalSvc = new AsyncCustomGalleryService( client );
+		this.galSvc = new AsyncGalleryService( client );
+		this.imgSvc = new AsyncImageService( client );
+		this.memeSvc = new AsyncMemeService( client );
+		this.noteSvc = new AsyncNotificationService( client );
+		this.topSvc = new AsyncTopicService( client );
+	} // constructor
+
+	private AsyncAccountService acctSvc = null;
+	private AsyncAlbumService albSvc = null;
+	private AsyncCommentService comSvc = null;
+	private AsyncConversationService cnvSvc = null;
+	private AsyncCustomGalleryService cusGalSvc = null;
+	private AsyncGalleryService galSvc = null;
+	private AsyncImageService imgSvc = null;
+	private AsyncMemeService memeSvc = null;
+	private AsyncNotificationService noteSvc = null;
+	private AsyncTopicService topSvc = null;
+
+} // class AsyncClient
@@ -0,0 +1,116 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.github.kskelm.baringo.model.Comment;
+import com.github.kskelm.baringo.model.ReportReason;
+import com.github.kskelm.baringo.model.Vote;
+
+
+/**
+ * Asynchronous version of {@link CommentService}.  See there
+ * for details on each call.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class AsyncCommentService {
+
+	/**
+	 * See {@link CommentService#getComment(long)}
+	 * @param commentId the id of the comment to fetch
+	 * @return future Comment object
+	 */
+	public CompletableFuture<Comment> getComment( long commentId ) {
+		return client.cachedAsync( EntityCache.Type.Comment, String.valueOf( commentId ),
+				() -> client.enqueue( client.getApi().getComment( commentId ) ) );
+	} // getComment
+
+	/**
+	 * See {@link CommentService#addComment(String, String)}
+	 * @param imageOrAlbumId id of the thing to attach the comment to
+	 * @param text text body of the comment
+	 * @return future id of the new comment
+	 */
+	public CompletableFuture<Long> addComment( String imageOrAlbumId, String text ) {
+		return client.enqueue( client.getApi().addComment( imageOrAlbumId, text ) )
+				.thenApply( out -> out.get( "id" ) );
+	} // addComment
+
+	/**
+	 * See {@link CommentService#deleteComment(Comment)}
+	 * @param comment the comment object to delete from Imgur
+	 * @return future for whether it worked
+	 */
+	public CompletableFuture<Boolean> deleteComment( Comment comment ) {
+		return deleteComment( comment.getId() );
+	} // deleteComment
+
+	/**
+	 * See {@link CommentService#deleteComment(long)}
+	 * @param commentId the id of the comment to delete from Imgur
+	 * @return future for whether it worked
+	 */
+	public CompletableFuture<Boolean> deleteComment( long commentId ) {
+		return client.whenDone( client.enqueue( client.getApi().deleteComment( commentId ) ),
+				() -> client.uncache( EntityCache.Type.Comment, String.valueOf( commentId ) ) );
+	} // deleteComment
+
+	/**
+	 * See {@link CommentService#listReplies(long)}
+	 * @param commentId the id of the parent comment
+	 * @return future list of comment objects, non-paged
+	 */
+	public CompletableFuture<List<Comment>> listReplies( long commentId ) {
+		return client.enqueue( client.getApi().listCommentReplies( commentId ) )
+				.thenApply( out -> out.comms );
+	} // listReplies
+
+	/**
+	 * See {@link CommentService#addReply(Comment, String)}
+	 * @param parent the parent comment
+	 * @param text the text body of the comment to add
+	 * @return future id of the new comment
+	 */
+	public CompletableFuture<Long> addReply( Comment parent, String text ) {
+		return client.whenDone( client.enqueue( client.getApi().replyComment( parent.getImageId(), parent.getId(), text ) ),
+				() -> client.uncache( EntityCache.Type.Comment, String.valueOf( parent.getId() ) ) )
+				.thenApply( out -> out.get( "id" ) );
+	} // addReply
+
+	/**
+	 * See {@link CommentService#setVote(long, Vote)}
+	 * @param commentId id of the comment to vote on
+	 * @param vote vote up or down
+	 * @return future for whether it worked
+	 */
+	public CompletableFuture<Boolean> setVote( long commentId, Vote vote ) {
+		String voteStr = vote.name().toLowerCase();
+
+		return client.whenDone( client.enqueue( client.getApi().voteComment( commentId, voteStr ) ),
+				() -> client.uncache( EntityCache.Type.Comment, String.valueOf( commentId ) ) );
+	} // setVote
+
+	/**
+	 * See {@link CommentService#report(long, ReportReason)}
+	 * @param commentId the id of the comment to report
+	 * @param reason supply a reason
+	 * @return a future that completes when the report is filed
+	 */
+	public CompletableFuture<Void> report( long commentId, ReportReason reason ) {
+		String reasonStr = reason.name().toLowerCase();
+
+		return client.enqueue( client.getApi().reportComment( commentId, reasonStr ) )
+				.thenApply( ignored -> (Void)null );
+	} // report
+
+	// ===================================================
+
+	protected AsyncCommentService( BaringoClient client ) {
+		this.client = client;
+	} // constructor
+
+	private BaringoClient client = null;
+
+}
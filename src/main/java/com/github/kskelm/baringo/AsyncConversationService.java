@@ -0,0 +1,98 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.github.kskelm.baringo.ConversationService.ConversationList;
+import com.github.kskelm.baringo.model.Conversation;
+import com.github.kskelm.baringo.model.ImgurResponseWrapper;
+import com.google.gson.Gson;
+
+import retrofit.Response;
+
+
+/**
+ * Asynchronous version of {@link ConversationService}.  See there
+ * for details on each call.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class AsyncConversationService {
+
+	/**
+	 * See {@link ConversationService#getConversations()}
+	 * @return future list of Conversation objects
+	 */
+	public CompletableFuture<List<Conversation>> getConversations() {
+		return client.enqueue( client.getApi().getConversations(),
+				(Response<ImgurResponseWrapper<String>> res) -> {
+					ImgurResponseWrapper<String> test = res.body();
+					if( test != null && "false".equals( test.getData() ) ) { // laaaaaaame
+						return new ArrayList<Conversation>();
+					} // if
+					client.throwOnWrapperError( res );
+					// laaaaaaame
+					List<Conversation> out = new Gson().fromJson(
+							test.getData(), ConversationList.class );
+					return out;
+				} );
+	} // getConversations
+
+	/**
+	 * See {@link ConversationService#getConversationWithMessages(long, int)}
+	 * @param conversationId numeric id of the conversation
+	 * @param page the page number <strong>STARTING AT 1</strong>
+	 * @return future Conversation with a list of messages
+	 */
+	public CompletableFuture<Conversation> getConversationWithMessages( long conversationId, int page ) {
+		return client.enqueue( client.getApi().getConversationMessages( conversationId, page ) );
+	} // getConversationWithMessages
+
+	/**
+	 * See {@link ConversationService#sendMessage(String, String)}
+	 * @param toUserName userName of the user to send to
+	 * @param body the body of the message.
+	 * @return future for whether it worked
+	 */
+	public CompletableFuture<Boolean> sendMessage( String toUserName, String body ) {
+		return client.enqueue( client.getApi().sendMessage( toUserName, body ) );
+	} // sendMessage
+
+	/**
+	 * See {@link ConversationService#deleteConversation(long)}
+	 * @param conversationId id of the conversation to delete
+	 * @return future for whether it worked
+	 */
+	public CompletableFuture<Boolean> deleteConversation( long conversationId ) {
+		return client.enqueue( client.getApi().deleteConversation( conversationId ) );
+	} // deleteConversation
+
+	/**
+	 * See {@link ConversationService#reportSender(String)}
+	 * @param userName name of the user to report
+	 * @return future for whether it worked
+	 */
+	public CompletableFuture<Boolean> reportSender( String userName ) {
+		return client.enqueue( client.getApi().reportMessageSender( userName ) );
+	} // reportSender
+
+	/**
+	 * See {@link ConversationService#blockSender(String)}
+	 * @param userName name of the user to block
+	 * @return future for whether it worked
+	 */
+	public CompletableFuture<Boolean> blockSender( String userName ) {
+		return client.enqueue( client.getApi().blockMessageSender( userName ) );
+	} // blockSender
+
+	// ===================================================
+
+	protected AsyncConversationService( BaringoClient client ) {
+		this.client = client;
+	} // constructor
+
+	private BaringoClient client = null;
+
+}
@@ -0,0 +1,132 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.github.kskelm.baringo.model.ImgurResponseWrapper;
+import com.github.kskelm.baringo.model.gallery.CustomGallery;
+import com.github.kskelm.baringo.model.gallery.GalleryImage;
+import com.google.gson.Gson;
+
+import retrofit.Response;
+
+
+/**
+ * Asynchronous version of {@link CustomGalleryService}.  See there
+ * for details on each call.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class AsyncCustomGalleryService {
+
+	/**
+	 * See {@link CustomGalleryService#getCustomGallery(GalleryImage.Sort, GalleryImage.Window, int)}
+	 * @param sort the sort direction - Viral | Time | Top
+	 * @param window when the sort is Top, what the time range is
+	 * @param page the page number, starting from 0
+	 * @return future CustomGallery
+	 */
+	public CompletableFuture<CustomGallery> getCustomGallery(
+			GalleryImage.Sort sort,
+			GalleryImage.Window window,
+			int page ) {
+		return getSubGallery( "custom", sort, window, page );
+	} // getCustomGallery
+
+	/**
+	 * See {@link CustomGalleryService#getFilteredGallery(GalleryImage.Sort, GalleryImage.Window, int)}
+	 * @param sort the sort direction - Viral | Time | Top
+	 * @param window when the sort is Top, what the time range is
+	 * @param page the page number, starting from 0
+	 * @return future CustomGallery
+	 */
+	public CompletableFuture<CustomGallery> getFilteredGallery(
+			GalleryImage.Sort sort,
+			GalleryImage.Window window,
+			int page ) {
+		return getSubGallery( "filtered", sort, window, page );
+	} // getFilteredGallery
+
+	/**
+	 * See {@link CustomGalleryService#addCustomGalleryTag(String)}
+	 * @param tag the tag string to add
+	 * @return future for whether work was done
+	 */
+	public CompletableFuture<Boolean> addCustomGalleryTag( String tag ) {
+		return client.enqueue( client.getApi().addCustomGalleryTags( tag ),
+				(Response<ImgurResponseWrapper<Boolean>> res) -> {
+					// for some reason, Imgur throws a 500 if tags already exist (?)
+					if( res.raw().code() == 500 ) {
+						return false;
+					} // if
+					client.throwOnWrapperError( res );
+					ImgurResponseWrapper<Boolean> out = res.body();
+					return out == null ? false : out.getData();
+				} );
+	} // addCustomGalleryTag
+
+	/**
+	 * See {@link CustomGalleryService#deleteCustomGalleryTag(String)}
+	 * @param tag the tag string to remove
+	 * @return future for whether action was taken
+	 */
+	@SuppressWarnings("rawtypes")
+	public CompletableFuture<Boolean> deleteCustomGalleryTag( String tag ) {
+		return client.enqueue( client.getApi().deleteCustomGalleryTags( tag ),
+				(Response<ImgurResponseWrapper<Boolean>> res) -> {
+					// Imgur throws a 400 if the tag wasn't in the list but we just
+					// want to eat it quietly, same as the sync version
+					if( res.raw().code() == 400 ) {
+						String errBody = res.errorBody().string();
+						Map root = new Gson().fromJson( errBody, Map.class );
+						Map data = (Map) root.get( "data" );
+						String err = (String)data.get( "error" );
+						if( err.startsWith( "Invalid tag" ) ) {
+							return false;
+						} // if
+					} // if
+					client.throwOnWrapperError( res );
+					ImgurResponseWrapper<Boolean> out = res.body();
+					return out == null ? false : out.getData();
+				} );
+	} // deleteCustomGalleryTag
+
+	/**
+	 * See {@link CustomGalleryService#blockGalleryTag(String)}
+	 * @param tag a tag string the user no longer wants to see
+	 * @return future for whether action was taken
+	 */
+	public CompletableFuture<Boolean> blockGalleryTag( String tag ) {
+		return client.enqueue( client.getApi().blockGalleryTag( tag ) );
+	} // blockGalleryTag
+
+	/**
+	 * See {@link CustomGalleryService#unblockGalleryTag(String)}
+	 * @param tag the tag to remove
+	 * @return future for whether action was taken
+	 */
+	public CompletableFuture<Boolean> unblockGalleryTag( String tag ) {
+		return client.enqueue( client.getApi().unblockGalleryTag( tag ) );
+	} // unblockGalleryTag
+
+	// ====================================================================
+
+	private CompletableFuture<CustomGallery> getSubGallery(
+			String type,
+			GalleryImage.Sort sort,
+			GalleryImage.Window window,
+			int page ) {
+		String sortStr = sort.name().toLowerCase();
+		String windowStr = window.name().toLowerCase();
+
+		return client.enqueue( client.getApi().getCustomGallery( type, sortStr, windowStr, page ) );
+	} // getSubGallery
+
+	protected AsyncCustomGalleryService( BaringoClient client ) {
+		this.client = client;
+	} // constructor
+
+	private BaringoClient client = null;
+
+}
@@ -0,0 +1,318 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.github.kskelm.baringo.model.Comment;
+import com.github.kskelm.baringo.model.Image;
+import com.github.kskelm.baringo.model.ReportReason;
+import com.github.kskelm.baringo.model.TagGallery;
+import com.github.kskelm.baringo.model.TagVote;
+import com.github.kskelm.baringo.model.Vote;
+import com.github.kskelm.baringo.model.Votes;
+import com.github.kskelm.baringo.model.gallery.GalleryImage;
+import com.github.kskelm.baringo.model.gallery.GalleryItem;
+import com.github.kskelm.baringo.model.search.CompoundSearchQuery;
+import com.github.kskelm.baringo.model.search.SearchQuery;
+
+
+/**
+ * Asynchronous version of {@link GalleryService}.  See there
+ * for details on each call.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class AsyncGalleryService {
+
+	/**
+	 * See {@link GalleryService#listGallery(GalleryItem.Section, GalleryItem.Sort, GalleryItem.Window, boolean, int)}
+	 * @param section the section of the gallery - Hot | Top | User
+	 * @param sort the sort for the results - Viral | Time | Top
+	 * @param window the window of time when the section is Top
+	 * @param viral whether or not viral images are to be returned
+	 * @param page the page number to return, starting at 0
+	 * @return future list of GalleryItem objects
+	 */
+	public CompletableFuture<List<GalleryItem>> listGallery(
+			GalleryItem.Section section,
+			GalleryItem.Sort sort,
+			GalleryItem.Window window,
+			boolean viral,
+			int page ) {
+		String sectionStr = section.name().toLowerCase();
+		String sortStr = sort.name().toLowerCase();
+		String windowStr = window.name().toLowerCase();
+
+		return client.enqueue(
+				client.getApi().listGallery( sectionStr, sortStr, windowStr, page, viral ) );
+	} // listGallery
+
+	/**
+	 * See {@link GalleryService#listMemeGallery(GalleryItem.Sort, GalleryItem.Window, int)}
+	 * @param sort the sort direction - Viral | Time | Top
+	 * @param window the time range when the sort is Top
+	 * @param page the page number to return, starting at 0
+	 * @return future list of gallery items
+	 */
+	public CompletableFuture<List<GalleryItem>> listMemeGallery(
+			GalleryItem.Sort sort,
+			GalleryItem.Window window,
+			int page ) {
+		String sortStr = sort.name().toLowerCase();
+		String windowStr = window.name().toLowerCase();
+
+		return client.enqueue(
+				client.getApi().listMemeGallery( sortStr, windowStr, page ) );
+	} // listMemeGallery
+
+	/**
+	 * See {@link GalleryService#listSubredditGallery(String, GalleryItem.Sort, GalleryItem.Window, int)}
+	 * @param subreddit the name of the subreddit
+	 * @param sort the sort direction - Viral | Time | Top
+	 * @param window the time range when the sort is Top
+	 * @param page the page number to return, starting at 0
+	 * @return future list of gallery items
+	 */
+	public CompletableFuture<List<GalleryItem>> listSubredditGallery(
+			String subreddit,
+			GalleryItem.Sort sort,
+			GalleryItem.Window window,
+			int page ) {
+		String sortStr = sort.name().toLowerCase();
+		String windowStr = window.name().toLowerCase();
+
+		return client.enqueue(
+				client.getApi().listSubredditGallery( subreddit, sortStr, windowStr, page ) );
+	} // listSubredditGallery
+
+	/**
+	 * See {@link GalleryService#getSubredditImageInfo(String, String)}
+	 * @param subreddit the name of the subreddit
+	 * @param id the id of the image
+	 * @return future GalleryImage
+	 */
+	public CompletableFuture<GalleryImage> getSubredditImageInfo( String subreddit, String id ) {
+		return client.cachedAsync( EntityCache.Type.GalleryItem, id,
+				() -> client.enqueue( client.getApi().getSubredditImageInfo( subreddit, id ) ) );
+	} // getSubredditImageInfo
+
+	/**
+	 * See {@link GalleryService#getTagGallery(String, GalleryItem.Sort, GalleryItem.Window, int)}
+	 * @param tag the tag for which we want to list a gallery
+	 * @param sort the mechanism for sorting - Viral | Time | Top
+	 * @param window the time window to fetch when the sort is Top
+	 * @param page the page number, starting at 0
+	 * @return future TagGallery
+	 */
+	public CompletableFuture<TagGallery> getTagGallery(
+			String tag,
+			GalleryItem.Sort sort,
+			GalleryItem.Window window,
+			int page ) {
+		String sortStr = sort.name().toLowerCase();
+		String windowStr = window.name().toLowerCase();
+
+		return client.enqueue( client.getApi().getTagGallery( tag, sortStr, windowStr, page ) );
+	} // getTagGallery
+
+	/**
+	 * See {@link GalleryService#getImageInfo(String)}
+	 * @param id the id of the image, for example "PgZtz0j".
+	 * @return future Image object
+	 */
+	public CompletableFuture<Image> getImageInfo( String id ) {
+		return client.async().imageService().getImageInfo( id );
+	} // getImageInfo
+
+	/**
+	 * See {@link GalleryService#getGalleryItemTagVotes(String)}
+	 * @param id the image/album id to return tag votes for
+	 * @return future list of TagVotes
+	 */
+	public CompletableFuture<List<TagVote>> getGalleryItemTagVotes( String id ) {
+		return client.enqueue( client.getApi().getGalleryItemTagVotes( id ) )
+				.thenApply( out -> out.getList() );
+	} // getGalleryItemTagVotes
+
+	/**
+	 * See {@link GalleryService#voteGalleryItemTag(String, String, Vote)}
+	 * @param id the id of the item to vote on
+	 * @param tag the tag to vote up or down
+	 * @param vote the vote, Up or Down
+	 * @return future for whether it worked
+	 */
+	public CompletableFuture<Boolean> voteGalleryItemTag(
+			String id,
+			String tag,
+			Vote vote ) {
+		String voteStr = vote.name().toLowerCase();
+
+		return client.whenDone( client.enqueue( client.getApi().voteGalleryItemTag( id, tag, voteStr ) ),
+				() -> client.uncache( EntityCache.Type.GalleryItem, id ) );
+	} // voteGalleryItemTag
+
+	/**
+	 * See {@link GalleryService#searchGallery(SearchQuery, GalleryItem.Sort, GalleryItem.Window, int)}
+	 * @param query the search query to perform
+	 * @param sort the method of sorting - Viral | Time | Top
+	 * @param window the time range to return when the sort is Top
+	 * @param page the page number to return, starting at 0
+	 * @return future list of GalleryItem objects
+	 */
+	public CompletableFuture<List<GalleryItem>> searchGallery(
+			SearchQuery query,
+			GalleryItem.Sort sort,
+			GalleryItem.Window window,
+			int page ) {
+		String sortStr = sort.name().toLowerCase();
+		String windowStr = window.name().toLowerCase();
+		SearchQuery.ItemType type = query.getItemType();
+		if( type == SearchQuery.ItemType.any ) {
+			type = null;
+		} // if
+		String typeStr = type == null ? null : type.name().toLowerCase();
+		SearchQuery.SizeRange range = query.getSizeRange();
+		if( range == SearchQuery.SizeRange.any ) {
+			range = null;
+		} // if
+		String rangeStr = range == null ? null : range.name().toLowerCase();
+
+		return client.enqueue(
+				client.getApi().searchGallery(
+						sortStr, windowStr, page,
+						query.getAllWords(),
+						query.getAnyWords(),
+						query.getThisPhrase(),
+						query.getNotPhrase(),
+						typeStr,
+						rangeStr ) );
+	} // searchGallery
+
+	/**
+	 * See {@link GalleryService#searchGallery(CompoundSearchQuery, GalleryItem.Sort, GalleryItem.Window, int)}
+	 * @param query the search query to perform
+	 * @param sort the method of sorting- Viral | Time | Top
+	 * @param window the time range to return when the sort is Top
+	 * @param page the page number to return, starting at 0
+	 * @return future list of GalleryItem objects
+	 */
+	public CompletableFuture<List<GalleryItem>> searchGallery(
+			CompoundSearchQuery query,
+			GalleryItem.Sort sort,
+			GalleryItem.Window window,
+			int page ) {
+		String sortStr = sort.name().toLowerCase();
+		String windowStr = window.name().toLowerCase();
+
+		return client.enqueue(
+				client.getApi().compoundSearchGallery(
+						sortStr, windowStr, page,
+						query.toString() ) );
+	} // searchGallery
+
+	/**
+	 * See {@link GalleryService#getRandomGallery(int)}
+	 * @param page the page number to return, starting at 0
+	 * @return future list of GalleryItem objects
+	 */
+	public CompletableFuture<List<GalleryItem>> getRandomGallery( int page ) {
+		return client.enqueue( client.getApi().listRandomGallery( page ) );
+	} // getRandomGallery
+
+	/**
+	 * See {@link GalleryService#shareItem(String, String, int, boolean, boolean)}
+	 * @param itemId id of the item to share
+	 * @param title title of the post
+	 * @param topicId numeric id of the topic to post to, or 0 if none
+	 * @param agreedToTerms whether or not the user agreed to the terms
+	 * @param nsfw True if this item should be marked as "mature"
+	 * @return future for whether it worked
+	 */
+	public CompletableFuture<Boolean> shareItem(
+			String itemId,
+			String title,
+			int topicId,
+			boolean agreedToTerms,
+			boolean nsfw ) {
+		return client.whenDone( client.enqueue( client.getApi().shareGalleryItem(
+				itemId, title, topicId,
+				agreedToTerms ? 1 : 0,
+				nsfw ? 1 : 0 ) ),
+				() -> client.galleryService().uncacheItem( itemId ) );
+	} // shareItem
+
+	/**
+	 * See {@link GalleryService#unshareItem(String)}
+	 * @param itemId id of the item to remove from the gallery
+	 * @return future for whether it worked
+	 */
+	public CompletableFuture<Boolean> unshareItem( String itemId ) {
+		return client.whenDone( client.enqueue( client.getApi().unshareGalleryItem( itemId ) ),
+				() -> client.galleryService().uncacheItem( itemId ) );
+	} // unshareItem
+
+	/**
+	 * See {@link GalleryService#reportItem(String, ReportReason)}
+	 * @param itemId the item id to report
+	 * @param reason why
+	 * @return future for whether it worked
+	 */
+	public CompletableFuture<Boolean> reportItem(
+			String itemId,
+			ReportReason reason ) {
+		int reasonNum = reason.ordinal() + 1;
+
+		return client.enqueue( client.getApi().reportGalleryItem( itemId, reasonNum ) );
+	} // reportItem
+
+	/**
+	 * See {@link GalleryService#getItemVotes(String)}
+	 * @param itemId the item to get votes for
+	 * @return future vote counts
+	 */
+	public CompletableFuture<Votes> getItemVotes( String itemId ) {
+		return client.enqueue( client.getApi().getGalleryItemVotes( itemId ) );
+	} // getItemVotes
+
+	/**
+	 * See {@link GalleryService#getItemComments(String, Comment.Sort)}
+	 * @param itemId the id of the item to get comments for
+	 * @param sort the sort direction - Best | Top | New
+	 * @return future list of comments
+	 */
+	public CompletableFuture<List<Comment>> getItemComments(
+			String itemId,
+			Comment.Sort sort ) {
+		String sortStr = sort.name().toLowerCase();
+
+		return client.enqueue( client.getApi().getGalleryItemComments( itemId, sortStr ) );
+	} // getItemComments
+
+	/**
+	 * See {@link GalleryService#getItemCommentIds(String)}
+	 * @param itemId the id of the item to get comment ids for
+	 * @return future list of comment ids
+	 */
+	public CompletableFuture<List<Long>> getItemCommentIds( String itemId ) {
+		return client.enqueue( client.getApi().getGalleryItemCommentIds( itemId ) );
+	} // getItemCommentIds
+
+	/**
+	 * See {@link GalleryService#getItemCommentCount(String)}
+	 * @param itemId the id of the item to count comments for
+	 * @return future total number of comments
+	 */
+	public CompletableFuture<Integer> getItemCommentCount( String itemId ) {
+		return client.enqueue( client.getApi().getGalleryItemCommentCount( itemId ) );
+	} // getItemCommentCount
+
+	// ================================================
+
+	protected AsyncGalleryService( BaringoClient client ) {
+		this.client = client;
+	} // constructor
+
+	private BaringoClient client = null;
+
+}
@@ -0,0 +1,336 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import com.github.kskelm.baringo.model.Image;
+import com.github.kskelm.baringo.model.ImgurResponseWrapper;
+import com.github.kskelm.baringo.util.BaringoApiException;
+import com.github.kskelm.baringo.util.BaringoAuthException;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.RequestBody;
+
+import retrofit.Response;
+
+
+/**
+ * Asynchronous version of {@link ImageService}.  See there
+ * for details on each call.
+ * <p>
+ * Downloads aren't here; they go through the client's
+ * DownloadTransport rather than the API dispatcher.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class AsyncImageService {
+
+	/**
+	 * See {@link ImageService#getImageInfo(String)}
+	 * @param id the id of the image, for example "PgZtz0j".
+	 * @return future Image object
+	 */
+	public CompletableFuture<Image> getImageInfo( String id ) {
+		return client.cachedAsync( EntityCache.Type.Image, id,
+				() -> client.getSingleFlight().executeAsync( "GET /3/image/" + id,
+						() -> client.enqueue( client.getApi().getImageInfo( id ) ) ) );
+	} // getImageInfo
+
+	/**
+	 * See {@link ImageService#uploadUrlImage(String, String, String, String, String)}
+	 * @param Url the full URL of the image.
+	 * @param fileName original of the file being uploaded (pick something)
+	 * @param albumId the name of the album, the album's deleteHash if it's anonymous, or null if none
+	 * @param title title of image or null if none
+	 * @param description description of image or null if none
+	 * @return future for the new Image object
+	 */
+	public CompletableFuture<Image> uploadUrlImage(
+			String Url,
+			String fileName,
+			String albumId,
+			String title,
+			String description ) {
+		RequestBody body = RequestBody.create(
+				MediaType.parse("text/plain"), Url );
+
+		return client.enqueue( client.getApi().uploadUrlImage(
+				albumId,
+				"URL",
+				title,
+				description,
+				body ) );
+	} // uploadUrlImage
+
+	/**
+	 * See {@link ImageService#uploadLocalImage(String, String, String, String, String)}.
+	 * Problems with the file fail the future with a
+	 * BaringoApiException rather than throwing an IOException.
+	 * @param mimeType mime type like image/png.  If null, Baringo will try to infer this from the fileName.
+	 * @param fileName name of the file being uploaded
+	 * @param albumId the name of the album, the album's deleteHash if it's anonymous, or null if none
+	 * @param title title of image or null if none
+	 * @param description description of image or null if none
+	 * @return future for the new Image object; on an upload index hit, the
+	 *     earlier image with only its id, delete hash and link
+	 */
+	public CompletableFuture<Image> uploadLocalImage(
+			String mimeType,
+			String fileName,
+			String albumId,
+			String title,
+			String description ) {
+		File file = new File( fileName );
+
+		try {
+			if( !file.exists() ) {
+				throw new FileNotFoundException( "File not found: " + fileName );
+			} // if
+			if( !file.canRead() ) {
+				throw new IOException( "Cannot access file " + fileName );
+			} // if
+			mimeType = client.imageService().resolveMimeType( mimeType, fileName );
+		} catch (BaringoApiException e) {
+			return BaringoClient.failedFuture( e );
+		} catch (IOException e) {
+			return BaringoClient.failedFuture( new BaringoApiException( e.getMessage(), e ) );
+		} // try-catch
+
+		// strip the directory hierarchy off the filename.
+		Path path = Paths.get( fileName );
+		String baseName = path.getFileName().toString();
+		byte[] digest;
+		try {
+			digest = client.imageService().uploadDigest( path );
+		} catch (IOException e) {
+			return BaringoClient.failedFuture( new BaringoApiException( e.getMessage(), e ) );
+		} // try-catch
+
+		RequestBody body = RequestBody.create( MediaType.parse(mimeType), file );
+		return upload( body, digest, () -> digest, baseName, albumId, title, description );
+	} // uploadLocalImage
+
+	/**
+	 * See {@link ImageService#uploadImage(InputStream, long, String, String, String, String, String, ProgressListener)}.
+	 * The stream is read on an OkHttp dispatcher thread.
+	 * @param in the image data
+	 * @param length how many bytes the stream holds, or -1 if unknown
+	 * @param mimeType mime type like image/png.  If null, Baringo will try to infer this from the fileName.
+	 * @param fileName name to give the file
+	 * @param albumId the name of the album, the album's deleteHash if it's anonymous, or null if none
+	 * @param title title of image or null if none
+	 * @param description description of image or null if none
+	 * @param listener told how much has been sent, or null
+	 * @return future for the new Image object
+	 */
+	public CompletableFuture<Image> uploadImage(
+			InputStream in,
+			long length,
+			String mimeType,
+			String fileName,
+			String albumId,
+			String title,
+			String description,
+			ProgressListener listener ) {
+		try {
+			mimeType = client.imageService().resolveMimeType( mimeType, fileName );
+		} catch (BaringoApiException e) {
+			return BaringoClient.failedFuture( e );
+		} // try-catch
+
+		DigestInputStream digesting = client.getUploadIndex() != null
+				? UploadIndex.digesting( client.getAuthenticatedUserName(), in )
+				: null;
+		return upload( UploadBody.of( MediaType.parse( mimeType ),
+						digesting != null ? digesting : in, length, listener ),
+				null, () -> digesting != null ? digesting.getMessageDigest().digest() : null,
+				fileName, albumId, title, description );
+	} // uploadImage
+
+	/**
+	 * See {@link ImageService#uploadImage(ByteBuffer, String, String, String, String, String, ProgressListener)}
+	 * @param data the image data
+	 * @param mimeType mime type like image/png.  If null, Baringo will try to infer this from the fileName.
+	 * @param fileName name to give the file
+	 * @param albumId the name of the album, the album's deleteHash if it's anonymous, or null if none
+	 * @param title title of image or null if none
+	 * @param description description of image or null if none
+	 * @param listener told how much has been sent, or null
+	 * @return future for the new Image object; on an upload index hit, the
+	 *     earlier image with only its id, delete hash and link
+	 */
+	public CompletableFuture<Image> uploadImage(
+			ByteBuffer data,
+			String mimeType,
+			String fileName,
+			String albumId,
+			String title,
+			String description,
+			ProgressListener listener ) {
+		try {
+			mimeType = client.imageService().resolveMimeType( mimeType, fileName );
+		} catch (BaringoApiException e) {
+			return BaringoClient.failedFuture( e );
+		} // try-catch
+
+		byte[] digest = client.imageService().uploadDigest( data );
+		return upload( UploadBody.of( MediaType.parse( mimeType ), data, listener ),
+				digest, () -> digest, fileName, albumId, title, description );
+	} // uploadImage
+
+	/**
+	 * See {@link ImageService#uploadImage(Path, String, String, String, String, ProgressListener)}.
+	 * Problems with the file fail the future with a
+	 * BaringoApiException rather than throwing an IOException.
+	 * @param path the file
+	 * @param mimeType mime type like image/png.  If null, Baringo will try to infer this from the file name.
+	 * @param albumId the name of the album, the album's deleteHash if it's anonymous, or null if none
+	 * @param title title of image or null if none
+	 * @param description description of image or null if none
+	 * @param listener told how much has been sent, or null
+	 * @return future for the new Image object; on an upload index hit, the
+	 *     earlier image with only its id, delete hash and link
+	 */
+	public CompletableFuture<Image> uploadImage(
+			Path path,
+			String mimeType,
+			String albumId,
+			String title,
+			String description,
+			ProgressListener listener ) {
+		String fileName = path.getFileName().toString();
+		UploadBody body;
+		byte[] digest;
+		try {
+			mimeType = client.imageService().resolveMimeType( mimeType, fileName );
+			body = UploadBody.of( MediaType.parse( mimeType ), path, listener );
+			digest = client.imageService().uploadDigest( path );
+		} catch (BaringoApiException e) {
+			return BaringoClient.failedFuture( e );
+		} catch (IOException e) {
+			return BaringoClient.failedFuture( new BaringoApiException( e.getMessage(), e ) );
+		} // try-catch
+
+		return upload( body, digest, () -> digest, fileName, albumId, title, description );
+	} // uploadImage
+
+	/**
+	 * Checks the upload index with the digest if there is one, then
+	 * uploads and records the result under whatever the digest turned
+	 * out to be; a stream's isn't known until it's been sent.
+	 */
+	private CompletableFuture<Image> upload(
+			RequestBody body,
+			byte[] digest,
+			Supplier<byte[]> sentDigest,
+			String fileName,
+			String albumId,
+			String title,
+			String description ) {
+		final ImageService images = client.imageService();
+		Image previous = images.previousUpload( digest, albumId );
+		if( previous != null ) {
+			return CompletableFuture.completedFuture( previous );
+		} // if
+
+		return client.enqueue( client.getApi().uploadLocalImage(
+				albumId,
+				"file",
+				title,
+				description,
+				fileName,
+				body ), new BaringoClient.ResponseHandler<ImgurResponseWrapper<Image>,Image>() {
+					@Override
+					public Image handle( Response<ImgurResponseWrapper<Image>> res ) throws BaringoApiException {
+						client.throwOnWrapperError( res );
+						Image image = res.body().getData();
+						images.rememberUpload( sentDigest.get(), image );
+						return image;
+					}
+				} );
+	} // upload
+
+	/**
+	 * See {@link ImageService#updateImage(String, String, String)}
+	 * @param idOrDeleteHash the image id, or the delete hash if it's anonymous
+	 * @param title title of the image or null if none
+	 * @param description description of the image or null if none
+	 * @return future for whether it worked
+	 */
+	public CompletableFuture<Boolean> updateImage(
+			String idOrDeleteHash,
+			String title,
+			String description ) {
+		return client.whenDone( client.enqueue( client.getApi().updateImageInfo( idOrDeleteHash, title, description ) ),
+				() -> client.uncacheIdOrDeleteHash( EntityCache.Type.Image, idOrDeleteHash ) );
+	} // updateImage
+
+	/**
+	 * See {@link ImageService#deleteImage(String)}
+	 * @param idOrDeleteHash the image id, or the delete hash if it's anonymous
+	 * @return future for whether it worked
+	 */
+	public CompletableFuture<Boolean> deleteImage( String idOrDeleteHash ) {
+		CompletableFuture<Boolean> future = client.whenDone( client.enqueue( client.getApi().deleteImage( idOrDeleteHash ) ),
+				() -> client.uncacheIdOrDeleteHash( EntityCache.Type.Image, idOrDeleteHash ) );
+		future.thenAccept( deleted -> {
+			if( deleted ) {
+				client.imageService().forgetUpload( idOrDeleteHash );
+			} // if
+		} );
+		return future;
+	} // deleteImage
+
+	/**
+	 * See {@link ImageService#favoriteImage(Image)}
+	 * @param image the image to favorite.
+	 * @return future for the updated image object
+	 */
+	public CompletableFuture<Image> favoriteImage( Image image ) {
+		if( !client.authService().isUserAuthenticated() ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 401 ) );
+		} // if
+
+		if( image.isFavorite() ) {
+			return CompletableFuture.completedFuture( image ); // already done
+		} // if
+
+		return client.whenDone( client.enqueue( client.getApi().toggleImageFavorite( image.getId() ) ),
+				() -> client.uncache( EntityCache.Type.Image, image.getId() ) );
+	} // favoriteImage
+
+	/**
+	 * See {@link ImageService#unfavoriteImage(Image)}
+	 * @param image the image to unfavorite.
+	 * @return future for the updated image object
+	 */
+	public CompletableFuture<Image> unfavoriteImage( Image image ) {
+		if( !client.authService().isUserAuthenticated() ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 401 ) );
+		} // if
+
+		if( !image.isFavorite() ) {
+			return CompletableFuture.completedFuture( image ); // already done
+		} // if
+
+		return client.whenDone( client.enqueue( client.getApi().toggleImageFavorite( image.getId() ) ),
+				() -> client.uncache( EntityCache.Type.Image, image.getId() ) );
+	} // unfavoriteImage
+
+	// ================================================
+
+	protected AsyncImageService( BaringoClient client ) {
+		this.client = client;
+	} // constructor
+
+	private BaringoClient client = null;
+
+}
@@ -0,0 +1,34 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.github.kskelm.baringo.model.Image;
+
+
+/**
+ * Asynchronous version of {@link MemeService}.  See there
+ * for details on each call.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class AsyncMemeService {
+
+	/**
+	 * See {@link MemeService#listDefaultMemes()}
+	 * @return future image list
+	 */
+	public CompletableFuture<List<Image>> listDefaultMemes() {
+		return client.enqueue( client.getApi().listDefaultMemes() );
+	} // listDefaultMemes
+
+	// ================================================
+
+	protected AsyncMemeService( BaringoClient client ) {
+		this.client = client;
+	} // constructor
+
+	private BaringoClient client = null;
+
+}
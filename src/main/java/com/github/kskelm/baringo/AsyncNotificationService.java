@@ -0,0 +1,81 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.github.kskelm.baringo.model.Notification;
+import com.github.kskelm.baringo.util.BaringoAuthException;
+
+
+/**
+ * Asynchronous version of {@link NotificationService}.  See there
+ * for details on each call.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class AsyncNotificationService {
+
+	/**
+	 * See {@link NotificationService#listReplyNotifications(boolean)}
+	 * @param onlyNew true if the request is for only the unviewed notifications
+	 * @return future list of Notification objects
+	 */
+	public CompletableFuture<List<Notification>> listReplyNotifications( boolean onlyNew ) {
+		if( client.getAuthenticatedUserName() == null ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 401 ) );
+		} // if
+
+		return client.enqueue( client.getApi().listNotifications( onlyNew ) )
+				.thenApply( out -> out.getReplyNotifications() );
+	} // listReplyNotifications
+
+	/**
+	 * See {@link NotificationService#listMessageNotifications(boolean)}
+	 * @param onlyNew whether to get non-viewed notifications
+	 * @return future list of notifications
+	 */
+	public CompletableFuture<List<Notification>> listMessageNotifications( boolean onlyNew ) {
+		if( client.getAuthenticatedUserName() == null ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 401 ) );
+		} // if
+
+		return client.enqueue( client.getApi().listNotifications( onlyNew ) )
+				.thenApply( out -> out.getMessageNotifications() );
+	} // listMessageNotifications
+
+	/**
+	 * See {@link NotificationService#getNotification(long)}
+	 * @param id the id of the notification to return
+	 * @return future Notification object
+	 */
+	public CompletableFuture<Notification> getNotification( long id ) {
+		if( client.getAuthenticatedUserName() == null ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 401 ) );
+		} // if
+
+		return client.enqueue( client.getApi().getNotification( id ) );
+	} // getNotification
+
+	/**
+	 * See {@link NotificationService#markNotificiationViewed(long)}
+	 * @param id the id of the notification to mark viewed
+	 * @return future for whether it worked
+	 */
+	public CompletableFuture<Boolean> markNotificationViewed( long id ) {
+		if( client.getAuthenticatedUserName() == null ) {
+			return BaringoClient.failedFuture( new BaringoAuthException( "No user logged in", 401 ) );
+		} // if
+
+		return client.enqueue( client.getApi().markNotificationViewed( id ) );
+	} // markNotificationViewed
+
+	// ================================================
+
+	protected AsyncNotificationService( BaringoClient client ) {
+		this.client = client;
+	} // constructor
+
+	private BaringoClient client = null;
+
+}
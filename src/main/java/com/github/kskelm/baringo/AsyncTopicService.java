@@ -0,0 +1,54 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.github.kskelm.baringo.model.Topic;
+import com.github.kskelm.baringo.model.gallery.GalleryItem;
+
+
+/**
+ * Asynchronous version of {@link TopicService}.  See there
+ * for details on each call.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class AsyncTopicService {
+
+	/**
+	 * See {@link TopicService#listDefaultTopics()}
+	 * @return future list of Topic objects
+	 */
+	public CompletableFuture<List<Topic>> listDefaultTopics() {
+		return client.enqueue( client.getApi().listDefaultTopics() );
+	} // listDefaultTopics
+
+	/**
+	 * See {@link TopicService#listTopic(int, GalleryItem.Sort, GalleryItem.Window, int)}
+	 * @param topicId the id or URL-formatted name of the topic
+	 * @param sort the sort direction - Viral | Time | Top
+	 * @param window the windowing mechanism if Top
+	 * @param page the page number, starting at 0
+	 * @return future list of GalleryItem objects
+	 */
+	public CompletableFuture<List<GalleryItem>> listTopic(
+			int topicId,
+			GalleryItem.Sort sort,
+			GalleryItem.Window window,
+			int page ) {
+		String sortStr = sort.name().toLowerCase();
+		String windowStr = window.name().toLowerCase();
+
+		return client.enqueue( client.getApi().listTopicItems( topicId, sortStr, windowStr, page ) );
+	} // listTopic
+
+	// ================================================
+
+	protected AsyncTopicService( BaringoClient client ) {
+		this.client = client;
+	} // constructor
+
+	private BaringoClient client = null;
+
+}
@@ -2,6 +2,17 @@
 package com.github.kskelm.baringo;
 
 import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.squareup.okhttp.Request;
 import retrofit.Call;
@@ -15,6 +26,14 @@ import com.github.kskelm.baringo.util.BaringoAuthException;
 
 /**
  * Manages the API's authentication for a specific user.
+ * <p>
+ * The tokens are held as one immutable snapshot, so any number of
+ * threads can make calls while the access token is being replaced.
+ * The access token is renewed in the background a little before
+ * {@link OAuth2#isExpiringSoon()} would kick in, so calls don't
+ * normally wait on a token exchange; if one does find the token
+ * expired, it refreshes it, and any other callers doing the same
+ * share that one refresh.
  * @author Kevin Kelm (triggur@gmail.com)
  */
 public class AuthService {
@@ -35,11 +54,13 @@ public class AuthService {
 	 * @throws BaringoAuthException unable to refresh tokens
 	 */
 	public String setAuthorizationCode( String authCode ) throws BaringoAuthException {
-		this.oAuth2 = null;
-		this.authenticatedAccount = null;
+		synchronized( refreshLock ) {
+			state.set( TokenState.NONE );
+			cancelScheduledRefresh();
 
-		tradeAuthCodeForTokens( authCode );
-		return oAuth2.getRefreshToken();
+			tradeAuthCodeForTokens( authCode );
+			return state.get().oAuth2.getRefreshToken();
+		} // synchronized
 	} // setAuthorizationCode
 
 
@@ -50,7 +71,7 @@ public class AuthService {
 	 * @throws BaringoAuthException whomp whomp
 	 */
 	public boolean isAccessTokenValid()  throws BaringoAuthException {
-		if( oAuth2 == null ) {
+		if( state.get().oAuth2 == null ) {
 			return false;
 		} // if
 		Call<Object> call =
@@ -70,41 +91,66 @@ public class AuthService {
 	 * @throws BaringoApiException the account couldn't be loaded
 	 */
 	public Account getAuthenticatedAccount() throws BaringoApiException {
-		if( oAuth2 == null ) {
+		TokenState current = state.get();
+		if( current.oAuth2 == null ) {
 			return null;
 		} // if
-		if( authenticatedAccount != null ) {
-			return authenticatedAccount;
+		if( current.account != null ) {
+			return current.account;
 		} // if
-		
-		authenticatedAccount = client.accountService().getAccount( oAuth2.getUserName() );
-		return authenticatedAccount;
+
+		Account account = client.accountService().getAccount( current.oAuth2.getUserName() );
+		// only remember it if the same user is still logged in
+		state.compareAndSet( current, current.withAccount( account ) );
+		return account;
 	}
 
 	
 	// =======================================================
 	
 	protected Request buildAuthenticatedRequest(Request request) {
-		if( oAuth2 != null && oAuth2.getAccessToken() != null ) {
-			request = request.newBuilder()
-					.header( "Authorization", getAuthenticationHeader() )
-					.build();
-		} else {
-			request = request.newBuilder()
-					.header( "Authorization", getAuthenticationHeader() )
-					.build();	
-		} // if-else
-		return request;
+		TokenState current = state.get();
+		if( current.oAuth2 != null && current.oAuth2.isExpiringSoon()
+				&& !request.url().getPath().startsWith( OAUTH_PATH ) ) {
+			current = freshState( current );
+		} // if
+		return request.newBuilder()
+				.header( "Authorization", getAuthenticationHeader( current ) )
+				.build();
 	}
 
 	protected String getAuthenticationHeader() {
-		if( oAuth2 != null && oAuth2.getAccessToken() != null ) {
-			return "Bearer " + oAuth2.getAccessToken();
+		return getAuthenticationHeader( state.get() );
+	}
+
+	private String getAuthenticationHeader( TokenState current ) {
+		if( current.oAuth2 != null && current.oAuth2.getAccessToken() != null ) {
+			return "Bearer " + current.oAuth2.getAccessToken();
 		} else {
 			return "Client-ID " + clientId;
 		} // if-else
 	}
 
+	/**
+	 * Called with a token that's expiring soon.  If the background
+	 * refresher is on and the token still works, it's used as-is
+	 * and the refresher is nudged; otherwise the caller waits for
+	 * (or shares) a refresh.  If that fails the old token goes out
+	 * and Imgur gets to say no.
+	 */
+	private TokenState freshState( TokenState current ) {
+		if( backgroundRefresh && current.oAuth2.getExpiresIn() > 0 ) {
+			scheduleRefresh( current, 0 );
+			return current;
+		} // if
+		try {
+			refresh( current );
+		} catch( BaringoAuthException e ) {
+			log.log( Level.WARNING, "Unable to refresh access token", e );
+		} // try-catch
+		return state.get();
+	}
+
 	private boolean tradeAuthCodeForTokens( String authCode ) throws BaringoAuthException {
 		Call<OAuth2> call = client.getApi().tradeAuthCodeForTokens(
 				clientId, clientSecret, "authorization_code", authCode );
@@ -112,10 +158,11 @@ public class AuthService {
 		try {
 			Response<OAuth2> res = call.execute();
 
-			oAuth2 = res.body();
+			OAuth2 oAuth2 = res.body();
 			if( oAuth2 == null ) {
 				throw new BaringoAuthException( res.message(), res.code() );
 			} // if
+			install( new TokenState( oAuth2, oAuth2.getRefreshToken(), null ) );
 
 			return true;
 		} catch (IOException e) {
@@ -124,25 +171,46 @@ public class AuthService {
 
 	} // tradeAuthCodeForTokens
 	
-	private boolean updateAccessToken() throws BaringoAuthException {
-		if( oAuth2 != null && !oAuth2.isExpiringSoon() ) {
+	/**
+	 * Swaps the access token for a new one, unless someone else
+	 * already did since the caller looked at <code>seen</code>.
+	 * Callers that arrive while a refresh is in flight wait for it
+	 * and then find there's nothing left to do.
+	 */
+	private boolean refresh( TokenState seen ) throws BaringoAuthException {
+		synchronized( refreshLock ) {
+			TokenState current = state.get();
+			if( current != seen && current.oAuth2 != null && !current.oAuth2.isExpiringSoon() ) {
+				return true; // somebody beat us to it
+			} // if
+			return updateAccessToken( current );
+		} // synchronized
+	} // refresh
+
+	private boolean updateAccessToken( TokenState current ) throws BaringoAuthException {
+		if( current.oAuth2 != null && !current.oAuth2.isExpiringSoon() ) {
 			return true; // nothing to do! all's well as far as we know.
 		} // if
 		
-		if( refreshToken == null ) {
+		if( current.refreshToken == null ) {
 			throw new BaringoAuthException( "Cannot update OAuth2 access token; need refreshToken or authorizationCode to be set. See setRefreshToken() or setAuthorizationCode().  User-authenticated calls will not work until then.");
 		} // if
 		
 		Call<OAuth2> call = client.getApi().refreshAccessToken(
-				clientId, clientSecret, "refresh_token", refreshToken );
+				clientId, clientSecret, "refresh_token", current.refreshToken );
 
 		try {
 			Response<OAuth2> res = call.execute();
 
-			oAuth2 = res.body();
+			OAuth2 oAuth2 = res.body();
 			if( oAuth2 == null ) {
 				throw new BaringoAuthException( res.message(), res.code() );
 			} // if
+			String refreshToken = oAuth2.getRefreshToken() != null
+					? oAuth2.getRefreshToken()
+					: current.refreshToken;
+			// same user, so the account we already loaded is still good
+			install( new TokenState( oAuth2, refreshToken, current.account ) );
 
 			return true;
 		} catch (IOException e) {
@@ -150,6 +218,88 @@ public class AuthService {
 		} 
 	} // updateAccessToken
 
+	/**
+	 * Publishes a new set of tokens and lines up the next renewal.
+	 * Only called holding refreshLock.
+	 */
+	private void install( TokenState next ) {
+		state.set( next );
+		cancelScheduledRefresh();
+		if( backgroundRefresh ) {
+			long lead = 2L * OAuth2.MIN_EXPIRE_THRESHOLD;
+			long delay = Math.max( 0, next.oAuth2.getExpiresIn() - lead );
+			// spread out sessions that logged in together so they don't all renew at once
+			long jitter = Math.min( MAX_JITTER_SECS, delay / 10 );
+			if( jitter > 0 ) {
+				delay -= ThreadLocalRandom.current().nextLong( jitter + 1 );
+			} // if
+			scheduleRefresh( next, delay );
+		} // if
+	}
+
+	private void scheduleRefresh( TokenState seen, long delaySecs ) {
+		synchronized( scheduleLock ) {
+			if( scheduled != null && !scheduled.isDone() ) {
+				if( delaySecs > 0 || scheduled.getDelay( TimeUnit.SECONDS ) <= 0 ) {
+					return; // one's already lined up
+				} // if
+				scheduled.cancel( false );
+			} // if
+			// the timer only hands off; the blocking POST runs on the workers
+			scheduled = Refresher.TIMER.schedule(
+					() -> Refresher.WORKERS.execute( () -> backgroundRefresh( seen ) ),
+					delaySecs, TimeUnit.SECONDS );
+		} // synchronized
+	}
+
+	private void cancelScheduledRefresh() {
+		synchronized( scheduleLock ) {
+			if( scheduled != null ) {
+				scheduled.cancel( false );
+				scheduled = null;
+			} // if
+		} // synchronized
+	}
+
+	private void backgroundRefresh( TokenState seen ) {
+		if( state.get() != seen ) {
+			return; // tokens changed hands since this was scheduled
+		} // if
+		try {
+			synchronized( refreshLock ) {
+				if( state.get() != seen ) {
+					return;
+				} // if
+				// force it; the token isn't expiring soon yet, that's the point
+				updateAccessToken( seen.expired() );
+			} // synchronized
+		} catch( BaringoAuthException e ) {
+			log.log( Level.WARNING, "Background access token refresh failed; retrying", e );
+			if( state.get() == seen && seen.oAuth2.getExpiresIn() > 0 ) {
+				synchronized( scheduleLock ) {
+					scheduled = null; // that was us
+				} // synchronized
+				scheduleRefresh( seen, RETRY_SECS );
+			} // if
+		} // try-catch
+	}
+
+	protected boolean isBackgroundRefresh() {
+		return backgroundRefresh;
+	}
+
+	/**
+	 * Whether to renew the access token ahead of time on a background
+	 * thread.  Set by the builder; turned off when a pooled session
+	 * is dropped so nothing keeps renewing its tokens.
+	 */
+	protected void setBackgroundRefresh( boolean backgroundRefresh ) {
+		this.backgroundRefresh = backgroundRefresh;
+		if( !backgroundRefresh ) {
+			cancelScheduledRefresh();
+		} // if
+	}
+
 	/**
 	 * Returns the BaringoClient (mostly internal use)
 	 * @return the client
@@ -179,7 +329,7 @@ public class AuthService {
 	 * @return the oAuth2
 	 */
 	public OAuth2 getOAuth2() {
-		return oAuth2;
+		return state.get().oAuth2;
 	}
 
 	/**
@@ -187,7 +337,7 @@ public class AuthService {
 	 * @return true if we're in authenticated user mode
 	 */
 	public boolean isUserAuthenticated() {
-		return oAuth2 != null;
+		return state.get().oAuth2 != null;
 	}
 
 
@@ -196,6 +346,7 @@ public class AuthService {
 	 * @return the name of the authenticated user or null if none
 	 */
 	public String getAuthenticatedUserName() {
+		OAuth2 oAuth2 = state.get().oAuth2;
 		if( oAuth2 == null ) {
 			return null;
 		} // if
@@ -209,10 +360,7 @@ public class AuthService {
 	 * @return the current refresh token
 	 */
 	public String getRefreshToken() {
-		if( this.oAuth2 == null ) {
-			return null;
-		} // if
-		return this.oAuth2.getRefreshToken();
+		return state.get().refreshToken;
 	}
 	
 	/**
@@ -223,12 +371,13 @@ public class AuthService {
 	 * @throws BaringoAuthException couldn't fetch an access token
 	 */
 	public void setRefreshToken( String refreshToken ) throws BaringoAuthException {
+		synchronized( refreshLock ) {
+			cancelScheduledRefresh();
+			TokenState pending = new TokenState( null, refreshToken, null );
+			state.set( pending );
 
-		this.refreshToken = refreshToken;
-		this.oAuth2 = null;
-		this.authenticatedAccount = null;
-		
-		updateAccessToken();	
+			updateAccessToken( pending );
+		} // synchronized
 	} // setRefreshToken
 
 	// ================================================
@@ -236,10 +385,73 @@ public class AuthService {
 
 	private String clientId = null;
 	private String clientSecret = null;
-	private OAuth2 oAuth2 = null;
-	private Account authenticatedAccount = null;
-	
-	private String refreshToken = null;
+
+	/**
+	 * Everything we know about the logged-in user, swapped as a unit
+	 */
+	private static final class TokenState {
+		static final TokenState NONE = new TokenState( null, null, null );
+
+		TokenState( OAuth2 oAuth2, String refreshToken, Account account ) {
+			this.oAuth2 = oAuth2;
+			this.refreshToken = refreshToken;
+			this.account = account;
+		}
+
+		TokenState withAccount( Account account ) {
+			return new TokenState( oAuth2, refreshToken, account );
+		}
+
+		/** Same refresh token and account, but no access token */
+		TokenState expired() {
+			return new TokenState( null, refreshToken, account );
+		}
+
+		final OAuth2 oAuth2;
+		final String refreshToken;
+		final Account account;
+	}
+
+	/**
+	 * One daemon timer thread keeps track of when every client's
+	 * tokens are due, and a few daemon workers do the renewing, so
+	 * a slow refresh holds up only its own worker.  Both are started
+	 * the first time somebody logs in; idle workers go away.
+	 */
+	private static class Refresher {
+		static final ScheduledExecutorService TIMER =
+				Executors.newSingleThreadScheduledExecutor( r -> daemon( r, "baringo-token-timer" ) );
+
+		static final ThreadPoolExecutor WORKERS = workers();
+
+		private static ThreadPoolExecutor workers() {
+			AtomicInteger n = new AtomicInteger();
+			ThreadPoolExecutor pool = new ThreadPoolExecutor( WORKER_THREADS, WORKER_THREADS,
+					60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+					r -> daemon( r, "baringo-token-refresher-" + n.incrementAndGet() ) );
+			pool.allowCoreThreadTimeOut( true );
+			return pool;
+		}
+
+		private static Thread daemon( Runnable r, String name ) {
+			Thread t = new Thread( r, name );
+			t.setDaemon( true );
+			return t;
+		}
+	}
+
+	private static final String OAUTH_PATH = "/oauth2/";
+	private static final long RETRY_SECS = 15;
+	private static final long MAX_JITTER_SECS = 300;
+	private static final int WORKER_THREADS = 4;
+
+	private final AtomicReference<TokenState> state = new AtomicReference<>( TokenState.NONE );
+	private final Object refreshLock = new Object();
+	private final Object scheduleLock = new Object();
+	private ScheduledFuture<?> scheduled = null;
+	private volatile boolean backgroundRefresh = true;
+
+	private static final Logger log = Logger.getLogger( BaringoClient.LOG_NAME );
 
 	protected AuthService( BaringoClient client, String clientId, String clientSecret ) {
 		this.client = client;
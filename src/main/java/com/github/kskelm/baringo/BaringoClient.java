@@ -1,12 +1,25 @@
 /** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
 package com.github.kskelm.baringo;
 
+import java.io.File;
 import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 import com.github.kskelm.baringo.model.Account;
 import com.github.kskelm.baringo.model.ImgurResponseWrapper;
+import com.github.kskelm.baringo.util.ApiRoutes;
+import com.github.kskelm.baringo.util.Jfr;
 import com.github.kskelm.baringo.util.BaringoApiException;
 import com.github.kskelm.baringo.util.RetrofittedImgur;
 
@@ -16,12 +29,20 @@ import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
+import com.squareup.okhttp.ConnectionPool;
 import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
 import com.squareup.okhttp.OkHttpClient;
 import com.squareup.okhttp.Request;
-import com.squareup.okhttp.logging.HttpLoggingInterceptor;
-import com.squareup.okhttp.logging.HttpLoggingInterceptor.Level;
+import com.squareup.okhttp.ResponseBody;
 
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import retrofit.Call;
+import retrofit.Callback;
+import retrofit.Converter;
 import retrofit.GsonConverterFactory;
 import retrofit.Retrofit;
 import retrofit.Response;
@@ -129,6 +150,39 @@ public class BaringoClient {
 		return authSvc;
 	} 
 
+	/**
+	 * Returns the asynchronous flavor of this client's services.
+	 * Each method there mirrors its synchronous twin, but hands back
+	 * a CompletableFuture right away instead of blocking the
+	 * calling thread until Imgur answers.
+	 * @return the async services
+	 */
+	public AsyncClient async() {
+		return asyncClient;
+	} 
+
+	/**
+	 * Creates a session: another client, for another user, that
+	 * shares this one's connections, dispatcher, Gson and Retrofit
+	 * plumbing instead of building its own.  The session has its
+	 * own {@link AuthService}, {@link Quota} and rate limiter (which
+	 * shares this client's application credits, since Imgur counts
+	 * those per client id), so
+	 * log it in with {@link AuthService#setRefreshToken(String)}
+	 * as usual.  It does not share this client's entity cache (one
+	 * user's private album shouldn't turn up for another).  It does
+	 * share the HTTP cache if there is one, but only ever gets its
+	 * own user's entries back out of it.
+	 * <p>
+	 * Sessions are cheap, a couple dozen small objects each, so
+	 * keeping thousands of them around is fine.  See
+	 * {@link ClientPool} for a way to keep track of them.
+	 * @return the new session
+	 */
+	public BaringoClient newSession() {
+		return new BaringoClient( this );
+	}
+
 	/**
 	 * Returns an object that describes the remaining quotas left over for this client
 	 * @return quota information
@@ -137,6 +191,99 @@ public class BaringoClient {
 		return quota;
 	} 
 
+	/**
+	 * Returns the transport used for downloading images.  All
+	 * downloads from this client share its connection pool.
+	 * @return the download transport
+	 */
+	public DownloadTransport getDownloadTransport() {
+		return downloadTransport;
+	}
+
+	/**
+	 * Returns the client-side rate limiter that paces calls against
+	 * the remaining {@link Quota}.  It's off unless the client was
+	 * built with {@link Builder#rateLimit(RateLimiter.Policy)}.
+	 * @return the rate limiter
+	 */
+	public RateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+	/**
+	 * Returns the layer that collapses identical concurrent
+	 * getAlbum/getImageInfo/getAccount calls into one network call,
+	 * along with its counters.
+	 * @return the single-flight layer
+	 */
+	public SingleFlight getSingleFlight() {
+		return singleFlight;
+	}
+
+	/**
+	 * Returns the cache of images, albums, accounts, comments and
+	 * gallery items, for looking at hit rates or evicting things
+	 * by hand.
+	 * @return the cache, or null if the client was built without one
+	 */
+	public EntityCache getEntityCache() {
+		return entityCache;
+	}
+
+	/**
+	 * Returns the on-disk HTTP cache and its per-endpoint counters
+	 * @return the cache, or null if the client was built without one
+	 */
+	public HttpCache getHttpCache() {
+		return httpCache;
+	}
+
+	/**
+	 * Returns the index of earlier uploads that lets the same bytes
+	 * skip being uploaded twice
+	 * @return the index, or null if the client was built without one
+	 */
+	public UploadIndex getUploadIndex() {
+		return uploadIndex;
+	}
+
+	/**
+	 * Returns the retry and circuit breaker policy, with its
+	 * per-endpoint counters
+	 * @return the policy, or null if the client was built without one
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * Returns the policy that hedges slow reads, with its counters
+	 * and the latencies it's learned
+	 * @return the policy, or null if the client was built without one
+	 */
+	public HedgingPolicy getHedgingPolicy() {
+		return hedgingPolicy;
+	}
+
+	/**
+	 * Returns where this client reports latencies, sizes, status
+	 * codes and the like
+	 * @return the metrics, or null if the client was built without any
+	 */
+	public ApiMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns the Gson that API responses are parsed with, with
+	 * every one of Baringo's type adapters registered, for reading
+	 * Imgur JSON that came from somewhere other than a live call
+	 * @return the Gson
+	 */
+	public Gson getGson() {
+		return gson;
+	}
+
 	/**
 	 * As a convenience measure, return the username of the logged-in user
 	 * @return user name or null if none
@@ -183,6 +330,303 @@ public class BaringoClient {
 			return this;
 		} // clientAuth
 
+		/**
+		 * Points this client at a different API base URL, such as
+		 * the Mashape commercial endpoint or a local stand-in for
+		 * testing.  Other clients are unaffected.  Defaults to
+		 * whatever {@link BaringoClient#getApiEndpoint()} says when
+		 * the client is built.
+		 * @param url the base URL, e.g. "https://api.imgur.com/"
+		 * @return This builder object
+		 */
+		public Builder apiEndpoint( String url ) {
+			this._apiEndpoint = url;
+
+			return this;
+		} // apiEndpoint
+
+		/**
+		 * Runs this client's calls and downloads over another client's
+		 * connection pools and async dispatcher, so several clients
+		 * (a production one and a shadow one against a stand-in
+		 * server, say) don't each open their own connections and
+		 * threads.  The endpoint, authentication, {@link Quota} and
+		 * everything else stay separate.  When sharing, the
+		 * download pool and async concurrency settings on this
+		 * builder are ignored; the other client's apply.
+		 * @param other the client whose transport to use
+		 * @return This builder object
+		 */
+		public Builder shareTransport( BaringoClient other ) {
+			this._sharedTransport = other;
+
+			return this;
+		} // shareTransport
+
+
+		/**
+		 * Sizes the connection pool shared by image downloads.
+		 * Idle connections beyond maxIdleConnections, or idle longer
+		 * than the keep-alive, get closed.
+		 * @param maxIdleConnections the most idle connections to keep around
+		 * @param keepAlive how long an idle connection is kept
+		 * @param unit the unit for keepAlive
+		 * @return This builder object
+		 */
+		public Builder downloadConnectionPool( int maxIdleConnections, long keepAlive, TimeUnit unit ) {
+			this._downloadMaxIdleConnections = maxIdleConnections;
+			this._downloadKeepAliveMs = unit.toMillis( keepAlive );
+
+			return this;
+		} // downloadConnectionPool
+
+		/**
+		 * Sets how many image downloads may run against a single
+		 * host at the same time.  Callers past this limit wait for
+		 * a slot to free up.
+		 * @param maxRequestsPerHost the per-host concurrency limit
+		 * @return This builder object
+		 */
+		public Builder downloadMaxRequestsPerHost( int maxRequestsPerHost ) {
+			this._downloadMaxRequestsPerHost = maxRequestsPerHost;
+
+			return this;
+		} // downloadMaxRequestsPerHost
+
+		/**
+		 * Sets how many asynchronous API calls may be in flight at
+		 * once, overall and against a single host.  Everything but
+		 * downloads goes to the same host, so if you want hundreds
+		 * of async calls outstanding, raise both.  Calls past these
+		 * limits queue up until a slot frees.
+		 * @param maxRequests the most async calls in flight overall
+		 * @param maxRequestsPerHost the most async calls in flight per host
+		 * @return This builder object
+		 */
+		public Builder asyncConcurrency( int maxRequests, int maxRequestsPerHost ) {
+			this._maxAsyncRequests = maxRequests;
+			this._maxAsyncRequestsPerHost = maxRequestsPerHost;
+
+			return this;
+		} // asyncConcurrency
+
+		/**
+		 * Turns on HTTP traffic logging to the {@link BaringoClient#LOG_NAME}
+		 * logger.  Off (NONE) by default, in which case no logging
+		 * code runs at all.
+		 * @param level how much of each request/response to log
+		 * @return This builder object
+		 */
+		public Builder httpLogging( HttpLogger.Level level ) {
+			this._logLevel = level;
+
+			return this;
+		} // httpLogging
+
+		/**
+		 * Caps how many bytes of any one request or response body
+		 * get logged at HttpLogger.Level.BODY.  Bigger request bodies
+		 * aren't logged at all; bigger response bodies are truncated.
+		 * @param maxBytes the body limit in bytes
+		 * @return This builder object
+		 */
+		public Builder httpLogBodyLimit( long maxBytes ) {
+			this._logBodyLimit = maxBytes;
+
+			return this;
+		} // httpLogBodyLimit
+
+		/**
+		 * Logs only a random fraction of requests, for busy clients
+		 * where logging every call would drown the log.
+		 * @param rate between 0.0 (none) and 1.0 (all, the default)
+		 * @return This builder object
+		 */
+		public Builder httpLogSampleRate( double rate ) {
+			this._logSampleRate = rate;
+
+			return this;
+		} // httpLogSampleRate
+
+		/**
+		 * Paces API calls so they stay inside the credits Imgur
+		 * reports back, spreading what's left across the time until
+		 * the next reset.  POSTs and everything else are metered
+		 * separately.  Off by default.
+		 * @param policy BLOCK to wait for a credit, FAIL_FAST to fail
+		 *   the call with an HTTP 429 instead, OFF to not limit
+		 * @return This builder object
+		 */
+		public Builder rateLimit( RateLimiter.Policy policy ) {
+			this._rateLimitPolicy = policy;
+
+			return this;
+		} // rateLimit
+
+		/**
+		 * How many calls may go out back-to-back before the rate
+		 * limiter starts spacing them out.
+		 * @param burst the bucket size, at least 1
+		 * @return This builder object
+		 */
+		public Builder rateLimitBurst( int burst ) {
+			this._rateLimitBurst = Math.max( 1, burst );
+
+			return this;
+		} // rateLimitBurst
+
+		/**
+		 * Whether concurrent identical getAlbum, getImageInfo and
+		 * getAccount calls share one network call.  On by default.
+		 * @param coalesce false to give every call its own request
+		 * @return This builder object
+		 */
+		public Builder coalesceRequests( boolean coalesce ) {
+			this._coalesceRequests = coalesce;
+
+			return this;
+		} // coalesceRequests
+
+		/**
+		 * Whether a background thread renews the logged-in user's
+		 * access token shortly before it expires, so calls never
+		 * wait on a token exchange.  On by default.  When off, the
+		 * token is renewed by whichever call first finds it
+		 * expiring.
+		 * @param refresh false to renew tokens on the calling thread
+		 * @return This builder object
+		 */
+		public Builder backgroundTokenRefresh( boolean refresh ) {
+			this._backgroundTokenRefresh = refresh;
+
+			return this;
+		} // backgroundTokenRefresh
+
+		/**
+		 * Caches images, albums, accounts, comments and gallery items
+		 * so repeated lookups don't go back to Imgur.  Entries are
+		 * dropped automatically when this client changes them.  There
+		 * is no cache by default.
+		 * @param cache e.g. a {@link LruEntityCache}, or null for none
+		 * @return This builder object
+		 */
+		public Builder entityCache( EntityCache cache ) {
+			this._entityCache = cache;
+
+			return this;
+		} // entityCache
+
+		/**
+		 * Keeps API responses on disk and revalidates them with
+		 * If-None-Match / If-Modified-Since, so unchanged gallery pages,
+		 * topic lists and the like come back as a cheap 304.  Off by
+		 * default.
+		 * @param directory where to keep the cache; should be private to this client
+		 * @param maxBytes the most to keep on disk, e.g. {@link HttpCache#DEFAULT_MAX_SIZE}
+		 * @return This builder object
+		 */
+		public Builder httpCache( File directory, long maxBytes ) {
+			this._httpCacheDir = directory;
+			this._httpCacheMaxSize = maxBytes;
+
+			return this;
+		} // httpCache
+
+		/**
+		 * How long a cached response can be reused without asking
+		 * Imgur whether it's changed.  The default, 0, revalidates
+		 * every time.
+		 * @param freshFor how long responses stay fresh
+		 * @param unit units for freshFor
+		 * @return This builder object
+		 */
+		public Builder httpCacheFreshness( long freshFor, TimeUnit unit ) {
+			this._httpCacheFreshMs = unit.toMillis( freshFor );
+
+			return this;
+		} // httpCacheFreshness
+
+		/**
+		 * Remembers uploads by a digest of their bytes, so uploading
+		 * the same file or buffer again returns the earlier image
+		 * without touching the network.  That image has only its id,
+		 * delete hash and link filled in.  InputStream uploads are
+		 * recorded but can't be looked up.  Off by default.  Sessions
+		 * share their parent's index.
+		 * @param index from {@link UploadIndex#open(java.nio.file.Path)}, or null for none
+		 * @return This builder object
+		 */
+		public Builder uploadIndex( UploadIndex index ) {
+			this._uploadIndex = index;
+
+			return this;
+		} // uploadIndex
+
+		/**
+		 * Retries GETs that fail with connection trouble, 5xx or 429,
+		 * and trips a per-endpoint circuit breaker on an endpoint that
+		 * keeps failing.  Off by default, in which case every failure
+		 * goes straight back to the caller.
+		 * @param policy e.g. new RetryPolicy.Builder().build(), or null for none
+		 * @return This builder object
+		 */
+		public Builder retryPolicy( RetryPolicy policy ) {
+			this._retryPolicy = policy;
+
+			return this;
+		} // retryPolicy
+
+		/**
+		 * Sends a second copy of a slow getImageInfo, getAlbum or
+		 * getComment and takes whichever answer comes first, within
+		 * a quota budget.  Off by default.
+		 * @param policy e.g. new HedgingPolicy.Builder().build(), or null for none
+		 * @return This builder object
+		 */
+		public Builder hedging( HedgingPolicy policy ) {
+			this._hedgingPolicy = policy;
+
+			return this;
+		} // hedging
+
+		/**
+		 * Reports every call's latency, status, response size, parse
+		 * time and retries, per RetrofittedImgur method.  Off by
+		 * default, in which case none of it is measured.
+		 * @param metrics e.g. new InProcessMetrics(), or null for none
+		 * @return This builder object
+		 */
+		public Builder metrics( ApiMetrics metrics ) {
+			this._metrics = metrics;
+
+			return this;
+		} // metrics
+
+		/**
+		 * Writes every API call the client makes, request and
+		 * response, into an archive that a ReplayTransport can play
+		 * back.  Off by default.  Sessions record into the same
+		 * archive.
+		 * @param recorder from {@link TrafficRecorder#open(java.nio.file.Path)}, or null for none
+		 * @return This builder object
+		 */
+		public Builder record( TrafficRecorder recorder ) {
+			this._recorder = recorder;
+
+			return this;
+		} // record
+
+		/**
+		 * Answers every API call out of a recorded archive instead of
+		 * going to the network.  Off by default.
+		 * @param replay e.g. new ReplayTransport.Builder( archive ).build(), or null for none
+		 * @return This builder object
+		 */
+		public Builder replay( ReplayTransport replay ) {
+			this._replay = replay;
+
+			return this;
+		} // replay
 
 		/**
 		 * Constructs the BaringoClient and returns it
@@ -190,34 +634,116 @@ public class BaringoClient {
 		 * @throws BaringoApiException Unable to build the client
 		 */
 		public BaringoClient build() throws BaringoApiException {
-			BaringoClient client = new BaringoClient( _clientId, _clientSecret );
+			String endpoint = _apiEndpoint != null ? _apiEndpoint : getApiEndpoint();
+			DownloadTransport downloads = _sharedTransport != null
+					? _sharedTransport.downloadTransport
+					: new DownloadTransport(
+							_downloadMaxIdleConnections,
+							_downloadKeepAliveMs,
+							_downloadMaxRequestsPerHost );
+			BaringoClient client = new BaringoClient( _clientId, _clientSecret, endpoint, downloads );
+			if( _sharedTransport != null ) {
+				OkHttpClient shared = _sharedTransport.client;
+				client.client.setConnectionPool( shared.getConnectionPool() != null
+						? shared.getConnectionPool()
+						: ConnectionPool.getDefault() );
+				client.client.setDispatcher( shared.getDispatcher() );
+			} else {
+				client.client.getDispatcher().setMaxRequests( _maxAsyncRequests );
+				client.client.getDispatcher().setMaxRequestsPerHost( _maxAsyncRequestsPerHost );
+			} // if-else
+			if( _logLevel != HttpLogger.Level.NONE && _logSampleRate > 0.0 ) {
+				client.client.interceptors().add(
+						new HttpLogger( _logLevel, _logBodyLimit, _logSampleRate ) );
+			} // if
+			client.rateLimiter = new RateLimiter( _rateLimitPolicy, _rateLimitBurst );
+			client.singleFlight = new SingleFlight( _coalesceRequests );
+			client.entityCache = _entityCache;
+			client.uploadIndex = _uploadIndex;
+			client.retryPolicy = _retryPolicy;
+			client.hedgingPolicy = _hedgingPolicy;
+			if( _retryPolicy != null ) {
+				_retryPolicy.install( client.client, client );
+			} // if
+			client.metrics = _metrics;
+			if( _metrics != null ) {
+				// outermost, so latency is what the caller waited through
+				client.client.interceptors().add( 0, new MetricsInterceptor( _metrics ) );
+			} // if
+			if( Jfr.AVAILABLE ) {
+				client.client.interceptors().add( 0, Jfr.apiInterceptor() );
+			} // if
+			client.authSvc.setBackgroundRefresh( _backgroundTokenRefresh );
+			if( _httpCacheDir != null ) {
+				client.httpCache = new HttpCache( _httpCacheDir, _httpCacheMaxSize,
+						_httpCacheFreshMs, TimeUnit.MILLISECONDS );
+				client.httpCache.install( client.client );
+			} // if
+			if( _recorder != null ) {
+				_recorder.install( client.client );
+			} // if
+			if( _replay != null ) {
+				_replay.install( client.client );
+			} // if
 
 			return client;
 		} // build
 
 		private String _clientId = null;
 		private String _clientSecret = null;
+		private String _apiEndpoint = null;
+		private BaringoClient _sharedTransport = null;
+		private int _downloadMaxIdleConnections = DownloadTransport.DEFAULT_MAX_IDLE_CONNECTIONS;
+		private long _downloadKeepAliveMs = DownloadTransport.DEFAULT_KEEP_ALIVE_MS;
+		private int _downloadMaxRequestsPerHost = DownloadTransport.DEFAULT_MAX_REQUESTS_PER_HOST;
+		private int _maxAsyncRequests = DEFAULT_MAX_ASYNC_REQUESTS;
+		private int _maxAsyncRequestsPerHost = DEFAULT_MAX_ASYNC_REQUESTS_PER_HOST;
+		private HttpLogger.Level _logLevel = HttpLogger.Level.NONE;
+		private long _logBodyLimit = HttpLogger.DEFAULT_BODY_LIMIT;
+		private double _logSampleRate = HttpLogger.DEFAULT_SAMPLE_RATE;
+		private RateLimiter.Policy _rateLimitPolicy = RateLimiter.Policy.OFF;
+		private int _rateLimitBurst = RateLimiter.DEFAULT_BURST;
+		private boolean _coalesceRequests = true;
+		private boolean _backgroundTokenRefresh = true;
+		private EntityCache _entityCache = null;
+		private File _httpCacheDir = null;
+		private long _httpCacheMaxSize = HttpCache.DEFAULT_MAX_SIZE;
+		private long _httpCacheFreshMs = 0;
+		private UploadIndex _uploadIndex = null;
+		private RetryPolicy _retryPolicy = null;
+		private HedgingPolicy _hedgingPolicy = null;
+		private ApiMetrics _metrics = null;
+		private TrafficRecorder _recorder = null;
+		private ReplayTransport _replay = null;
 	}
 
 
 	/**
 	 * Used for switching to the mashape commercial endpoint,
-	 * or for mocking.  NOTE that there can only be one
-	 * API endpoint in the system at a time; even if you
-	 * create a new client, they all still share the same
-	 * URL endpoints.
+	 * or for mocking.  This sets the default for clients built
+	 * from now on; clients that already exist keep the endpoint
+	 * they were built with.  To give a single client its own
+	 * endpoint, use {@link Builder#apiEndpoint(String)}.
 	 * @param url new endpoint
 	 */
 	public static void setApiEndpoint( String url ) {
-		BaringoClient.apiEndpoint = url;
+		BaringoClient.defaultApiEndpoint = url;
 	}
 
 	/**
-	 * Fetch the current api endpoint base url
+	 * Fetch the default api endpoint base url for new clients
 	 * @return the api endpoint base url
 	 */
 	public static String getApiEndpoint() {
-		return BaringoClient.apiEndpoint;
+		return BaringoClient.defaultApiEndpoint;
+	}
+
+	/**
+	 * Returns the api endpoint base url this client talks to
+	 * @return the api endpoint base url
+	 */
+	public String getEndpoint() {
+		return apiEndpoint;
 	}
 	
 	// =========================================================
@@ -231,15 +757,22 @@ public class BaringoClient {
 	 * later.
 	 * @param clientId the clientID string for your client. If you haven't got one yet, <a href="https://api.imgur.com/oauth2/addclient">register</a>. You'll need to register as OAuth 2 without a callback URL.
 	 * @param clientSecret the clientID string for your client. If you haven't got one yet, <a href="https://api.imgur.com/oauth2/addclient">register</a>. You'll need to register as OAuth 2 without a callback URL.  THIS IS A SECRET- DO NOT SHARE IT. STORE THIS IN A SECURE PLACE.
+	 * @param apiEndpoint the api base url
+	 * @param downloadTransport the transport image downloads go through
 	 * @throws BaringoApiException the clientId or clientSecret were not supplied
 	 */
-	protected BaringoClient( String clientId, String clientSecret ) throws BaringoApiException {
+	protected BaringoClient( String clientId, String clientSecret, String apiEndpoint, DownloadTransport downloadTransport ) throws BaringoApiException {
 		if( clientId == null || clientSecret == null ) {
 			throw new BaringoApiException( "Must have clientId and clientSecret to run Baringo.  See http://api.imgur.com/");
 		} // if
+		if( apiEndpoint == null ) {
+			throw new BaringoApiException( "Must have an API endpoint" );
+		} // if
 
 		this.clientId = clientId;
 		this.clientSecret = clientSecret;
+		this.apiEndpoint = apiEndpoint.endsWith( "/" ) ? apiEndpoint : apiEndpoint + "/";
+		this.downloadTransport = downloadTransport;
 		this.api = create();
 	} // constructor
 
@@ -261,21 +794,285 @@ public class BaringoClient {
 		} // if
 	} // throwOnWrapperError
 
+	/**
+	 * Turns a raw Retrofit response into whatever the caller
+	 * actually wants, or throws trying.  This is the async
+	 * equivalent of the body of the try block every synchronous
+	 * service method has.
+	 */
+	protected interface ResponseHandler<X,T> {
+		T handle( Response<X> res ) throws BaringoApiException, IOException;
+	}
+
+	/**
+	 * Enqueues the call and returns a future that completes with the
+	 * unwrapped data, or exceptionally with a BaringoApiException.
+	 * Cancelling the future cancels the HTTP call.
+	 * @param call the call to enqueue
+	 * @return a future for the result
+	 */
+	protected <T> CompletableFuture<T> enqueue( Call<ImgurResponseWrapper<T>> call ) {
+		return enqueue( call, new ResponseHandler<ImgurResponseWrapper<T>,T>() {
+			@Override
+			public T handle( Response<ImgurResponseWrapper<T>> res ) throws BaringoApiException {
+				throwOnWrapperError( res );
+				return res.body().getData();
+			}
+		} );
+	} // enqueue
+
+	/**
+	 * Enqueues the call and returns a future that completes with
+	 * whatever the handler makes of the response.
+	 * @param call the call to enqueue
+	 * @param handler turns the response into a result
+	 * @return a future for the result
+	 */
+	protected <X,T> CompletableFuture<T> enqueue( final Call<X> call, final ResponseHandler<X,T> handler ) {
+		final CompletableFuture<T> future = new CompletableFuture<T>() {
+			@Override
+			public boolean cancel( boolean mayInterruptIfRunning ) {
+				call.cancel();
+				return super.cancel( mayInterruptIfRunning );
+			}
+		};
+
+		call.enqueue( new Callback<X>() {
+			@Override
+			public void onResponse( Response<X> res, Retrofit retrofit ) {
+				try {
+					future.complete( handler.handle( res ) );
+				} catch (BaringoApiException e) {
+					future.completeExceptionally( e );
+				} catch (IOException | RuntimeException e) {
+					future.completeExceptionally( new BaringoApiException( e.getMessage(), e ) );
+				} // try-catch
+			}
+
+			@Override
+			public void onFailure( Throwable t ) {
+				future.completeExceptionally( new BaringoApiException( t.getMessage(), t ) );
+			}
+		} );
+
+		return future;
+	} // enqueue
+
+	/**
+	 * Java 8 doesn't have CompletableFuture.failedFuture()
+	 * @param e the exception to fail with
+	 * @return an already-failed future
+	 */
+	protected static <T> CompletableFuture<T> failedFuture( Throwable e ) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		future.completeExceptionally( e );
+		return future;
+	} // failedFuture
+
+	/**
+	 * Returns the cached object if there is one, otherwise loads it
+	 * and caches the result.  With no cache installed it just loads.
+	 * If the object is uncached while it's loading, what was loaded
+	 * may predate the change, so it isn't kept.
+	 * @param type kind of object
+	 * @param key the object's key
+	 * @param loader fetches the object on a miss
+	 * @return the object
+	 * @throws BaringoApiException if the load failed
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> T cached( EntityCache.Type type, String key, SingleFlight.Loader<T> loader ) throws BaringoApiException {
+		if( entityCache == null ) {
+			return loader.load();
+		} // if
+		T value = (T)entityCache.get( type, key );
+		if( value == null ) {
+			long epoch = cacheEpochs.get( epochSlot( type, key ) );
+			value = loader.load();
+			store( type, key, value, epoch );
+		} // if
+		return value;
+	} // cached
+
+	/**
+	 * Asynchronous flavor of {@link #cached}.  Cancelling the future
+	 * cancels the load.
+	 * @param type kind of object
+	 * @param key the object's key
+	 * @param loader fetches the object on a miss
+	 * @return a future for the object
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> CompletableFuture<T> cachedAsync( EntityCache.Type type, String key,
+			Supplier<CompletableFuture<T>> loader ) {
+		if( entityCache == null ) {
+			return loader.get();
+		} // if
+		T value = (T)entityCache.get( type, key );
+		if( value != null ) {
+			return CompletableFuture.completedFuture( value );
+		} // if
+		long epoch = cacheEpochs.get( epochSlot( type, key ) );
+		CompletableFuture<T> load = loader.get();
+		CompletableFuture<T> future = new CompletableFuture<T>() {
+			@Override
+			public boolean cancel( boolean mayInterruptIfRunning ) {
+				load.cancel( mayInterruptIfRunning );
+				return super.cancel( mayInterruptIfRunning );
+			}
+		};
+		load.whenComplete( ( loaded, err ) -> {
+			if( err != null ) {
+				future.completeExceptionally( err );
+			} else {
+				store( type, key, loaded, epoch );
+				future.complete( loaded );
+			} // if-else
+		} );
+		return future;
+	} // cachedAsync
+
+	/**
+	 * Drops an object that's just been changed on Imgur from the cache
+	 * @param type kind of object
+	 * @param key the object's key
+	 */
+	protected void uncache( EntityCache.Type type, String key ) {
+		if( entityCache != null && key != null ) {
+			cacheEpochs.incrementAndGet( epochSlot( type, key ) );
+			entityCache.invalidate( type, key );
+		} // if
+	} // uncache
+
+	/**
+	 * Like {@link #uncache}, for calls that take an id <i>or</i> a
+	 * delete hash.  A delete hash can't be mapped back to the id the
+	 * object was cached under, so if nothing was cached under the key
+	 * everything of that kind is dropped to be safe.
+	 * @param type kind of object
+	 * @param idOrDeleteHash the object's id or delete hash
+	 */
+	protected void uncacheIdOrDeleteHash( EntityCache.Type type, String idOrDeleteHash ) {
+		if( entityCache == null ) {
+			return;
+		} // if
+		cacheEpochs.incrementAndGet( epochSlot( type, idOrDeleteHash ) );
+		if( !entityCache.invalidate( type, idOrDeleteHash ) ) {
+			for( int i = 0; i < EPOCH_STRIPES; i++ ) {
+				cacheEpochs.incrementAndGet( type.ordinal() * EPOCH_STRIPES + i );
+			} // for
+			entityCache.invalidateAll( type );
+		} // if
+	} // uncacheIdOrDeleteHash
+
+	/**
+	 * Caches a freshly loaded object, unless it was uncached while
+	 * loading.  Puts first and checks after, so an uncache that lands
+	 * anywhere in between either sees the entry or is seen.
+	 */
+	private void store( EntityCache.Type type, String key, Object value, long epoch ) {
+		entityCache.put( type, key, value );
+		if( cacheEpochs.get( epochSlot( type, key ) ) != epoch ) {
+			entityCache.invalidate( type, key );
+		} // if
+	} // store
+
+	private static int epochSlot( EntityCache.Type type, String key ) {
+		return type.ordinal() * EPOCH_STRIPES + ( (key == null ? 0 : key.hashCode()) & (EPOCH_STRIPES - 1) );
+	} // epochSlot
+
+	/**
+	 * Runs the action once the future completes, either way, and
+	 * returns the same future so that cancelling it still cancels
+	 * the call.  Used by the async services to uncache things after
+	 * changing them.
+	 * @param future the future to watch
+	 * @param action what to run when it's done
+	 * @return the same future
+	 */
+	protected <T> CompletableFuture<T> whenDone( CompletableFuture<T> future, Runnable action ) {
+		future.whenComplete( ( value, err ) -> action.run() );
+		return future;
+	} // whenDone
+
+	/**
+	 * Executes an idempotent read, hedged if the client has a
+	 * HedgingPolicy that covers the endpoint
+	 * @param call the call to execute
+	 * @param endpoint the RetrofittedImgur method name
+	 * @return the response
+	 * @throws IOException if the call (and its hedge, if any) failed
+	 */
+	protected <T> Response<T> executeRead( Call<T> call, String endpoint ) throws IOException {
+		return hedgingPolicy != null
+				? hedgingPolicy.execute( call, endpoint )
+				: call.execute();
+	} // executeRead
+
+	/**
+	 * Construct a session: a client for one more user that borrows
+	 * the parent's HTTP client, Retrofit proxy, Gson and download
+	 * transport, and only has its own authentication, quota,
+	 * rate limiter and service objects.
+	 * @param parent the client to borrow from
+	 */
+	protected BaringoClient( BaringoClient parent ) {
+		this.clientId = parent.clientId;
+		this.clientSecret = parent.clientSecret;
+		this.apiEndpoint = parent.apiEndpoint;
+		this.downloadTransport = parent.downloadTransport;
+		this.client = parent.client;
+		this.sharedApi = parent.sharedApi;
+		this.gson = parent.gson;
+		this.httpCache = parent.httpCache;
+		this.uploadIndex = parent.uploadIndex;
+		this.retryPolicy = parent.retryPolicy;
+		this.hedgingPolicy = parent.hedgingPolicy;
+		this.metrics = parent.metrics;
+		this.rateLimiter = parent.rateLimiter.copy();
+		this.singleFlight = new SingleFlight( parent.singleFlight.isEnabled() );
+		this.api = (RetrofittedImgur)Proxy.newProxyInstance(
+				RetrofittedImgur.class.getClassLoader(),
+				new Class<?>[] { RetrofittedImgur.class },
+				new SessionApi( sharedApi, this ) );
+
+		createServices( null );
+		authSvc.setBackgroundRefresh( parent.authSvc.isBackgroundRefresh() );
+	} // constructor
+
 	private RetrofittedImgur create() {
-		client = new OkHttpClient();
+		client = new SessionAwareHttpClient();
 		client.interceptors().add(new ImgurInterceptor());
 
-		HttpLoggingInterceptor logging = new HttpLoggingInterceptor(  );  
-		logging.setLevel(Level.BODY);
-		client.interceptors().add( logging );
-			
-		
 		final GsonBuilder gsonBuilder = new GsonBuilder();
 		gsonBuilder.registerTypeAdapter(Date.class, new DateAdapter());
 
-		// create the various domain-specific
-		// services, giving them a chance to register any Gson
-		// type adapters they're going to need.
+		createServices( gsonBuilder );
+
+		// build the gson object
+		gson = gsonBuilder.create();
+
+		// start up the API client
+		Converter.Factory gcf = GsonConverterFactory.create( gson );
+		if( Jfr.AVAILABLE ) {
+			gcf = Jfr.converterFactory( gcf );
+		} // if
+		Retrofit retrofit = new Retrofit.Builder()
+				.baseUrl( apiEndpoint )
+				.addConverterFactory( new TimedConverterFactory( gcf ) )
+				.client(client)
+				.build();
+
+		sharedApi = retrofit.create(RetrofittedImgur.class);
+		return sharedApi;
+	}
+
+	/**
+	 * Creates the various domain-specific services, giving them a
+	 * chance to register any Gson type adapters they're going to
+	 * need.  Sessions pass null; they use their parent's Gson.
+	 */
+	private void createServices( GsonBuilder gsonBuilder ) {
 		this.acctSvc = new AccountService( this, gsonBuilder );
 		this.albSvc = new AlbumService( this, gsonBuilder );
 		this.imgSvc = new ImageService( this, gsonBuilder );
@@ -288,19 +1085,99 @@ public class BaringoClient {
 		this.memeSvc = new MemeService( this, gsonBuilder );
 
 		this.authSvc = new AuthService( this, clientId, clientSecret );
+		this.asyncClient = new AsyncClient( this );
+	}
 
-		// build the gson object
-		final Gson gson = gsonBuilder.create();
+	/**
+	 * Every session's calls go through the one OkHttpClient and
+	 * interceptor, so each request is tagged with the session that
+	 * made it.  Retrofit builds the request on the calling thread
+	 * inside execute() or enqueue(), which is where SessionCall
+	 * says who's calling.
+	 */
+	private static class SessionAwareHttpClient extends OkHttpClient {
+		@Override
+		public com.squareup.okhttp.Call newCall( Request request ) {
+			BaringoClient session = callingSession.get();
+			if( session != null ) {
+				request = request.newBuilder().tag( session ).build();
+			} // if
+			Jfr.queued( request );
+			return super.newCall( request );
+		}
+	}
 
-		// start up the API client
-		GsonConverterFactory gcf = GsonConverterFactory.create( gson );
-		Retrofit retrofit = new Retrofit.Builder()
-				.baseUrl( apiEndpoint )
-				.addConverterFactory( gcf )
-				.client(client)
-				.build();
+	/**
+	 * Hands out the shared API's calls wrapped so they run as
+	 * one particular session
+	 */
+	private static class SessionApi implements InvocationHandler {
+		SessionApi( RetrofittedImgur api, BaringoClient session ) {
+			this.api = api;
+			this.session = session;
+		}
 
-		return retrofit.create(RetrofittedImgur.class);
+		@Override
+		public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable {
+			if( method.getDeclaringClass() == Object.class ) {
+				return method.invoke( this, args );
+			} // if
+			Object result;
+			try {
+				result = method.invoke( api, args );
+			} catch( InvocationTargetException e ) {
+				throw e.getCause();
+			} // try-catch
+			if( result instanceof Call ) {
+				return new SessionCall<>( (Call<?>)result, session );
+			} // if
+			return result;
+		}
+
+		private final RetrofittedImgur api;
+		private final BaringoClient session;
+	}
+
+	private static class SessionCall<T> implements Call<T> {
+		SessionCall( Call<T> call, BaringoClient session ) {
+			this.call = call;
+			this.session = session;
+		}
+
+		@Override
+		public Response<T> execute() throws IOException {
+			BaringoClient previous = callingSession.get();
+			callingSession.set( session );
+			try {
+				return call.execute();
+			} finally {
+				callingSession.set( previous );
+			} // try-finally
+		}
+
+		@Override
+		public void enqueue( Callback<T> callback ) {
+			BaringoClient previous = callingSession.get();
+			callingSession.set( session );
+			try {
+				call.enqueue( callback );
+			} finally {
+				callingSession.set( previous );
+			} // try-finally
+		}
+
+		@Override
+		public void cancel() {
+			call.cancel();
+		}
+
+		@Override
+		public Call<T> clone() {
+			return new SessionCall<>( call.clone(), session );
+		}
+
+		private final Call<T> call;
+		private final BaringoClient session;
 	}
 
 	/**
@@ -310,17 +1187,169 @@ public class BaringoClient {
 
 		public com.squareup.okhttp.Response intercept(Chain chain) throws IOException {
 			Request  request  = chain.request();
+			// sessions share this interceptor; the tag says whose call it is
+			BaringoClient caller = request.tag() instanceof BaringoClient
+					? (BaringoClient)request.tag()
+					: BaringoClient.this;
 
 			log.fine( "API Call: " + request.url().toString() );
-			request = authService().buildAuthenticatedRequest( request );
+			request = caller.authService().buildAuthenticatedRequest( request );
 
+			com.squareup.okhttp.Response limited = caller.rateLimiter.admit( request );
+			if( limited != null ) {
+				return limited;
+			} // if
 			com.squareup.okhttp.Response response = chain.proceed(request);
 
-			updateQuota( response );
+			caller.updateQuota( response );
 			return response;
 		}		
 	}
 	
+	/**
+	 * Reports each call to the ApiMetrics, and wraps the response
+	 * body so its size and the time spent waiting on it are counted
+	 * as it's read.
+	 */
+	private static class MetricsInterceptor implements Interceptor {
+		MetricsInterceptor( ApiMetrics metrics ) {
+			this.metrics = metrics;
+		}
+
+		@Override
+		public com.squareup.okhttp.Response intercept( Chain chain ) throws IOException {
+			Request request = chain.request();
+			String endpoint = ApiRoutes.endpointFor( request.method(), request.url().getPath(), request.url().getQuery() );
+			metrics.callStarted( endpoint );
+			long start = System.nanoTime();
+			com.squareup.okhttp.Response response;
+			try {
+				response = chain.proceed( request );
+			} catch( IOException | RuntimeException e ) {
+				metrics.callFinished( endpoint, 0, System.nanoTime() - start );
+				throw e;
+			} // try-catch
+			metrics.callFinished( endpoint, response.code(), System.nanoTime() - start );
+			if( response.body() == null ) {
+				return response;
+			} // if
+			return response.newBuilder()
+					.body( new MeteredBody( response.body(), endpoint, metrics ) )
+					.build();
+		}
+
+		private final ApiMetrics metrics;
+	}
+
+	/**
+	 * A response body that counts its bytes as they're read, reports
+	 * the total when it's closed, and charges the time spent blocked
+	 * on the network to the reading thread so TimedConverterFactory
+	 * can leave it out of the parse time.
+	 */
+	private static class MeteredBody extends ResponseBody {
+		MeteredBody( ResponseBody body, String endpoint, ApiMetrics metrics ) {
+			this.body = body;
+			this.endpoint = endpoint;
+			this.metrics = metrics;
+		}
+
+		@Override
+		public MediaType contentType() {
+			return body.contentType();
+		}
+
+		@Override
+		public long contentLength() throws IOException {
+			return body.contentLength();
+		}
+
+		@Override
+		public synchronized BufferedSource source() throws IOException {
+			if( source == null ) {
+				source = Okio.buffer( new ForwardingSource( body.source() ) {
+					@Override
+					public long read( Buffer sink, long byteCount ) throws IOException {
+						long start = System.nanoTime();
+						long n = super.read( sink, byteCount );
+						readNanos.get()[0] += System.nanoTime() - start;
+						if( n > 0 ) {
+							bytes += n;
+						} // if
+						return n;
+					}
+
+					@Override
+					public void close() throws IOException {
+						if( !closed ) {
+							closed = true;
+							metrics.responseRead( endpoint, bytes );
+						} // if
+						super.close();
+					}
+
+					private long bytes = 0;
+					private boolean closed = false;
+				} );
+			} // if
+			return source;
+		}
+
+		private final ResponseBody body;
+		private final String endpoint;
+		private final ApiMetrics metrics;
+		private BufferedSource source = null;
+	}
+
+	/**
+	 * Wraps Gson's converters to time how long each response takes
+	 * to parse, less whatever time MeteredBody says was spent
+	 * waiting on the network, since Gson parses as the body streams
+	 * in.  Free when the client has no metrics.
+	 */
+	private class TimedConverterFactory extends Converter.Factory {
+		TimedConverterFactory( Converter.Factory gson ) {
+			this.gson = gson;
+		}
+
+		@Override
+		public Converter<ResponseBody, ?> fromResponseBody( Type type, Annotation[] annotations ) {
+			Converter<ResponseBody, ?> converter = gson.fromResponseBody( type, annotations );
+			String endpoint = ApiRoutes.endpointFor( annotations );
+			if( converter == null || endpoint == null ) {
+				return converter;
+			} // if
+			return body -> {
+				ApiMetrics m = metrics;
+				if( m == null ) {
+					return converter.convert( body );
+				} // if
+				long[] waited = readNanos.get();
+				long waitedBefore = waited[0];
+				long start = System.nanoTime();
+				try {
+					return converter.convert( body );
+				} finally {
+					long nanos = System.nanoTime() - start - (waited[0] - waitedBefore);
+					m.deserialized( endpoint, Math.max( 0, nanos ) );
+				} // try-finally
+			};
+		}
+
+		@Override
+		public Converter<?, com.squareup.okhttp.RequestBody> toRequestBody( Type type, Annotation[] annotations ) {
+			return gson.toRequestBody( type, annotations );
+		}
+
+		private final Converter.Factory gson;
+	}
+
+	/**
+	 * Nanoseconds this thread has spent blocked reading metered
+	 * response bodies; only ever compared against itself
+	 */
+	private static final ThreadLocal<long[]> readNanos = ThreadLocal.withInitial( () -> new long[1] );
+
 	/**
 	 * These define the headers that return relevant quota information
 	 */
@@ -334,48 +1363,56 @@ public class BaringoClient {
 	private static final String HEADER_POST_CREDITS_AVAILABLE = "X-Post-Rate-Limit-Remaining";
 
 	private void updateQuota( com.squareup.okhttp.Response response ) {
-		String val = response.header( HEADER_USER_CREDIT_RESET_DATE );
+		// the user reset is an epoch time in seconds...
+		Long val = longHeader( response, HEADER_USER_CREDIT_RESET_DATE );
 		if( val != null ) {
-			int valInt = Integer.parseInt( val );
-			quota.setUserCreditResetDate( new Date( valInt ) );
+			quota.setUserCreditResetDate( new Date( val * 1000L ) );
 		} // if
-		val = response.header( HEADER_USER_CREDITS_ALLOCATED );
+		val = longHeader( response, HEADER_USER_CREDITS_ALLOCATED );
 		if( val != null ) {
-			int valInt = Integer.parseInt( val );
-			quota.setUserCreditsAllocated(valInt);
+			quota.setUserCreditsAllocated( val.intValue() );
 		} // if
-		val = response.header( HEADER_USER_CREDITS_AVAILABLE );
+		val = longHeader( response, HEADER_USER_CREDITS_AVAILABLE );
 		if( val != null ) {
-			int valInt = Integer.parseInt( val );
-			quota.setUserCreditsAvailable(valInt);
+			quota.setUserCreditsAvailable( val.intValue() );
 		} // if
-		val = response.header( HEADER_APPLICATION_CREDITS_AVAILABLE );
+		val = longHeader( response, HEADER_APPLICATION_CREDITS_AVAILABLE );
 		if( val != null ) {
-			int valInt = Integer.parseInt( val );
-			quota.setApplicationCreditsAvailable(valInt);
+			quota.setApplicationCreditsAvailable( val.intValue() );
 		} // if
-		val = response.header( HEADER_APPLICATION_CREDITS_ALLOCATED );
+		val = longHeader( response, HEADER_APPLICATION_CREDITS_ALLOCATED );
 		if( val != null ) {
-			int valInt = Integer.parseInt( val );
-			quota.setApplicationCreditsAllocated(valInt);
+			quota.setApplicationCreditsAllocated( val.intValue() );
 		} // if
-		val = response.header( HEADER_POST_CREDIT_RESET_DATE );
+		// ...but the post reset is seconds from now
+		val = longHeader( response, HEADER_POST_CREDIT_RESET_DATE );
 		if( val != null ) {
-			int valInt = Integer.parseInt( val );
-			quota.setPostCreditResetDate(new Date(valInt));
+			quota.setPostCreditResetDate( new Date( System.currentTimeMillis() + val * 1000L ) );
 		} // if
-		val = response.header( HEADER_POST_CREDITS_ALLOCATED );
+		val = longHeader( response, HEADER_POST_CREDITS_ALLOCATED );
 		if( val != null ) {
-			int valInt = Integer.parseInt( val );
-			quota.setPostCreditsAllocated(valInt);
+			quota.setPostCreditsAllocated( val.intValue() );
 		} // if
-		val = response.header( HEADER_POST_CREDITS_AVAILABLE );
+		val = longHeader( response, HEADER_POST_CREDITS_AVAILABLE );
 		if( val != null ) {
-			int valInt = Integer.parseInt( val );
-			quota.setPostCreditsAvailable(valInt);
+			quota.setPostCreditsAvailable( val.intValue() );
 		} // if
+		rateLimiter.update( quota );
 	} 
 
+	private static Long longHeader( com.squareup.okhttp.Response response, String name ) {
+		String val = response.header( name );
+		if( val == null ) {
+			return null;
+		} // if
+		try {
+			return Long.parseLong( val.trim() );
+		} catch (NumberFormatException e) {
+			log.warning( "Unparseable " + name + " header: " + val );
+			return null;
+		} // try-catch
+	}
+
 	/**
 	 * Apparently standard Gson can't tolerate a unix timestamp
 	 * representing a date object.  That's pretty much all we care
@@ -408,10 +1445,24 @@ public class BaringoClient {
 
 	// =============================================
 	private RetrofittedImgur api = null;
+	private RetrofittedImgur sharedApi = null; // the real one, without any session wrapper
 	private String clientId = null;
 	private String clientSecret = null;
+	private String apiEndpoint = null;
 	private static final Logger log = Logger.getLogger( BaringoClient.LOG_NAME );
 	private Quota quota = new Quota();
+	private RateLimiter rateLimiter = new RateLimiter( RateLimiter.Policy.OFF, RateLimiter.DEFAULT_BURST );
+	private SingleFlight singleFlight = new SingleFlight( true );
+	private EntityCache entityCache = null;
+	// bumped on every uncache, so a load that raced one can tell; striped by key hash
+	private final AtomicLongArray cacheEpochs = new AtomicLongArray( EntityCache.Type.values().length * EPOCH_STRIPES );
+	private static final int EPOCH_STRIPES = 64; // a power of two
+	private HttpCache httpCache = null;
+	private UploadIndex uploadIndex = null;
+	private RetryPolicy retryPolicy = null;
+	private HedgingPolicy hedgingPolicy = null;
+	private ApiMetrics metrics = null;
+	private Gson gson = null;
 
 	private AccountService acctSvc = null;
 	private AlbumService   albSvc = null;
@@ -424,16 +1475,22 @@ public class BaringoClient {
 	private MemeService memeSvc = null;
 	private NotificationService noteSvc = null;
 	private TopicService topSvc = null;
+	private AsyncClient asyncClient = null;
 	
 	private OkHttpClient client;
+	private DownloadTransport downloadTransport = null;
 	
 	public static final String DEFAULT_API_BASE_URL = "https://api.imgur.com/";
 	public static final String DEFAULT_DOWNLOAD_BASE_URL = "https://i.imgur.com/"; // http would be faster but ... ?
 
 	public static final String LOG_NAME = "ImgurApi";
 
+	public static final int DEFAULT_MAX_ASYNC_REQUESTS = 64;
+	public static final int DEFAULT_MAX_ASYNC_REQUESTS_PER_HOST = 5;
+
 
-	private static String apiEndpoint = DEFAULT_API_BASE_URL;
+	private static String defaultApiEndpoint = DEFAULT_API_BASE_URL;
+	private static final ThreadLocal<BaringoClient> callingSession = new ThreadLocal<>();
 	
 
 }
@@ -0,0 +1,475 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.kskelm.baringo.model.Album;
+import com.github.kskelm.baringo.model.Image;
+import com.github.kskelm.baringo.util.BaringoApiException;
+
+/**
+ * Uploads a batch of images in parallel and, optionally, puts them
+ * all in an album with a single addAlbumImageIds call at the end.
+ * <p>
+ * Uploads run a few at a time, but never more at once than the
+ * post credits {@link Quota} says are left, and every attempt takes
+ * a credit from the client's {@link RateLimiter} POST bucket whether
+ * or not the limiter is turned on for ordinary calls.  If post
+ * credits run out, the batch waits for them to reset.  5xx and 429
+ * responses are retried with backoff.  A dropped connection isn't:
+ * the image may have landed before the response was lost, and
+ * sending it again would make a duplicate, so it's reported as a
+ * failure for the caller to look into.
+ * <pre>
+ * BatchUpload.Report report = new BatchUpload.Builder( client )
+ *         .album( album )
+ *         .build()
+ *         .add( Paths.get( "cat1.jpg" ), "Cat", null )
+ *         .add( Paths.get( "cat2.jpg" ), "Also cat", null )
+ *         .run();
+ * for( BatchUpload.Result r : report.getResults() ) {
+ *     ... r.getId(), r.getDeleteHash(), r.getError() ...
+ * }
+ * </pre>
+ * Items are files or ByteBuffers, since a retry has to be able to
+ * send the image again.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class BatchUpload {
+
+	public static final int DEFAULT_CONCURRENCY = 4;
+	public static final int DEFAULT_RETRIES = 3;
+
+	/**
+	 * Sets up a BatchUpload
+	 */
+	public static class Builder {
+
+		/**
+		 * Starts building a batch
+		 * @param client the client to upload with
+		 */
+		public Builder( BaringoClient client ) {
+			this._client = client;
+		} // constructor
+
+		/**
+		 * Sets the most uploads to run at once
+		 * @param concurrency the limit; post credits may lower it
+		 * @return This builder object
+		 */
+		public Builder concurrency( int concurrency ) {
+			this._concurrency = Math.max( 1, concurrency );
+
+			return this;
+		} // concurrency
+
+		/**
+		 * Sets how many times a failed upload is retried
+		 * @param retries retries after the first try
+		 * @return This builder object
+		 */
+		public Builder retries( int retries ) {
+			this._retries = Math.max( 0, retries );
+
+			return this;
+		} // retries
+
+		/**
+		 * Puts everything that uploads successfully into this album
+		 * once the batch is done.  If the album is anonymous it needs
+		 * its delete hash.
+		 * @param album the album, or null for none
+		 * @return This builder object
+		 */
+		public Builder album( Album album ) {
+			this._album = album;
+
+			return this;
+		} // album
+
+		/**
+		 * Constructs the BatchUpload and returns it
+		 * @return the batch
+		 */
+		public BatchUpload build() {
+			return new BatchUpload( _client, _concurrency, _retries, _album );
+		} // build
+
+		private final BaringoClient _client;
+		private int _concurrency = DEFAULT_CONCURRENCY;
+		private int _retries = DEFAULT_RETRIES;
+		private Album _album = null;
+	}
+
+	/**
+	 * How one image in the batch turned out
+	 */
+	public static class Result {
+
+		/**
+		 * Returns the file name the image was uploaded under
+		 * @return the file name
+		 */
+		public String getFileName() {
+			return item.fileName;
+		}
+
+		/**
+		 * Returns whether the image made it up
+		 * @return true if it uploaded
+		 */
+		public boolean isSuccess() {
+			return image != null;
+		}
+
+		/**
+		 * Returns the uploaded image.  If the client's
+		 * {@link UploadIndex} already had it, only the id, delete hash
+		 * and link are filled in.
+		 * @return the image, or null if the upload failed
+		 */
+		public Image getImage() {
+			return image;
+		}
+
+		/**
+		 * Returns the new image's id
+		 * @return the id, or null if the upload failed
+		 */
+		public String getId() {
+			return image == null ? null : image.getId();
+		}
+
+		/**
+		 * Returns the new image's delete hash.  <i>Hang on to it</i>
+		 * if the upload was anonymous.
+		 * @return the delete hash, or null if the upload failed
+		 */
+		public String getDeleteHash() {
+			return image == null ? null : image.getDeleteHash();
+		}
+
+		/**
+		 * Returns how many tries it took
+		 * @return attempt count
+		 */
+		public int getAttempts() {
+			return attempts;
+		}
+
+		/**
+		 * Returns why the upload failed.  An HTTP code of 0 means the
+		 * connection dropped, and the image may be on Imgur anyway.
+		 * @return the last error, or null if it worked
+		 */
+		public BaringoApiException getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return isSuccess()
+					? String.format( "[%s -> %s, attempts=%d]", item.fileName, getId(), attempts )
+					: String.format( "[%s failed after %d attempts: %s]", item.fileName, attempts, error );
+		}
+
+		Result( Item item ) {
+			this.item = item;
+		}
+
+		private final Item item;
+		private volatile Image image = null;
+		private volatile BaringoApiException error = null;
+		private volatile int attempts = 0;
+	}
+
+	/**
+	 * How the whole batch turned out
+	 */
+	public static class Report {
+
+		/**
+		 * Returns a result for every image, in the order they were added
+		 * @return the results
+		 */
+		public List<Result> getResults() {
+			return results;
+		}
+
+		/**
+		 * Returns how many images uploaded
+		 * @return success count
+		 */
+		public int getSucceededCount() {
+			int count = 0;
+			for( Result r : results ) {
+				if( r.isSuccess() ) {
+					count++;
+				} // if
+			} // for
+			return count;
+		}
+
+		/**
+		 * Returns how many images didn't make it
+		 * @return failure count
+		 */
+		public int getFailedCount() {
+			return results.size() - getSucceededCount();
+		}
+
+		/**
+		 * Returns the album, updated with its new images
+		 * @return the album, or null if there wasn't one or adding to it failed
+		 */
+		public Album getAlbum() {
+			return album;
+		}
+
+		/**
+		 * Returns why the images couldn't be added to the album
+		 * @return the error, or null if that worked or there was no album
+		 */
+		public BaringoApiException getAlbumError() {
+			return albumError;
+		}
+
+		@Override
+		public String toString() {
+			return String.format( "BatchUpload.Report[succeeded=%d, failed=%d, albumError=%s]",
+					getSucceededCount(), getFailedCount(), albumError );
+		}
+
+		Report( List<Result> results, Album album, BaringoApiException albumError ) {
+			this.results = Collections.unmodifiableList( results );
+			this.album = album;
+			this.albumError = albumError;
+		}
+
+		private final List<Result> results;
+		private final Album album;
+		private final BaringoApiException albumError;
+	}
+
+	/**
+	 * Adds a file to the batch
+	 * @param path the file
+	 * @param title title of image or null if none
+	 * @param description description of image or null if none
+	 * @return this batch
+	 */
+	public BatchUpload add( Path path, String title, String description ) {
+		items.add( new Item( path, null, null, path.getFileName().toString(), title, description ) );
+		return this;
+	}
+
+	/**
+	 * Adds an image in memory to the batch.  The buffer shouldn't
+	 * change until the batch is done.
+	 * @param data the image data, from position to limit
+	 * @param mimeType mime type like image/png.  If null, Baringo will try to infer this from the fileName.
+	 * @param fileName name to give the file
+	 * @param title title of image or null if none
+	 * @param description description of image or null if none
+	 * @return this batch
+	 */
+	public BatchUpload add( ByteBuffer data, String mimeType, String fileName, String title, String description ) {
+		items.add( new Item( null, data, mimeType, fileName, title, description ) );
+		return this;
+	}
+
+	/**
+	 * Uploads everything, then adds it to the album if there is one.
+	 * Blocks until done.  Individual failures are in the report
+	 * rather than thrown.
+	 * @return how it went
+	 * @throws InterruptedException interrupted while waiting on uploads or credits
+	 */
+	public Report run() throws InterruptedException {
+		List<Result> results = new ArrayList<>( items.size() );
+		List<Future<?>> pending = new ArrayList<>( items.size() );
+		Semaphore slots = new Semaphore( concurrency );
+		AtomicInteger inFlight = new AtomicInteger();
+		ExecutorService workers = Executors.newFixedThreadPool( concurrency, r -> {
+			Thread t = new Thread( r, "baringo-batch-upload" );
+			t.setDaemon( true );
+			return t;
+		} );
+		try {
+			for( Item item : items ) {
+				Result result = new Result( item );
+				results.add( result );
+				slots.acquire();
+				awaitPostCredit( inFlight );
+				Thread.sleep( takePostCredit() );
+				inFlight.incrementAndGet();
+				pending.add( workers.submit( () -> {
+					try {
+						upload( result );
+					} finally {
+						inFlight.decrementAndGet();
+						slots.release();
+					} // try-finally
+				} ) );
+			} // for
+			for( Future<?> f : pending ) {
+				try {
+					f.get();
+				} catch( ExecutionException e ) {
+					// upload() records its own failures
+				} // try-catch
+			} // for
+		} finally {
+			workers.shutdownNow();
+		} // try-finally
+
+		return attach( results );
+	} // run
+
+	// =========================================================
+	// internal
+
+	private static class Item {
+		Item( Path path, ByteBuffer data, String mimeType, String fileName, String title, String description ) {
+			this.path = path;
+			this.data = data;
+			this.mimeType = mimeType;
+			this.fileName = fileName;
+			this.title = title;
+			this.description = description;
+		}
+
+		final Path path;
+		final ByteBuffer data;
+		final String mimeType;
+		final String fileName;
+		final String title;
+		final String description;
+	}
+
+	private void upload( Result result ) {
+		Item item = result.item;
+		for( int attempt = 1; ; attempt++ ) {
+			result.attempts = attempt;
+			try {
+				result.image = item.path != null
+						? client.imageService().uploadImage( item.path, item.mimeType,
+								null, item.title, item.description, null )
+						: client.imageService().uploadImage( item.data, item.mimeType,
+								item.fileName, null, item.title, item.description, null );
+				result.error = null;
+				return;
+			} catch( IOException e ) {
+				result.error = new BaringoApiException( e.getMessage() );
+				return; // the file itself is the problem; retrying won't help
+			} catch( BaringoApiException e ) {
+				result.error = e;
+				if( !isTransient( e ) || attempt > retries ) {
+					return;
+				} // if
+			} // try-catch
+			try {
+				Thread.sleep( Math.max( RETRY_DELAY_MS << (attempt - 1), takePostCredit() ) );
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				return;
+			} // try-catch
+		} // for
+	} // upload
+
+	/**
+	 * 5xx and 429 are worth another try.  Network failures (no HTTP
+	 * code) aren't, since the upload may already have gone through.
+	 */
+	private static boolean isTransient( BaringoApiException e ) {
+		int code = e.getHttpCode();
+		return code == 429 || code >= 500;
+	}
+
+	/**
+	 * Waits until there are more post credits left than uploads
+	 * already in flight and, if the limiter is on, until its POST
+	 * bucket has a credit for the call to take
+	 */
+	private void awaitPostCredit( AtomicInteger inFlight ) throws InterruptedException {
+		Quota quota = client.getQuota();
+		RateLimiter limiter = client.getRateLimiter();
+		while( true ) {
+			long waitMs = limiter.getPolicy() == RateLimiter.Policy.OFF
+					? 0 : limiter.getWaitMillis( "POST" );
+			// once the reset time passes, the quota we have is stale
+			Date reset = quota.getPostCreditResetDate();
+			boolean known = reset != null && reset.getTime() > System.currentTimeMillis();
+			boolean haveCredit = !known || quota.getPostCreditsAvailable() > inFlight.get();
+			if( waitMs <= 0 && haveCredit ) {
+				return;
+			} // if
+			Thread.sleep( Math.max( waitMs, CREDIT_POLL_MS ) );
+		} // while
+	}
+
+	/**
+	 * Takes a POST credit for the next attempt and returns how long
+	 * to wait before making it.  If the limiter is on, the call takes
+	 * its own credit on the way out, so there's nothing to do here.
+	 */
+	private long takePostCredit() {
+		RateLimiter limiter = client.getRateLimiter();
+		if( limiter.getPolicy() != RateLimiter.Policy.OFF ) {
+			return 0;
+		} // if
+		return limiter.reserve( "POST" );
+	}
+
+	private Report attach( List<Result> results ) {
+		if( album == null ) {
+			return new Report( results, null, null );
+		} // if
+		List<String> ids = new ArrayList<>();
+		for( Result r : results ) {
+			if( r.isSuccess() ) {
+				ids.add( r.getId() );
+			} // if
+		} // for
+		if( ids.isEmpty() ) {
+			return new Report( results, album, null );
+		} // if
+		try {
+			Album updated = client.albumService().addAlbumImageIds( album, ids );
+			return new Report( results, updated, null );
+		} catch( BaringoApiException e ) {
+			return new Report( results, null, e );
+		} // try-catch
+	} // attach
+
+	protected BatchUpload( BaringoClient client, int concurrency, int retries, Album album ) {
+		this.client = client;
+		this.concurrency = concurrency;
+		this.retries = retries;
+		this.album = album;
+	} // constructor
+
+	private static final long RETRY_DELAY_MS = 1000;
+	private static final long CREDIT_POLL_MS = 100;
+
+	private final BaringoClient client;
+	private final int concurrency;
+	private final int retries;
+	private final Album album;
+	private final List<Item> items = new ArrayList<>();
+
+}
@@ -0,0 +1,84 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+/**
+ * A snapshot of how well an {@link EntityCache} is doing for
+ * one kind of object.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class CacheStats {
+
+	/**
+	 * Returns how many lookups found a live object
+	 * @return hit count
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns how many lookups came up empty, including ones that
+	 * found an expired object
+	 * @return miss count
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns how many objects were pushed out to stay under the
+	 * size limit
+	 * @return eviction count
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns how many objects were dropped because they changed
+	 * on Imgur
+	 * @return invalidation count
+	 */
+	public long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * Returns how many objects are cached right now
+	 * @return current size
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the fraction of lookups that were hits
+	 * @return between 0.0 and 1.0; 0.0 if there were no lookups
+	 */
+	public double getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0.0 : (double)hits / total;
+	}
+
+	@Override
+	public String toString() {
+		return String.format( "CacheStats[hits=%d, misses=%d, hitRate=%.3f, evictions=%d, invalidations=%d, size=%d]",
+				hits, misses, getHitRate(), evictions, invalidations, size );
+	}
+
+	public CacheStats( long hits, long misses, long evictions, long invalidations, int size ) {
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.invalidations = invalidations;
+		this.size = size;
+	} // constructor
+
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final long invalidations;
+	private final int size;
+
+}
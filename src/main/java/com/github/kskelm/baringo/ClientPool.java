@@ -0,0 +1,117 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.kskelm.baringo.util.BaringoAuthException;
+
+/**
+ * Keeps one logged-in session per user on top of a single
+ * BaringoClient, for apps that act on behalf of lots of Imgur
+ * users at once.  Every session shares the client's connections,
+ * dispatcher, Gson and Retrofit plumbing, and has its own tokens,
+ * {@link Quota} and rate limiter, so adding users costs a few small
+ * objects apiece rather than a whole client.  The rate limiters all
+ * draw on one bucket of application credits, since Imgur hands
+ * those out per client id however many users there are.
+ * <pre>
+ * ClientPool pool = new ClientPool( new BaringoClient.Builder()
+ *         .clientAuth( clientId, clientSecret )
+ *         .build() );
+ * pool.login( "alice", alicesRefreshToken );
+ * ...
+ * pool.getSession( "alice" ).accountService().getAccount( "alice" );
+ * </pre>
+ * Calls that don't need a user can go through {@link #getClient()}.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class ClientPool {
+
+	/**
+	 * Creates a pool on top of the given client
+	 * @param client the client whose transport every session shares
+	 */
+	public ClientPool( BaringoClient client ) {
+		this.client = client;
+	} // constructor
+
+	/**
+	 * Returns the client the sessions were made from.  It isn't
+	 * logged in as anyone unless you did that yourself, so it's
+	 * the one to use for anonymous calls.
+	 * @return the shared client
+	 */
+	public BaringoClient getClient() {
+		return client;
+	}
+
+	/**
+	 * Creates a session for a user and logs it in with their refresh
+	 * token, replacing any session already kept under the same key.
+	 * @param key whatever you want to look the session up by later
+	 * @param refreshToken the user's refresh token
+	 * @return the logged-in session
+	 * @throws BaringoAuthException couldn't fetch an access token
+	 */
+	public BaringoClient login( String key, String refreshToken ) throws BaringoAuthException {
+		BaringoClient session = client.newSession();
+		session.authService().setRefreshToken( refreshToken );
+
+		BaringoClient old = sessions.put( key, session );
+		if( old != null ) {
+			retire( old );
+		} // if
+		return session;
+	} // login
+
+	/**
+	 * Returns the session kept under a key
+	 * @param key the key it was logged in with
+	 * @return the session, or null if there isn't one
+	 */
+	public BaringoClient getSession( String key ) {
+		return sessions.get( key );
+	}
+
+	/**
+	 * Forgets a session and stops renewing its tokens
+	 * @param key the key it was logged in with
+	 * @return the session that was dropped, or null if there wasn't one
+	 */
+	public BaringoClient removeSession( String key ) {
+		BaringoClient session = sessions.remove( key );
+		if( session != null ) {
+			retire( session );
+		} // if
+		return session;
+	}
+
+	/**
+	 * Returns the keys of every session in the pool
+	 * @return the session keys
+	 */
+	public Set<String> getSessionKeys() {
+		return Collections.unmodifiableSet( sessions.keySet() );
+	}
+
+	/**
+	 * Returns how many sessions are in the pool
+	 * @return the session count
+	 */
+	public int size() {
+		return sessions.size();
+	}
+
+	// ================================================
+
+	private void retire( BaringoClient session ) {
+		session.authService().setBackgroundRefresh( false );
+	}
+
+	private final BaringoClient client;
+	private final ConcurrentHashMap<String, BaringoClient> sessions = new ConcurrentHashMap<>();
+
+}
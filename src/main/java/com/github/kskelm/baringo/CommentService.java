@@ -37,11 +37,16 @@ public class CommentService {
 	 * @throws BaringoApiException daaang
 	 */
 	public Comment getComment( long commentId ) throws BaringoApiException {
+		return client.cached( EntityCache.Type.Comment, String.valueOf( commentId ),
+				() -> fetchComment( commentId ) );
+	} // getComment
+
+	private Comment fetchComment( long commentId ) throws BaringoApiException {
 		Call<ImgurResponseWrapper<Comment>> call =
 				client.getApi().getComment( commentId );
 
 		try {
-			Response<ImgurResponseWrapper<Comment>> res = call.execute();
+			Response<ImgurResponseWrapper<Comment>> res = client.executeRead( call, "getComment" );
 			ImgurResponseWrapper<Comment> out = res.body();
 			client.throwOnWrapperError( res );
 
@@ -49,7 +54,7 @@ public class CommentService {
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} 
-	} // getComment
+	} // fetchComment
 
 	/**
 	 * Add a comment to the given image or album.
@@ -109,6 +114,7 @@ public class CommentService {
 
 		try {
 			Response<ImgurResponseWrapper<Boolean>> res = call.execute();
+			client.uncache( EntityCache.Type.Comment, String.valueOf( commentId ) );
 			ImgurResponseWrapper<Boolean> out = res.body();
 			client.throwOnWrapperError( res );
 
@@ -163,6 +169,7 @@ public class CommentService {
 
 		try {
 			Response<ImgurResponseWrapper<Map<String,Long>>> res = call.execute();
+			client.uncache( EntityCache.Type.Comment, String.valueOf( parent.getId() ) );
 			ImgurResponseWrapper<Map<String,Long>> out = res.body();
 			client.throwOnWrapperError( res );
 			return out.getData().get( "id" );
@@ -199,6 +206,7 @@ public class CommentService {
 
 		try {
 			Response<ImgurResponseWrapper<Boolean>> res = call.execute();
+			client.uncache( EntityCache.Type.Comment, String.valueOf( commentId ) );
 			ImgurResponseWrapper<Boolean> out = res.body();
 			client.throwOnWrapperError( res );
 
@@ -236,7 +244,9 @@ public class CommentService {
 
 	protected CommentService(BaringoClient imgurClient, GsonBuilder gsonBuilder) {
 		this.client = imgurClient;
-		gsonBuilder.registerTypeAdapter( CommentListWrapper.class, new CommentListWrapper() );
+		if( gsonBuilder != null ) { // null for sessions, which share their parent's Gson
+			gsonBuilder.registerTypeAdapter( CommentListWrapper.class, new CommentListWrapper() );
+		} // if
 	}
 
 	
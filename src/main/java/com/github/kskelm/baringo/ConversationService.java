@@ -7,6 +7,7 @@ import java.util.List;
 
 import com.github.kskelm.baringo.model.ImgurResponseWrapper;
 import com.github.kskelm.baringo.model.Conversation;
+import com.github.kskelm.baringo.model.Message;
 import com.github.kskelm.baringo.util.BaringoApiException;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -90,6 +91,22 @@ public class ConversationService {
 		} // try-catch
 	}
 
+	/**
+	 * Walks the messages on every page of {@link #getConversationWithMessages(long, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * Unlike everything else, conversation pages start at 1; this
+	 * takes care of that.
+	 * <p>
+        * <b>ACCESS: AUTHENTICATED USER</b>
+	 * @param conversationId numeric id of the conversation, probably derived from {@link #getConversations}
+	 * @return every message in the conversation
+	 */
+	public Paged<Message> iterateConversationMessages( long conversationId ) {
+		return new Paged<>( 1,
+				page -> client.async().conversationService().getConversationWithMessages( conversationId, page )
+						.thenApply( conversation -> conversation == null ? null : conversation.getMessages() ) );
+	} // iterateConversationMessages
+
 	/**
 	 * Send a message to another user.  New messages automatically
 	 * become part of the overall "conversation" with another user,
@@ -13,6 +13,7 @@ import retrofit.Response;
 import com.github.kskelm.baringo.model.ImgurResponseWrapper;
 import com.github.kskelm.baringo.model.gallery.CustomGallery;
 import com.github.kskelm.baringo.model.gallery.GalleryImage;
+import com.github.kskelm.baringo.model.gallery.GalleryItem;
 import com.github.kskelm.baringo.util.BaringoApiException;
 
 /**
@@ -45,6 +46,23 @@ public class CustomGalleryService {
 		return getSubGallery( "custom", sort, window, page );
 	} // getCustomGallery
 
+	/**
+	 * Walks the items on every page of {@link #getCustomGallery(GalleryImage.Sort, GalleryImage.Window, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+	 * <b>ACCESS: AUTHENTICATED USER</b>
+	 * @param sort the sort direction - Viral | Time | Top
+	 * @param window when the sort is Top, what the time range is
+	 * @return every item in the user's custom gallery
+	 */
+	public Paged<GalleryItem> iterateCustomGallery(
+			GalleryImage.Sort sort,
+			GalleryImage.Window window ) {
+		return new Paged<>( 0,
+				page -> client.async().customGalleryService().getCustomGallery( sort, window, page )
+						.thenApply( gallery -> gallery == null ? null : gallery.getItems() ) );
+	} // iterateCustomGallery
+
 	/**
 	 * Returns the currently authenticated user's filtered
 	 * gallery, which is based on tags that the user selects
@@ -67,6 +85,23 @@ public class CustomGalleryService {
 		return getSubGallery( "filtered", sort, window, page );
 	} // getFilteredGallery
 
+	/**
+	 * Walks the items on every page of {@link #getFilteredGallery(GalleryImage.Sort, GalleryImage.Window, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+	 * <b>ACCESS: AUTHENTICATED USER</b>
+	 * @param sort the sort direction - Viral | Time | Top
+	 * @param window when the sort is Top, what the time range is
+	 * @return every item the user has filtered out
+	 */
+	public Paged<GalleryItem> iterateFilteredGallery(
+			GalleryImage.Sort sort,
+			GalleryImage.Window window ) {
+		return new Paged<>( 0,
+				page -> client.async().customGalleryService().getFilteredGallery( sort, window, page )
+						.thenApply( gallery -> gallery == null ? null : gallery.getItems() ) );
+	} // iterateFilteredGallery
+
 	/**
 	 * Adds a tag to the user's custom gallery.  Tags are "ored",
 	 * not "anded".  If a tag already existed, no action is taken.
@@ -205,13 +240,7 @@ public class CustomGalleryService {
  			ImgurResponseWrapper<CustomGallery> out = res.body();
 
 			client.throwOnWrapperError( res );
-			CustomGallery gal = out.getData();
-			
-			// TODO This is so filthy that I need a shower. 
-			gal.setConvertedItems(
-					client.galleryService()
-							.convertToGalleryItems(  gal.getInternalItems() ) );
-			return gal;
+			return out.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} 
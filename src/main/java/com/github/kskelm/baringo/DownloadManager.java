@@ -0,0 +1,616 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.kskelm.baringo.model.Album;
+import com.github.kskelm.baringo.model.Image;
+import com.github.kskelm.baringo.model.gallery.GalleryItem;
+import com.github.kskelm.baringo.util.BaringoApiException;
+
+/**
+ * Downloads lots of images at once into a directory: single images,
+ * whole albums, or everything a gallery crawl turns up.
+ * <p>
+ * A fixed number of worker threads do the downloading, and no more
+ * than a set number of downloads hit any one host at a time.  A
+ * download takes its host slot before it takes a worker, so work for
+ * a busy host waits off to the side instead of tying up workers that
+ * could be serving other hosts.  Work waiting for a worker or a host
+ * counts against a bounded queue; once that's full, the download()
+ * calls block until there's room, so a crawler feeding this can't get
+ * arbitrarily far ahead of the network.
+ * <p>
+ * Asking for a file that's already being downloaded doesn't start a
+ * second download into it; the caller gets the one in progress.
+ * <p>
+ * Each download is resumable (see
+ * {@link ImageService#downloadImageResumable(String, Path, int, ProgressListener)})
+ * and gets retried on dropped connections and 5xx/429 responses.
+ * Images land in the directory under the file name from their link
+ * (e.g. "PgZtz0j.jpg"); an album's images go in a subdirectory
+ * named after the album.
+ * <pre>
+ * try( DownloadManager dm = new DownloadManager.Builder( client, dir )
+ *         .concurrency( 16 )
+ *         .build() ) {
+ *     dm.downloadGallery( client.galleryService().iterateGallery( ... ) ).join();
+ *     System.out.println( dm.getBytesPerSecond() );
+ * }
+ * </pre>
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class DownloadManager implements AutoCloseable {
+
+	public static final int DEFAULT_CONCURRENCY = 8;
+	public static final int DEFAULT_MAX_PER_HOST = DownloadTransport.DEFAULT_MAX_REQUESTS_PER_HOST;
+	public static final int DEFAULT_QUEUE_SIZE = 100;
+	public static final int DEFAULT_RETRIES = 3;
+
+	/**
+	 * Sets up a DownloadManager
+	 */
+	public static class Builder {
+
+		/**
+		 * Starts building a manager
+		 * @param client the client whose transport to download over
+		 * @param directory where the files go; created if need be
+		 */
+		public Builder( BaringoClient client, Path directory ) {
+			this._client = client;
+			this._directory = directory;
+		} // constructor
+
+		/**
+		 * Sets how many downloads may run at once overall
+		 * @param concurrency the number of worker threads
+		 * @return This builder object
+		 */
+		public Builder concurrency( int concurrency ) {
+			this._concurrency = Math.max( 1, concurrency );
+
+			return this;
+		} // concurrency
+
+		/**
+		 * Sets how many downloads may run against one host at once.
+		 * The client's {@link BaringoClient.Builder#downloadMaxRequestsPerHost(int)}
+		 * still applies on top of this, so raise both if need be.
+		 * @param maxPerHost the per-host limit
+		 * @return This builder object
+		 */
+		public Builder maxPerHost( int maxPerHost ) {
+			this._maxPerHost = Math.max( 1, maxPerHost );
+
+			return this;
+		} // maxPerHost
+
+		/**
+		 * Sets how many downloads can wait for a worker before
+		 * download() calls start blocking
+		 * @param queueSize the queue length
+		 * @return This builder object
+		 */
+		public Builder queueSize( int queueSize ) {
+			this._queueSize = Math.max( 0, queueSize );
+
+			return this;
+		} // queueSize
+
+		/**
+		 * Sets how many times a failed download is retried
+		 * @param retries retries after the first try
+		 * @return This builder object
+		 */
+		public Builder retries( int retries ) {
+			this._retries = Math.max( 0, retries );
+
+			return this;
+		} // retries
+
+		/**
+		 * Constructs the DownloadManager and returns it
+		 * @return the manager
+		 * @throws IOException the directory couldn't be created
+		 */
+		public DownloadManager build() throws IOException {
+			Files.createDirectories( _directory );
+			return new DownloadManager( _client, _directory, _concurrency,
+					_maxPerHost, _queueSize, _retries );
+		} // build
+
+		private final BaringoClient _client;
+		private final Path _directory;
+		private int _concurrency = DEFAULT_CONCURRENCY;
+		private int _maxPerHost = DEFAULT_MAX_PER_HOST;
+		private int _queueSize = DEFAULT_QUEUE_SIZE;
+		private int _retries = DEFAULT_RETRIES;
+	}
+
+	/**
+	 * Queues a download of a link to a particular file.  Blocks if
+	 * the queue is full.  If that file is already being downloaded,
+	 * returns a future for the download in progress instead.
+	 * @param link what to download
+	 * @param target where to put it
+	 * @return a future that completes when the file is in place
+	 */
+	public CompletableFuture<DownloadResult> download( String link, Path target ) {
+		Path key = target.toAbsolutePath().normalize();
+		Job job = new Job( link, target, key,
+				hosts.computeIfAbsent( URI.create( link ).getHost(), h -> new Host() ) );
+		Job running = inFlight.putIfAbsent( key, job );
+		if( running != null ) {
+			duplicates.incrementAndGet();
+			return running.future.thenApply( r -> r );
+		} // if
+		if( closed ) {
+			inFlight.remove( key, job );
+			job.future.completeExceptionally( new RejectedExecutionException( "DownloadManager is shut down" ) );
+			return job.future;
+		} // if
+		try {
+			admission.acquire();
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			inFlight.remove( key, job );
+			job.future.completeExceptionally( new InterruptedIOException( "Interrupted waiting to queue " + link ) );
+			return job.future;
+		} // try-catch
+		startedAt.compareAndSet( 0, System.nanoTime() );
+		outstanding.incrementAndGet();
+		if( job.host.enter( job ) ) {
+			start( job );
+		} // if
+		return job.future;
+	} // download
+
+	/**
+	 * Queues a download of an image into the directory
+	 * @param image the image
+	 * @return a future that completes when the file is in place
+	 */
+	public CompletableFuture<DownloadResult> download( Image image ) {
+		return download( image.getLink(), fileFor( directory, image.getLink() ) );
+	} // download
+
+	/**
+	 * Queues downloads of every image in an album, into a
+	 * subdirectory named after it.  If the album came from a call
+	 * that doesn't fill in its images, they're looked up first.
+	 * @param album the album
+	 * @return a future that completes when every image is in place
+	 */
+	public CompletableFuture<List<DownloadResult>> download( Album album ) {
+		try {
+			List<Image> images = album.getImages() != null
+					? album.getImages()
+					: client.albumService().getAlbumImages( album.getId() );
+			return downloadInto( directory.resolve( album.getId() ), images );
+		} catch( BaringoApiException | IOException e ) {
+			return BaringoClient.failedFuture( e );
+		} // try-catch
+	} // download
+
+	/**
+	 * Queues downloads for a gallery item: the image itself, or
+	 * every image in the album
+	 * @param item the gallery item
+	 * @return a future that completes when everything is in place
+	 */
+	public CompletableFuture<List<DownloadResult>> download( GalleryItem item ) {
+		if( !item.isAlbum() ) {
+			List<DownloadResult> one = new ArrayList<>( 1 );
+			return download( item.getLink(), fileFor( directory, item.getLink() ) )
+					.thenApply( result -> {
+						one.add( result );
+						return one;
+					} );
+		} // if
+		try {
+			List<Image> images = client.albumService().getAlbumImages( item.getId() );
+			return downloadInto( directory.resolve( item.getId() ), images );
+		} catch( BaringoApiException | IOException e ) {
+			return BaringoClient.failedFuture( e );
+		} // try-catch
+	} // download
+
+	/**
+	 * Queues downloads for every image, blocking whenever the queue
+	 * is full.  Nothing is kept per image, so this is fine for
+	 * very long lists.
+	 * @param images the images, e.g. from a {@link Paged} listing
+	 * @return a future that completes once they've all been tried;
+	 *     check {@link #getFailedCount()} to see how many didn't make it
+	 */
+	public CompletableFuture<Void> downloadImages( Iterable<? extends Image> images ) {
+		Tracker tracker = new Tracker();
+		for( Image image : images ) {
+			tracker.track( download( image ) );
+		} // for
+		return tracker.done();
+	} // downloadImages
+
+	/**
+	 * Queues downloads for everything in a gallery listing or crawl,
+	 * blocking whenever the queue is full.  Albums are expanded into
+	 * their images.  Nothing is kept per item.
+	 * @param items the gallery items, e.g. from a {@link Paged} listing
+	 * @return a future that completes once they've all been tried;
+	 *     check {@link #getFailedCount()} to see how many didn't make it
+	 */
+	public CompletableFuture<Void> downloadGallery( Iterable<? extends GalleryItem> items ) {
+		Tracker tracker = new Tracker();
+		for( GalleryItem item : items ) {
+			tracker.track( download( item ) );
+		} // for
+		return tracker.done();
+	} // downloadGallery
+
+	/**
+	 * Returns how many downloads have finished successfully
+	 * @return completed count
+	 */
+	public long getCompletedCount() {
+		return completed.get();
+	}
+
+	/**
+	 * Returns how many downloads gave up
+	 * @return failed count
+	 */
+	public long getFailedCount() {
+		return failed.get();
+	}
+
+	/**
+	 * Returns how many downloads are running or waiting for a worker
+	 * or a host
+	 * @return pending count
+	 */
+	public int getPendingCount() {
+		return outstanding.get();
+	}
+
+	/**
+	 * Returns how many downloads were handed the one already in
+	 * progress for the same file instead of starting another
+	 * @return duplicate count
+	 */
+	public long getDuplicateCount() {
+		return duplicates.get();
+	}
+
+	/**
+	 * Returns how many bytes have come over the network
+	 * @return bytes downloaded
+	 */
+	public long getBytesDownloaded() {
+		return bytesDownloaded.get();
+	}
+
+	/**
+	 * Returns how many bytes didn't need downloading thanks to resumes
+	 * @return bytes saved
+	 */
+	public long getBytesResumed() {
+		return bytesResumed.get();
+	}
+
+	/**
+	 * Returns the download rate since the first download was queued
+	 * @return bytes per second
+	 */
+	public double getBytesPerSecond() {
+		double secs = elapsedSeconds();
+		return secs <= 0 ? 0.0 : bytesDownloaded.get() / secs;
+	}
+
+	/**
+	 * Returns the rate at which downloads have been finishing since
+	 * the first one was queued
+	 * @return items per second
+	 */
+	public double getItemsPerSecond() {
+		double secs = elapsedSeconds();
+		return secs <= 0 ? 0.0 : completed.get() / secs;
+	}
+
+	/**
+	 * Stops taking new downloads and waits for the queued ones to
+	 * finish
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			// some of them may be waiting on a host rather than in the pool
+			synchronized( outstanding ) {
+				while( outstanding.get() > 0 ) {
+					outstanding.wait();
+				} // while
+			} // synchronized
+			workers.shutdown();
+			while( !workers.awaitTermination( 1, TimeUnit.MINUTES ) ) {
+				// keep waiting
+			} // while
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		} // try-catch
+	} // close
+
+	/**
+	 * Stops taking new downloads and abandons the queued ones, whose
+	 * futures fail.  Downloads already running are interrupted.
+	 */
+	public void shutdownNow() {
+		closed = true;
+		RejectedExecutionException abandoned = new RejectedExecutionException( "DownloadManager was shut down" );
+		for( Runnable r : workers.shutdownNow() ) {
+			start( ((Job)r).abandon( abandoned ) );
+		} // for
+		for( Host host : hosts.values() ) {
+			for( Job job = host.leaveAll(); job != null; job = host.leaveAll() ) {
+				start( job.abandon( abandoned ) );
+			} // for
+		} // for
+	}
+
+	@Override
+	public String toString() {
+		return String.format( "DownloadManager[completed=%d, failed=%d, pending=%d, bytes=%d, %.0f bytes/s, %.2f items/s]",
+				getCompletedCount(), getFailedCount(), getPendingCount(),
+				getBytesDownloaded(), getBytesPerSecond(), getItemsPerSecond() );
+	}
+
+	// =========================================================
+	// internal
+
+	private DownloadResult fetch( String link, Path target ) throws Exception {
+		for( int attempt = 0; ; attempt++ ) {
+			try {
+				DownloadResult result = client.imageService()
+						.downloadImageResumable( link, target, retries + 1, null );
+				bytesDownloaded.addAndGet( result.getBytesDownloaded() );
+				bytesResumed.addAndGet( result.getBytesResumed() );
+				return result;
+			} catch( BaringoApiException e ) {
+				// downloadImageResumable already retried the dropped
+				// connections; this is for the server having a bad moment
+				boolean retryable = e.getHttpCode() >= 500 || e.getHttpCode() == 429;
+				if( !retryable || attempt >= retries ) {
+					throw e;
+				} // if
+				Thread.sleep( RETRY_DELAY_MS << attempt );
+			} // try-catch
+		} // for
+	} // fetch
+
+	/**
+	 * Hands a job that holds its host slot to the pool.  If the pool
+	 * is shut down, the job fails and its slot goes to the next one
+	 * waiting on the host, which will fail the same way.
+	 */
+	private void start( Job job ) {
+		while( job != null ) {
+			try {
+				workers.execute( job );
+				return;
+			} catch( RejectedExecutionException e ) {
+				job = job.abandon( e );
+			} // try-catch
+		} // while
+	} // start
+
+	/**
+	 * One download, from the time it's queued until its file is in
+	 * place or it's given up on
+	 */
+	private class Job implements Runnable {
+		Job( String link, Path target, Path key, Host host ) {
+			this.link = link;
+			this.target = target;
+			this.key = key;
+			this.host = host;
+		}
+
+		@Override
+		public void run() {
+			try {
+				DownloadResult result = fetch( link, target );
+				completed.incrementAndGet();
+				finish();
+				future.complete( result );
+			} catch( Exception e ) {
+				failed.incrementAndGet();
+				finish();
+				future.completeExceptionally( e );
+			} // try-catch
+			start( host.leave() );
+		}
+
+		/**
+		 * Fails the job without running it and returns the next one
+		 * waiting on its host, which now holds the slot
+		 */
+		Job abandon( Exception e ) {
+			failed.incrementAndGet();
+			finish();
+			future.completeExceptionally( e );
+			return host.leave();
+		}
+
+		/**
+		 * Lets go of everything but the host slot.  The target is
+		 * forgotten before the future completes, so asking for it
+		 * again from a callback starts a new download.
+		 */
+		private void finish() {
+			inFlight.remove( key, this );
+			admission.release();
+			if( outstanding.decrementAndGet() == 0 ) {
+				synchronized( outstanding ) {
+					outstanding.notifyAll();
+				} // synchronized
+			} // if
+		}
+
+		final String link;
+		final Path target;
+		final Path key;
+		final Host host;
+		final CompletableFuture<DownloadResult> future = new CompletableFuture<>();
+	}
+
+	/**
+	 * The downloads running against one host, and the ones waiting
+	 * their turn without holding a worker
+	 */
+	private class Host {
+		/**
+		 * Takes a slot for the job, or parks it until one frees up
+		 * @return true if it got a slot and can start now
+		 */
+		synchronized boolean enter( Job job ) {
+			if( active < maxPerHost ) {
+				active++;
+				return true;
+			} // if
+			waiting.add( job );
+			return false;
+		}
+
+		/**
+		 * Gives up a slot.  If a job is waiting, the slot passes
+		 * straight to it and it's returned for starting.
+		 */
+		synchronized Job leave() {
+			Job next = waiting.poll();
+			if( next == null ) {
+				active--;
+			} // if
+			return next;
+		}
+
+		/**
+		 * Takes a waiting job off the queue, handing it a slot of its
+		 * own so it can be abandoned like a running one
+		 */
+		synchronized Job leaveAll() {
+			Job next = waiting.poll();
+			if( next != null ) {
+				active++;
+			} // if
+			return next;
+		}
+
+		private int active = 0;
+		private final ArrayDeque<Job> waiting = new ArrayDeque<>();
+	}
+
+	private CompletableFuture<List<DownloadResult>> downloadInto( Path dir, List<Image> images ) throws IOException {
+		Files.createDirectories( dir );
+		List<CompletableFuture<DownloadResult>> futures = new ArrayList<>( images.size() );
+		for( Image image : images ) {
+			futures.add( download( image.getLink(), fileFor( dir, image.getLink() ) ) );
+		} // for
+		return CompletableFuture.allOf( futures.toArray( new CompletableFuture<?>[0] ) )
+				.thenApply( v -> {
+					List<DownloadResult> results = new ArrayList<>( futures.size() );
+					for( CompletableFuture<DownloadResult> f : futures ) {
+						results.add( f.join() );
+					} // for
+					return results;
+				} );
+	} // downloadInto
+
+	private static Path fileFor( Path dir, String link ) {
+		String path = URI.create( link ).getPath();
+		return dir.resolve( path.substring( path.lastIndexOf( '/' ) + 1 ) );
+	}
+
+	private double elapsedSeconds() {
+		long start = startedAt.get();
+		return start == 0 ? 0.0 : (System.nanoTime() - start) / 1e9;
+	}
+
+	/**
+	 * Counts outstanding futures instead of holding on to them, so
+	 * a crawl of a million items doesn't keep a million futures
+	 */
+	private static class Tracker {
+		void track( CompletableFuture<?> future ) {
+			pending.incrementAndGet();
+			future.whenComplete( ( v, e ) -> finish() );
+		}
+
+		CompletableFuture<Void> done() {
+			finish(); // the one for the submitting loop itself
+			return all;
+		}
+
+		private void finish() {
+			if( pending.decrementAndGet() == 0 ) {
+				all.complete( null );
+			} // if
+		}
+
+		private final AtomicInteger pending = new AtomicInteger( 1 );
+		private final CompletableFuture<Void> all = new CompletableFuture<>();
+	}
+
+	protected DownloadManager( BaringoClient client, Path directory, int concurrency,
+			int maxPerHost, int queueSize, int retries ) {
+		this.client = client;
+		this.directory = directory;
+		this.maxPerHost = maxPerHost;
+		this.retries = retries;
+		this.admission = new Semaphore( concurrency + queueSize );
+		AtomicInteger threadNum = new AtomicInteger();
+		this.workers = new ThreadPoolExecutor( concurrency, concurrency,
+				60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), r -> {
+					Thread t = new Thread( r, "baringo-download-" + threadNum.incrementAndGet() );
+					t.setDaemon( true );
+					return t;
+				} );
+		this.workers.allowCoreThreadTimeOut( true );
+	} // constructor
+
+	private static final long RETRY_DELAY_MS = 500;
+
+	private final BaringoClient client;
+	private final Path directory;
+	private final int maxPerHost;
+	private final int retries;
+	private final Semaphore admission; // running + queued; this is the backpressure
+	private final ThreadPoolExecutor workers;
+	private final ConcurrentHashMap<String, Host> hosts = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<Path, Job> inFlight = new ConcurrentHashMap<>(); // by target
+	private final AtomicInteger outstanding = new AtomicInteger();
+	private final AtomicLong duplicates = new AtomicLong();
+	private volatile boolean closed = false;
+	private final AtomicLong startedAt = new AtomicLong();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong bytesDownloaded = new AtomicLong();
+	private final AtomicLong bytesResumed = new AtomicLong();
+
+}
@@ -0,0 +1,76 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.nio.file.Path;
+
+/**
+ * What happened during a resumable download.  See
+ * {@link ImageService#downloadImageResumable(String, Path, int, ProgressListener)}.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class DownloadResult {
+
+	/**
+	 * Returns where the file ended up
+	 * @return the target path
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the size of the finished file
+	 * @return size in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns how many bytes actually came over the network during
+	 * this download, across every attempt
+	 * @return bytes downloaded
+	 */
+	public long getBytesDownloaded() {
+		return bytesDownloaded;
+	}
+
+	/**
+	 * Returns how many bytes didn't have to be downloaded again
+	 * because a partial file was picked up where it left off
+	 * @return bytes saved by resuming
+	 */
+	public long getBytesResumed() {
+		return bytesResumed;
+	}
+
+	/**
+	 * Returns how many requests it took
+	 * @return 1 if it went through in one go
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+
+	@Override
+	public String toString() {
+		return String.format( "DownloadResult[path=%s, size=%d, downloaded=%d, resumed=%d, attempts=%d]",
+				path, size, bytesDownloaded, bytesResumed, attempts );
+	}
+
+	protected DownloadResult( Path path, long size, long bytesDownloaded, long bytesResumed, int attempts ) {
+		this.path = path;
+		this.size = size;
+		this.bytesDownloaded = bytesDownloaded;
+		this.bytesResumed = bytesResumed;
+		this.attempts = attempts;
+	} // constructor
+
+	private final Path path;
+	private final long size;
+	private final long bytesDownloaded;
+	private final long bytesResumed;
+	private final int attempts;
+
+}
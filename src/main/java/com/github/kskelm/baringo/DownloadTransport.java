@@ -0,0 +1,258 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.kskelm.baringo.util.Jfr;
+import com.squareup.okhttp.Connection;
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.Dispatcher;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Image downloads don't go through the api.imgur.com endpoint
+ * the rest of the API uses; they come straight off i.imgur.com.
+ * This is the HTTP plumbing for those downloads.  There's one
+ * per BaringoClient, and every download shares its connection
+ * pool so repeated fetches from the same host skip the TCP and
+ * TLS handshakes.
+ * <p>
+ * The pool hit/miss counters tell you whether that is actually
+ * happening.  A "hit" is a request that went out on a connection
+ * that had already been used before; a "miss" had to open a new
+ * one.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class DownloadTransport {
+
+	public static final int  DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+	public static final long DEFAULT_KEEP_ALIVE_MS = 5 * 60 * 1000; // 5 minutes
+	public static final int  DEFAULT_MAX_REQUESTS_PER_HOST = 5;
+
+	/**
+	 * Returns the number of downloads that reused a pooled connection
+	 * @return pool hits
+	 */
+	public long getPoolHits() {
+		return poolHits.get();
+	}
+
+	/**
+	 * Returns the number of downloads that had to open a new connection
+	 * @return pool misses
+	 */
+	public long getPoolMisses() {
+		return poolMisses.get();
+	}
+
+	/**
+	 * Returns how many bytes resumable downloads didn't have to
+	 * fetch again because they picked up a partial file
+	 * @return bytes saved by resuming
+	 */
+	public long getBytesResumed() {
+		return bytesResumed.get();
+	}
+
+	/**
+	 * Returns the number of connections currently sitting idle in the pool
+	 * @return idle connection count
+	 */
+	public int getIdleConnectionCount() {
+		return pool.getIdleConnectionCount();
+	}
+
+	/**
+	 * Returns the total number of connections in the pool, idle or busy
+	 * @return connection count
+	 */
+	public int getConnectionCount() {
+		return pool.getConnectionCount();
+	}
+
+	/**
+	 * Returns the maximum number of downloads allowed to
+	 * run against a single host at the same time
+	 * @return the per-host concurrency limit
+	 */
+	public int getMaxRequestsPerHost() {
+		return maxRequestsPerHost;
+	}
+
+	/**
+	 * Closes all idle connections in the pool.
+	 */
+	public void evictAll() {
+		pool.evictAll();
+	}
+
+	// =========================================================
+	// internal
+
+	protected DownloadTransport( int maxIdleConnections, long keepAliveMs, int maxRequestsPerHost ) {
+		this.maxRequestsPerHost = maxRequestsPerHost;
+		this.pool = new ConnectionPool( maxIdleConnections, keepAliveMs );
+
+		Dispatcher dispatcher = new Dispatcher();
+		dispatcher.setMaxRequestsPerHost( maxRequestsPerHost );
+
+		this.client = new OkHttpClient();
+		client.setConnectionPool( pool );
+		client.setDispatcher( dispatcher );
+		client.networkInterceptors().add( new PoolStatsInterceptor() );
+		if( Jfr.AVAILABLE ) {
+			client.interceptors().add( Jfr.downloadInterceptor() );
+		} // if
+	} // constructor
+
+	protected void addBytesResumed( long bytes ) {
+		bytesResumed.addAndGet( bytes );
+	}
+
+	protected OkHttpClient getHttpClient() {
+		return client;
+	} // getHttpClient
+
+	/**
+	 * Synchronously executes the request, holding one of the
+	 * destination host's slots until the response body is closed.
+	 * <i>Callers must close the body</i> or the slot and the
+	 * connection both leak.
+	 * @param request the request to execute
+	 * @return the response
+	 * @throws IOException the request failed or was interrupted
+	 */
+	protected Response execute( Request request ) throws IOException {
+		final Semaphore slot = hostSlot( request.httpUrl().host() );
+		Jfr.queued( request );
+		try {
+			slot.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException( "Interrupted waiting for a download slot" );
+		} // try-catch
+
+		Response resp = null;
+		try {
+			resp = client.newCall( request ).execute();
+		} finally {
+			if( resp == null || resp.body() == null ) {
+				slot.release();
+			} // if
+		} // try-finally
+
+		return resp.newBuilder()
+				.body( new SlotReleasingBody( resp.body(), slot ) )
+				.build();
+	} // execute
+
+	private Semaphore hostSlot( String host ) {
+		synchronized( hostSlots ) {
+			Semaphore slot = hostSlots.get( host );
+			if( slot == null ) {
+				slot = new Semaphore( maxRequestsPerHost, true );
+				hostSlots.put( host, slot );
+			} // if
+			return slot;
+		} // synchronized
+	} // hostSlot
+
+	/**
+	 * Network interceptors see the actual connection a request
+	 * goes out on.  If we've seen that connection before, the
+	 * pool did its job.
+	 */
+	private class PoolStatsInterceptor implements Interceptor {
+
+		public Response intercept( Chain chain ) throws IOException {
+			Connection conn = chain.connection();
+			if( conn != null ) {
+				boolean seen;
+				synchronized( seenConnections ) {
+					seen = !seenConnections.add( conn );
+				} // synchronized
+				if( seen ) {
+					poolHits.incrementAndGet();
+				} else {
+					poolMisses.incrementAndGet();
+				} // if-else
+			} // if
+			return chain.proceed( chain.request() );
+		}
+	}
+
+	/**
+	 * Hands the host slot back when the body is closed.
+	 */
+	private static class SlotReleasingBody extends ResponseBody {
+
+		SlotReleasingBody( ResponseBody delegate, Semaphore slot ) {
+			this.delegate = delegate;
+			this.slot = slot;
+		}
+
+		@Override
+		public MediaType contentType() {
+			return delegate.contentType();
+		}
+
+		@Override
+		public long contentLength() throws IOException {
+			return delegate.contentLength();
+		}
+
+		@Override
+		public synchronized BufferedSource source() throws IOException {
+			if( source == null ) {
+				source = Okio.buffer( new ForwardingSource( delegate.source() ) {
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							if( released.compareAndSet( false, true ) ) {
+								slot.release();
+							} // if
+						} // try-finally
+					}
+				} );
+			} // if
+			return source;
+		}
+
+		private final ResponseBody delegate;
+		private final Semaphore slot;
+		private final AtomicBoolean released = new AtomicBoolean();
+		private BufferedSource source = null;
+	}
+
+	// =========================================================
+	private final OkHttpClient client;
+	private final ConnectionPool pool;
+	private final int maxRequestsPerHost;
+	private final HashMap<String,Semaphore> hostSlots = new HashMap<>();
+	private final Set<Connection> seenConnections =
+			Collections.newSetFromMap( new WeakHashMap<Connection,Boolean>() );
+	private final AtomicLong poolHits = new AtomicLong();
+	private final AtomicLong poolMisses = new AtomicLong();
+	private final AtomicLong bytesResumed = new AtomicLong();
+
+} // class DownloadTransport
@@ -0,0 +1,78 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+/**
+ * A cache of model objects fetched from Imgur, so that repeated
+ * lookups of the same image, album, account or comment don't cost
+ * a round trip and a credit every time.  Install one with
+ * {@link BaringoClient.Builder#entityCache(EntityCache)};
+ * {@link LruEntityCache} is the stock implementation, but anything
+ * that honors this contract will do.
+ * <p>
+ * The services invalidate entries themselves whenever they change
+ * the object on Imgur (updating, deleting, favoriting, adding
+ * images to an album and so on), so the cache only has to worry
+ * about going stale from changes made elsewhere; that's what the
+ * TTLs are for.
+ * <p>
+ * Implementations must be thread-safe.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public interface EntityCache {
+
+	/**
+	 * The kinds of objects that get cached, each with its own
+	 * key space, limits and stats.
+	 */
+	enum Type {
+		/** Images, keyed by image id */
+		Image,
+		/** Albums, keyed by album id */
+		Album,
+		/** Accounts, keyed by user name */
+		Account,
+		/** Comments, keyed by comment id */
+		Comment,
+		/** Gallery items, keyed by item id */
+		GalleryItem
+	}
+
+	/**
+	 * Returns the cached object, or null if there isn't a live one
+	 * @param type kind of object
+	 * @param key the object's key
+	 * @return the object or null
+	 */
+	Object get( Type type, String key );
+
+	/**
+	 * Caches an object
+	 * @param type kind of object
+	 * @param key the object's key
+	 * @param value the object
+	 */
+	void put( Type type, String key, Object value );
+
+	/**
+	 * Drops one object from the cache
+	 * @param type kind of object
+	 * @param key the object's key
+	 * @return true if something was dropped
+	 */
+	boolean invalidate( Type type, String key );
+
+	/**
+	 * Drops every object of one kind
+	 * @param type kind of object
+	 */
+	void invalidateAll( Type type );
+
+	/**
+	 * Returns hit/miss stats for one kind of object
+	 * @param type kind of object
+	 * @return a snapshot of the stats
+	 */
+	CacheStats getStats( Type type );
+
+}
@@ -2,7 +2,6 @@
 package com.github.kskelm.baringo;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
 import com.github.kskelm.baringo.model.ImgurResponseWrapper;
@@ -14,10 +13,9 @@ import com.github.kskelm.baringo.model.TagVote;
 import com.github.kskelm.baringo.model.TagVoteList;
 import com.github.kskelm.baringo.model.Vote;
 import com.github.kskelm.baringo.model.Votes;
-import com.github.kskelm.baringo.model.gallery.GalleryAlbum;
 import com.github.kskelm.baringo.model.gallery.GalleryImage;
 import com.github.kskelm.baringo.model.gallery.GalleryItem;
-import com.github.kskelm.baringo.model.gallery.GalleryItemProxy;
+import com.github.kskelm.baringo.model.gallery.GalleryItemAdapterFactory;
 import com.github.kskelm.baringo.model.search.CompoundSearchQuery;
 import com.github.kskelm.baringo.model.search.SearchQuery;
 import com.github.kskelm.baringo.util.BaringoApiException;
@@ -67,22 +65,41 @@ public class GalleryService {
 		String sortStr = sort.name().toLowerCase();
 		String windowStr = window.name().toLowerCase();
 
-		Call<ImgurResponseWrapper<List<GalleryItemProxy>>> call =
+		Call<ImgurResponseWrapper<List<GalleryItem>>> call =
 				client.getApi().listGallery( sectionStr, sortStr, windowStr, page, viral );
 
 		try {
-			Response<ImgurResponseWrapper<List<GalleryItemProxy>>> res = call.execute();
-			ImgurResponseWrapper<List<GalleryItemProxy>> list = res.body();
+			Response<ImgurResponseWrapper<List<GalleryItem>>> res = call.execute();
+			ImgurResponseWrapper<List<GalleryItem>> list = res.body();
 
 			client.throwOnWrapperError( res );
 
-			// TODO: Look into refactoring this
-			return convertToGalleryItems( list.getData() );
+			return list.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} 
 	}
 
+	/**
+	 * Walks every page of {@link #listGallery(GalleryItem.Section, GalleryItem.Sort, GalleryItem.Window, boolean, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+	 * <b>ACCESS: ANONYMOUS</b>
+	 * @param section the section of the gallery - Hot | Top | User
+	 * @param sort the sort for the results - Viral | Time | Top
+	 * @param window the window of time when the section is Top
+	 * @param viral whether or not viral images are to be returned
+	 * @return every GalleryItem in the gallery
+	 */
+	public Paged<GalleryItem> iterateGallery(
+			GalleryItem.Section section,
+			GalleryItem.Sort sort,
+			GalleryItem.Window window,
+			boolean viral ) {
+		return new Paged<>( 0,
+				page -> client.async().galleryService().listGallery( section, sort, window, viral, page ) );
+	} // iterateGallery
+
 	/**
 	 * Exactly like getGallery() except this returns
 	 * items from the meme gallery.
@@ -107,23 +124,38 @@ public class GalleryService {
 		String windowStr = window.name().toLowerCase();
 
 
-		Call<ImgurResponseWrapper<List<GalleryItemProxy>>> call =
+		Call<ImgurResponseWrapper<List<GalleryItem>>> call =
 				client.getApi()
 				.listMemeGallery( sortStr, windowStr, page);
 
 		try {
-			Response<ImgurResponseWrapper<List<GalleryItemProxy>>> res = call.execute();
-			ImgurResponseWrapper<List<GalleryItemProxy>> list = res.body();
+			Response<ImgurResponseWrapper<List<GalleryItem>>> res = call.execute();
+			ImgurResponseWrapper<List<GalleryItem>> list = res.body();
 
 			client.throwOnWrapperError( res );
 
-			// TODO: Look into refactoring this
-			return convertToGalleryItems( list.getData() );
+			return list.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} 
 	} // listMemeGallery
 
+	/**
+	 * Walks every page of {@link #listMemeGallery(GalleryItem.Sort, GalleryItem.Window, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+	 * <b>ACCESS: ANONYMOUS</b>
+	 * @param sort the sort direction - Viral | Time | Top
+	 * @param window the time range when the sort is Top
+	 * @return every item in the meme gallery
+	 */
+	public Paged<GalleryItem> iterateMemeGallery(
+			GalleryItem.Sort sort,
+			GalleryItem.Window window ) {
+		return new Paged<>( 0,
+				page -> client.async().galleryService().listMemeGallery( sort, window, page ) );
+	} // iterateMemeGallery
+
 	/**
 	 * Exactly like getGallery() except this returns
 	 * items from the subreddit galleries.
@@ -150,23 +182,40 @@ public class GalleryService {
 		String sortStr = sort.name().toLowerCase();
 		String windowStr = window.name().toLowerCase();
 
-		Call<ImgurResponseWrapper<List<GalleryItemProxy>>> call =
+		Call<ImgurResponseWrapper<List<GalleryItem>>> call =
 				client.getApi()
 				.listSubredditGallery( subreddit, sortStr, windowStr, page);
 
 		try {
-			Response<ImgurResponseWrapper<List<GalleryItemProxy>>> res = call.execute();
-			ImgurResponseWrapper<List<GalleryItemProxy>> list = res.body();
+			Response<ImgurResponseWrapper<List<GalleryItem>>> res = call.execute();
+			ImgurResponseWrapper<List<GalleryItem>> list = res.body();
 
 			client.throwOnWrapperError( res );
 
-			// TODO: Look into refactoring this
-			return convertToGalleryItems( list.getData() );
+			return list.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} 
 	}
 
+	/**
+	 * Walks every page of {@link #listSubredditGallery(String, GalleryItem.Sort, GalleryItem.Window, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+	 * <b>ACCESS: ANONYMOUS</b>
+	 * @param subreddit the name of the subreddit
+	 * @param sort the sort direction - Viral | Time | Top
+	 * @param window the time range when the sort is Top
+	 * @return every item in the subreddit gallery
+	 */
+	public Paged<GalleryItem> iterateSubredditGallery(
+			String subreddit,
+			GalleryItem.Sort sort,
+			GalleryItem.Window window ) {
+		return new Paged<>( 0,
+				page -> client.async().galleryService().listSubredditGallery( subreddit, sort, window, page ) );
+	} // iterateSubredditGallery
+
 	/**
 	 * Returns info about an image in a subreddit gallery
 	 * <p>
@@ -179,7 +228,11 @@ public class GalleryService {
 	public GalleryImage getSubredditImageInfo(
 			String subreddit,
 			String id ) throws BaringoApiException {
+		return client.cached( EntityCache.Type.GalleryItem, id,
+				() -> fetchSubredditImageInfo( subreddit, id ) );
+	}
 
+	private GalleryImage fetchSubredditImageInfo( String subreddit, String id ) throws BaringoApiException {
 		Call<ImgurResponseWrapper<GalleryImage>> call =
 				client.getApi().getSubredditImageInfo( subreddit, id );
 
@@ -193,7 +246,7 @@ public class GalleryService {
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} // try-catch
-	}
+	} // fetchSubredditImageInfo
 
 	/**
 	 * Returns a TagGallery object representing gallery
@@ -226,15 +279,31 @@ public class GalleryService {
 
 			client.throwOnWrapperError( res );
 
-			// TODO: Look into refactoring this
-			TagGallery gal = out.getData();
-			gal.setConvertedItems( convertToGalleryItems( gal.getInternalItems() ));
-			return gal;
+			return out.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} 
 	}
 
+	/**
+	 * Walks the items on every page of {@link #getTagGallery(String, GalleryItem.Sort, GalleryItem.Window, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+	 * <b>ACCESS: ANONYMOUS</b>
+	 * @param tag the tag for which we want to list a gallery
+	 * @param sort the mechanism for sorting - Viral | Time | Top
+	 * @param window the time window to fetch when the sort is Top
+	 * @return every item with the tag
+	 */
+	public Paged<GalleryItem> iterateTagGallery(
+			String tag,
+			GalleryItem.Sort sort,
+			GalleryItem.Window window ) {
+		return new Paged<>( 0,
+				page -> client.async().galleryService().getTagGallery( tag, sort, window, page )
+						.thenApply( gallery -> gallery == null ? null : gallery.getItems() ) );
+	} // iterateTagGallery
+
 	/**
 	 * Given an image id, return info about the Image object for it.
 	 * This just points to ImageService.getImageInfo()
@@ -302,6 +371,7 @@ public class GalleryService {
 
 		try {
 			Response<ImgurResponseWrapper<Boolean>> res = call.execute();
+			client.uncache( EntityCache.Type.GalleryItem, id );
 			ImgurResponseWrapper<Boolean> out = res.body();
 
 			client.throwOnWrapperError( res );
@@ -343,7 +413,7 @@ public class GalleryService {
 		} // if
 		String rangeStr = range == null ? null : range.name().toLowerCase();
 
-		Call<ImgurResponseWrapper<List<GalleryItemProxy>>> call =
+		Call<ImgurResponseWrapper<List<GalleryItem>>> call =
 				client.getApi()
 				.searchGallery(
 						sortStr, windowStr, page,
@@ -355,18 +425,35 @@ public class GalleryService {
 						rangeStr );
 
 		try {
-			Response<ImgurResponseWrapper<List<GalleryItemProxy>>> res = call.execute();
-			ImgurResponseWrapper<List<GalleryItemProxy>> list = res.body();
+			Response<ImgurResponseWrapper<List<GalleryItem>>> res = call.execute();
+			ImgurResponseWrapper<List<GalleryItem>> list = res.body();
 
 			client.throwOnWrapperError( res );
 
-			// TODO: Look into refactoring this
-			return convertToGalleryItems( list.getData() );
+			return list.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} 
 	}
 
+	/**
+	 * Walks every page of {@link #searchGallery(SearchQuery, GalleryItem.Sort, GalleryItem.Window, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+	 * <b>ACCESS: ANONYMOUS</b>
+	 * @param query the search query to perform
+	 * @param sort the method of sorting - Viral | Time | Top
+	 * @param window the time range to return when the sort is Top
+	 * @return every GalleryItem that matches
+	 */
+	public Paged<GalleryItem> iterateSearchGallery(
+			SearchQuery query,
+			GalleryItem.Sort sort,
+			GalleryItem.Window window ) {
+		return new Paged<>( 0,
+				page -> client.async().galleryService().searchGallery( query, sort, window, page ) );
+	} // iterateSearchGallery
+
 	
 	/**
 	 * Performs a compound gallery search, returning GalleryItems
@@ -389,25 +476,42 @@ public class GalleryService {
 		String sortStr = sort.name().toLowerCase();
 		String windowStr = window.name().toLowerCase();
 
-		Call<ImgurResponseWrapper<List<GalleryItemProxy>>> call =
+		Call<ImgurResponseWrapper<List<GalleryItem>>> call =
 				client.getApi()
 				.compoundSearchGallery(
 						sortStr, windowStr, page,
 						query.toString() );
 
 		try {
-			Response<ImgurResponseWrapper<List<GalleryItemProxy>>> res = call.execute();
-			ImgurResponseWrapper<List<GalleryItemProxy>> list = res.body();
+			Response<ImgurResponseWrapper<List<GalleryItem>>> res = call.execute();
+			ImgurResponseWrapper<List<GalleryItem>> list = res.body();
 
 			client.throwOnWrapperError( res );
 
-			// TODO: Look into refactoring this
-			return convertToGalleryItems( list.getData() );
+			return list.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} 
 	}
 
+	/**
+	 * Walks every page of {@link #searchGallery(CompoundSearchQuery, GalleryItem.Sort, GalleryItem.Window, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+	 * <b>ACCESS: ANONYMOUS</b>
+	 * @param query the search query to perform
+	 * @param sort the method of sorting- Viral | Time | Top
+	 * @param window the time range to return when the sort is Top
+	 * @return every GalleryItem that matches
+	 */
+	public Paged<GalleryItem> iterateSearchGallery(
+			CompoundSearchQuery query,
+			GalleryItem.Sort sort,
+			GalleryItem.Window window ) {
+		return new Paged<>( 0,
+				page -> client.async().galleryService().searchGallery( query, sort, window, page ) );
+	} // iterateSearchGallery
+
 	
 	/**
 	 * This returns a list of random gallery items.  Imgur
@@ -420,17 +524,16 @@ public class GalleryService {
 	 */
 	public List<GalleryItem> getRandomGallery( int page ) throws BaringoApiException {
 
-		Call<ImgurResponseWrapper<List<GalleryItemProxy>>> call =
+		Call<ImgurResponseWrapper<List<GalleryItem>>> call =
 				client.getApi().listRandomGallery( page);
 
 		try {
-			Response<ImgurResponseWrapper<List<GalleryItemProxy>>> res = call.execute();
-			ImgurResponseWrapper<List<GalleryItemProxy>> list = res.body();
+			Response<ImgurResponseWrapper<List<GalleryItem>>> res = call.execute();
+			ImgurResponseWrapper<List<GalleryItem>> list = res.body();
 
 			client.throwOnWrapperError( res );
 
-			// TODO: Look into refactoring this
-			return convertToGalleryItems( list.getData() );
+			return list.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} 
@@ -470,6 +573,7 @@ public class GalleryService {
 
 		try {
 			Response<ImgurResponseWrapper<Boolean>> res = call.execute();
+			uncacheItem( itemId );
 			ImgurResponseWrapper<Boolean> out = res.body();
 
 			client.throwOnWrapperError( res );
@@ -496,6 +600,7 @@ public class GalleryService {
 
 		try {
 			Response<ImgurResponseWrapper<Boolean>> res = call.execute();
+			uncacheItem( itemId );
 			ImgurResponseWrapper<Boolean> out = res.body();
 
 			client.throwOnWrapperError( res );
@@ -644,123 +749,23 @@ public class GalleryService {
 
 	// ================================================
 
-	// this approach feels filthy. Convert lame proxy objects to
-	// type-safe GalleryItem derivatives.  
-	protected List<GalleryItem> convertToGalleryItems( List<GalleryItemProxy> list ) {
-		ArrayList<GalleryItem> items = new ArrayList<>();
-
-		for( GalleryItemProxy proxy : list ) {
-			GalleryItem item = null;
-			if( proxy.isAlbum() ) {
-				item = new GalleryAlbum( proxy );
-			} else {
-				item = new GalleryImage( proxy );
-			} // if-else
-			if( item != null ) {
-				items.add( item );
-			} // if
-		} // for
-		return items;
-	} 
-
-	protected GalleryItem convertProxyItem( GalleryItemProxy proxy ) {
-		GalleryItem item = null;
-		if( proxy.isAlbum() ) {
-			item = new GalleryAlbum( proxy );
-		} else {
-			item = new GalleryImage( proxy );
-		} // if-else
-		return item;
-	}
-
-	// ditto
-	// UPDATE: apparently Imgur doesn't really support this anymore at least
-	// as of 6/24/15.  https://groups.google.com/forum/#!msg/imgur/BEyZryAhGi0/yfOFyixuPy4J
-	//	protected List<GalleryItem> convertToMemeGalleryItems( List<GalleryItemProxy> list ) {
-	//		ArrayList<GalleryItem> items = new ArrayList<>();
-	//
-	//		for( GalleryItemProxy proxy : list ) {
-	//			GalleryItem item = null;
-	//			if( proxy.isAlbum() ) {
-	//				item = new GalleryMemeAlbum( proxy );
-	//			} else {
-	//				item = new GalleryMemeImage( proxy );
-	//			} // if-else
-	//			if( item != null ) {
-	//				items.add( item );
-	//			} // if
-	//		} // for
-	//		return items;
-	//	}
-
-	// double ditto
-	//	// UPDATE: apparently Imgur doesn't really support this anymore
-	//	protected List<GalleryItem> convertToSubredditGalleryItems( List<GalleryItemProxy> list ) {
-	//		ArrayList<GalleryItem> items = new ArrayList<>();
-	//
-	//		for( GalleryItemProxy proxy : list ) {
-	//			GalleryItem item = null;
-	//			if( proxy.isAlbum() ) {
-	//				item = new GallerySubredditAlbum( proxy );
-	//			} else {
-	//				item = new GallerySubredditImage( proxy );
-	//			} // if-else
-	//			if( item != null ) {
-	//				items.add( item );
-	//			} // if
-	//		} // for
-	//		return items;
-	//	} 
-
-
-	/*
-	 * Because Imgur gallery lists come in with both GalleryImages and
-	 * GalleryAlbums in the same GalleryItemList, and because the only
-	 * distinguishing thing is is_album==true, AND because we like type
-	 * safety and proper subclassing, we need an Adapter to read
-	 * Gallery lists and convert them on the fly from being GalleryItemProxies
-	 * to GalleryImages and GalleryAlbums.
+	/**
+	 * Sharing or unsharing changes the item whether it's an image
+	 * or an album, and we can't tell which from the id.
+	 * @param itemId the image or album id
 	 */
-/* WIP .. nice idea but not yet
-	class GalleryItemAdapter extends TypeAdapter<GalleryItem> {
-
-		@Override
-		public void write(JsonWriter out, GalleryItem value) throws IOException {
-			if( value == null ){
-				out.nullValue();
-				return;
-			} // if
-
-			out.value( value.toString() );
-		}
-
-		// We used to load an entire array of GalleryItemProxy objects
-		// and then wholesale convert them.  That was probably twice the
-		// heap pressure as doing it piecemeal as they come in.
-		@Override
-		public GalleryItem read(JsonReader in) throws IOException {
-			if (in.peek() != JsonToken.BEGIN_OBJECT) {
-				in.nextNull();
-				return null;
-			} // if-else
-			// read in a temporary proxy placeholder
-			GalleryItemProxy proxy = new Gson().fromJson( in, GalleryItemProxy.class );
-			if( proxy == null ) {
-				return null;
-			} // if
-			// turn it into the appropriate element and return
-			if( proxy.isAlbum() ) {
-				return new GalleryAlbum( proxy );
-			} else {
-				return new GalleryImage( proxy );
-			} // if-else
-		}
-	}
-*/
+	protected void uncacheItem( String itemId ) {
+		client.uncache( EntityCache.Type.GalleryItem, itemId );
+		client.uncache( EntityCache.Type.Image, itemId );
+		client.uncache( EntityCache.Type.Album, itemId );
+	} // uncacheItem
 
 	protected GalleryService( BaringoClient client, GsonBuilder gsonBuilder ) {
 		this.client = client;
-//		gsonBuilder.registerTypeAdapter( GalleryItem.class, new GalleryItemAdapter() );
+		// gallery lists mix images and albums; this sorts them out as they're read
+		if( gsonBuilder != null ) { // null for sessions, which share their parent's Gson
+			gsonBuilder.registerTypeAdapterFactory( new GalleryItemAdapterFactory() );
+		} // if
 	} // constructor
 
 	private BaringoClient client = null;
@@ -0,0 +1,410 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import retrofit.Call;
+import retrofit.Response;
+
+/**
+ * Cuts the slow tail off latency-critical reads by sending a
+ * second copy of a request that's taking too long, and keeping
+ * whichever answer comes back first.  Turn it on with
+ * {@link BaringoClient.Builder#hedging(HedgingPolicy)}.
+ * <p>
+ * "Too long" is a percentile (p95 by default) of how long that
+ * endpoint has been taking, learned as calls go by, kept between
+ * a floor and a ceiling.  Nothing is hedged until an endpoint has
+ * enough history.  When the hedge goes out, it gets a connection
+ * of its own, since the first one is still busy.  The first good
+ * response wins and the other call is cancelled.
+ * <p>
+ * The percentile is learned from the original calls only, and
+ * only those that finished on their own.  A call the hedge beat
+ * isn't counted: how long it would have taken isn't known, and
+ * counting the hedged time instead would pull the percentile
+ * down, which would hedge sooner and pull it down further.
+ * <p>
+ * Every hedge costs a request's worth of quota, so hedges are
+ * capped at a percentage of calls (5% by default).  Once the
+ * budget's spent, slow calls just wait like they used to.  Hedges
+ * are never retried by a {@link RetryPolicy}; that would spend
+ * more than the budget allows.
+ * <p>
+ * Only idempotent reads are hedged: by default getImageInfo,
+ * getAlbum and getComment, from {@link ImageService},
+ * {@link AlbumService} and {@link CommentService}.  Only the
+ * synchronous calls are hedged.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class HedgingPolicy {
+
+	public static final double DEFAULT_PERCENTILE = 95.0;
+	public static final double DEFAULT_BUDGET_PERCENT = 5.0;
+	public static final long   DEFAULT_MIN_DELAY_MS = 50;
+	public static final long   DEFAULT_MAX_DELAY_MS = 2000;
+	public static final int    DEFAULT_MIN_SAMPLES = 50;
+
+	/**
+	 * Sets up a HedgingPolicy
+	 */
+	public static class Builder {
+
+		/**
+		 * Sets which percentile of an endpoint's latency a call has
+		 * to pass before it's hedged
+		 * @param percentile e.g. 95.0 or 99.0
+		 * @return This builder object
+		 */
+		public Builder percentile( double percentile ) {
+			this._percentile = Math.max( 1.0, Math.min( 99.99, percentile ) );
+
+			return this;
+		} // percentile
+
+		/**
+		 * Caps hedges at a percentage of calls, which is also the
+		 * most extra quota hedging can use
+		 * @param percent e.g. 5.0 for at most one hedge per twenty calls
+		 * @return This builder object
+		 */
+		public Builder budget( double percent ) {
+			this._budgetPercent = Math.max( 0.0, percent );
+
+			return this;
+		} // budget
+
+		/**
+		 * Keeps the hedge delay between these, whatever the
+		 * percentile says
+		 * @param min shortest delay
+		 * @param max longest delay
+		 * @param unit units for both
+		 * @return This builder object
+		 */
+		public Builder delayBounds( long min, long max, TimeUnit unit ) {
+			this._minDelayMs = Math.max( 1, unit.toMillis( min ) );
+			this._maxDelayMs = Math.max( this._minDelayMs, unit.toMillis( max ) );
+
+			return this;
+		} // delayBounds
+
+		/**
+		 * Sets how many calls an endpoint needs to have made before
+		 * its percentile is trusted
+		 * @param samples call count
+		 * @return This builder object
+		 */
+		public Builder minSamples( int samples ) {
+			this._minSamples = Math.max( 1, samples );
+
+			return this;
+		} // minSamples
+
+		/**
+		 * Sets which endpoints get hedged.  Only name reads; a
+		 * hedged write could happen twice.
+		 * @param endpoints RetrofittedImgur method names, e.g. "getAlbum"
+		 * @return This builder object
+		 */
+		public Builder endpoints( String... endpoints ) {
+			this._endpoints = new HashSet<>( Arrays.asList( endpoints ) );
+
+			return this;
+		} // endpoints
+
+		/**
+		 * Constructs the HedgingPolicy and returns it
+		 * @return the policy
+		 */
+		public HedgingPolicy build() {
+			return new HedgingPolicy( _percentile, _budgetPercent, _minDelayMs, _maxDelayMs,
+					_minSamples, _endpoints );
+		} // build
+
+		private double _percentile = DEFAULT_PERCENTILE;
+		private double _budgetPercent = DEFAULT_BUDGET_PERCENT;
+		private long _minDelayMs = DEFAULT_MIN_DELAY_MS;
+		private long _maxDelayMs = DEFAULT_MAX_DELAY_MS;
+		private int _minSamples = DEFAULT_MIN_SAMPLES;
+		private Set<String> _endpoints = new HashSet<>( Arrays.asList(
+				"getImageInfo", "getAlbum", "getComment" ) );
+	}
+
+	/**
+	 * Returns how many calls to hedged endpoints there have been
+	 * @return call count
+	 */
+	public long getCalls() {
+		return calls.get();
+	}
+
+	/**
+	 * Returns how many hedges went out
+	 * @return hedge count
+	 */
+	public long getHedges() {
+		return hedges.get();
+	}
+
+	/**
+	 * Returns how many times the hedge came back first
+	 * @return hedge win count
+	 */
+	public long getHedgeWins() {
+		return hedgeWins.get();
+	}
+
+	/**
+	 * Returns how many slow calls weren't hedged because the
+	 * budget was spent
+	 * @return denied hedge count
+	 */
+	public long getBudgetDenied() {
+		return denied.get();
+	}
+
+	/**
+	 * Returns how long calls to each hedged endpoint have been
+	 * taking, not counting calls that a hedge beat
+	 * @return endpoint name to latencies
+	 */
+	public Map<String, LatencyHistogram> getLatencies() {
+		return Collections.unmodifiableMap( new TreeMap<>( latencies ) );
+	}
+
+	/**
+	 * Returns how long a call to the endpoint would wait before
+	 * being hedged right now
+	 * @param endpoint RetrofittedImgur method name
+	 * @param unit units to return it in
+	 * @return the delay, or -1 if the endpoint isn't hedged yet
+	 */
+	public long getDelay( String endpoint, TimeUnit unit ) {
+		LatencyHistogram h = latencies.get( endpoint );
+		if( !endpoints.contains( endpoint ) || h == null || h.getCount() < minSamples ) {
+			return -1;
+		} // if
+		return unit.convert( delayFor( h ), TimeUnit.MILLISECONDS );
+	}
+
+	@Override
+	public String toString() {
+		return String.format( "HedgingPolicy[p%.1f, budget=%.1f%%, calls=%d, hedges=%d, wins=%d, denied=%d]",
+				percentile, budgetPercent, getCalls(), getHedges(), getHedgeWins(), getBudgetDenied() );
+	}
+
+	// ================================================
+
+	/**
+	 * Runs the call, hedging it if the endpoint is covered and it
+	 * runs long
+	 */
+	protected <T> Response<T> execute( Call<T> call, String endpoint ) throws IOException {
+		if( !endpoints.contains( endpoint ) ) {
+			return call.execute();
+		} // if
+		calls.incrementAndGet();
+		LatencyHistogram h = latencies.computeIfAbsent( endpoint, k -> new LatencyHistogram() );
+		if( h.getCount() < minSamples ) {
+			long start = System.nanoTime();
+			Response<T> res = call.execute();
+			h.record( System.nanoTime() - start, TimeUnit.NANOSECONDS );
+			return res;
+		} // if
+		Race<T> race = new Race<>( call );
+		ScheduledFuture<?> timer = Pools.TIMER.schedule(
+				race::launchHedge, delayFor( h ), TimeUnit.MILLISECONDS );
+		try {
+			return race.run();
+		} finally {
+			timer.cancel( false );
+			if( race.primaryNanos >= 0 ) {
+				h.record( race.primaryNanos, TimeUnit.NANOSECONDS );
+			} // if
+		} // try-finally
+	} // execute
+
+	/**
+	 * Whether the call running on this thread lost a race and was
+	 * cancelled, so a retry layer shouldn't count it as a failure
+	 */
+	protected static boolean isCancelled() {
+		AtomicBoolean cancelled = CANCELLED.get();
+		return cancelled != null && cancelled.get();
+	}
+
+	/**
+	 * Whether the call running on this thread is a hedge, which a
+	 * retry layer shouldn't retry
+	 */
+	protected static boolean isHedge() {
+		return HEDGE.get() != null;
+	}
+
+	private long delayFor( LatencyHistogram h ) {
+		long p = h.getPercentile( percentile, TimeUnit.MILLISECONDS );
+		return Math.max( minDelayMs, Math.min( maxDelayMs, p ) );
+	}
+
+	private synchronized boolean spendBudget() {
+		if( hedges.get() + 1 > calls.get() * budgetPercent / 100.0 ) {
+			denied.incrementAndGet();
+			return false;
+		} // if
+		hedges.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * One call and maybe its hedge.  The original runs on the
+	 * caller's thread; the hedge gets a pool thread.
+	 */
+	private class Race<T> {
+		Race( Call<T> primary ) {
+			this.primary = primary;
+			this.hedge = primary.clone(); // a session call clones as the same session
+		}
+
+		Response<T> run() throws IOException {
+			CANCELLED.set( primaryCancelled );
+			long start = System.nanoTime();
+			Response<T> res;
+			try {
+				res = primary.execute();
+				primaryNanos = System.nanoTime() - start;
+			} catch( IOException e ) {
+				synchronized( this ) {
+					primaryDone = true;
+				} // synchronized
+				if( !hedged ) {
+					throw e;
+				} // if
+				try {
+					Response<T> hedgeRes = hedgeResult.get();
+					if( hedgeRes.isSuccess() ) {
+						hedgeWins.incrementAndGet();
+					} // if
+					return hedgeRes;
+				} catch( InterruptedException ie ) {
+					Thread.currentThread().interrupt();
+					throw e;
+				} catch( ExecutionException ee ) {
+					throw e; // both failed; the original's error is the one to report
+				} // try-catch
+			} finally {
+				CANCELLED.remove();
+			} // try-finally
+
+			synchronized( this ) {
+				primaryDone = true;
+			} // synchronized
+			if( hedged && !hedgeResult.isDone() ) {
+				hedgeCancelled.set( true );
+				hedge.cancel();
+			} // if
+			return res;
+		}
+
+		void launchHedge() {
+			synchronized( this ) {
+				if( primaryDone || !spendBudget() ) {
+					return;
+				} // if
+				hedged = true;
+			} // synchronized
+			Pools.HEDGES.execute( () -> {
+				CANCELLED.set( hedgeCancelled );
+				HEDGE.set( Boolean.TRUE );
+				try {
+					Response<T> res = hedge.execute();
+					hedgeResult.complete( res );
+					if( res.isSuccess() ) {
+						synchronized( this ) {
+							if( primaryDone ) {
+								return;
+							} // if
+							primaryCancelled.set( true );
+						} // synchronized
+						primary.cancel();
+					} // if
+				} catch( IOException | RuntimeException e ) {
+					hedgeResult.completeExceptionally( e );
+				} finally {
+					CANCELLED.remove();
+					HEDGE.remove();
+				} // try-finally
+			} );
+		}
+
+		private final Call<T> primary;
+		private final Call<T> hedge;
+		private final AtomicBoolean primaryCancelled = new AtomicBoolean();
+		private final AtomicBoolean hedgeCancelled = new AtomicBoolean();
+		private final CompletableFuture<Response<T>> hedgeResult = new CompletableFuture<>();
+		private boolean primaryDone = false;
+		private volatile boolean hedged = false;
+		long primaryNanos = -1; // how long the original took, if it got an answer
+	}
+
+	private static class Pools {
+		static final ScheduledExecutorService TIMER =
+				Executors.newSingleThreadScheduledExecutor( r -> {
+					Thread t = new Thread( r, "baringo-hedge-timer" );
+					t.setDaemon( true );
+					return t;
+				} );
+
+		private static final AtomicInteger threadCount = new AtomicInteger();
+
+		static final ExecutorService HEDGES = Executors.newCachedThreadPool( r -> {
+			Thread t = new Thread( r, "baringo-hedge-" + threadCount.incrementAndGet() );
+			t.setDaemon( true );
+			return t;
+		} );
+	}
+
+	protected HedgingPolicy( double percentile, double budgetPercent, long minDelayMs, long maxDelayMs,
+			int minSamples, Set<String> endpoints ) {
+		this.percentile = percentile;
+		this.budgetPercent = budgetPercent;
+		this.minDelayMs = minDelayMs;
+		this.maxDelayMs = maxDelayMs;
+		this.minSamples = minSamples;
+		this.endpoints = Collections.unmodifiableSet( new HashSet<>( endpoints ) );
+	} // constructor
+
+	private static final ThreadLocal<AtomicBoolean> CANCELLED = new ThreadLocal<>();
+	private static final ThreadLocal<Boolean> HEDGE = new ThreadLocal<>();
+
+	private final double percentile;
+	private final double budgetPercent;
+	private final long minDelayMs;
+	private final long maxDelayMs;
+	private final int minSamples;
+	private final Set<String> endpoints;
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong hedges = new AtomicLong();
+	private final AtomicLong hedgeWins = new AtomicLong();
+	private final AtomicLong denied = new AtomicLong();
+	private final ConcurrentHashMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+}
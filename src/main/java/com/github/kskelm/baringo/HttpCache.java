@@ -0,0 +1,287 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.kskelm.baringo.util.ApiRoutes;
+import com.squareup.okhttp.Cache;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+/**
+ * An on-disk cache of API responses that revalidates with
+ * If-None-Match / If-Modified-Since instead of refetching.  Pollers
+ * that keep asking for the same gallery page, topic list or meme
+ * list get a 304 back when nothing's changed, which skips both the
+ * download and the JSON parsing.
+ * <p>
+ * Imgur marks most API responses uncacheable, so GET responses that
+ * carry an ETag or Last-Modified are stored anyway and always
+ * revalidated before use.  If you can live with slightly stale data,
+ * {@link BaringoClient.Builder#httpCacheFreshness(long, TimeUnit)}
+ * lets responses be reused without asking at all for a while.
+ * <p>
+ * Every entry is tied to the Authorization it was fetched with, so
+ * sessions sharing one cache (see {@link BaringoClient#newSession()})
+ * never see each other's copy of per-user URLs like
+ * /3/account/me.  Imgur doesn't send a Vary header that would do
+ * this, so one is added.  The price is that a refreshed access
+ * token starts its user over with an empty cache.
+ * <p>
+ * Counters are kept per endpoint, named after the
+ * {@link com.github.kskelm.baringo.util.RetrofittedImgur} method.
+ * Off unless {@link BaringoClient.Builder#httpCache(File, long)}
+ * is called.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class HttpCache {
+
+	public static final long DEFAULT_MAX_SIZE = 10 * 1024 * 1024; // 10MB
+
+	/**
+	 * Cache counters for one endpoint
+	 */
+	public static class EndpointStats {
+
+		/**
+		 * Returns how many responses came straight from disk
+		 * without touching the network
+		 * @return hit count
+		 */
+		public long getHits() {
+			return hits.get();
+		}
+
+		/**
+		 * Returns how many responses came from disk after Imgur
+		 * answered a conditional request with 304 Not Modified
+		 * @return revalidation count
+		 */
+		public long getRevalidations() {
+			return revalidations.get();
+		}
+
+		/**
+		 * Returns how many responses had to be downloaded in full
+		 * @return miss count
+		 */
+		public long getMisses() {
+			return misses.get();
+		}
+
+		/**
+		 * Returns the fraction of responses that didn't need a
+		 * full download, counting hits and revalidations
+		 * @return between 0.0 and 1.0
+		 */
+		public double getHitRate() {
+			long served = getHits() + getRevalidations();
+			long total = served + getMisses();
+			return total == 0 ? 0.0 : (double)served / total;
+		}
+
+		@Override
+		public String toString() {
+			return String.format( "[hits=%d, revalidations=%d, misses=%d]",
+					getHits(), getRevalidations(), getMisses() );
+		}
+
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong revalidations = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+	}
+
+	/**
+	 * Returns the counters for every endpoint that has gone through
+	 * the cache, sorted by endpoint name
+	 * @return endpoint name to counters
+	 */
+	public Map<String, EndpointStats> getEndpointStats() {
+		return Collections.unmodifiableMap( new TreeMap<>( stats ) );
+	}
+
+	/**
+	 * Returns the counters for one endpoint
+	 * @param endpoint the RetrofittedImgur method name, e.g. "listDefaultTopics"
+	 * @return the counters, or null if nothing has gone through it
+	 */
+	public EndpointStats getEndpointStats( String endpoint ) {
+		return stats.get( endpoint );
+	}
+
+	/**
+	 * Returns the directory the cache lives in
+	 * @return the cache directory
+	 */
+	public File getDirectory() {
+		return cache.getDirectory();
+	}
+
+	/**
+	 * Returns the most the cache will hold on disk
+	 * @return max size in bytes
+	 */
+	public long getMaxSize() {
+		return cache.getMaxSize();
+	}
+
+	/**
+	 * Returns how much the cache is holding on disk right now
+	 * @return size in bytes
+	 * @throws IOException if the cache can't be read
+	 */
+	public long getSize() throws IOException {
+		return cache.getSize();
+	}
+
+	/**
+	 * Throws away everything in the cache
+	 * @throws IOException if the cache can't be cleared
+	 */
+	public void evictAll() throws IOException {
+		cache.evictAll();
+	}
+
+	// ================================================
+
+	/**
+	 * Hooks the cache into the API client.  Goes after
+	 * ImgurInterceptor so conditional requests carry the auth
+	 * header and still get counted against the quota.
+	 */
+	protected void install( OkHttpClient client ) {
+		client.setCache( cache );
+		client.interceptors().add( new CountingInterceptor() );
+		client.networkInterceptors().add( new RevalidatingInterceptor() );
+	}
+
+	/**
+	 * Sees the response after the cache has had its say, so it can
+	 * tell where the response actually came from.
+	 */
+	private class CountingInterceptor implements Interceptor {
+		@Override
+		public Response intercept( Chain chain ) throws IOException {
+			Request request = chain.request();
+			if( !"GET".equals( request.method() ) ) {
+				return chain.proceed( request );
+			} // if
+			request = request.newBuilder()
+					.header( IDENTITY_HEADER, identityOf( request ) )
+					.build();
+			Response response = chain.proceed( request );
+
+			String endpoint = ApiRoutes.endpointFor( request.method(), request.url().getPath(), request.url().getQuery() );
+			EndpointStats counters = stats.computeIfAbsent( endpoint, k -> new EndpointStats() );
+			if( response.networkResponse() == null ) {
+				counters.hits.incrementAndGet();
+			} else if( response.cacheResponse() != null ) {
+				counters.revalidations.incrementAndGet();
+			} else {
+				counters.misses.incrementAndGet();
+			} // if-else
+			return response;
+		}
+	}
+
+	/**
+	 * Rewrites the caching headers on GET responses that can be
+	 * revalidated, before the cache decides whether to store them.
+	 */
+	private class RevalidatingInterceptor implements Interceptor {
+		@Override
+		public Response intercept( Chain chain ) throws IOException {
+			Request request = chain.request();
+			Response response = chain.proceed( request );
+			if( !"GET".equals( request.method() ) ) {
+				return response;
+			} // if
+			if( response.code() == 304 ) {
+				// these headers get merged into the stored copy, so
+				// they need the same treatment or the entry goes bad
+				return rewrite( response );
+			} // if
+			if( response.code() != 200 ) {
+				return response;
+			} // if
+			boolean validatable = response.header( "ETag" ) != null
+					|| response.header( "Last-Modified" ) != null;
+			if( !validatable && freshForSeconds <= 0 ) {
+				return response; // nothing to revalidate with; storing it is pointless
+			} // if
+
+			return rewrite( response );
+		}
+
+		private Response rewrite( Response response ) {
+			String cacheControl = freshForSeconds > 0
+					? "private, max-age=" + freshForSeconds
+					: "private, no-cache";
+			String vary = response.header( "Vary" );
+			if( vary == null ) {
+				vary = IDENTITY_HEADER;
+			} else if( !vary.contains( IDENTITY_HEADER ) ) {
+				vary = vary + ", " + IDENTITY_HEADER;
+			} // if-else
+			return response.newBuilder()
+					.removeHeader( "Pragma" )
+					.removeHeader( "Expires" )
+					.header( "Cache-Control", cacheControl )
+					.header( "Vary", vary )
+					.build();
+		}
+	}
+
+	/**
+	 * Boils the request's Authorization down to something that can sit
+	 * on disk next to the entry without giving away the token
+	 */
+	private static String identityOf( Request request ) {
+		String auth = request.header( "Authorization" );
+		if( auth == null ) {
+			return "anonymous";
+		} // if
+		try {
+			byte[] digest = MessageDigest.getInstance( "SHA-256" )
+					.digest( auth.getBytes( StandardCharsets.UTF_8 ) );
+			StringBuilder hex = new StringBuilder( IDENTITY_BYTES * 2 );
+			for( int i = 0; i < IDENTITY_BYTES; i++ ) {
+				hex.append( String.format( "%02x", digest[i] ) );
+			} // for
+			return hex.toString();
+		} catch( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException( "SHA-256 is missing", e ); // every JVM has it
+		} // try-catch
+	}
+
+	protected HttpCache( File directory, long maxSize, long freshFor, TimeUnit unit ) {
+		this.cache = new Cache( directory, maxSize );
+		this.freshForSeconds = unit.toSeconds( freshFor );
+	} // constructor
+
+	/**
+	 * Carries a digest of who's asking, for the cache's Vary matching.
+	 * It has to go over the wire too: OkHttp takes the values it
+	 * stores from the request as sent.
+	 */
+	static final String IDENTITY_HEADER = "X-Baringo-Cache-Identity";
+	private static final int IDENTITY_BYTES = 16;
+
+	private final Cache cache;
+	private final long freshForSeconds;
+	private final ConcurrentHashMap<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+}
@@ -0,0 +1,239 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.squareup.okhttp.Headers;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * Logs API traffic to the {@link BaringoClient#LOG_NAME} logger
+ * at INFO.  How much gets logged is set with
+ * {@link BaringoClient.Builder#httpLogging(Level)}.
+ * <p>
+ * At NONE (the default) the client doesn't install one of these
+ * at all, so requests pay nothing for it.  At BODY, only text
+ * bodies are logged, and only up to the body limit; uploads
+ * and other binary bodies just get their size logged.  Response
+ * bodies are peeked, not consumed, so the caller still gets
+ * the whole thing.
+ * <p>
+ * Credentials stay out of the log: Authorization headers show
+ * only their scheme, and the bodies of token exchanges (which
+ * carry the client secret and the user's tokens) aren't logged.
+ * <p>
+ * With a sample rate below 1.0, only that fraction of requests
+ * are logged.  The rest go straight through.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class HttpLogger implements Interceptor {
+
+	/**
+	 * How much of each request and response to log
+	 */
+	public enum Level {
+		/** Nothing; no interceptor is installed */
+		NONE,
+		/** Request and response lines */
+		BASIC,
+		/** BASIC plus headers */
+		HEADERS,
+		/** HEADERS plus text bodies, up to the body limit */
+		BODY
+	}
+
+	public static final long   DEFAULT_BODY_LIMIT = 4096;
+	public static final double DEFAULT_SAMPLE_RATE = 1.0;
+
+	/**
+	 * Returns the level of detail being logged
+	 * @return the level
+	 */
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Returns the most bytes of any one body that get logged
+	 * @return the body limit
+	 */
+	public long getBodyLimit() {
+		return bodyLimit;
+	}
+
+	/**
+	 * Returns the fraction of requests that get logged
+	 * @return sample rate between 0.0 and 1.0
+	 */
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	@Override
+	public Response intercept( Chain chain ) throws IOException {
+		Request request = chain.request();
+		if( !shouldLog() ) {
+			return chain.proceed( request );
+		} // if
+
+		boolean logHeaders = level != Level.BASIC;
+		boolean logBody = level == Level.BODY;
+		boolean secret = request.url().getPath().startsWith( OAUTH_PATH );
+
+		StringBuilder sb = new StringBuilder();
+		sb.append( "--> " ).append( request.method() ).append( ' ' ).append( request.urlString() );
+		RequestBody reqBody = request.body();
+		if( reqBody != null ) {
+			sb.append( " (" ).append( describeLength( reqBody.contentLength() ) ).append( ')' );
+		} // if
+		if( logHeaders ) {
+			if( reqBody != null && reqBody.contentType() != null ) {
+				sb.append( "\nContent-Type: " ).append( reqBody.contentType() );
+			} // if
+			appendHeaders( sb, request.headers() );
+		} // if
+		if( logBody && reqBody != null ) {
+			if( secret ) {
+				sb.append( "\n(credentials omitted)" );
+			} else {
+				appendRequestBody( sb, reqBody );
+			} // if-else
+		} // if
+		log.info( sb.toString() );
+
+		long startNs = System.nanoTime();
+		Response response;
+		try {
+			response = chain.proceed( request );
+		} catch (IOException e) {
+			log.info( "<-- HTTP FAILED: " + e );
+			throw e;
+		} // try-catch
+		long tookMs = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - startNs );
+
+		sb.setLength( 0 );
+		ResponseBody resBody = response.body();
+		sb.append( "<-- " ).append( response.code() ).append( ' ' ).append( response.message() )
+			.append( ' ' ).append( response.request().urlString() )
+			.append( " (" ).append( tookMs ).append( "ms, " )
+			.append( describeLength( resBody == null ? 0 : resBody.contentLength() ) ).append( ')' );
+		if( logHeaders ) {
+			appendHeaders( sb, response.headers() );
+		} // if
+		if( logBody && resBody != null ) {
+			if( secret ) {
+				sb.append( "\n(credentials omitted)" );
+			} else {
+				appendResponseBody( sb, resBody );
+			} // if-else
+		} // if
+		log.info( sb.toString() );
+
+		return response;
+	}
+
+	// ===================================================
+
+	private boolean shouldLog() {
+		if( sampleRate < 1.0
+				&& ThreadLocalRandom.current().nextDouble() >= sampleRate ) {
+			return false;
+		} // if
+		return log.isLoggable( java.util.logging.Level.INFO );
+	} // shouldLog
+
+	private void appendHeaders( StringBuilder sb, Headers headers ) {
+		for( int i = 0; i < headers.size(); i++ ) {
+			String name = headers.name( i );
+			String value = headers.value( i );
+			if( "Authorization".equalsIgnoreCase( name ) ) {
+				// "Bearer abc123" becomes "Bearer (redacted)"
+				int space = value.indexOf( ' ' );
+				value = (space > 0 ? value.substring( 0, space + 1 ) : "") + "(redacted)";
+			} // if
+			sb.append( '\n' ).append( name ).append( ": " ).append( value );
+		} // for
+	} // appendHeaders
+
+	private void appendRequestBody( StringBuilder sb, RequestBody body ) throws IOException {
+		long length = body.contentLength();
+		if( !isText( body.contentType() ) ) {
+			sb.append( "\n(binary body omitted)" );
+			return;
+		} // if
+		// an unknown length could be anything, so don't write it
+		// out just to throw most of it away
+		if( length < 0 || length > bodyLimit ) {
+			sb.append( "\n(" ).append( describeLength( length ) ).append( " body omitted)" );
+			return;
+		} // if
+		Buffer buffer = new Buffer();
+		body.writeTo( buffer );
+		sb.append( '\n' ).append( buffer.readString( charsetOf( body.contentType() ) ) );
+	} // appendRequestBody
+
+	private void appendResponseBody( StringBuilder sb, ResponseBody body ) throws IOException {
+		if( !isText( body.contentType() ) ) {
+			sb.append( "\n(binary body omitted)" );
+			return;
+		} // if
+		BufferedSource source = body.source();
+		// pull in just past the limit so we know whether it's truncated
+		boolean truncated = source.request( bodyLimit + 1 );
+		Buffer buffer = source.buffer();
+		long n = Math.min( buffer.size(), bodyLimit );
+		Buffer peek = new Buffer();
+		buffer.copyTo( peek, 0, n );
+		sb.append( '\n' ).append( peek.readString( charsetOf( body.contentType() ) ) );
+		if( truncated ) {
+			sb.append( "... (truncated at " ).append( n ).append( " bytes)" );
+		} // if
+	} // appendResponseBody
+
+	private static boolean isText( MediaType type ) {
+		if( type == null ) {
+			return false;
+		} // if
+		String subtype = type.subtype().toLowerCase();
+		return "text".equalsIgnoreCase( type.type() )
+				|| subtype.contains( "json" )
+				|| subtype.contains( "xml" )
+				|| subtype.equals( "x-www-form-urlencoded" );
+	} // isText
+
+	private static Charset charsetOf( MediaType type ) {
+		return type == null ? UTF8 : type.charset( UTF8 );
+	} // charsetOf
+
+	private static String describeLength( long length ) {
+		return length < 0 ? "unknown-length" : length + "-byte";
+	} // describeLength
+
+	protected HttpLogger( Level level, long bodyLimit, double sampleRate ) {
+		this.level = level;
+		this.bodyLimit = bodyLimit;
+		this.sampleRate = sampleRate;
+	} // constructor
+
+	private final Level level;
+	private final long bodyLimit;
+	private final double sampleRate;
+
+	private static final String OAUTH_PATH = "/oauth2/";
+	private static final Charset UTF8 = Charset.forName( "UTF-8" );
+	private static final Logger log = Logger.getLogger( BaringoClient.LOG_NAME );
+
+}
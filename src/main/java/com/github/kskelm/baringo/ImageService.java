@@ -2,16 +2,25 @@
 package com.github.kskelm.baringo;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
 import java.util.HashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
 
 import com.github.kskelm.baringo.model.Image;
 import com.github.kskelm.baringo.model.ImgurResponseWrapper;
@@ -19,10 +28,11 @@ import com.github.kskelm.baringo.util.BaringoApiException;
 import com.github.kskelm.baringo.util.BaringoAuthException;
 import com.google.gson.GsonBuilder;
 import com.squareup.okhttp.MediaType;
-import com.squareup.okhttp.OkHttpClient;
 import com.squareup.okhttp.Request;
 import com.squareup.okhttp.RequestBody;
 
+import okio.BufferedSource;
+
 import retrofit.Call;
 import retrofit.Response;
 
@@ -46,12 +56,17 @@ public class ImageService {
 	 * @throws BaringoApiException something went pear-shaped
 	 */
 	public Image getImageInfo( String id ) throws BaringoApiException {
+		return client.cached( EntityCache.Type.Image, id,
+				() -> client.getSingleFlight().execute( "GET /3/image/" + id,
+						() -> fetchImageInfo( id ) ) );
+	}
 
+	private Image fetchImageInfo( String id ) throws BaringoApiException {
 		Call<ImgurResponseWrapper<Image>> call =
 				client.getApi().getImageInfo( id );
 
 		try {
-			Response<ImgurResponseWrapper<Image>> res = call.execute();
+			Response<ImgurResponseWrapper<Image>> res = client.executeRead( call, "getImageInfo" );
 			ImgurResponseWrapper<Image> out = res.body();
 
 			client.throwOnWrapperError( res );
@@ -60,7 +75,7 @@ public class ImageService {
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} // try-catch
-	}
+	} // fetchImageInfo
 
 	/**
 	 * Upload an image to Imgur by pointing at a Url on the internet.
@@ -108,6 +123,11 @@ public class ImageService {
 	 * Upload an image to Imgur as a stream from the local filesystem.
 	 * Use a buffered stream wherever possible!
 	 * <p>
+	 * With an {@link UploadIndex}, bytes this user has uploaded before
+	 * aren't sent again; the earlier image comes back instead, with
+	 * only its id, delete hash and link filled in.  Call
+	 * {@link #getImageInfo(String)} if you need the rest.
+	 * <p>
      * <b>ACCESS: ANONYMOUS</b> or <b>AUTHENTICATED USER</b>
 	 * @param mimeType mime type like image/png.  If null, Baringo will try to infer this from the fileName.
 	 * @param fileName name of the file being uploaded
@@ -133,25 +153,162 @@ public class ImageService {
 		if( !file.canRead() ) {
 			throw new IOException( "Cannot access file " + fileName );
 		} // if
-		if( mimeType == null ) { // infer from file prefix
-			int dotAt = fileName.lastIndexOf( '.' );
-			if( dotAt == -1 ) {
-				throw new BaringoApiException( "Could not infer mime type"
-						+ " from file name; no extension" );
-			} // if
-			String ext = fileName.substring( dotAt + 1 ).toLowerCase();
-			mimeType = extensionToMimeType.get( ext );
-			if( mimeType == null ) {
-				throw new BaringoApiException( "Could not infer mime type"
-						+ " from extension '" + ext + "'" );
-			} // if
-		} // if
+		mimeType = resolveMimeType( mimeType, fileName );
 
 		// strip the directory hierarchy off the filename.
 		Path path = Paths.get( fileName );
 		fileName = path.getFileName().toString();
-		
+
+		byte[] digest = uploadDigest( path );
+		Image previous = previousUpload( digest, albumId );
+		if( previous != null ) {
+			return previous;
+		} // if
+
 		RequestBody body = RequestBody.create( MediaType.parse(mimeType), file );
+		Image image = upload( body, fileName, albumId, title, description );
+		rememberUpload( digest, image );
+		return image;
+	}
+
+	/**
+	 * Upload an image to Imgur straight from an InputStream, without
+	 * writing it to a file first.  If the length is known the upload
+	 * goes out with a Content-Length; otherwise it's chunked.  The
+	 * stream is read once and not closed.
+	 * <p>
+	 * With an {@link UploadIndex}, the upload is recorded there, so
+	 * a later file or buffer upload of the same bytes finds it, but
+	 * a stream upload never does: the index can't be checked first
+	 * since the bytes aren't known until they've been sent.
+	 * <p>
+	 * <b>ACCESS: ANONYMOUS</b> or <b>AUTHENTICATED USER</b>
+	 * @param in the image data
+	 * @param length how many bytes the stream holds, or -1 if unknown
+	 * @param mimeType mime type like image/png.  If null, Baringo will try to infer this from the fileName.
+	 * @param fileName name to give the file
+	 * @param albumId the name of the album, the album's deleteHash if it's anonymous, or null if none
+	 * @param title title of image or null if none
+	 * @param description description of image or null if none
+	 * @param listener told how much has been sent, or null
+	 * @return The new Image object.  If this is anonymous, <i>hang on to the delete hash</i> or you won't be able to manipulate it in the future!
+	 * @throws BaringoApiException que sera sera, including trouble reading the stream
+	 */
+	public Image uploadImage(
+			InputStream in,
+			long length,
+			String mimeType,
+			String fileName,
+			String albumId,
+			String title,
+			String description,
+			ProgressListener listener ) throws BaringoApiException {
+
+		mimeType = resolveMimeType( mimeType, fileName );
+		DigestInputStream digesting = client.getUploadIndex() != null
+				? UploadIndex.digesting( client.getAuthenticatedUserName(), in )
+				: null;
+		Image image = upload( UploadBody.of( MediaType.parse( mimeType ),
+						digesting != null ? digesting : in, length, listener ),
+				fileName, albumId, title, description );
+		if( digesting != null ) {
+			rememberUpload( digesting.getMessageDigest().digest(), image );
+		} // if
+		return image;
+	}
+
+	/**
+	 * Upload an image to Imgur from memory.  Whatever is between the
+	 * buffer's position and limit is sent; the buffer's position
+	 * isn't changed.  Heap buffers are read straight out of their
+	 * backing array, and direct buffers a chunk at a time, so a big
+	 * image is never copied whole.
+	 * <p>
+	 * With an {@link UploadIndex}, bytes this user has uploaded before
+	 * aren't sent again; the earlier image comes back instead, with
+	 * only its id, delete hash and link filled in.  Call
+	 * {@link #getImageInfo(String)} if you need the rest.
+	 * <p>
+	 * <b>ACCESS: ANONYMOUS</b> or <b>AUTHENTICATED USER</b>
+	 * @param data the image data
+	 * @param mimeType mime type like image/png.  If null, Baringo will try to infer this from the fileName.
+	 * @param fileName name to give the file
+	 * @param albumId the name of the album, the album's deleteHash if it's anonymous, or null if none
+	 * @param title title of image or null if none
+	 * @param description description of image or null if none
+	 * @param listener told how much has been sent, or null
+	 * @return The new Image object.  If this is anonymous, <i>hang on to the delete hash</i> or you won't be able to manipulate it in the future!
+	 * @throws BaringoApiException que sera sera
+	 */
+	public Image uploadImage(
+			ByteBuffer data,
+			String mimeType,
+			String fileName,
+			String albumId,
+			String title,
+			String description,
+			ProgressListener listener ) throws BaringoApiException {
+
+		mimeType = resolveMimeType( mimeType, fileName );
+		byte[] digest = uploadDigest( data );
+		Image previous = previousUpload( digest, albumId );
+		if( previous != null ) {
+			return previous;
+		} // if
+		Image image = upload( UploadBody.of( MediaType.parse( mimeType ), data, listener ),
+				fileName, albumId, title, description );
+		rememberUpload( digest, image );
+		return image;
+	}
+
+	/**
+	 * Upload an image to Imgur from a file, streaming it into the
+	 * request.
+	 * <p>
+	 * With an {@link UploadIndex}, bytes this user has uploaded before
+	 * aren't sent again; the earlier image comes back instead, with
+	 * only its id, delete hash and link filled in.  Call
+	 * {@link #getImageInfo(String)} if you need the rest.
+	 * <p>
+	 * <b>ACCESS: ANONYMOUS</b> or <b>AUTHENTICATED USER</b>
+	 * @param path the file
+	 * @param mimeType mime type like image/png.  If null, Baringo will try to infer this from the file name.
+	 * @param albumId the name of the album, the album's deleteHash if it's anonymous, or null if none
+	 * @param title title of image or null if none
+	 * @param description description of image or null if none
+	 * @param listener told how much has been sent, or null
+	 * @return The new Image object.  If this is anonymous, <i>hang on to the delete hash</i> or you won't be able to manipulate it in the future!
+	 * @throws IOException Something was wrong with the file
+	 * @throws BaringoApiException que sera sera
+	 */
+	public Image uploadImage(
+			Path path,
+			String mimeType,
+			String albumId,
+			String title,
+			String description,
+			ProgressListener listener ) throws IOException, BaringoApiException {
+
+		String fileName = path.getFileName().toString();
+		mimeType = resolveMimeType( mimeType, fileName );
+		byte[] digest = uploadDigest( path );
+		Image previous = previousUpload( digest, albumId );
+		if( previous != null ) {
+			return previous;
+		} // if
+		Image image = upload( UploadBody.of( MediaType.parse( mimeType ), path, listener ),
+				fileName, albumId, title, description );
+		rememberUpload( digest, image );
+		return image;
+	}
+
+	private Image upload(
+			RequestBody body,
+			String fileName,
+			String albumId,
+			String title,
+			String description ) throws BaringoApiException {
+
 		Call<ImgurResponseWrapper<Image>> call =
 				client.getApi().uploadLocalImage(
 						albumId,
@@ -160,7 +317,7 @@ public class ImageService {
 						description,
 						fileName,
 						body );
-		
+
 		try {
 			Response<ImgurResponseWrapper<Image>> res = call.execute();
 			ImgurResponseWrapper<Image> out = res.body();
@@ -178,7 +335,8 @@ public class ImageService {
 	 * and write it to the stream. It is the caller's responsibility
 	 * to close everything.
 	 * <p>
-	 * NOTE: This is synchronous.
+	 * NOTE: This is synchronous.  Downloads all share the connection
+	 * pool in the client's {@link DownloadTransport}.
 	 * <p>
 	 * <b>ACCESS: ANONYMOUS</b>
 	 * @param imageLink the image link to download (could be a thumb too)
@@ -196,37 +354,45 @@ public class ImageService {
 				.url( imageLink )
 				.build();
 
-		OkHttpClient client = new OkHttpClient();
 		com.squareup.okhttp.Response resp = client
-				.newCall( request )
-				.execute();
+				.getDownloadTransport()
+				.execute( request );
 
-		if( resp.code() != 200 || !resp.isSuccessful() ) {
-			throw new BaringoApiException( request.urlString()
-					+ ": " +  resp.message(), resp.code() );
-		} // if
-		if( resp.body() == null ) {
-			throw new BaringoApiException( "No response body found" );
-		} // if
+		try {
+			if( resp.code() != 200 || !resp.isSuccessful() ) {
+				throw new BaringoApiException( request.urlString()
+						+ ": " +  resp.message(), resp.code() );
+			} // if
+			if( resp.body() == null ) {
+				throw new BaringoApiException( "No response body found" );
+			} // if
 
-		InputStream is = resp.body().byteStream();
+			InputStream is = resp.body().byteStream();
 
-		BufferedInputStream input = new BufferedInputStream(is);
-		byte[] data = new byte[8192]; // because powers of two are magic
+			BufferedInputStream input = new BufferedInputStream(is);
+			byte[] data = new byte[8192]; // because powers of two are magic
 
-		long total = 0;
-		int count = 0;
-		while ((count = input.read(data)) != -1) {
-			total += count;
-			outStream.write(data, 0, count);
-		} // while
+			long total = 0;
+			int count = 0;
+			while ((count = input.read(data)) != -1) {
+				total += count;
+				outStream.write(data, 0, count);
+			} // while
 
-		return total;
+			return total;
+		} finally {
+			// closing the body is what hands the connection
+			// back to the pool for the next download
+			if( resp.body() != null ) {
+				resp.body().close();
+			} // if
+		} // try-finally
 	}
 
 	/**
 	 * Given an image id and a file path to store it to, download
 	 * the image.  File must be writeable and the path must exist.
+	 * Works like {@link #downloadImage(String, Path)}.
 	 * <p>
 	 * NOTE: This is synchronous.
 	 * <p>
@@ -241,17 +407,244 @@ public class ImageService {
 			String imageLink,
 			String fileName ) throws IOException, BaringoApiException {
 
-		OutputStream output = null;
+		return downloadImage( imageLink, Paths.get( fileName ) );
+	}
+
+	/**
+	 * Given an image link and a path to store it to, download the
+	 * image straight into a FileChannel.  The data goes to a temp
+	 * file next to the target, which is renamed over the target only
+	 * once the whole image has arrived, so nobody ever sees half a
+	 * file there.  The directory must exist and be writeable.
+	 * <p>
+	 * NOTE: This is synchronous.
+	 * <p>
+	 * <b>ACCESS: ANONYMOUS</b>
+	 * @param imageLink the image link to download (could be a thumb too)
+	 * @param target where to put the image
+	 * @return the number of bytes written
+	 * @throws IOException myriad
+	 * @throws BaringoApiException Imgur didn't like something
+	 */
+	public long downloadImage(
+			String imageLink,
+			Path target ) throws IOException, BaringoApiException {
+
+		return downloadImage( imageLink, target, false );
+	}
+
+	/**
+	 * Same as {@link #downloadImage(String, Path)}, but can size the
+	 * file to its full length (from Content-Length) before writing.
+	 * Java has no portable way to allocate disk space, so this only
+	 * sets the length: most filesystems make that a sparse file and
+	 * allocate blocks as they're written, so it doesn't reserve the
+	 * space or keep the file from fragmenting.
+	 * <p>
+	 * NOTE: This is synchronous.
+	 * <p>
+	 * <b>ACCESS: ANONYMOUS</b>
+	 * @param imageLink the image link to download (could be a thumb too)
+	 * @param target where to put the image
+	 * @param preallocate true to size the file before writing to it
+	 * @return the number of bytes written
+	 * @throws IOException myriad, including a download that ended short
+	 * @throws BaringoApiException Imgur didn't like something
+	 */
+	public long downloadImage(
+			String imageLink,
+			Path target,
+			boolean preallocate ) throws IOException, BaringoApiException {
+
+		Request request = new Request
+				.Builder()
+				.url( imageLink )
+				.build();
+
+		com.squareup.okhttp.Response resp = client
+				.getDownloadTransport()
+				.execute( request );
+
+		Path temp = null;
 		try {
-			output = new BufferedOutputStream(
-					new FileOutputStream( fileName) );
+			if( resp.code() != 200 || !resp.isSuccessful() ) {
+				throw new BaringoApiException( request.urlString()
+						+ ": " +  resp.message(), resp.code() );
+			} // if
+			if( resp.body() == null ) {
+				throw new BaringoApiException( "No response body found" );
+			} // if
+
+			// next to the target so the rename stays on one filesystem;
+			// made like any other new file so it gets the usual permissions
+			temp = target.toAbsolutePath().resolveSibling( "." + target.getFileName()
+					+ "." + Long.toHexString( ThreadLocalRandom.current().nextLong() ) + ".part" );
+
+			long expected = resp.body().contentLength();
+			long total;
+			try( FileChannel channel = FileChannel.open( temp,
+					StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE ) ) {
+				if( preallocate && expected > 0 ) {
+					channel.write( ByteBuffer.wrap( new byte[1] ), expected - 1 );
+				} // if
+				total = writeToChannel( resp.body().source(), channel, 0 );
+			} // try
+			if( expected >= 0 && total != expected ) {
+				throw new IOException( request.urlString() + ": expected "
+						+ expected + " bytes but got " + total );
+			} // if
 
-			return downloadImage( imageLink, output );
+			moveIntoPlace( temp, target );
+			temp = null;
+			return total;
 		} finally {
-			output.close();
+			// closing the body is what hands the connection
+			// back to the pool for the next download
+			if( resp.body() != null ) {
+				resp.body().close();
+			} // if
+			if( temp != null ) {
+				Files.deleteIfExists( temp );
+			} // if
 		} // try-finally
 	}
 
+	/**
+	 * Downloads an image to a path, picking up where an earlier
+	 * attempt left off instead of starting over.  Meant for big
+	 * mp4/webm/gifv files over shaky connections.
+	 * <p>
+	 * The data goes to <code>target.part</code>, with the file's
+	 * ETag (or Last-Modified date) beside it in
+	 * <code>target.part.meta</code>.  If a partial file is there
+	 * when this is called, or the connection drops partway through,
+	 * the rest is fetched with a Range request.  An If-Range header
+	 * makes sure the rest comes from the same version of the file; if
+	 * it has changed, or the server doesn't do ranges, the download
+	 * starts over rather than stitching two versions together.  It
+	 * also starts over, without using up an attempt, if the server
+	 * answers with some other range than the one asked for, or says
+	 * the range can't be had (416).
+	 * Once the file is complete it's renamed over the target.
+	 * <p>
+	 * If every attempt fails, the partial file is left behind so the
+	 * next call can resume it.
+	 * <p>
+	 * NOTE: This is synchronous.
+	 * <p>
+	 * <b>ACCESS: ANONYMOUS</b>
+	 * @param imageLink the image link to download, e.g. {@link Image#getMp4()}
+	 * @param target where to put the file
+	 * @param maxAttempts how many requests to make before giving up
+	 * @param listener told about progress, or null
+	 * @return what happened
+	 * @throws IOException every attempt failed, or the file couldn't be written
+	 * @throws BaringoApiException the server refused the download outright
+	 */
+	public DownloadResult downloadImageResumable(
+			String imageLink,
+			Path target,
+			int maxAttempts,
+			ProgressListener listener ) throws IOException, BaringoApiException {
+
+		Path partial = target.resolveSibling( target.getFileName() + ".part" );
+		Path meta = target.resolveSibling( target.getFileName() + ".part.meta" );
+		long downloaded = 0;
+		long resumed = 0;
+		IOException failure = null;
+		boolean restarted = false;
+
+		for( int attempt = 1; attempt <= maxAttempts; attempt++ ) {
+			if( attempt > 1 ) {
+				pauseBeforeRetry( attempt );
+			} // if
+			long have = Files.exists( partial ) ? Files.size( partial ) : 0;
+			String validator = have > 0 && Files.exists( meta )
+					? new String( Files.readAllBytes( meta ), StandardCharsets.UTF_8 )
+					: null;
+
+			Request.Builder builder = new Request.Builder().url( imageLink );
+			if( validator != null ) {
+				builder.header( "Range", "bytes=" + have + "-" )
+						.header( "If-Range", validator );
+			} // if
+			Request request = builder.build();
+
+			com.squareup.okhttp.Response resp = null;
+			try {
+				resp = client.getDownloadTransport().execute( request );
+				long start;
+				if( resp.code() == 206 && validator != null && rangeStart( resp ) == have ) {
+					start = have;
+				} else if( resp.code() == 200 ) {
+					start = 0; // new file, changed file, or no range support
+				} else if( resp.code() == 416 || (resp.code() == 206 && validator != null) ) {
+					// whatever we have doesn't line up with what's there now,
+					// or the range came back starting somewhere else: start over
+					Files.deleteIfExists( partial );
+					Files.deleteIfExists( meta );
+					failure = new IOException( request.urlString() + ": " + resp.code() + " "
+							+ resp.message() + " for bytes " + have + "-" );
+					if( !restarted ) {
+						restarted = true;
+						attempt--; // once only; the next try sends no Range
+					} // if
+					continue;
+				} else {
+					throw new BaringoApiException( request.urlString()
+							+ ": " +  resp.message(), resp.code() );
+				} // if-else
+				if( resp.body() == null ) {
+					throw new BaringoApiException( "No response body found" );
+				} // if
+
+				if( start == 0 ) {
+					String newValidator = resumeValidator( resp );
+					if( newValidator != null ) {
+						Files.write( meta, newValidator.getBytes( StandardCharsets.UTF_8 ) );
+					} else {
+						Files.deleteIfExists( meta ); // can't resume this one
+					} // if-else
+				} else {
+					resumed += start;
+					client.getDownloadTransport().addBytesResumed( start );
+				} // if-else
+
+				long length = resp.body().contentLength();
+				long expected = length >= 0 ? start + length : -1;
+				long written = 0;
+				try( FileChannel channel = FileChannel.open( partial,
+						StandardOpenOption.CREATE, StandardOpenOption.WRITE ) ) {
+					if( start == 0 ) {
+						channel.truncate( 0 );
+					} // if
+					try {
+						written = writeToChannel( resp.body().source(), channel, start,
+								listener, expected );
+					} finally {
+						downloaded += channelGrowth( channel, start );
+					} // try-finally
+				} // try
+				if( length >= 0 && written != length ) {
+					throw new IOException( request.urlString() + ": expected "
+							+ expected + " bytes but got " + (start + written) );
+				} // if
+
+				moveIntoPlace( partial, target );
+				Files.deleteIfExists( meta );
+				return new DownloadResult( target, start + written, downloaded, resumed, attempt );
+			} catch( IOException e ) {
+				failure = e; // keep the partial file and try again
+			} finally {
+				if( resp != null && resp.body() != null ) {
+					resp.body().close();
+				} // if
+			} // try-catch-finally
+		} // for
+
+		throw failure != null ? failure : new IOException( "No download attempts made" );
+	} // downloadImageResumable
+
 	/**
 	 * Updates an image with a new title and description
 	 * <p>
@@ -272,6 +665,7 @@ public class ImageService {
 
 		try {
 			Response<ImgurResponseWrapper<Boolean>> res = call.execute();
+			client.uncacheIdOrDeleteHash( EntityCache.Type.Image, idOrDeleteHash );
 			ImgurResponseWrapper<Boolean> out = res.body();
 
 			client.throwOnWrapperError( res );
@@ -298,9 +692,13 @@ public class ImageService {
 
 		try {
 			Response<ImgurResponseWrapper<Boolean>> res = call.execute();
+			client.uncacheIdOrDeleteHash( EntityCache.Type.Image, idOrDeleteHash );
 			ImgurResponseWrapper<Boolean> out = res.body();
 
 			client.throwOnWrapperError( res );
+			if( out.getData() ) {
+				forgetUpload( idOrDeleteHash );
+			} // if
 			return out.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
@@ -336,6 +734,7 @@ public class ImageService {
 
 		try {
 			Response<ImgurResponseWrapper<Image>> res = call.execute();
+			client.uncache( EntityCache.Type.Image, image.getId() );
 			ImgurResponseWrapper<Image> out = res.body();
 			client.throwOnWrapperError( res );
 			
@@ -373,6 +772,7 @@ public class ImageService {
 
 		try {
 			Response<ImgurResponseWrapper<Image>> res = call.execute();
+			client.uncache( EntityCache.Type.Image, image.getId() );
 			ImgurResponseWrapper<Image> out = res.body();
 			client.throwOnWrapperError( res );
 			
@@ -384,6 +784,198 @@ public class ImageService {
 
 
 	// ================================================
+
+	/**
+	 * Returns the given mime type, or if it's null, infers
+	 * one from the file name's extension.
+	 * @param mimeType the caller's mime type, or null
+	 * @param fileName the name of the file being uploaded
+	 * @return the mime type to use
+	 * @throws BaringoApiException if it couldn't be inferred
+	 */
+	protected String resolveMimeType( String mimeType, String fileName ) throws BaringoApiException {
+		if( mimeType != null ) {
+			return mimeType;
+		} // if
+		if( fileName == null ) {
+			throw new BaringoApiException( "Need a mime type or a file name to infer one from" );
+		} // if
+		// infer from file prefix
+		int dotAt = fileName.lastIndexOf( '.' );
+		if( dotAt == -1 ) {
+			throw new BaringoApiException( "Could not infer mime type"
+					+ " from file name; no extension" );
+		} // if
+		String ext = fileName.substring( dotAt + 1 ).toLowerCase();
+		mimeType = extensionToMimeType.get( ext );
+		if( mimeType == null ) {
+			throw new BaringoApiException( "Could not infer mime type"
+					+ " from extension '" + ext + "'" );
+		} // if
+		return mimeType;
+	} // resolveMimeType
+
+	/**
+	 * Digests an upload for the {@link UploadIndex}, or returns null
+	 * if there's no index
+	 */
+	protected byte[] uploadDigest( ByteBuffer data ) {
+		return client.getUploadIndex() == null ? null
+				: UploadIndex.digest( client.getAuthenticatedUserName(), data );
+	}
+
+	protected byte[] uploadDigest( Path path ) throws IOException {
+		return client.getUploadIndex() == null ? null
+				: UploadIndex.digest( client.getAuthenticatedUserName(), path );
+	}
+
+	/**
+	 * Returns an earlier upload of the same bytes, or null.  Uploads
+	 * into an album always go through, since the earlier one might
+	 * not be in it.
+	 */
+	protected Image previousUpload( byte[] digest, String albumId ) {
+		UploadIndex index = client.getUploadIndex();
+		if( index == null || digest == null || albumId != null ) {
+			return null;
+		} // if
+		Image previous = index.get( digest );
+		if( previous != null ) {
+			log.fine( "Upload index hit; reusing image " + previous.getId() );
+		} // if
+		return previous;
+	} // previousUpload
+
+	/**
+	 * Records an upload in the index.  A full or broken index is
+	 * logged, not thrown; the upload itself worked.
+	 */
+	protected void rememberUpload( byte[] digest, Image image ) {
+		UploadIndex index = client.getUploadIndex();
+		if( index == null || digest == null || image == null ) {
+			return;
+		} // if
+		try {
+			index.put( digest, image );
+		} catch( IOException e ) {
+			log.warning( "Couldn't record upload of " + image.getId() + ": " + e.getMessage() );
+		} // try-catch
+	} // rememberUpload
+
+	protected void forgetUpload( String idOrDeleteHash ) {
+		UploadIndex index = client.getUploadIndex();
+		if( index != null ) {
+			index.removeImage( idOrDeleteHash );
+		} // if
+	} // forgetUpload
+
+	/**
+	 * Copies everything left in the source into the channel starting
+	 * at position.  The source is read into a 256K chunk that's kept
+	 * for the thread, and each full chunk goes to the channel as one
+	 * positional write.
+	 */
+	protected static long writeToChannel( BufferedSource source, FileChannel channel, long position ) throws IOException {
+		return writeToChannel( source, channel, position, null, -1 );
+	} // writeToChannel
+
+	/**
+	 * Same as {@link #writeToChannel(BufferedSource, FileChannel, long)},
+	 * telling the listener after every write.  Progress is reported
+	 * as the file's length so far, so it includes whatever was
+	 * before position.
+	 */
+	protected static long writeToChannel( BufferedSource source, FileChannel channel, long position,
+			ProgressListener listener, long bytesTotal ) throws IOException {
+		byte[] chunk = channelChunk.get();
+		long total = 0;
+		boolean eof = false;
+		IOException failure = null;
+		while( !eof ) {
+			int filled = 0;
+			try {
+				while( filled < chunk.length ) {
+					int read = source.read( chunk, filled, chunk.length - filled );
+					if( read == -1 ) {
+						eof = true;
+						break;
+					} // if
+					filled += read;
+				} // while
+			} catch( IOException e ) {
+				// write out what did arrive so a resume doesn't fetch it again
+				failure = e;
+				eof = true;
+			} // try-catch
+			ByteBuffer buffer = ByteBuffer.wrap( chunk, 0, filled );
+			while( buffer.hasRemaining() ) {
+				position += channel.write( buffer, position );
+			} // while
+			total += filled;
+			if( listener != null && filled > 0 ) {
+				listener.onProgress( position, bytesTotal );
+			} // if
+		} // while
+		if( failure != null ) {
+			throw failure;
+		} // if
+		return total;
+	} // writeToChannel
+
+	/**
+	 * Renames a finished download over its target, atomically where
+	 * the filesystem allows it
+	 */
+	protected static void moveIntoPlace( Path from, Path to ) throws IOException {
+		try {
+			Files.move( from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+		} catch( AtomicMoveNotSupportedException e ) {
+			Files.move( from, to, StandardCopyOption.REPLACE_EXISTING );
+		} // try-catch
+	} // moveIntoPlace
+
+	/**
+	 * Returns what to send in If-Range to make sure a resumed
+	 * download is the same file.  Weak ETags don't count.
+	 */
+	private static String resumeValidator( com.squareup.okhttp.Response resp ) {
+		String etag = resp.header( "ETag" );
+		if( etag != null && !etag.startsWith( "W/" ) ) {
+			return etag;
+		} // if
+		return resp.header( "Last-Modified" );
+	} // resumeValidator
+
+	/**
+	 * Returns where a 206's Content-Range starts, or -1 if it
+	 * doesn't say
+	 */
+	private static long rangeStart( com.squareup.okhttp.Response resp ) {
+		String range = resp.header( "Content-Range" ); // bytes 1000-4999/5000
+		if( range == null || !range.startsWith( "bytes " ) ) {
+			return -1;
+		} // if
+		int dash = range.indexOf( '-' );
+		try {
+			return dash == -1 ? -1 : Long.parseLong( range.substring( 6, dash ).trim() );
+		} catch( NumberFormatException e ) {
+			return -1;
+		} // try-catch
+	} // rangeStart
+
+	private static long channelGrowth( FileChannel channel, long start ) throws IOException {
+		return Math.max( 0, channel.size() - start );
+	}
+
+	private static void pauseBeforeRetry( int attempt ) throws IOException {
+		try {
+			Thread.sleep( RESUME_RETRY_DELAY_MS * (attempt - 1) );
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException( "Interrupted between download attempts" );
+		} // try-catch
+	} // pauseBeforeRetry
+
 	protected ImageService( BaringoClient imgurClient, GsonBuilder gsonBuilder ) {
 		this.client = imgurClient;
 		
@@ -399,6 +991,13 @@ public class ImageService {
 	} // constructor
 
 	private BaringoClient client = null;
+	private static final Logger log = Logger.getLogger( BaringoClient.LOG_NAME );
+
+	private static final int CHANNEL_BUFFER_SIZE = 256 * 1024;
+	private static final ThreadLocal<byte[]> channelChunk =
+			ThreadLocal.withInitial( () -> new byte[CHANNEL_BUFFER_SIZE] );
+	private static final long RESUME_RETRY_DELAY_MS = 500;
+
 	private HashMap<String,String> extensionToMimeType = new HashMap<>();
 	
 } // class AccountService
@@ -0,0 +1,334 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ApiMetrics that keep everything in memory: per endpoint, a
+ * latency histogram, a parse time histogram, response sizes,
+ * status code counts, retries and how many calls are in flight.
+ * Recording is a few atomic increments.  Call snapshot() whenever
+ * you want to scrape it:
+ * <pre>
+ * InProcessMetrics metrics = new InProcessMetrics();
+ * BaringoClient client = new BaringoClient.Builder()
+ *         .clientAuth( id, secret )
+ *         .metrics( metrics )
+ *         .build();
+ * ...
+ * for( InProcessMetrics.Snapshot s : metrics.snapshot().values() ) {
+ *     System.out.println( s );
+ * }
+ * </pre>
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class InProcessMetrics implements ApiMetrics {
+
+	/**
+	 * Where one endpoint stood at the moment snapshot() was called.
+	 * Durations are kept to the microsecond; ask for them in
+	 * whatever unit suits.
+	 */
+	public static class Snapshot {
+
+		/**
+		 * Returns the RetrofittedImgur method name
+		 * @return endpoint name
+		 */
+		public String getEndpoint() {
+			return endpoint;
+		}
+
+		/**
+		 * Returns how many calls have finished, successfully or not
+		 * @return call count
+		 */
+		public long getCalls() {
+			return calls;
+		}
+
+		/**
+		 * Returns how many calls are out right now
+		 * @return in-flight count
+		 */
+		public long getInFlight() {
+			return inFlight;
+		}
+
+		/**
+		 * Returns how many retries the RetryPolicy has made
+		 * @return retry count
+		 */
+		public long getRetries() {
+			return retries;
+		}
+
+		/**
+		 * Returns how many calls ended in each HTTP status;
+		 * 0 means no response at all
+		 * @return status to count, sorted by status
+		 */
+		public Map<Integer, Long> getStatusCounts() {
+			return statusCounts;
+		}
+
+		/**
+		 * Returns how many calls ended in a 4xx, a 5xx or no
+		 * response at all
+		 * @return error count
+		 */
+		public long getErrors() {
+			long errors = 0;
+			for( Map.Entry<Integer, Long> e : statusCounts.entrySet() ) {
+				if( e.getKey() == 0 || e.getKey() >= 400 ) {
+					errors += e.getValue();
+				} // if
+			} // for
+			return errors;
+		}
+
+		/**
+		 * Returns the median latency
+		 * @param unit units to return it in
+		 * @return p50
+		 */
+		public long getP50( TimeUnit unit ) {
+			return unit.convert( p50, TimeUnit.MICROSECONDS );
+		}
+
+		/**
+		 * Returns the 99th percentile latency
+		 * @param unit units to return it in
+		 * @return p99
+		 */
+		public long getP99( TimeUnit unit ) {
+			return unit.convert( p99, TimeUnit.MICROSECONDS );
+		}
+
+		/**
+		 * Returns the 99.9th percentile latency
+		 * @param unit units to return it in
+		 * @return p999
+		 */
+		public long getP999( TimeUnit unit ) {
+			return unit.convert( p999, TimeUnit.MICROSECONDS );
+		}
+
+		/**
+		 * Returns the slowest call
+		 * @param unit units to return it in
+		 * @return max latency
+		 */
+		public long getMax( TimeUnit unit ) {
+			return unit.convert( max, TimeUnit.MICROSECONDS );
+		}
+
+		/**
+		 * Returns the median time spent parsing a response
+		 * @param unit units to return it in
+		 * @return p50 parse time
+		 */
+		public long getDeserializeP50( TimeUnit unit ) {
+			return unit.convert( parseP50, TimeUnit.MICROSECONDS );
+		}
+
+		/**
+		 * Returns the 99th percentile time spent parsing a response
+		 * @param unit units to return it in
+		 * @return p99 parse time
+		 */
+		public long getDeserializeP99( TimeUnit unit ) {
+			return unit.convert( parseP99, TimeUnit.MICROSECONDS );
+		}
+
+		/**
+		 * Returns the 99.9th percentile time spent parsing a response
+		 * @param unit units to return it in
+		 * @return p999 parse time
+		 */
+		public long getDeserializeP999( TimeUnit unit ) {
+			return unit.convert( parseP999, TimeUnit.MICROSECONDS );
+		}
+
+		/**
+		 * Returns how many response bodies have been read
+		 * @return body count
+		 */
+		public long getResponses() {
+			return responses;
+		}
+
+		/**
+		 * Returns the total size of every response body read
+		 * @return bytes
+		 */
+		public long getResponseBytes() {
+			return responseBytes;
+		}
+
+		/**
+		 * Returns the largest response body read
+		 * @return bytes
+		 */
+		public long getMaxResponseBytes() {
+			return maxResponseBytes;
+		}
+
+		/**
+		 * Returns the average response body size
+		 * @return bytes
+		 */
+		public double getMeanResponseBytes() {
+			return responses == 0 ? 0.0 : (double)responseBytes / responses;
+		}
+
+		@Override
+		public String toString() {
+			return String.format( "%s [calls=%d, inFlight=%d, retries=%d, errors=%d, "
+					+ "p50=%.1fms, p99=%.1fms, p999=%.1fms, max=%.1fms, "
+					+ "parseP50=%.2fms, parseP99=%.2fms, meanBytes=%.0f, maxBytes=%d, status=%s]",
+					endpoint, calls, inFlight, retries, getErrors(),
+					p50 / 1000.0, p99 / 1000.0, p999 / 1000.0, max / 1000.0,
+					parseP50 / 1000.0, parseP99 / 1000.0,
+					getMeanResponseBytes(), maxResponseBytes, statusCounts );
+		}
+
+		private Snapshot( String endpoint, Recorder r ) {
+			this.endpoint = endpoint;
+			this.calls = r.latency.getCount();
+			this.inFlight = r.inFlight.get();
+			this.retries = r.retries.get();
+			TreeMap<Integer, Long> statuses = new TreeMap<>();
+			for( Map.Entry<Integer, AtomicLong> e : r.statuses.entrySet() ) {
+				statuses.put( e.getKey(), e.getValue().get() );
+			} // for
+			this.statusCounts = Collections.unmodifiableMap( statuses );
+			this.p50 = r.latency.getPercentile( 50, TimeUnit.MICROSECONDS );
+			this.p99 = r.latency.getPercentile( 99, TimeUnit.MICROSECONDS );
+			this.p999 = r.latency.getPercentile( 99.9, TimeUnit.MICROSECONDS );
+			this.max = r.latency.getMax( TimeUnit.MICROSECONDS );
+			this.parseP50 = r.parsing.getPercentile( 50, TimeUnit.MICROSECONDS );
+			this.parseP99 = r.parsing.getPercentile( 99, TimeUnit.MICROSECONDS );
+			this.parseP999 = r.parsing.getPercentile( 99.9, TimeUnit.MICROSECONDS );
+			this.responses = r.responses.get();
+			this.responseBytes = r.responseBytes.get();
+			this.maxResponseBytes = r.maxResponseBytes.get();
+		}
+
+		private final String endpoint;
+		private final long calls;
+		private final long inFlight;
+		private final long retries;
+		private final Map<Integer, Long> statusCounts;
+		private final long p50;
+		private final long p99;
+		private final long p999;
+		private final long max;
+		private final long parseP50;
+		private final long parseP99;
+		private final long parseP999;
+		private final long responses;
+		private final long responseBytes;
+		private final long maxResponseBytes;
+	}
+
+	/**
+	 * Returns where every endpoint that's been called stands right
+	 * now, sorted by endpoint name
+	 * @return endpoint name to snapshot
+	 */
+	public Map<String, Snapshot> snapshot() {
+		TreeMap<String, Snapshot> snap = new TreeMap<>();
+		for( Map.Entry<String, Recorder> e : recorders.entrySet() ) {
+			snap.put( e.getKey(), new Snapshot( e.getKey(), e.getValue() ) );
+		} // for
+		return Collections.unmodifiableMap( snap );
+	}
+
+	/**
+	 * Returns where one endpoint stands right now
+	 * @param endpoint the RetrofittedImgur method name, e.g. "getAlbum"
+	 * @return the snapshot, or null if it's never been called
+	 */
+	public Snapshot snapshot( String endpoint ) {
+		Recorder r = recorders.get( endpoint );
+		return r == null ? null : new Snapshot( endpoint, r );
+	}
+
+	/**
+	 * Forgets everything recorded so far, except calls that are
+	 * still in flight
+	 */
+	public void reset() {
+		for( Recorder r : recorders.values() ) {
+			r.latency.reset();
+			r.parsing.reset();
+			r.statuses.clear();
+			r.retries.set( 0 );
+			r.responses.set( 0 );
+			r.responseBytes.set( 0 );
+			r.maxResponseBytes.set( 0 );
+		} // for
+	}
+
+	@Override
+	public void callStarted( String endpoint ) {
+		recorder( endpoint ).inFlight.incrementAndGet();
+	}
+
+	@Override
+	public void callFinished( String endpoint, int status, long latencyNanos ) {
+		Recorder r = recorder( endpoint );
+		r.inFlight.decrementAndGet();
+		r.latency.record( latencyNanos, TimeUnit.NANOSECONDS );
+		r.statuses.computeIfAbsent( status, k -> new AtomicLong() ).incrementAndGet();
+	}
+
+	@Override
+	public void responseRead( String endpoint, long bytes ) {
+		Recorder r = recorder( endpoint );
+		r.responses.incrementAndGet();
+		r.responseBytes.addAndGet( bytes );
+		long seen;
+		while( bytes > (seen = r.maxResponseBytes.get()) && !r.maxResponseBytes.compareAndSet( seen, bytes ) ) {
+			// someone else raised it; look again
+		} // while
+	}
+
+	@Override
+	public void retried( String endpoint ) {
+		recorder( endpoint ).retries.incrementAndGet();
+	}
+
+	@Override
+	public void deserialized( String endpoint, long nanos ) {
+		recorder( endpoint ).parsing.record( nanos, TimeUnit.NANOSECONDS );
+	}
+
+	// ================================================
+
+	private Recorder recorder( String endpoint ) {
+		Recorder r = recorders.get( endpoint );
+		return r != null ? r : recorders.computeIfAbsent( endpoint, k -> new Recorder() );
+	}
+
+	private static class Recorder {
+		final LatencyHistogram latency = new LatencyHistogram();
+		final LatencyHistogram parsing = new LatencyHistogram();
+		final ConcurrentHashMap<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+		final AtomicLong inFlight = new AtomicLong();
+		final AtomicLong retries = new AtomicLong();
+		final AtomicLong responses = new AtomicLong();
+		final AtomicLong responseBytes = new AtomicLong();
+		final AtomicLong maxResponseBytes = new AtomicLong();
+	}
+
+	private final ConcurrentHashMap<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+}
@@ -0,0 +1,142 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size histogram of durations, good for percentiles.
+ * Buckets are log-linear, HDR style: every power of two is split
+ * into 16 equal buckets, so any value is off by at most about 6%,
+ * from a microsecond up to about twelve days, in 5KB.  Recording
+ * is one atomic increment and never allocates; reading walks the
+ * buckets.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Records one duration
+	 * @param duration how long it took
+	 * @param unit units for duration
+	 */
+	public void record( long duration, TimeUnit unit ) {
+		long micros = Math.max( 0, unit.toMicros( duration ) );
+		counts.incrementAndGet( indexFor( micros ) );
+		count.incrementAndGet();
+		total.addAndGet( micros );
+		long seen;
+		while( micros > (seen = max.get()) && !max.compareAndSet( seen, micros ) ) {
+			// someone else raised it; look again
+		} // while
+	}
+
+	/**
+	 * Returns how many durations have been recorded
+	 * @return sample count
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Returns the duration that the given percentage of samples
+	 * came in at or under, e.g. 99.9 for p999
+	 * @param percentile between 0 and 100
+	 * @param unit units to return it in
+	 * @return the duration, or 0 if nothing's been recorded
+	 */
+	public long getPercentile( double percentile, TimeUnit unit ) {
+		long n = count.get();
+		if( n == 0 ) {
+			return 0;
+		} // if
+		long rank = Math.max( 1, (long)Math.ceil( Math.min( 100.0, percentile ) / 100.0 * n ) );
+		long seen = 0;
+		for( int i = 0; i < BUCKETS; i++ ) {
+			seen += counts.get( i );
+			if( seen >= rank ) {
+				return unit.convert( Math.min( upperBound( i ), max.get() ), TimeUnit.MICROSECONDS );
+			} // if
+		} // for
+		return unit.convert( max.get(), TimeUnit.MICROSECONDS );
+	}
+
+	/**
+	 * Returns the longest duration recorded
+	 * @param unit units to return it in
+	 * @return the max, or 0 if nothing's been recorded
+	 */
+	public long getMax( TimeUnit unit ) {
+		return unit.convert( max.get(), TimeUnit.MICROSECONDS );
+	}
+
+	/**
+	 * Returns the average duration
+	 * @param unit units to return it in
+	 * @return the mean, or 0 if nothing's been recorded
+	 */
+	public double getMean( TimeUnit unit ) {
+		long n = count.get();
+		return n == 0 ? 0.0 : (double)total.get() / n * 1000.0 / unit.toNanos( 1 );
+	}
+
+	/**
+	 * Forgets everything recorded so far
+	 */
+	public void reset() {
+		for( int i = 0; i < BUCKETS; i++ ) {
+			counts.set( i, 0 );
+		} // for
+		count.set( 0 );
+		total.set( 0 );
+		max.set( 0 );
+	}
+
+	@Override
+	public String toString() {
+		return String.format( "[count=%d, p50=%dms, p99=%dms, p999=%dms, max=%dms]",
+				getCount(),
+				getPercentile( 50, TimeUnit.MILLISECONDS ),
+				getPercentile( 99, TimeUnit.MILLISECONDS ),
+				getPercentile( 99.9, TimeUnit.MILLISECONDS ),
+				getMax( TimeUnit.MILLISECONDS ) );
+	}
+
+	// ================================================
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int MAX_EXPONENT = 40; // 2^40 us is about 12 days
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+	/**
+	 * Values under 16 get a bucket each; above that, the top
+	 * five bits pick the bucket
+	 */
+	private static int indexFor( long micros ) {
+		if( micros < SUB_BUCKETS ) {
+			return (int)micros;
+		} // if
+		int exponent = Math.min( 63 - Long.numberOfLeadingZeros( micros ), MAX_EXPONENT );
+		long sub = (Math.min( micros, (2L << MAX_EXPONENT) - 1 ) >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + (int)sub;
+	}
+
+	private static long upperBound( int index ) {
+		if( index < SUB_BUCKETS ) {
+			return index;
+		} // if
+		int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = index % SUB_BUCKETS;
+		return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+	}
+
+	private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+}
@@ -0,0 +1,201 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The stock {@link EntityCache}: an in-memory, size-bounded LRU
+ * per kind of object, with entries that expire after a TTL set
+ * per kind.  A TTL of zero turns caching off for that kind.
+ * <p>
+ * Defaults are {@value #DEFAULT_MAX_ENTRIES} entries per kind, five
+ * minutes for images and accounts (which rarely change) and one
+ * minute for albums, comments and gallery items (whose points and
+ * contents move more).
+ * <pre>
+ * EntityCache cache = new LruEntityCache( 5000 )
+ *         .ttl( EntityCache.Type.Account, 1, TimeUnit.HOURS )
+ *         .ttl( EntityCache.Type.Comment, 0, TimeUnit.SECONDS );
+ * </pre>
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class LruEntityCache implements EntityCache {
+
+	public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	/**
+	 * Creates a cache with the default limits and TTLs
+	 */
+	public LruEntityCache() {
+		this( DEFAULT_MAX_ENTRIES );
+	}
+
+	/**
+	 * Creates a cache with the default TTLs
+	 * @param maxEntries how many objects of each kind to hold
+	 */
+	public LruEntityCache( int maxEntries ) {
+		for( Type type : Type.values() ) {
+			regions.put( type, new Region( maxEntries, defaultTtlMs( type ) ) );
+		} // for
+	}
+
+	/**
+	 * Sets how long objects of one kind stay fresh
+	 * @param type kind of object
+	 * @param ttl time to live, or 0 to not cache this kind at all
+	 * @param unit units for ttl
+	 * @return this cache
+	 */
+	public LruEntityCache ttl( Type type, long ttl, TimeUnit unit ) {
+		Region region = regions.get( type );
+		synchronized( region ) {
+			region.ttlMs = unit.toMillis( ttl );
+			if( region.ttlMs <= 0 ) {
+				region.map.clear();
+			} // if
+		} // synchronized
+		return this;
+	}
+
+	/**
+	 * Sets how many objects of one kind to hold before the least
+	 * recently used ones are pushed out
+	 * @param type kind of object
+	 * @param maxEntries the limit
+	 * @return this cache
+	 */
+	public LruEntityCache maxEntries( Type type, int maxEntries ) {
+		Region region = regions.get( type );
+		synchronized( region ) {
+			region.maxEntries = maxEntries;
+			region.trim();
+		} // synchronized
+		return this;
+	}
+
+	@Override
+	public Object get( Type type, String key ) {
+		Region region = regions.get( type );
+		synchronized( region ) {
+			if( region.ttlMs <= 0 ) {
+				return null;
+			} // if
+			Entry entry = region.map.get( key );
+			if( entry == null ) {
+				region.misses++;
+				return null;
+			} // if
+			if( System.currentTimeMillis() >= entry.expiresAt ) {
+				region.map.remove( key );
+				region.misses++;
+				return null;
+			} // if
+			region.hits++;
+			return entry.value;
+		} // synchronized
+	}
+
+	@Override
+	public void put( Type type, String key, Object value ) {
+		if( key == null || value == null ) {
+			return;
+		} // if
+		Region region = regions.get( type );
+		synchronized( region ) {
+			if( region.ttlMs <= 0 ) {
+				return;
+			} // if
+			region.map.put( key, new Entry( value, System.currentTimeMillis() + region.ttlMs ) );
+			region.trim();
+		} // synchronized
+	}
+
+	@Override
+	public boolean invalidate( Type type, String key ) {
+		Region region = regions.get( type );
+		synchronized( region ) {
+			if( region.map.remove( key ) == null ) {
+				return false;
+			} // if
+			region.invalidations++;
+			return true;
+		} // synchronized
+	}
+
+	@Override
+	public void invalidateAll( Type type ) {
+		Region region = regions.get( type );
+		synchronized( region ) {
+			region.invalidations += region.map.size();
+			region.map.clear();
+		} // synchronized
+	}
+
+	@Override
+	public CacheStats getStats( Type type ) {
+		Region region = regions.get( type );
+		synchronized( region ) {
+			return new CacheStats( region.hits, region.misses, region.evictions,
+					region.invalidations, region.map.size() );
+		} // synchronized
+	}
+
+	// ================================================
+
+	private static long defaultTtlMs( Type type ) {
+		switch( type ) {
+		case Image:
+		case Account:
+			return TimeUnit.MINUTES.toMillis( 5 );
+		default:
+			return TimeUnit.MINUTES.toMillis( 1 );
+		} // switch
+	}
+
+	private static class Entry {
+		Entry( Object value, long expiresAt ) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+
+		final Object value;
+		final long expiresAt;
+	}
+
+	/**
+	 * One kind of object.  Access-ordered, so iteration starts at
+	 * the least recently used entry.
+	 */
+	private static class Region {
+		Region( int maxEntries, long ttlMs ) {
+			this.maxEntries = maxEntries;
+			this.ttlMs = ttlMs;
+		}
+
+		void trim() {
+			while( map.size() > maxEntries ) {
+				Iterator<String> it = map.keySet().iterator();
+				it.next();
+				it.remove();
+				evictions++;
+			} // while
+		}
+
+		final LinkedHashMap<String, Entry> map = new LinkedHashMap<>( 16, 0.75f, true );
+		int maxEntries;
+		long ttlMs;
+		long hits;
+		long misses;
+		long evictions;
+		long invalidations;
+	}
+
+	private final Map<Type, Region> regions = new EnumMap<>( Type.class );
+
+}
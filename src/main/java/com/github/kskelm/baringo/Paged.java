@@ -0,0 +1,148 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.github.kskelm.baringo.util.BaringoApiException;
+import com.github.kskelm.baringo.util.BaringoPagingException;
+
+/**
+ * Walks every page of a paged endpoint as one sequence of items,
+ * fetching pages lazily as they're needed.  While the items from
+ * page N are being handed out, page N+1 is already on its way, so
+ * processing overlaps with the round trip instead of waiting on it.
+ * The walk stops at the first empty page.
+ * <p>
+ * Each call to {@link #iterator()} or {@link #stream()} starts a
+ * fresh walk from the first page.  Nothing is fetched until the
+ * first item is asked for.
+ * <p>
+ * Since iterators and streams can't throw checked exceptions, a
+ * page that fails to load surfaces as a {@link BaringoPagingException}
+ * wrapping the BaringoApiException.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ *
+ * @param <T> the type of item on each page
+ */
+public class Paged<T> implements Iterable<T> {
+
+	/**
+	 * Returns an iterator that walks every item on every page
+	 * @return an iterator
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return Spliterators.iterator( spliterator() );
+	}
+
+	/**
+	 * Returns a spliterator that walks every item on every page
+	 * @return a spliterator
+	 */
+	@Override
+	public Spliterator<T> spliterator() {
+		return new PageSpliterator();
+	}
+
+	/**
+	 * Returns a sequential stream of every item on every page.
+	 * Closing the stream cancels any page still being prefetched.
+	 * @return a stream of items
+	 */
+	public Stream<T> stream() {
+		PageSpliterator spliterator = new PageSpliterator();
+		return StreamSupport.stream( spliterator, false )
+				.onClose( spliterator::cancel );
+	}
+
+	// ================================================
+
+	/**
+	 * Holds the page being consumed and the future for the one
+	 * after it.
+	 */
+	private class PageSpliterator extends Spliterators.AbstractSpliterator<T> {
+
+		PageSpliterator() {
+			super( Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL );
+			this.nextPage = firstPage;
+		}
+
+		@Override
+		public boolean tryAdvance( Consumer<? super T> action ) {
+			while( current == null || !current.hasNext() ) {
+				if( done ) {
+					return false;
+				} // if
+				List<T> items = await();
+				if( items == null || items.isEmpty() ) {
+					done = true;
+					return false;
+				} // if
+				current = items.iterator();
+				prefetched = fetcher.apply( nextPage ); // N+1 while N is consumed
+			} // while
+			action.accept( current.next() );
+			return true;
+		}
+
+		void cancel() {
+			done = true;
+			if( prefetched != null ) {
+				prefetched.cancel( true );
+				prefetched = null;
+			} // if
+		}
+
+		private List<T> await() {
+			CompletableFuture<List<T>> future =
+					prefetched != null ? prefetched : fetcher.apply( nextPage );
+			prefetched = null;
+			int page = nextPage++;
+			try {
+				return future.join();
+			} catch (CancellationException e) {
+				done = true;
+				return null;
+			} catch (CompletionException e) {
+				done = true;
+				Throwable cause = e.getCause();
+				if( cause instanceof BaringoApiException ) {
+					throw new BaringoPagingException( page, (BaringoApiException)cause );
+				} // if
+				throw new BaringoPagingException( page,
+						new BaringoApiException( String.valueOf( cause ), cause ) );
+			} // try-catch
+		}
+
+		private int nextPage;
+		private boolean done = false;
+		private Iterator<T> current = null;
+		private CompletableFuture<List<T>> prefetched = null;
+	}
+
+	/**
+	 * @param firstPage the number of the first page; 0 for nearly
+	 *   everything, 1 for conversations
+	 * @param fetcher fetches a page by number
+	 */
+	protected Paged( int firstPage, IntFunction<CompletableFuture<List<T>>> fetcher ) {
+		this.firstPage = firstPage;
+		this.fetcher = fetcher;
+	} // constructor
+
+	private final int firstPage;
+	private final IntFunction<CompletableFuture<List<T>>> fetcher;
+
+}
@@ -0,0 +1,21 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+/**
+ * Gets told how far along a transfer is.  Called on the thread
+ * doing the transfer, every few hundred KB, so keep it quick.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public interface ProgressListener {
+
+	/**
+	 * Reports progress
+	 * @param bytesDone how many bytes have been transferred so far,
+	 *     counting any that were already there from an earlier try
+	 * @param bytesTotal how many bytes there are in all, or -1 if
+	 *     that isn't known
+	 */
+	void onProgress( long bytesDone, long bytesTotal );
+
+}
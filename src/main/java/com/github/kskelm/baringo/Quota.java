@@ -135,13 +135,13 @@ public class Quota {
 		this.postCreditResetDate = postCreditResetDate;
 	}
 	
-	private int userCreditsAllocated;
-	private int userCreditsAvailable;
-	private Date userCreditResetDate;
-	private int applicationCreditsAllocated;
-	private int applicationCreditsAvailable;
+	private volatile int userCreditsAllocated;
+	private volatile int userCreditsAvailable;
+	private volatile Date userCreditResetDate;
+	private volatile int applicationCreditsAllocated;
+	private volatile int applicationCreditsAvailable;
 	
-	private int postCreditsAllocated;
-	private int postCreditsAvailable;
-	private Date postCreditResetDate;
+	private volatile int postCreditsAllocated;
+	private volatile int postCreditsAvailable;
+	private volatile Date postCreditResetDate;
 } // Quota
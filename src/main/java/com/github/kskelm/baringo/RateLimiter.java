@@ -0,0 +1,394 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.io.InterruptedIOException;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+/**
+ * Client-side throttle that keeps a client inside the credits
+ * Imgur says it has left.  Every API response carries the
+ * remaining credits and when they reset (see {@link Quota});
+ * this turns them into token buckets, one for POSTs (post
+ * credits), one for everything else (user credits) and one for
+ * the application credits everything else also spends, each
+ * refilling at remaining / time-until-reset.  That spreads the
+ * budget across the window instead of burning it in the first
+ * few minutes and eating 429s for the rest.
+ * <p>
+ * Application credits belong to the client id, not the user, so
+ * a client and all its sessions (see {@link BaringoClient#newSession()})
+ * draw on one application bucket between them.  The user and post
+ * buckets are each session's own.
+ * <p>
+ * Until the first response arrives there's nothing to go on,
+ * so requests are let through.  Same after a reset passes,
+ * until the next response says what the new budget is.
+ * <p>
+ * What happens when a bucket is empty depends on the
+ * {@link Policy} given to {@link BaringoClient.Builder#rateLimit(Policy)}.
+ * Either way, {@link #whenAvailable(String)} returns a future
+ * that completes when a credit should be free, for callers who
+ * would rather schedule than block.
+ * <p>
+ * BLOCK waits by sleeping the thread making the request, which for
+ * async calls is an OkHttp dispatcher thread; enough of them asleep
+ * and other async calls queue up behind them.  Clients that make a
+ * lot of async calls are better off with FAIL_FAST, waiting on
+ * whenAvailable() before retrying.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class RateLimiter {
+
+	/**
+	 * What to do with a request when there's no credit for it
+	 */
+	public enum Policy {
+		/** Don't limit at all (the default) */
+		OFF,
+		/** Hold the calling thread (for async calls, an OkHttp dispatcher thread) until a credit frees up */
+		BLOCK,
+		/** Fail the call right away as an HTTP 429 */
+		FAIL_FAST
+	}
+
+	public static final int DEFAULT_BURST = 10;
+
+	/**
+	 * Returns the policy for requests that find their bucket empty
+	 * @return the policy
+	 */
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Returns how many requests had to wait for a credit
+	 * @return throttled request count
+	 */
+	public long getThrottledCount() {
+		return throttled.get();
+	}
+
+	/**
+	 * Returns how many requests were failed fast for lack of a credit
+	 * @return rejected request count
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	/**
+	 * Returns the total time requests have spent waiting for credits
+	 * @return milliseconds waited, summed over all requests
+	 */
+	public long getWaitedMillis() {
+		return waitedMs.get();
+	}
+
+	/**
+	 * Returns how long a request with the given HTTP method would
+	 * have to wait for a credit right now, without taking one.
+	 * @param httpMethod GET, POST, etc.
+	 * @return milliseconds to wait, 0 if a credit is available
+	 */
+	public long getWaitMillis( String httpMethod ) {
+		long now = System.currentTimeMillis();
+		long waitMs = bucketFor( httpMethod ).peek( now );
+		if( !isPost( httpMethod ) ) {
+			waitMs = Math.max( waitMs, appBucket.peek( now ) );
+		} // if
+		return waitMs;
+	}
+
+	/**
+	 * Returns a future that completes once a credit for the given
+	 * HTTP method should be available.  It doesn't hold the credit
+	 * for you; another request can still take it first.  Pairs well
+	 * with FAIL_FAST: wait on this instead of blocking a thread, then
+	 * make the call.
+	 * @param httpMethod GET, POST, etc.
+	 * @return a future that completes when a credit is free
+	 */
+	public CompletableFuture<Void> whenAvailable( String httpMethod ) {
+		long waitMs = getWaitMillis( httpMethod );
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		if( waitMs <= 0 ) {
+			future.complete( null );
+			return future;
+		} // if
+		Scheduler.INSTANCE.schedule(
+				() -> future.complete( null ), waitMs, TimeUnit.MILLISECONDS );
+		return future;
+	}
+
+	// ================================================
+
+	/**
+	 * Called from the interceptor before each request.  Returns null
+	 * if the request may go ahead, possibly after blocking, or a
+	 * synthetic 429 response if it's failed fast.
+	 */
+	protected Response admit( Request request ) throws InterruptedIOException {
+		if( policy == Policy.OFF ) {
+			return null;
+		} // if
+		Bucket bucket = bucketFor( request.method() );
+		Bucket shared = isPost( request.method() ) ? null : appBucket;
+		long now = System.currentTimeMillis();
+
+		if( policy == Policy.FAIL_FAST ) {
+			long waitMs = bucket.tryTake( now );
+			if( waitMs == 0 && shared != null ) {
+				waitMs = shared.tryTake( now );
+				if( waitMs != 0 ) {
+					bucket.giveBack(); // it was the application's credits that ran out
+					bucket = shared;
+				} // if
+			} // if
+			if( waitMs == 0 ) {
+				return null;
+			} // if
+			rejected.incrementAndGet();
+			return tooManyRequests( request, bucket, waitMs );
+		} // if
+
+		long waitMs = bucket.take( now );
+		if( shared != null ) {
+			long sharedWaitMs = shared.take( now );
+			if( sharedWaitMs > waitMs ) {
+				waitMs = sharedWaitMs;
+				bucket = shared;
+			} // if
+		} // if
+		if( waitMs <= 0 ) {
+			return null;
+		} // if
+		throttled.incrementAndGet();
+		waitedMs.addAndGet( waitMs );
+		try {
+			Thread.sleep( waitMs );
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException( "Interrupted waiting for a "
+					+ bucket.name + " credit" );
+		} // try-catch
+		return null;
+	}
+
+	/**
+	 * Takes a credit for the given HTTP method whatever the policy,
+	 * for callers that pace themselves (see BatchUpload).  As with
+	 * BLOCK, the credit is reserved even if it has to be waited for;
+	 * the caller does the waiting.  Returns how long that is, 0 if
+	 * the credit is there now.
+	 */
+	protected long reserve( String httpMethod ) {
+		long now = System.currentTimeMillis();
+		long waitMs = bucketFor( httpMethod ).take( now );
+		if( !isPost( httpMethod ) ) {
+			waitMs = Math.max( waitMs, appBucket.take( now ) );
+		} // if
+		return Math.max( 0, waitMs );
+	}
+
+	/**
+	 * Called after each response, once the Quota has the latest numbers
+	 */
+	protected void update( Quota quota ) {
+		long now = System.currentTimeMillis();
+		int userRemaining = quota.getUserCreditsAvailable();
+		int appRemaining = quota.getApplicationCreditsAvailable();
+		if( quota.getUserCreditResetDate() != null ) {
+			long resetAt = resetMillis( quota.getUserCreditResetDate() );
+			getBucket.sync( userRemaining, resetAt, now );
+			if( quota.getApplicationCreditsAllocated() > 0 ) {
+				// Imgur doesn't say when these reset, so pace them over the user window
+				appBucket.sync( appRemaining, resetAt, now );
+			} // if
+		} // if
+		if( quota.getPostCreditResetDate() != null ) {
+			postBucket.sync( quota.getPostCreditsAvailable(),
+					resetMillis( quota.getPostCreditResetDate() ), now );
+		} // if
+	}
+
+	private Bucket bucketFor( String httpMethod ) {
+		return isPost( httpMethod ) ? postBucket : getBucket;
+	}
+
+	private static boolean isPost( String httpMethod ) {
+		return "POST".equalsIgnoreCase( httpMethod );
+	}
+
+	private static long resetMillis( Date date ) {
+		return date == null ? 0 : date.getTime();
+	}
+
+	private static Response tooManyRequests( Request request, Bucket bucket, long waitMs ) {
+		String msg = "Rate limited by client: no " + bucket.name
+				+ " credits for " + waitMs + "ms";
+		String json = "{\"data\":{\"error\":\"" + msg + "\"},\"success\":false,\"status\":429}";
+		return new Response.Builder()
+				.request( request )
+				.protocol( Protocol.HTTP_1_1 )
+				.code( 429 )
+				.message( msg )
+				.header( CLIENT_LIMITED_HEADER, bucket.name )
+				.header( "Retry-After", Long.toString( ( waitMs + 999 ) / 1000 ) )
+				.body( ResponseBody.create( JSON, json ) )
+				.build();
+	}
+
+	/**
+	 * One token bucket.  Tokens refill continuously at
+	 * remaining / time-until-reset, up to the burst size.  take()
+	 * reserves a token even when it has to wait for it, so
+	 * concurrent callers queue up behind each other instead of
+	 * all waking at once.
+	 */
+	private static class Bucket {
+
+		Bucket( String name, int burst ) {
+			this.name = name;
+			this.burst = burst;
+		}
+
+		synchronized void sync( int remaining, long resetAt, long now ) {
+			refill( now );
+			if( remaining < 0 ) {
+				return;
+			} // if
+			long windowMs = resetAt > now ? resetAt - now : 0;
+			this.ratePerMs = windowMs > 0 ? (double)remaining / windowMs : 0;
+			this.capacity = Math.max( 1, Math.min( burst, remaining ) );
+			if( !known ) {
+				this.tokens = Math.min( capacity, remaining );
+			} else {
+				// never hand out more than Imgur says is left
+				this.tokens = Math.min( tokens, remaining );
+			} // if-else
+			this.resetAt = resetAt;
+			this.known = windowMs > 0;
+		}
+
+		synchronized long take( long now ) {
+			long waitMs = peekLocked( now );
+			if( known ) {
+				tokens -= 1;
+			} // if
+			return waitMs;
+		}
+
+		synchronized long tryTake( long now ) {
+			long waitMs = peekLocked( now );
+			if( waitMs == 0 && known ) {
+				tokens -= 1;
+			} // if
+			return waitMs;
+		}
+
+		synchronized long peek( long now ) {
+			return peekLocked( now );
+		}
+
+		/** Returns a token taken by a request that didn't go out after all */
+		synchronized void giveBack() {
+			if( known ) {
+				tokens = Math.min( capacity, tokens + 1 );
+			} // if
+		}
+
+		private long peekLocked( long now ) {
+			refill( now );
+			if( !known || tokens >= 1 ) {
+				return 0;
+			} // if
+			if( ratePerMs > 0 ) {
+				return (long)Math.ceil( ( 1 - tokens ) / ratePerMs );
+			} // if
+			return Math.max( 1, resetAt - now ); // dry until the reset
+		}
+
+		private void refill( long now ) {
+			if( known && now >= resetAt ) {
+				known = false; // new window; wait for the headers to tell us
+			} // if
+			if( known && now > lastRefill ) {
+				tokens = Math.min( capacity, tokens + ( now - lastRefill ) * ratePerMs );
+			} // if
+			lastRefill = now;
+		}
+
+		final String name;
+		private final int burst;
+		private boolean known = false;
+		private double tokens = 0;
+		private double capacity = 1;
+		private double ratePerMs = 0;
+		private long resetAt = 0;
+		private long lastRefill = 0;
+	}
+
+	/**
+	 * One daemon timer thread for every client's whenAvailable()
+	 * futures, started the first time somebody needs it.
+	 */
+	private static class Scheduler {
+		static final ScheduledExecutorService INSTANCE =
+				Executors.newSingleThreadScheduledExecutor( r -> {
+					Thread t = new Thread( r, "baringo-rate-limiter" );
+					t.setDaemon( true );
+					return t;
+				} );
+	}
+
+	/**
+	 * Returns a limiter for a session: the same settings, its own
+	 * user and post buckets, and this one's application bucket
+	 */
+	protected RateLimiter copy() {
+		return new RateLimiter( policy, burst, appBucket );
+	}
+
+	protected RateLimiter( Policy policy, int burst ) {
+		this( policy, burst, new Bucket( "application", burst ) );
+	} // constructor
+
+	private RateLimiter( Policy policy, int burst, Bucket appBucket ) {
+		this.policy = policy;
+		this.burst = burst;
+		this.getBucket = new Bucket( "GET", burst );
+		this.postBucket = new Bucket( "POST", burst );
+		this.appBucket = appBucket;
+	} // constructor
+
+	private final Policy policy;
+	private final int burst;
+	private final Bucket getBucket;
+	private final Bucket postBucket;
+	private final Bucket appBucket; // shared with every session
+	private final AtomicLong throttled = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong waitedMs = new AtomicLong();
+
+	private static final MediaType JSON = MediaType.parse( "application/json" );
+
+	/**
+	 * Marks the 429s the limiter makes up itself, so nothing
+	 * downstream mistakes them for Imgur's
+	 */
+	protected static final String CLIENT_LIMITED_HEADER = "X-Baringo-Client-Limited";
+
+}
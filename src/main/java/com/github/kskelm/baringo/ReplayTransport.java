@@ -0,0 +1,286 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.kskelm.baringo.util.ApiRoutes;
+import com.squareup.okhttp.HttpUrl;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+/**
+ * Answers a client's API calls out of a TrafficArchive instead of
+ * the network, taking as long as the recorded calls did, or some
+ * fraction of that.  Everything above the wire runs as usual: the
+ * services, Retrofit, Gson, the retry policy, quota tracking off
+ * the recorded rate limit headers and any metrics.  That makes it
+ * a way to run the same hour of traffic against two versions of
+ * Baringo and compare what they do with it:
+ * <pre>
+ * ReplayTransport replay = new ReplayTransport.Builder( TrafficArchive.read( file ) )
+ *         .speed( 10.0 )
+ *         .build();
+ * BaringoClient client = new BaringoClient.Builder()
+ *         .clientAuth( id, secret )
+ *         .replay( replay )
+ *         .build();
+ * </pre>
+ * A call gets the recorded response to the same method, path and
+ * query string, in the order they were recorded; once those run
+ * out it starts over from the first.  A call nothing was recorded
+ * for gets any response recorded for the same endpoint, and failing
+ * that a 404.  The host is ignored, so traffic recorded against
+ * api.imgur.com replays no matter what the client's endpoint is.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class ReplayTransport {
+
+	/**
+	 * Builds a ReplayTransport
+	 */
+	public static class Builder {
+
+		/**
+		 * Starts a transport that plays back this archive
+		 * @param archive from {@link TrafficArchive#read(java.nio.file.Path)}
+		 */
+		public Builder( TrafficArchive archive ) {
+			this._archive = archive;
+		} // constructor
+
+		/**
+		 * How fast to play the calls back.  1.0, the default, takes as
+		 * long as the recorded call did; 10.0 takes a tenth of that.
+		 * @param factor how many times faster than recorded; Double.POSITIVE_INFINITY answers at once
+		 * @return This builder object
+		 */
+		public Builder speed( double factor ) {
+			if( !(factor > 0.0) ) {
+				throw new IllegalArgumentException( "speed must be more than 0" );
+			} // if
+			this._speed = factor;
+
+			return this;
+		} // speed
+
+		/**
+		 * Whether to start over from the first recorded response once
+		 * a call has used them all up.  On by default; with it off,
+		 * extra calls fall back to the endpoint's other responses.
+		 * @param loop true to start over
+		 * @return This builder object
+		 */
+		public Builder loop( boolean loop ) {
+			this._loop = loop;
+
+			return this;
+		} // loop
+
+		/**
+		 * Constructs the ReplayTransport and returns it
+		 * @return the transport
+		 */
+		public ReplayTransport build() {
+			return new ReplayTransport( _archive, _speed, _loop );
+		} // build
+
+		private final TrafficArchive _archive;
+		private double _speed = 1.0;
+		private boolean _loop = true;
+	}
+
+	/**
+	 * Returns the archive being played back
+	 * @return the archive
+	 */
+	public TrafficArchive getArchive() {
+		return archive;
+	}
+
+	/**
+	 * Returns how many times faster than recorded calls are answered
+	 * @return speed factor
+	 */
+	public double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Returns how many calls got the recorded response to the same
+	 * request
+	 * @return call count
+	 */
+	public long getServed() {
+		return served.get();
+	}
+
+	/**
+	 * Returns how many calls got a response recorded for a different
+	 * request to the same endpoint
+	 * @return call count
+	 */
+	public long getSubstituted() {
+		return substituted.get();
+	}
+
+	/**
+	 * Returns how many calls had nothing recorded for their endpoint
+	 * and got a 404
+	 * @return call count
+	 */
+	public long getMissed() {
+		return missed.get();
+	}
+
+	/**
+	 * Starts every call over from the first recorded response, so the
+	 * same archive can be played again from the top
+	 */
+	public void rewind() {
+		for( Track track : byRequest.values() ) {
+			track.next.set( 0 );
+		} // for
+		for( Track track : byEndpoint.values() ) {
+			track.next.set( 0 );
+		} // for
+	}
+
+	// ================================================
+
+	protected ReplayTransport( TrafficArchive archive, double speed, boolean loop ) {
+		this.archive = archive;
+		this.speed = speed;
+		this.loop = loop;
+		for( TrafficArchive.Exchange e : archive.getExchanges() ) {
+			HttpUrl url = HttpUrl.parse( e.getUrl() );
+			String path = url == null ? e.getUrl() : url.encodedPath();
+			String query = url == null ? null : url.encodedQuery();
+			byRequest.computeIfAbsent( key( e.getMethod(), path, query ), k -> new Track() ).exchanges.add( e );
+			String endpoint = ApiRoutes.endpointFor( e.getMethod(), path, query );
+			if( !ApiRoutes.OTHER.equals( endpoint ) ) { // no stand-ins for off-API requests
+				byEndpoint.computeIfAbsent( endpoint, k -> new Track() ).exchanges.add( e );
+			} // if
+		} // for
+	}
+
+	/**
+	 * Hooks the transport into the API client.  Goes last, in place
+	 * of the network, so every other interceptor still runs.
+	 */
+	protected void install( OkHttpClient client ) {
+		client.interceptors().add( new ReplayingInterceptor() );
+	}
+
+	private static String key( String method, String path, String query ) {
+		return query == null ? method + " " + path : method + " " + path + "?" + query;
+	}
+
+	/**
+	 * The responses recorded for one request or endpoint, and which
+	 * one goes out next
+	 */
+	private static class Track {
+		TrafficArchive.Exchange next( boolean loop ) {
+			int i = next.getAndIncrement();
+			if( i < exchanges.size() ) {
+				return exchanges.get( i );
+			} // if
+			return loop ? exchanges.get( i % exchanges.size() ) : null;
+		}
+
+		final List<TrafficArchive.Exchange> exchanges = new ArrayList<>();
+		final AtomicInteger next = new AtomicInteger();
+	}
+
+	private class ReplayingInterceptor implements Interceptor {
+		@Override
+		public Response intercept( Chain chain ) throws IOException {
+			Request request = chain.request();
+			HttpUrl url = request.httpUrl();
+			String path = url.encodedPath();
+
+			TrafficArchive.Exchange exchange = null;
+			Track track = byRequest.get( key( request.method(), path, url.encodedQuery() ) );
+			if( track != null ) {
+				exchange = track.next( loop );
+			} // if
+			if( exchange != null ) {
+				served.incrementAndGet();
+			} else {
+				track = byEndpoint.get( ApiRoutes.endpointFor( request.method(), path, url.encodedQuery() ) );
+				if( track != null ) {
+					exchange = track.next( true );
+				} // if
+				if( exchange != null ) {
+					substituted.incrementAndGet();
+				} // if
+			} // if-else
+			if( exchange == null ) {
+				missed.incrementAndGet();
+				return new Response.Builder()
+						.request( request )
+						.protocol( Protocol.HTTP_1_1 )
+						.code( 404 )
+						.message( "Not Recorded" )
+						.body( ResponseBody.create( JSON, NOT_RECORDED ) )
+						.build();
+			} // if
+
+			pace( exchange );
+			return new Response.Builder()
+					.request( request )
+					.protocol( Protocol.HTTP_1_1 )
+					.code( exchange.getStatus() )
+					.message( exchange.getMessage() )
+					.headers( exchange.getResponseHeaders() )
+					.body( ResponseBody.create( exchange.getContentType() == null
+							? null
+							: MediaType.parse( exchange.getContentType() ), exchange.getBody() ) )
+					.build();
+		}
+
+		private void pace( TrafficArchive.Exchange exchange ) throws IOException {
+			if( Double.isInfinite( speed ) ) {
+				return;
+			} // if
+			long nanos = (long)(exchange.getLatency( TimeUnit.NANOSECONDS ) / speed);
+			if( nanos <= 0 ) {
+				return;
+			} // if
+			try {
+				TimeUnit.NANOSECONDS.sleep( nanos );
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException( "Interrupted while replaying a call" );
+			} // try-catch
+		}
+	}
+
+	private static final MediaType JSON = MediaType.parse( "application/json" );
+	private static final String NOT_RECORDED =
+			"{\"data\":{\"error\":\"Nothing recorded for this request\"},\"success\":false,\"status\":404}";
+
+	private final TrafficArchive archive;
+	private final double speed;
+	private final boolean loop;
+	private final Map<String, Track> byRequest = new HashMap<>();
+	private final Map<String, Track> byEndpoint = new HashMap<>();
+	private final AtomicLong served = new AtomicLong();
+	private final AtomicLong substituted = new AtomicLong();
+	private final AtomicLong missed = new AtomicLong();
+
+}
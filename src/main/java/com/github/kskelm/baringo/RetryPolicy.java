@@ -0,0 +1,563 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.github.kskelm.baringo.util.ApiRoutes;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+/**
+ * Retries API calls that failed for reasons that might go away,
+ * and stops calling endpoints that keep failing.  Turn it on with
+ * {@link BaringoClient.Builder#retryPolicy(RetryPolicy)}.
+ * <p>
+ * GETs that fail with a dropped connection, a timeout or a 5xx
+ * are tried again after an exponential backoff with full jitter,
+ * so a crowd of clients doesn't come back all at once.  A 429 is
+ * retried only once the quota is back: after Retry-After if Imgur
+ * sent one, otherwise at the {@link Quota} reset time, and not at
+ * all if that's further off than the longest wait allowed.  Other
+ * 4xx responses are the caller's problem and go straight back.
+ * Nothing but GETs is retried, since uploads, votes and the like
+ * might have gone through even though the response didn't.  Nor
+ * are the extra copies a {@link HedgingPolicy} sends.
+ * <p>
+ * Each endpoint, named after its
+ * {@link com.github.kskelm.baringo.util.RetrofittedImgur} method,
+ * also has a circuit breaker.  After enough failures in a row
+ * (connection trouble or 5xx) the breaker opens and calls to that
+ * endpoint fail at once with a 503 instead of waiting on a route
+ * that's down.  Once the open period passes, one call is let
+ * through to test it; if it works the breaker closes again.
+ * <p>
+ * Retrying blocks the calling thread, which for async calls is an
+ * OkHttp dispatcher thread.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class RetryPolicy {
+
+	public static final int  DEFAULT_MAX_RETRIES = 3;
+	public static final long DEFAULT_BASE_DELAY_MS = 250;
+	public static final long DEFAULT_MAX_DELAY_MS = 10_000;
+	public static final long DEFAULT_MAX_WAIT_MS = 60_000;
+	public static final int  DEFAULT_FAILURE_THRESHOLD = 5;
+	public static final long DEFAULT_OPEN_MS = 30_000;
+
+	/**
+	 * Where an endpoint's circuit breaker stands
+	 */
+	public enum BreakerState {
+		/** Calls go through normally */
+		CLOSED,
+		/** Calls fail right away */
+		OPEN,
+		/** One trial call is being let through */
+		HALF_OPEN
+	}
+
+	/**
+	 * Sets up a RetryPolicy
+	 */
+	public static class Builder {
+
+		/**
+		 * Sets how many times a GET is retried after the first try
+		 * @param retries retry count; 0 leaves only the circuit breakers
+		 * @return This builder object
+		 */
+		public Builder maxRetries( int retries ) {
+			this._maxRetries = Math.max( 0, retries );
+
+			return this;
+		} // maxRetries
+
+		/**
+		 * Sets the backoff.  Retry n waits a random time between 0
+		 * and base * 2^n, capped at max.
+		 * @param base first backoff ceiling
+		 * @param max largest backoff ceiling
+		 * @param unit units for both
+		 * @return This builder object
+		 */
+		public Builder backoff( long base, long max, TimeUnit unit ) {
+			this._baseDelayMs = Math.max( 1, unit.toMillis( base ) );
+			this._maxDelayMs = Math.max( this._baseDelayMs, unit.toMillis( max ) );
+
+			return this;
+		} // backoff
+
+		/**
+		 * Sets the longest a 429 or 503 may ask to be put off for,
+		 * by Retry-After or the quota reset time, and still get
+		 * retried.  Longer than this and the response goes straight
+		 * back to the caller.
+		 * @param maxWait the longest wait
+		 * @param unit units for maxWait
+		 * @return This builder object
+		 */
+		public Builder maxWait( long maxWait, TimeUnit unit ) {
+			this._maxWaitMs = unit.toMillis( maxWait );
+
+			return this;
+		} // maxWait
+
+		/**
+		 * Sets up the circuit breakers
+		 * @param failureThreshold failures in a row that open a breaker; 0 turns them off
+		 * @param openFor how long a breaker stays open before a trial call
+		 * @param unit units for openFor
+		 * @return This builder object
+		 */
+		public Builder circuitBreaker( int failureThreshold, long openFor, TimeUnit unit ) {
+			this._failureThreshold = Math.max( 0, failureThreshold );
+			this._openMs = unit.toMillis( openFor );
+
+			return this;
+		} // circuitBreaker
+
+		/**
+		 * Constructs the RetryPolicy and returns it
+		 * @return the policy
+		 */
+		public RetryPolicy build() {
+			return new RetryPolicy( _maxRetries, _baseDelayMs, _maxDelayMs, _maxWaitMs,
+					_failureThreshold, _openMs );
+		} // build
+
+		private int  _maxRetries = DEFAULT_MAX_RETRIES;
+		private long _baseDelayMs = DEFAULT_BASE_DELAY_MS;
+		private long _maxDelayMs = DEFAULT_MAX_DELAY_MS;
+		private long _maxWaitMs = DEFAULT_MAX_WAIT_MS;
+		private int  _failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+		private long _openMs = DEFAULT_OPEN_MS;
+	}
+
+	/**
+	 * Retry and circuit breaker counters for one endpoint
+	 */
+	public static class EndpointStats {
+
+		/**
+		 * Returns how many calls were made, not counting retries
+		 * @return call count
+		 */
+		public long getCalls() {
+			return calls.get();
+		}
+
+		/**
+		 * Returns how many retries were made
+		 * @return retry count
+		 */
+		public long getRetries() {
+			return retries.get();
+		}
+
+		/**
+		 * Returns how many calls still failed after every retry,
+		 * or weren't worth retrying
+		 * @return failure count
+		 */
+		public long getFailures() {
+			return failures.get();
+		}
+
+		/**
+		 * Returns how many calls the open breaker turned away
+		 * @return short-circuited call count
+		 */
+		public long getRejected() {
+			return rejected.get();
+		}
+
+		/**
+		 * Returns how many times the breaker has opened
+		 * @return trip count
+		 */
+		public long getTrips() {
+			return trips.get();
+		}
+
+		/**
+		 * Returns where the breaker stands right now
+		 * @return breaker state
+		 */
+		public synchronized BreakerState getState() {
+			if( state == BreakerState.OPEN && System.currentTimeMillis() >= openUntil ) {
+				return BreakerState.HALF_OPEN; // the next call will be the trial
+			} // if
+			return state;
+		}
+
+		/**
+		 * Returns how many failures in a row there have been
+		 * @return consecutive failure count
+		 */
+		public synchronized int getConsecutiveFailures() {
+			return consecutiveFailures;
+		}
+
+		@Override
+		public String toString() {
+			return String.format( "[calls=%d, retries=%d, failures=%d, rejected=%d, trips=%d, state=%s]",
+					getCalls(), getRetries(), getFailures(), getRejected(), getTrips(), getState() );
+		}
+
+		/**
+		 * Returns 0 if a call may go ahead, TRIAL if it may
+		 * go ahead as the half-open breaker's one trial, or how long
+		 * the breaker will stay open
+		 */
+		synchronized long admit( long now ) {
+			if( state == BreakerState.CLOSED ) {
+				return 0;
+			} // if
+			if( state == BreakerState.OPEN && now >= openUntil ) {
+				state = BreakerState.HALF_OPEN;
+				trialInFlight = false;
+			} // if
+			if( state == BreakerState.HALF_OPEN && !trialInFlight ) {
+				trialInFlight = true;
+				return TRIAL;
+			} // if
+			return Math.max( 1, openUntil - now );
+		}
+
+		/**
+		 * Called when a trial call is over, however it ended.  If it
+		 * didn't get to say whether the route is up (turned away by
+		 * our own rate limiter, cancelled, blew up), the next call
+		 * gets to be the trial instead.
+		 */
+		synchronized void endTrial() {
+			if( state == BreakerState.HALF_OPEN ) {
+				trialInFlight = false;
+			} // if
+		}
+
+		synchronized void succeeded() {
+			consecutiveFailures = 0;
+			state = BreakerState.CLOSED;
+			trialInFlight = false;
+		}
+
+		synchronized void failed( int threshold, long openMs, long now ) {
+			consecutiveFailures++;
+			if( threshold <= 0 ) {
+				return;
+			} // if
+			if( state == BreakerState.HALF_OPEN || consecutiveFailures >= threshold ) {
+				if( state != BreakerState.OPEN ) {
+					trips.incrementAndGet();
+				} // if
+				state = BreakerState.OPEN;
+				openUntil = now + openMs;
+				trialInFlight = false;
+			} // if
+		}
+
+		private final AtomicLong calls = new AtomicLong();
+		private final AtomicLong retries = new AtomicLong();
+		private final AtomicLong failures = new AtomicLong();
+		private final AtomicLong rejected = new AtomicLong();
+		private final AtomicLong trips = new AtomicLong();
+		private BreakerState state = BreakerState.CLOSED;
+		private int consecutiveFailures = 0;
+		private long openUntil = 0;
+		private boolean trialInFlight = false;
+	}
+
+	/**
+	 * Returns the counters for every endpoint that's been called,
+	 * sorted by endpoint name
+	 * @return endpoint name to counters
+	 */
+	public Map<String, EndpointStats> getEndpointStats() {
+		return Collections.unmodifiableMap( new TreeMap<>( stats ) );
+	}
+
+	/**
+	 * Returns the counters for one endpoint
+	 * @param endpoint the RetrofittedImgur method name, e.g. "getAlbum"
+	 * @return the counters, or null if it hasn't been called
+	 */
+	public EndpointStats getEndpointStats( String endpoint ) {
+		return stats.get( endpoint );
+	}
+
+	/**
+	 * Returns how many retries have been made across all endpoints
+	 * @return retry count
+	 */
+	public long getRetries() {
+		long total = 0;
+		for( EndpointStats s : stats.values() ) {
+			total += s.getRetries();
+		} // for
+		return total;
+	}
+
+	/**
+	 * Returns how many calls open breakers have turned away
+	 * @return short-circuited call count
+	 */
+	public long getRejected() {
+		long total = 0;
+		for( EndpointStats s : stats.values() ) {
+			total += s.getRejected();
+		} // for
+		return total;
+	}
+
+	/**
+	 * Closes every breaker and forgets the failures, say after
+	 * fixing whatever was wrong
+	 */
+	public void resetBreakers() {
+		for( EndpointStats s : stats.values() ) {
+			s.succeeded();
+		} // for
+	}
+
+	/**
+	 * Returns how many times a GET is retried after the first try
+	 * @return retry limit
+	 */
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	/**
+	 * Returns how many failures in a row open a breaker
+	 * @return failure threshold, 0 if breakers are off
+	 */
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	@Override
+	public String toString() {
+		return String.format( "RetryPolicy[maxRetries=%d, backoff=%d..%dms, maxWait=%dms, breaker=%d/%dms]",
+				maxRetries, baseDelayMs, maxDelayMs, maxWaitMs, failureThreshold, openMs );
+	}
+
+	// ================================================
+
+	/**
+	 * Hooks the policy into the API client.  It goes first, ahead
+	 * of ImgurInterceptor, so every retry is signed, rate limited
+	 * and counted against the quota like any other request.
+	 */
+	protected void install( OkHttpClient client, BaringoClient owner ) {
+		client.interceptors().add( 0, new RetryingInterceptor( owner ) );
+	}
+
+	private class RetryingInterceptor implements Interceptor {
+		RetryingInterceptor( BaringoClient owner ) {
+			this.owner = owner;
+		}
+
+		@Override
+		public Response intercept( Chain chain ) throws IOException {
+			Request request = chain.request();
+			String endpoint = ApiRoutes.endpointFor( request.method(), request.url().getPath(), request.url().getQuery() );
+			EndpointStats counters = stats.computeIfAbsent( endpoint, k -> new EndpointStats() );
+			counters.calls.incrementAndGet();
+
+			long openFor = failureThreshold > 0 ? counters.admit( System.currentTimeMillis() ) : 0;
+			if( openFor > 0 ) {
+				counters.rejected.incrementAndGet();
+				return circuitOpen( request, endpoint, openFor );
+			} // if
+			try {
+				return proceed( chain, request, endpoint, counters );
+			} finally {
+				if( openFor == TRIAL ) {
+					counters.endTrial();
+				} // if
+			} // try-finally
+		}
+
+		private Response proceed( Chain chain, Request request, String endpoint, EndpointStats counters )
+				throws IOException {
+			// a hedge is already the extra try, paid for out of the hedging budget
+			boolean retryable = ( "GET".equals( request.method() ) || "HEAD".equals( request.method() ) )
+					&& !HedgingPolicy.isHedge();
+			for( int attempt = 0; ; attempt++ ) {
+				Response response;
+				try {
+					response = chain.proceed( request );
+				} catch( IOException e ) {
+					if( HedgingPolicy.isCancelled() ) {
+						throw e; // lost a hedging race; nothing wrong with the route
+					} // if
+					counters.failed( failureThreshold, openMs, System.currentTimeMillis() );
+					if( !retryable || attempt >= maxRetries || e instanceof InterruptedIOException
+							|| counters.getState() == BreakerState.OPEN ) {
+						counters.failures.incrementAndGet();
+						throw e;
+					} // if
+					log.fine( endpoint + " failed (" + e + "); retry " + (attempt + 1) );
+					pause( backoff( attempt ), endpoint );
+					retried( counters, endpoint );
+					continue;
+				} // try-catch
+
+				int code = response.code();
+				if( code < 500 && code != 429 ) {
+					counters.succeeded(); // even a 404 means the route is up
+					return response;
+				} // if
+				if( response.header( RateLimiter.CLIENT_LIMITED_HEADER ) != null ) {
+					return response; // our own rate limiter said no; it knows best
+				} // if
+
+				long delay;
+				if( code == 429 ) {
+					counters.succeeded();
+					// sessions tag their requests; untagged ones are the owner's
+					BaringoClient caller = request.tag() instanceof BaringoClient
+							? (BaringoClient)request.tag()
+							: owner;
+					delay = quotaWait( request, response, caller.getQuota() );
+				} else {
+					counters.failed( failureThreshold, openMs, System.currentTimeMillis() );
+					delay = Math.max( backoff( attempt ), retryAfter( response ) );
+				} // if-else
+				if( !retryable || attempt >= maxRetries || delay < 0 || delay > maxWaitMs
+						|| counters.getState() == BreakerState.OPEN ) {
+					counters.failures.incrementAndGet();
+					return response;
+				} // if
+				response.body().close();
+				log.fine( endpoint + " returned " + code + "; retry " + (attempt + 1) + " in " + delay + "ms" );
+				pause( delay, endpoint );
+				retried( counters, endpoint );
+			} // for
+		}
+
+		private void retried( EndpointStats counters, String endpoint ) {
+			counters.retries.incrementAndGet();
+			if( owner.getMetrics() != null ) {
+				owner.getMetrics().retried( endpoint );
+			} // if
+		}
+
+		private final BaringoClient owner;
+	}
+
+	/**
+	 * Full jitter: a random wait up to an exponentially growing ceiling
+	 */
+	private long backoff( int attempt ) {
+		long ceiling = baseDelayMs << Math.min( attempt, 20 );
+		ceiling = Math.min( ceiling, maxDelayMs );
+		return ThreadLocalRandom.current().nextLong( ceiling + 1 );
+	}
+
+	/**
+	 * How long until a 429 is worth retrying: Retry-After if there is
+	 * one, else the quota reset for the kind of request it was.
+	 * Returns -1 if there's nothing to go on.
+	 */
+	private static long quotaWait( Request request, Response response, Quota quota ) {
+		long retryAfter = retryAfter( response );
+		if( retryAfter > 0 ) {
+			return retryAfter;
+		} // if
+		Date reset = "POST".equals( request.method() )
+				? quota.getPostCreditResetDate()
+				: quota.getUserCreditResetDate();
+		long wait = reset == null ? -1 : reset.getTime() - System.currentTimeMillis();
+		return wait > 0 ? wait : -1;
+	}
+
+	/**
+	 * Reads Retry-After, in seconds or as an HTTP date
+	 * @return milliseconds, or 0 if there isn't one
+	 */
+	private static long retryAfter( Response response ) {
+		String value = response.header( "Retry-After" );
+		if( value == null ) {
+			return 0;
+		} // if
+		value = value.trim();
+		try {
+			return Math.max( 0, Long.parseLong( value ) * 1000L );
+		} catch( NumberFormatException e ) {
+			// not seconds; try a date
+		} // try-catch
+		try {
+			long at = ZonedDateTime.parse( value, DateTimeFormatter.RFC_1123_DATE_TIME ).toInstant().toEpochMilli();
+			return Math.max( 0, at - System.currentTimeMillis() );
+		} catch( DateTimeParseException e ) {
+			log.warning( "Unparseable Retry-After header: " + value );
+			return 0;
+		} // try-catch
+	}
+
+	private static void pause( long ms, String endpoint ) throws InterruptedIOException {
+		try {
+			Thread.sleep( ms );
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException( "Interrupted waiting to retry " + endpoint );
+		} // try-catch
+	}
+
+	private static Response circuitOpen( Request request, String endpoint, long openFor ) {
+		String msg = "Circuit open for " + endpoint + " after repeated failures; retry in " + openFor + "ms";
+		String json = "{\"data\":{\"error\":\"" + msg + "\"},\"success\":false,\"status\":503}";
+		return new Response.Builder()
+				.request( request )
+				.protocol( Protocol.HTTP_1_1 )
+				.code( 503 )
+				.message( msg )
+				.header( "Retry-After", Long.toString( ( openFor + 999 ) / 1000 ) )
+				.body( ResponseBody.create( JSON, json ) )
+				.build();
+	}
+
+	protected RetryPolicy( int maxRetries, long baseDelayMs, long maxDelayMs, long maxWaitMs,
+			int failureThreshold, long openMs ) {
+		this.maxRetries = maxRetries;
+		this.baseDelayMs = baseDelayMs;
+		this.maxDelayMs = maxDelayMs;
+		this.maxWaitMs = maxWaitMs;
+		this.failureThreshold = failureThreshold;
+		this.openMs = openMs;
+	} // constructor
+
+	private static final Logger log = Logger.getLogger( BaringoClient.LOG_NAME );
+	private static final MediaType JSON = MediaType.parse( "application/json" );
+	private static final long TRIAL = -1; // from admit(): go ahead, as the trial
+
+	private final int  maxRetries;
+	private final long baseDelayMs;
+	private final long maxDelayMs;
+	private final long maxWaitMs;
+	private final int  failureThreshold;
+	private final long openMs;
+	private final ConcurrentHashMap<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+}
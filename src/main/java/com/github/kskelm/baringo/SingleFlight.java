@@ -0,0 +1,268 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.github.kskelm.baringo.util.BaringoApiException;
+
+/**
+ * Collapses identical GETs that are in flight at the same time
+ * into one network call.  When a popular item trends, a busy
+ * service can have dozens of threads asking for the same album
+ * or image at once; the first one makes the call and the rest
+ * wait for and share its result, costing one round trip and one
+ * credit instead of dozens.
+ * <p>
+ * Only requests that overlap in time are collapsed.  Once the call
+ * returns, the next request for the same thing goes to the network
+ * again.  Note that every caller that shared a call gets the
+ * <i>same</i> deserialized object, so treat it as read-only or copy
+ * it before changing it.
+ * <p>
+ * Requests are keyed on HTTP method and path, e.g. "GET /3/album/abc".
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class SingleFlight {
+
+	/**
+	 * Returns how many requests went through the single-flight layer
+	 * @return request count
+	 */
+	public long getRequestCount() {
+		return requests.get();
+	}
+
+	/**
+	 * Returns how many requests piggybacked on another identical
+	 * request instead of making their own network call
+	 * @return coalesced request count
+	 */
+	public long getCoalescedCount() {
+		return coalesced.get();
+	}
+
+	/**
+	 * Returns how many distinct requests are in flight right now
+	 * @return in-flight count
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	/**
+	 * Returns whether identical requests are being coalesced
+	 * @return true if enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	// ================================================
+
+	/**
+	 * A blocking call that produces the shared result
+	 */
+	protected interface Loader<T> {
+		T load() throws BaringoApiException;
+	}
+
+	/**
+	 * Runs the loader unless an identical request is already in
+	 * flight, in which case waits for that one's result.
+	 */
+	protected <T> T execute( String key, Loader<T> loader ) throws BaringoApiException {
+		if( !enabled ) {
+			return loader.load();
+		} // if
+		requests.incrementAndGet();
+		Flight flight = new Flight( key );
+		while( true ) {
+			Flight theirs = inFlight.putIfAbsent( key, flight );
+			if( theirs == null ) {
+				break;
+			} // if
+			CompletableFuture<T> shared = theirs.join();
+			if( shared != null ) {
+				coalesced.incrementAndGet();
+				return await( shared );
+			} // if
+			inFlight.remove( key, theirs );
+		} // while
+
+		T value = null;
+		Throwable failure = new BaringoApiException( "Shared request failed" );
+		try {
+			value = loader.load();
+			failure = null;
+			return value;
+		} catch (BaringoApiException | RuntimeException e) {
+			failure = e;
+			throw e;
+		} finally {
+			// even an Error mustn't leave the waiters hanging
+			flight.finish( value, failure );
+		} // try-catch
+	}
+
+	/**
+	 * Asynchronous flavor of {@link #execute}.  Every caller gets
+	 * its own dependent future, so one caller cancelling doesn't
+	 * take the shared result away from the others; once every
+	 * caller has cancelled, the shared call is cancelled too.
+	 */
+	protected <T> CompletableFuture<T> executeAsync( String key, Supplier<CompletableFuture<T>> loader ) {
+		if( !enabled ) {
+			return loader.get();
+		} // if
+		requests.incrementAndGet();
+		Flight flight = new Flight( key );
+		CompletableFuture<T> mine = flight.join();
+		while( true ) {
+			Flight theirs = inFlight.putIfAbsent( key, flight );
+			if( theirs == null ) {
+				break;
+			} // if
+			CompletableFuture<T> shared = theirs.join();
+			if( shared != null ) {
+				coalesced.incrementAndGet();
+				return shared;
+			} // if
+			inFlight.remove( key, theirs ); // everyone gave up on it; start over
+		} // while
+
+		CompletableFuture<T> call;
+		try {
+			call = loader.get();
+		} catch( RuntimeException e ) {
+			// enqueue() can throw, e.g. once the dispatcher is shut down
+			flight.finish( null, e );
+			return mine;
+		} // try-catch
+		flight.started( call );
+		call.whenComplete( ( value, err ) -> flight.finish( value, err ) );
+		return mine;
+	}
+
+	/**
+	 * One shared call and the callers waiting on it
+	 */
+	private class Flight {
+		Flight( String key ) {
+			this.key = key;
+		}
+
+		/**
+		 * Adds a caller; returns null if every earlier caller has
+		 * already cancelled and the call is being abandoned
+		 */
+		@SuppressWarnings("unchecked")
+		synchronized <T> CompletableFuture<T> join() {
+			if( abandoned ) {
+				return null;
+			} // if
+			waiters++;
+			CompletableFuture<T> waiter = new CompletableFuture<T>() {
+				@Override
+				public boolean cancel( boolean mayInterruptIfRunning ) {
+					boolean cancelled = super.cancel( mayInterruptIfRunning );
+					if( cancelled ) {
+						leave();
+					} // if
+					return cancelled;
+				}
+			};
+			result.whenComplete( ( value, err ) -> {
+				if( err != null ) {
+					waiter.completeExceptionally( err );
+				} else {
+					waiter.complete( (T)value );
+				} // if-else
+			} );
+			return waiter;
+		}
+
+		void started( CompletableFuture<?> call ) {
+			CompletableFuture<?> cancel = null;
+			synchronized( this ) {
+				this.call = call;
+				if( abandoned ) {
+					cancel = call;
+				} // if
+			} // synchronized
+			if( cancel != null ) {
+				cancel.cancel( true );
+			} // if
+		}
+
+		void finish( Object value, Throwable err ) {
+			inFlight.remove( key, this );
+			if( err != null ) {
+				result.completeExceptionally( unwrap( err ) );
+			} else {
+				result.complete( value );
+			} // if-else
+		}
+
+		private void leave() {
+			CompletableFuture<?> cancel;
+			synchronized( this ) {
+				if( --waiters > 0 || result.isDone() ) {
+					return;
+				} // if
+				abandoned = true;
+				cancel = call;
+			} // synchronized
+			inFlight.remove( key, this );
+			if( cancel != null ) {
+				cancel.cancel( true ); // the last one out cancels the HTTP call
+			} // if
+		}
+
+		private final String key;
+		private final CompletableFuture<Object> result = new CompletableFuture<>();
+		private CompletableFuture<?> call = null;
+		private int waiters = 0;
+		private boolean abandoned = false;
+	}
+
+	private static <T> T await( CompletableFuture<T> future ) throws BaringoApiException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BaringoApiException( "Interrupted waiting for a shared request" );
+		} catch (ExecutionException e) {
+			Throwable cause = unwrap( e.getCause() );
+			if( cause instanceof BaringoApiException ) {
+				throw (BaringoApiException)cause;
+			} // if
+			if( cause instanceof RuntimeException ) {
+				throw (RuntimeException)cause;
+			} // if
+			throw new BaringoApiException( String.valueOf( cause ) );
+		} // try-catch
+	}
+
+	private static Throwable unwrap( Throwable t ) {
+		while( t instanceof CompletionException && t.getCause() != null ) {
+			t = t.getCause();
+		} // while
+		return t;
+	}
+
+	protected SingleFlight( boolean enabled ) {
+		this.enabled = enabled;
+	} // constructor
+
+	private final boolean enabled;
+	private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+
+}
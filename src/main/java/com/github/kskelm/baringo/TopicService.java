@@ -7,7 +7,6 @@ import java.util.List;
 import com.github.kskelm.baringo.model.ImgurResponseWrapper;
 import com.github.kskelm.baringo.model.Topic;
 import com.github.kskelm.baringo.model.gallery.GalleryItem;
-import com.github.kskelm.baringo.model.gallery.GalleryItemProxy;
 import com.github.kskelm.baringo.util.BaringoApiException;
 import com.google.gson.GsonBuilder;
 
@@ -43,19 +42,7 @@ public class TopicService {
 			ImgurResponseWrapper<List<Topic>> out = res.body();
 
 			client.throwOnWrapperError( res );
-			List<Topic> list = out.getData();
-			
-			// convert all their #)(*$)#% proxy items into real items
-			// TODO: REFACTOR THIS
-			for( Topic topic : list ) {
-				GalleryItemProxy proxy = topic.getItemProxy();
-				if( proxy == null ) {
-					continue;
-				} // if
-				topic.setConvertedItem( client.galleryService()
-						.convertProxyItem( proxy ) );
-			} // for
-			return list;
+			return out.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} // try-catch
@@ -81,7 +68,7 @@ public class TopicService {
 		String sortStr = sort.name().toLowerCase();
 		String windowStr = window.name().toLowerCase();
 
-		Call<ImgurResponseWrapper<List<GalleryItemProxy>>> call =
+		Call<ImgurResponseWrapper<List<GalleryItem>>> call =
 				client.getApi().listTopicItems(
 						topicId,
 						sortStr,
@@ -89,18 +76,35 @@ public class TopicService {
 						page );
 
 		try {
-			Response<ImgurResponseWrapper<List<GalleryItemProxy>>> res = call.execute();
-			ImgurResponseWrapper<List<GalleryItemProxy>> list = res.body();
+			Response<ImgurResponseWrapper<List<GalleryItem>>> res = call.execute();
+			ImgurResponseWrapper<List<GalleryItem>> list = res.body();
 
 			client.throwOnWrapperError( res );
 
-			// TODO: Look into refactoring this
-			return client.galleryService().convertToGalleryItems( list.getData() );
+			return list.getData();
 		} catch (IOException e) {
 			throw new BaringoApiException( e.getMessage() );
 		} // try-catch
 		
 	}
+
+	/**
+	 * Walks every page of {@link #listTopic(int, GalleryItem.Sort, GalleryItem.Window, int)},
+	 * prefetching the next page while the current one is consumed.
+	 * <p>
+	 * <b>ACCESS: ANONYMOUS</b>
+	 * @param topicId the id or URL-formatted name of the topic
+	 * @param sort the sort direction - Viral | Time | Top
+	 * @param window the windowing mechanism if Top
+	 * @return every GalleryItem in the topic
+	 */
+	public Paged<GalleryItem> iterateTopic(
+			int topicId,
+			GalleryItem.Sort sort,
+			GalleryItem.Window window ) {
+		return new Paged<>( 0,
+				page -> client.async().topicService().listTopic( topicId, sort, window, page ) );
+	} // iterateTopic
 	
 	// ================================================
 	protected TopicService( BaringoClient imgurClient, GsonBuilder gsonBuilder ) {
@@ -0,0 +1,339 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import com.github.kskelm.baringo.util.ApiRoutes;
+import com.squareup.okhttp.Headers;
+import com.squareup.okhttp.HttpUrl;
+
+/**
+ * The API calls a TrafficRecorder captured, in the order they went
+ * out: each one's request line and headers, the response's status,
+ * headers and body, when it started and how long it took.  Feed it
+ * to a ReplayTransport to play the traffic back with no network.
+ * <p>
+ * On disk it's a gzipped stream of records, so an hour of gallery
+ * crawling is a few megabytes.  Request bodies aren't kept, only
+ * their size; uploads are answered by path, not content.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class TrafficArchive {
+
+	/**
+	 * One request and the response it got
+	 */
+	public static class Exchange {
+
+		/**
+		 * Returns when the call started, counted from when recording did
+		 * @param unit units to return it in
+		 * @return start offset
+		 */
+		public long getStart( TimeUnit unit ) {
+			return unit.convert( startMicros, TimeUnit.MICROSECONDS );
+		}
+
+		/**
+		 * Returns how long the call took, from sending the request to
+		 * having read the whole response body
+		 * @param unit units to return it in
+		 * @return latency
+		 */
+		public long getLatency( TimeUnit unit ) {
+			return unit.convert( latencyMicros, TimeUnit.MICROSECONDS );
+		}
+
+		/**
+		 * Returns the HTTP method
+		 * @return GET, POST, etc.
+		 */
+		public String getMethod() {
+			return method;
+		}
+
+		/**
+		 * Returns the URL that was called
+		 * @return the URL
+		 */
+		public String getUrl() {
+			return url;
+		}
+
+		/**
+		 * Returns the RetrofittedImgur method that made the call,
+		 * e.g. "getAlbum"
+		 * @return endpoint name
+		 */
+		public String getEndpoint() {
+			HttpUrl parsed = HttpUrl.parse( url );
+			return parsed == null
+					? ApiRoutes.endpointFor( method, url )
+					: ApiRoutes.endpointFor( method, parsed.encodedPath(), parsed.encodedQuery() );
+		}
+
+		/**
+		 * Returns the request headers, with any Authorization value
+		 * blanked out
+		 * @return request headers
+		 */
+		public Headers getRequestHeaders() {
+			return requestHeaders;
+		}
+
+		/**
+		 * Returns the size of the request body
+		 * @return bytes, or -1 if there was no body or its size wasn't known
+		 */
+		public long getRequestBodyLength() {
+			return requestBodyLength;
+		}
+
+		/**
+		 * Returns the HTTP status of the response
+		 * @return status code
+		 */
+		public int getStatus() {
+			return status;
+		}
+
+		/**
+		 * Returns the HTTP status message of the response
+		 * @return status message
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		/**
+		 * Returns the response headers
+		 * @return response headers
+		 */
+		public Headers getResponseHeaders() {
+			return responseHeaders;
+		}
+
+		/**
+		 * Returns the response's content type
+		 * @return e.g. "application/json", or null if it didn't say
+		 */
+		public String getContentType() {
+			return contentType;
+		}
+
+		/**
+		 * Returns the response body
+		 * @return the body bytes; don't change them
+		 */
+		public byte[] getBody() {
+			return body;
+		}
+
+		@Override
+		public String toString() {
+			return String.format( "+%dms %s %s -> %d (%d bytes, %dms)",
+					startMicros / 1000, method, url, status, body.length, latencyMicros / 1000 );
+		}
+
+		protected Exchange( long startMicros, long latencyMicros, String method, String url,
+				Headers requestHeaders, long requestBodyLength, int status, String message,
+				Headers responseHeaders, String contentType, byte[] body ) {
+			this.startMicros = startMicros;
+			this.latencyMicros = latencyMicros;
+			this.method = method;
+			this.url = url;
+			this.requestHeaders = requestHeaders;
+			this.requestBodyLength = requestBodyLength;
+			this.status = status;
+			this.message = message;
+			this.responseHeaders = responseHeaders;
+			this.contentType = contentType;
+			this.body = body;
+		}
+
+		private final long startMicros;
+		private final long latencyMicros;
+		private final String method;
+		private final String url;
+		private final Headers requestHeaders;
+		private final long requestBodyLength;
+		private final int status;
+		private final String message;
+		private final Headers responseHeaders;
+		private final String contentType;
+		private final byte[] body;
+	}
+
+	/**
+	 * Reads an archive a TrafficRecorder wrote.  An archive whose
+	 * recorder never got closed is read up to where it was cut off.
+	 * @param file the archive
+	 * @return the archive
+	 * @throws IOException if it can't be read or isn't an archive
+	 */
+	public static TrafficArchive read( Path file ) throws IOException {
+		try( InputStream in = Files.newInputStream( file ) ) {
+			return read( in );
+		} // try
+	}
+
+	/**
+	 * Reads an archive a TrafficRecorder wrote
+	 * @param in the archive's bytes; not closed
+	 * @return the archive
+	 * @throws IOException if it can't be read or isn't an archive
+	 */
+	public static TrafficArchive read( InputStream in ) throws IOException {
+		DataInputStream data = new DataInputStream(
+				new BufferedInputStream( new GZIPInputStream( in, BUFFER_SIZE ), BUFFER_SIZE ) );
+		if( data.readInt() != MAGIC ) {
+			throw new IOException( "Not a Baringo traffic archive" );
+		} // if
+		int version = data.readUnsignedShort();
+		if( version != VERSION ) {
+			throw new IOException( "Unsupported traffic archive version " + version );
+		} // if
+
+		List<Exchange> exchanges = new ArrayList<>();
+		try {
+			while( data.readBoolean() ) {
+				exchanges.add( readExchange( data ) );
+			} // while
+		} catch( EOFException e ) {
+			// the recorder wasn't closed; keep what made it to disk
+		} // try-catch
+		return new TrafficArchive( exchanges );
+	}
+
+	/**
+	 * Returns every exchange, in the order the calls started
+	 * @return the exchanges
+	 */
+	public List<Exchange> getExchanges() {
+		return exchanges;
+	}
+
+	/**
+	 * Returns how many exchanges there are
+	 * @return exchange count
+	 */
+	public int size() {
+		return exchanges.size();
+	}
+
+	/**
+	 * Returns how long the recording ran, from the start of recording
+	 * to the end of the last call to finish
+	 * @param unit units to return it in
+	 * @return duration
+	 */
+	public long getDuration( TimeUnit unit ) {
+		long end = 0;
+		for( Exchange e : exchanges ) {
+			end = Math.max( end, e.startMicros + e.latencyMicros );
+		} // for
+		return unit.convert( end, TimeUnit.MICROSECONDS );
+	}
+
+	/**
+	 * Returns how many calls were made to each endpoint
+	 * @return RetrofittedImgur method name to count, sorted by name
+	 */
+	public Map<String, Integer> getEndpointCounts() {
+		TreeMap<String, Integer> counts = new TreeMap<>();
+		for( Exchange e : exchanges ) {
+			counts.merge( e.getEndpoint(), 1, Integer::sum );
+		} // for
+		return Collections.unmodifiableMap( counts );
+	}
+
+	// ================================================
+
+	protected TrafficArchive( List<Exchange> exchanges ) {
+		List<Exchange> sorted = new ArrayList<>( exchanges );
+		// recorded as they finished; stable, so calls that started together keep their order
+		Collections.sort( sorted, ( a, b ) -> Long.compare( a.startMicros, b.startMicros ) );
+		this.exchanges = Collections.unmodifiableList( sorted );
+	}
+
+	static void writeHeader( DataOutputStream out ) throws IOException {
+		out.writeInt( MAGIC );
+		out.writeShort( VERSION );
+	}
+
+	static void writeExchange( DataOutputStream out, Exchange e ) throws IOException {
+		out.writeBoolean( true );
+		out.writeLong( e.startMicros );
+		out.writeLong( e.latencyMicros );
+		out.writeUTF( e.method );
+		out.writeUTF( e.url );
+		writeHeaders( out, e.requestHeaders );
+		out.writeLong( e.requestBodyLength );
+		out.writeShort( e.status );
+		out.writeUTF( e.message );
+		writeHeaders( out, e.responseHeaders );
+		out.writeUTF( e.contentType == null ? "" : e.contentType );
+		out.writeInt( e.body.length );
+		out.write( e.body );
+	}
+
+	static void writeTrailer( DataOutputStream out ) throws IOException {
+		out.writeBoolean( false );
+	}
+
+	private static Exchange readExchange( DataInputStream in ) throws IOException {
+		long start = in.readLong();
+		long latency = in.readLong();
+		String method = in.readUTF();
+		String url = in.readUTF();
+		Headers requestHeaders = readHeaders( in );
+		long requestBodyLength = in.readLong();
+		int status = in.readUnsignedShort();
+		String message = in.readUTF();
+		Headers responseHeaders = readHeaders( in );
+		String contentType = in.readUTF();
+		byte[] body = new byte[in.readInt()];
+		in.readFully( body );
+		return new Exchange( start, latency, method, url, requestHeaders, requestBodyLength,
+				status, message, responseHeaders, contentType.isEmpty() ? null : contentType, body );
+	}
+
+	private static void writeHeaders( DataOutputStream out, Headers headers ) throws IOException {
+		out.writeShort( headers.size() );
+		for( int i = 0; i < headers.size(); i++ ) {
+			out.writeUTF( headers.name( i ) );
+			out.writeUTF( headers.value( i ) );
+		} // for
+	}
+
+	private static Headers readHeaders( DataInputStream in ) throws IOException {
+		int count = in.readUnsignedShort();
+		Headers.Builder headers = new Headers.Builder();
+		for( int i = 0; i < count; i++ ) {
+			headers.add( in.readUTF(), in.readUTF() );
+		} // for
+		return headers.build();
+	}
+
+	static final int BUFFER_SIZE = 64 * 1024;
+	private static final int MAGIC = 0x42524152; // "BRAR"
+	private static final int VERSION = 1;
+
+	private final List<Exchange> exchanges;
+
+}
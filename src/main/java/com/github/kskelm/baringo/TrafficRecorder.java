@@ -0,0 +1,182 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import com.squareup.okhttp.Headers;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+/**
+ * Writes every API call a client makes into a TrafficArchive, so it
+ * can be played back later with a ReplayTransport.  Point a client
+ * at the real API for an hour, then replay that hour offline as
+ * often as you like:
+ * <pre>
+ * TrafficRecorder recorder = TrafficRecorder.open( Paths.get( "crawl.bar" ) );
+ * BaringoClient client = new BaringoClient.Builder()
+ *         .clientAuth( id, secret )
+ *         .record( recorder )
+ *         .build();
+ * ...
+ * recorder.close();
+ * </pre>
+ * Each call is recorded once, as it went over the wire, so a retry
+ * shows up as a second call.  Responses are read into memory whole
+ * before they're handed on, which is fine for API calls but is why
+ * image downloads aren't recorded.  Authorization headers are
+ * blanked out; response bodies aren't, so treat an archive of
+ * authenticated calls like the account data it holds.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class TrafficRecorder implements Closeable {
+
+	/**
+	 * Starts a new archive, replacing whatever's in the file
+	 * @param file where to write it
+	 * @return the recorder
+	 * @throws IOException if the file can't be written
+	 */
+	public static TrafficRecorder open( Path file ) throws IOException {
+		return new TrafficRecorder( file );
+	}
+
+	/**
+	 * Returns where the archive is being written
+	 * @return the file
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns how many calls have been recorded
+	 * @return call count
+	 */
+	public long getRecorded() {
+		return recorded.get();
+	}
+
+	/**
+	 * Returns how many calls couldn't be written to the archive
+	 * @return call count
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Pushes what's been recorded so far out to the file, so it can
+	 * be read while recording goes on
+	 * @throws IOException if the file can't be written
+	 */
+	public synchronized void flush() throws IOException {
+		if( !closed ) {
+			out.flush();
+		} // if
+	}
+
+	/**
+	 * Finishes the archive.  Calls made after this aren't recorded.
+	 * @throws IOException if the file can't be written
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if( closed ) {
+			return;
+		} // if
+		closed = true;
+		TrafficArchive.writeTrailer( out );
+		out.close();
+	}
+
+	// ================================================
+
+	protected TrafficRecorder( Path file ) throws IOException {
+		this.file = file;
+		this.out = new DataOutputStream( new BufferedOutputStream(
+				new GZIPOutputStream( Files.newOutputStream( file ), TrafficArchive.BUFFER_SIZE, true ),
+				TrafficArchive.BUFFER_SIZE ) );
+		TrafficArchive.writeHeader( out );
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Hooks the recorder into the API client.  Goes after
+	 * ImgurInterceptor and the retry policy, so each attempt is
+	 * recorded as the API answered it.
+	 */
+	protected void install( OkHttpClient client ) {
+		client.interceptors().add( new RecordingInterceptor() );
+	}
+
+	private synchronized void write( TrafficArchive.Exchange exchange ) {
+		if( closed ) {
+			return;
+		} // if
+		try {
+			TrafficArchive.writeExchange( out, exchange );
+			recorded.incrementAndGet();
+		} catch( IOException e ) {
+			dropped.incrementAndGet();
+			log.log( Level.WARNING, "Couldn't record a call to " + file, e );
+		} // try-catch
+	}
+
+	private class RecordingInterceptor implements Interceptor {
+		@Override
+		public Response intercept( Chain chain ) throws IOException {
+			Request request = chain.request();
+			long start = System.nanoTime();
+			Response response = chain.proceed( request );
+			if( closed || response.body() == null ) {
+				return response;
+			} // if
+			ResponseBody body = response.body();
+			byte[] bytes = body.bytes();
+			long latency = System.nanoTime() - start;
+
+			Headers.Builder headers = request.headers().newBuilder();
+			if( headers.get( "Authorization" ) != null ) {
+				headers.set( "Authorization", "" );
+			} // if
+			long requestBodyLength = request.body() == null ? -1 : request.body().contentLength();
+			write( new TrafficArchive.Exchange(
+					TimeUnit.NANOSECONDS.toMicros( start - startNanos ),
+					TimeUnit.NANOSECONDS.toMicros( latency ),
+					request.method(), request.urlString(), headers.build(), requestBodyLength,
+					response.code(), response.message() == null ? "" : response.message(),
+					response.headers(),
+					body.contentType() == null ? null : body.contentType().toString(),
+					bytes ) );
+
+			return response.newBuilder()
+					.body( ResponseBody.create( body.contentType(), bytes ) )
+					.build();
+		}
+	}
+
+	private static final Logger log = Logger.getLogger( BaringoClient.LOG_NAME );
+
+	private final Path file;
+	private final DataOutputStream out;
+	private final long startNanos;
+	private final AtomicLong recorded = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile boolean closed = false;
+
+}
@@ -0,0 +1,197 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.RequestBody;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * The image part of an upload, written straight from wherever the
+ * image is (a stream, a buffer, a file) into the outgoing request,
+ * so nothing has to be spooled to a temp file or copied into one
+ * big array first.  Tells a {@link ProgressListener} how it's going
+ * if there is one.
+ * <p>
+ * Stream bodies can only be sent once.  Buffer and file bodies can
+ * be sent again, and leave the caller's buffer position alone.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public abstract class UploadBody extends RequestBody {
+
+	/**
+	 * Creates a body that reads an InputStream.  If the length isn't
+	 * known the request goes out chunked.
+	 * @param type mime type
+	 * @param in the stream; not closed
+	 * @param length bytes in the stream, or -1 if unknown
+	 * @param listener told about progress, or null
+	 * @return the body
+	 */
+	protected static UploadBody of( MediaType type, InputStream in, long length, ProgressListener listener ) {
+		return new UploadBody( type, length, listener ) {
+			@Override
+			protected Source open() throws IOException {
+				if( opened ) {
+					// OkHttp retries a body that failed partway; a stream can't rewind
+					throw new IOException( "InputStream upload failed and can't be resent" );
+				} // if
+				opened = true;
+				return Okio.source( in );
+			}
+
+			@Override
+			protected boolean closeWhenDone() {
+				return false; // the caller's stream
+			}
+
+			private boolean opened = false;
+		};
+	} // of
+
+	/**
+	 * Creates a body that sends what's between the buffer's position
+	 * and limit.  Heap buffers are read straight out of their backing
+	 * array; direct ones go through a small reusable chunk.
+	 * @param type mime type
+	 * @param data the image
+	 * @param listener told about progress, or null
+	 * @return the body
+	 */
+	protected static UploadBody of( MediaType type, ByteBuffer data, ProgressListener listener ) {
+		final ByteBuffer snapshot = data.duplicate();
+		return new UploadBody( type, snapshot.remaining(), listener ) {
+			@Override
+			protected Source open() {
+				return new ByteBufferSource( snapshot.duplicate() );
+			}
+		};
+	} // of
+
+	/**
+	 * Creates a body that reads a file
+	 * @param type mime type
+	 * @param path the file
+	 * @param listener told about progress, or null
+	 * @return the body
+	 * @throws IOException the file's size couldn't be read
+	 */
+	protected static UploadBody of( MediaType type, Path path, ProgressListener listener ) throws IOException {
+		return new UploadBody( type, Files.size( path ), listener ) {
+			@Override
+			protected Source open() throws IOException {
+				return Okio.source( path );
+			}
+		};
+	} // of
+
+	@Override
+	public MediaType contentType() {
+		return type;
+	}
+
+	@Override
+	public long contentLength() {
+		return length;
+	}
+
+	@Override
+	public void writeTo( BufferedSink sink ) throws IOException {
+		Source source = open();
+		try {
+			long done = 0;
+			long count;
+			while( (count = source.read( sink.buffer(), CHUNK_SIZE )) != -1 ) {
+				done += count;
+				sink.emitCompleteSegments();
+				if( listener != null ) {
+					listener.onProgress( done, length );
+				} // if
+			} // while
+			if( length >= 0 && done != length ) {
+				throw new IOException( "Upload expected " + length + " bytes but got " + done );
+			} // if
+		} finally {
+			if( closeWhenDone() ) {
+				source.close();
+			} // if
+		} // try-finally
+	}
+
+	// ================================================
+
+	/**
+	 * Returns a source for the image's bytes
+	 */
+	protected abstract Source open() throws IOException;
+
+	protected boolean closeWhenDone() {
+		return true;
+	}
+
+	/**
+	 * Feeds a ByteBuffer to Okio without copying the whole thing
+	 * into a byte[] first
+	 */
+	private static class ByteBufferSource implements Source {
+		ByteBufferSource( ByteBuffer data ) {
+			this.data = data;
+		}
+
+		@Override
+		public long read( Buffer sink, long byteCount ) {
+			if( !data.hasRemaining() ) {
+				return -1;
+			} // if
+			int count = (int)Math.min( byteCount, data.remaining() );
+			if( data.hasArray() ) {
+				sink.write( data.array(), data.arrayOffset() + data.position(), count );
+				data.position( data.position() + count );
+			} else {
+				if( chunk == null ) {
+					chunk = new byte[CHUNK_SIZE];
+				} // if
+				count = Math.min( count, chunk.length );
+				data.get( chunk, 0, count );
+				sink.write( chunk, 0, count );
+			} // if-else
+			return count;
+		}
+
+		@Override
+		public Timeout timeout() {
+			return Timeout.NONE;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		private final ByteBuffer data;
+		private byte[] chunk = null;
+	}
+
+	protected UploadBody( MediaType type, long length, ProgressListener listener ) {
+		this.type = type;
+		this.length = length;
+		this.listener = listener;
+	} // constructor
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private final MediaType type;
+	private final long length;
+	private final ProgressListener listener;
+
+}
@@ -0,0 +1,495 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Logger;
+
+import com.github.kskelm.baringo.model.Image;
+
+/**
+ * Remembers what's already been uploaded, by SHA-256 of the image
+ * bytes, so uploading the same bytes again can hand back the
+ * existing image instead of sending it to Imgur a second time.
+ * Turn it on with {@link BaringoClient.Builder#uploadIndex(UploadIndex)}.
+ * <p>
+ * What comes back on a hit is only what the index holds: the
+ * image's id, delete hash and link.  Title, size and the rest
+ * need a {@link ImageService#getImageInfo(String)}.  Uploads from
+ * an InputStream are recorded but never looked up, since their
+ * bytes aren't known until they've been sent; a later file or
+ * buffer upload of the same bytes will find them.
+ * <p>
+ * The index is one file, memory-mapped: a header and then an
+ * open-addressed hash table of fixed 96-byte slots holding the
+ * digest and the image's id, delete hash and link.  Lookups touch
+ * a slot or two and never read the whole file, so it stays cheap
+ * at millions of entries; the table doubles when it gets 3/4 full.
+ * The largest table is {@value #MAX_CAPACITY} slots.
+ * <p>
+ * Digests include who's uploading (the logged-in user, or nobody),
+ * so one user's upload is never handed back to another.  If an
+ * image is deleted some other way than
+ * {@link ImageService#deleteImage(String)}, its entry goes stale;
+ * {@link #removeImage(String)} drops it.
+ * <p>
+ * Only one process should have a given index file open at a time.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class UploadIndex implements Closeable {
+
+	public static final int MAX_CAPACITY = 1 << 24;
+
+	/**
+	 * Opens an index file, creating it if it isn't there
+	 * @param file where the index lives
+	 * @return the index
+	 * @throws IOException couldn't read or create it, or it isn't an index file
+	 */
+	public static UploadIndex open( Path file ) throws IOException {
+		return new UploadIndex( file );
+	} // open
+
+	/**
+	 * Looks up an upload
+	 * @param digest from {@link #digest(String, ByteBuffer)} or one of its friends
+	 * @return an Image with just its id, delete hash and link filled in, or null if it's not in the index
+	 */
+	public synchronized Image get( byte[] digest ) {
+		checkOpen();
+		lookups++;
+		int slot = find( map, capacity, digest );
+		if( slot < 0 ) {
+			return null;
+		} // if
+		hits++;
+		String[] fields = readPayload( slot );
+		return new Image( fields[0], fields[1], fields[2] );
+	} // get
+
+	/**
+	 * Remembers an upload.  Images whose id, delete hash and link
+	 * won't fit in a slot (about 60 characters between them) aren't
+	 * indexed.
+	 * @param digest the image bytes' digest
+	 * @param image what Imgur returned for them
+	 * @return true if it was stored
+	 * @throws IOException the table needed to grow and couldn't
+	 */
+	public synchronized boolean put( byte[] digest, Image image ) throws IOException {
+		checkOpen();
+		byte[] payload = encodePayload( image );
+		if( payload == null ) {
+			return false;
+		} // if
+		int existing = find( map, capacity, digest );
+		if( existing >= 0 ) {
+			writeSlot( map, existing, digest, payload );
+			return true;
+		} // if
+		if( (used + 1) > capacity - (capacity >> 2) ) {
+			// lots of tombstones: rehash at the same size to clear them
+			grow( count + 1 > capacity >> 1 ? capacity << 1 : capacity );
+		} // if
+		int slot = insertionSlot( map, capacity, digest );
+		if( state( map, slot ) == EMPTY ) {
+			used++;
+		} // if
+		writeSlot( map, slot, digest, payload );
+		count++;
+		writeCounts();
+		return true;
+	} // put
+
+	/**
+	 * Forgets every upload of an image, say because it was deleted.
+	 * This looks through the whole table, so it's slower than
+	 * get and put.
+	 * @param idOrDeleteHash the image's id or delete hash
+	 * @return how many entries were dropped
+	 */
+	public synchronized int removeImage( String idOrDeleteHash ) {
+		checkOpen();
+		int removed = 0;
+		for( int slot = 0; slot < capacity; slot++ ) {
+			int state = state( map, slot );
+			if( state == EMPTY || state == TOMBSTONE ) {
+				continue;
+			} // if
+			String[] fields = readPayload( slot );
+			if( idOrDeleteHash.equals( fields[0] ) || idOrDeleteHash.equals( fields[1] ) ) {
+				map.put( slotOffset( slot ) + DIGEST_SIZE, (byte)TOMBSTONE );
+				count--;
+				removed++;
+			} // if
+		} // for
+		if( removed > 0 ) {
+			writeCounts();
+		} // if
+		return removed;
+	} // removeImage
+
+	/**
+	 * Returns how many uploads are indexed
+	 * @return entry count
+	 */
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * Returns how many lookups found something since the index was opened
+	 * @return hit count
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns how many lookups there have been since the index was opened
+	 * @return lookup count
+	 */
+	public synchronized long getLookups() {
+		return lookups;
+	}
+
+	/**
+	 * Returns where the index lives
+	 * @return the file
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Makes sure everything written so far is on disk
+	 */
+	public synchronized void flush() {
+		if( map != null ) {
+			map.force();
+		} // if
+	}
+
+	/**
+	 * Flushes and closes the index
+	 */
+	@Override
+	public synchronized void close() {
+		flush();
+		map = null;
+	}
+
+	@Override
+	public String toString() {
+		return String.format( "UploadIndex[file=%s, size=%d, capacity=%d, hits=%d/%d]",
+				file, count, capacity, hits, lookups );
+	}
+
+	// ================================================
+	// digests
+
+	/**
+	 * Digests an image in memory, between its position and limit,
+	 * without moving the position
+	 * @param owner who's uploading, or null for anonymous
+	 * @param data the image
+	 * @return the digest
+	 */
+	public static byte[] digest( String owner, ByteBuffer data ) {
+		MessageDigest md = newDigest( owner );
+		md.update( data.duplicate() );
+		return md.digest();
+	} // digest
+
+	/**
+	 * Digests a file
+	 * @param owner who's uploading, or null for anonymous
+	 * @param path the image file
+	 * @return the digest
+	 * @throws IOException couldn't read the file
+	 */
+	public static byte[] digest( String owner, Path path ) throws IOException {
+		MessageDigest md = newDigest( owner );
+		ByteBuffer buf = ByteBuffer.allocate( READ_BUFFER_SIZE );
+		try( FileChannel ch = FileChannel.open( path, StandardOpenOption.READ ) ) {
+			while( ch.read( buf ) != -1 ) {
+				buf.flip();
+				md.update( buf );
+				buf.clear();
+			} // while
+		} // try
+		return md.digest();
+	} // digest
+
+	/**
+	 * Wraps a stream so it's digested as it's read.  Once the stream
+	 * has been read to the end, the digest is
+	 * getMessageDigest().digest().
+	 * @param owner who's uploading, or null for anonymous
+	 * @param in the image stream
+	 * @return the digesting stream
+	 */
+	public static DigestInputStream digesting( String owner, InputStream in ) {
+		return new DigestInputStream( in, newDigest( owner ) );
+	} // digesting
+
+	private static MessageDigest newDigest( String owner ) {
+		try {
+			MessageDigest md = MessageDigest.getInstance( "SHA-256" );
+			if( owner != null ) {
+				md.update( owner.getBytes( StandardCharsets.UTF_8 ) );
+			} // if
+			md.update( (byte)0 );
+			return md;
+		} catch( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException( "SHA-256 should always be available", e );
+		} // try-catch
+	}
+
+	// ================================================
+	// table
+	//
+	// header:  magic, version, capacity, count, used (live + tombstones)
+	// slot:    32 digest bytes, 1 state byte, 63 payload bytes
+	// state:   0 = empty, 0xFF = deleted, else payload length
+	// payload: id \n deleteHash \n link, UTF-8
+
+	private static final int MAGIC = 0x42555058; // "BUPX"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 64;
+	private static final int DIGEST_SIZE = 32;
+	private static final int SLOT_SIZE = 96;
+	private static final int MAX_PAYLOAD = SLOT_SIZE - DIGEST_SIZE - 1;
+	private static final int EMPTY = 0;
+	private static final int TOMBSTONE = 0xFF;
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	private static final int OFF_MAGIC = 0;
+	private static final int OFF_VERSION = 4;
+	private static final int OFF_CAPACITY = 8;
+	private static final int OFF_COUNT = 12;
+	private static final int OFF_USED = 16;
+
+	private static int slotOffset( int slot ) {
+		return HEADER_SIZE + slot * SLOT_SIZE;
+	}
+
+	private static int state( ByteBuffer m, int slot ) {
+		return m.get( slotOffset( slot ) + DIGEST_SIZE ) & 0xFF;
+	}
+
+	/**
+	 * SHA-256 is already well mixed; its first bytes make a fine hash
+	 */
+	private static int home( byte[] digest, int capacity ) {
+		int h = ((digest[0] & 0xFF) << 24) | ((digest[1] & 0xFF) << 16)
+				| ((digest[2] & 0xFF) << 8) | (digest[3] & 0xFF);
+		return h & (capacity - 1);
+	}
+
+	private static boolean digestAt( ByteBuffer m, int slot, byte[] digest ) {
+		int off = slotOffset( slot );
+		for( int i = 0; i < DIGEST_SIZE; i++ ) {
+			if( m.get( off + i ) != digest[i] ) {
+				return false;
+			} // if
+		} // for
+		return true;
+	}
+
+	/**
+	 * Returns the slot holding the digest, or -1
+	 */
+	private static int find( ByteBuffer m, int capacity, byte[] digest ) {
+		int slot = home( digest, capacity );
+		for( int probes = 0; probes < capacity; probes++ ) {
+			int state = state( m, slot );
+			if( state == EMPTY ) {
+				return -1;
+			} // if
+			if( state != TOMBSTONE && digestAt( m, slot, digest ) ) {
+				return slot;
+			} // if
+			slot = (slot + 1) & (capacity - 1);
+		} // for
+		return -1;
+	} // find
+
+	/**
+	 * Returns the first empty or deleted slot along the digest's
+	 * probe sequence
+	 */
+	private static int insertionSlot( ByteBuffer m, int capacity, byte[] digest ) {
+		int slot = home( digest, capacity );
+		while( true ) {
+			int state = state( m, slot );
+			if( state == EMPTY || state == TOMBSTONE ) {
+				return slot;
+			} // if
+			slot = (slot + 1) & (capacity - 1);
+		} // while
+	} // insertionSlot
+
+	/**
+	 * Writes the state byte last, so a slot torn by a crash reads
+	 * as empty rather than as garbage
+	 */
+	private static void writeSlot( ByteBuffer m, int slot, byte[] digest, byte[] payload ) {
+		int off = slotOffset( slot );
+		m.put( off + DIGEST_SIZE, (byte)EMPTY );
+		for( int i = 0; i < DIGEST_SIZE; i++ ) {
+			m.put( off + i, digest[i] );
+		} // for
+		for( int i = 0; i < payload.length; i++ ) {
+			m.put( off + DIGEST_SIZE + 1 + i, payload[i] );
+		} // for
+		m.put( off + DIGEST_SIZE, (byte)payload.length );
+	} // writeSlot
+
+	private static byte[] encodePayload( Image image ) {
+		if( image.getId() == null ) {
+			return null;
+		} // if
+		String s = image.getId() + '\n'
+				+ (image.getDeleteHash() == null ? "" : image.getDeleteHash()) + '\n'
+				+ (image.getLink() == null ? "" : image.getLink());
+		byte[] b = s.getBytes( StandardCharsets.UTF_8 );
+		return b.length == 0 || b.length > MAX_PAYLOAD ? null : b;
+	} // encodePayload
+
+	private String[] readPayload( int slot ) {
+		int off = slotOffset( slot );
+		int len = state( map, slot );
+		byte[] b = new byte[len];
+		for( int i = 0; i < len; i++ ) {
+			b[i] = map.get( off + DIGEST_SIZE + 1 + i );
+		} // for
+		String[] fields = new String( b, StandardCharsets.UTF_8 ).split( "\n", -1 );
+		for( int i = 1; i < fields.length; i++ ) {
+			if( fields[i].isEmpty() ) {
+				fields[i] = null;
+			} // if
+		} // for
+		return fields;
+	} // readPayload
+
+	private static MappedByteBuffer map( Path file, int capacity, boolean create ) throws IOException {
+		long size = (long)HEADER_SIZE + (long)capacity * SLOT_SIZE;
+		try( FileChannel ch = create
+				? FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+						StandardOpenOption.CREATE_NEW )
+				: FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE ) ) {
+			if( !create && ch.size() < size ) {
+				throw new IOException( "Upload index " + file + " is truncated" );
+			} // if
+			// the mapping outlives the channel
+			MappedByteBuffer m = ch.map( FileChannel.MapMode.READ_WRITE, 0, size );
+			if( create ) {
+				m.putInt( OFF_MAGIC, MAGIC );
+				m.putInt( OFF_VERSION, VERSION );
+				m.putInt( OFF_CAPACITY, capacity );
+			} // if
+			return m;
+		} // try
+	} // map
+
+	/**
+	 * Rehashes everything into a new table next to the old one, then
+	 * renames it over the old file
+	 */
+	private void grow( int newCapacity ) throws IOException {
+		if( newCapacity > MAX_CAPACITY ) {
+			throw new IOException( "Upload index " + file + " is full" );
+		} // if
+		Path tmp = file.resolveSibling( file.getFileName() + ".grow" );
+		Files.deleteIfExists( tmp );
+		MappedByteBuffer next = map( tmp, newCapacity, true );
+		byte[] digest = new byte[DIGEST_SIZE];
+		for( int slot = 0; slot < capacity; slot++ ) {
+			int state = state( map, slot );
+			if( state == EMPTY || state == TOMBSTONE ) {
+				continue;
+			} // if
+			int off = slotOffset( slot );
+			for( int i = 0; i < DIGEST_SIZE; i++ ) {
+				digest[i] = map.get( off + i );
+			} // for
+			int to = insertionSlot( next, newCapacity, digest );
+			for( int i = 0; i < SLOT_SIZE; i++ ) {
+				next.put( slotOffset( to ) + i, map.get( off + i ) );
+			} // for
+		} // for
+		next.putInt( OFF_COUNT, count );
+		next.putInt( OFF_USED, count );
+		next.force();
+		ImageService.moveIntoPlace( tmp, file );
+
+		map = next;
+		capacity = newCapacity;
+		used = count;
+		log.fine( "Upload index " + file + " grew to " + newCapacity + " slots" );
+	} // grow
+
+	private void writeCounts() {
+		map.putInt( OFF_COUNT, count );
+		map.putInt( OFF_USED, used );
+	}
+
+	private void checkOpen() {
+		if( map == null ) {
+			throw new IllegalStateException( "Upload index " + file + " is closed" );
+		} // if
+	}
+
+	protected UploadIndex( Path file ) throws IOException {
+		this.file = file;
+		if( !Files.exists( file ) ) {
+			map = map( file, INITIAL_CAPACITY, true );
+			capacity = INITIAL_CAPACITY;
+			return;
+		} // if
+		ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+		try( FileChannel ch = FileChannel.open( file, StandardOpenOption.READ ) ) {
+			while( header.hasRemaining() && ch.read( header ) != -1 ) {
+				// keep reading
+			} // while
+		} // try
+		if( header.hasRemaining() || header.getInt( OFF_MAGIC ) != MAGIC ) {
+			throw new IOException( file + " isn't an upload index" );
+		} // if
+		if( header.getInt( OFF_VERSION ) != VERSION ) {
+			throw new IOException( "Upload index " + file + " has unknown version " + header.getInt( OFF_VERSION ) );
+		} // if
+		capacity = header.getInt( OFF_CAPACITY );
+		if( capacity <= 0 || capacity > MAX_CAPACITY || Integer.bitCount( capacity ) != 1 ) {
+			throw new IOException( "Upload index " + file + " has a bad capacity" );
+		} // if
+		map = map( file, capacity, false );
+		count = map.getInt( OFF_COUNT );
+		used = map.getInt( OFF_USED );
+	} // constructor
+
+	private static final Logger log = Logger.getLogger( BaringoClient.LOG_NAME );
+
+	private final Path file;
+	private MappedByteBuffer map;
+	private int capacity;
+	private int count = 0;
+	private int used = 0;
+	private long hits = 0;
+	private long lookups = 0;
+
+}
@@ -0,0 +1,59 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One call to the Imgur API, from the moment it left the dispatcher
+ * queue until its response body was closed.  Uploads are calls too.
+ * Retries happen inside it.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+@Name( "com.github.kskelm.baringo.ApiCall" )
+@Label( "Imgur API Call" )
+@Category( { "Baringo", "HTTP" } )
+@Description( "A call to the Imgur API, including any retries" )
+@StackTrace( false )
+public class ApiCallEvent extends jdk.jfr.Event {
+
+	@Label( "Endpoint" )
+	@Description( "The RetrofittedImgur method" )
+	public String endpoint;
+
+	@Label( "Template" )
+	@Description( "The endpoint's path template" )
+	public String template;
+
+	@Label( "HTTP Method" )
+	public String httpMethod;
+
+	@Label( "Status" )
+	@Description( "HTTP status, or 0 if there was no response" )
+	public int status;
+
+	@Label( "Request Bytes" )
+	@DataAmount
+	public long requestBytes;
+
+	@Label( "Response Bytes" )
+	@DataAmount
+	public long responseBytes;
+
+	@Label( "Queue Wait" )
+	@Description( "Time spent waiting for a dispatcher thread" )
+	@Timespan
+	public long queueWait;
+
+	@Label( "Network Time" )
+	@Description( "Time spent waiting on the network: until the headers arrived, and then on the body" )
+	@Timespan
+	public long networkTime;
+
+}
@@ -0,0 +1,48 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Gson turning one API response into objects.  Gson parses as the
+ * body streams in, so the event's duration includes waiting on the
+ * network; the parse time doesn't.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+@Name( "com.github.kskelm.baringo.Deserialization" )
+@Label( "Imgur Response Deserialization" )
+@Category( { "Baringo", "JSON" } )
+@Description( "Gson parsing an Imgur API response" )
+@StackTrace( false )
+public class DeserializationEvent extends jdk.jfr.Event {
+
+	@Label( "Endpoint" )
+	@Description( "The RetrofittedImgur method" )
+	public String endpoint;
+
+	@Label( "Template" )
+	@Description( "The endpoint's path template" )
+	public String template;
+
+	@Label( "Type" )
+	@Description( "What the response was parsed into" )
+	public String type;
+
+	@Label( "Bytes" )
+	@Description( "Bytes of body read while parsing" )
+	@DataAmount
+	public long bytes;
+
+	@Label( "Parse Time" )
+	@Description( "Time spent parsing, less time spent waiting on the network" )
+	@Timespan
+	public long parseTime;
+
+}
@@ -0,0 +1,46 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One image download, from asking for a slot on the image host
+ * until the body was closed.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+@Name( "com.github.kskelm.baringo.Download" )
+@Label( "Imgur Image Download" )
+@Category( { "Baringo", "HTTP" } )
+@Description( "An image download from Imgur's image hosts" )
+@StackTrace( false )
+public class DownloadEvent extends jdk.jfr.Event {
+
+	@Label( "URL" )
+	public String url;
+
+	@Label( "Status" )
+	@Description( "HTTP status, or 0 if there was no response" )
+	public int status;
+
+	@Label( "Bytes" )
+	@DataAmount
+	public long bytes;
+
+	@Label( "Queue Wait" )
+	@Description( "Time spent waiting for one of the host's download slots" )
+	@Timespan
+	public long queueWait;
+
+	@Label( "Network Time" )
+	@Description( "Time spent waiting on the network: until the headers arrived, and then on the body" )
+	@Timespan
+	public long networkTime;
+
+}
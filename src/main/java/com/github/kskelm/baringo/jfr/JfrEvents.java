@@ -0,0 +1,364 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.jfr;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.github.kskelm.baringo.util.ApiRoutes;
+import com.github.kskelm.baringo.util.Jfr;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ForwardingSink;
+import okio.ForwardingSource;
+import okio.Okio;
+import retrofit.Converter;
+
+/**
+ * Wires Baringo's Java Flight Recorder events into a client: every
+ * API call (uploads included) emits an ApiCallEvent, every parsed
+ * response a DeserializationEvent and every image download a
+ * DownloadEvent.  BaringoClient and DownloadTransport install all
+ * of it themselves, through {@link Jfr}; there's nothing to turn on
+ * except the events,
+ * in a JFR settings file or on the command line:
+ * <pre>
+ * java -XX:StartFlightRecording:filename=app.jfr,settings=profile \
+ *      ... (then, in a .jfc file or with jcmd JFR.configure)
+ * com.github.kskelm.baringo.ApiCall#enabled=true
+ * com.github.kskelm.baringo.Deserialization#enabled=true
+ * com.github.kskelm.baringo.Download#enabled=true
+ * </pre>
+ * While the events are off, each call costs a check of a flag.
+ * This package is compiled for Java 11.  On an older JVM, or one
+ * without JFR, nothing is installed.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public final class JfrEvents implements Jfr.Hooks {
+
+	/**
+	 * Only {@link Jfr} makes one of these
+	 */
+	public JfrEvents() {
+	}
+
+	/**
+	 * Notes when a call was handed over, so its event can say how
+	 * long it sat in a queue before going out.  Only takes note
+	 * while the events are being recorded.
+	 * @param request the request, exactly as it's passed to newCall()
+	 */
+	@Override
+	public void queued( Request request ) {
+		if( Stamps.recording() ) {
+			Stamps.QUEUED.put( request, System.nanoTime() );
+		} // if
+	}
+
+	/**
+	 * Returns the application interceptor that emits ApiCallEvents;
+	 * it belongs at the very front of the chain
+	 * @return the interceptor
+	 */
+	@Override
+	public Interceptor apiInterceptor() {
+		return new ApiCallInterceptor();
+	}
+
+	/**
+	 * Returns the application interceptor that emits DownloadEvents
+	 * @return the interceptor
+	 */
+	@Override
+	public Interceptor downloadInterceptor() {
+		return new DownloadInterceptor();
+	}
+
+	/**
+	 * Wraps a converter factory so the response converters it hands
+	 * out emit DeserializationEvents
+	 * @param delegate the factory that does the work, e.g. Gson's
+	 * @return the wrapping factory
+	 */
+	@Override
+	public Converter.Factory converterFactory( Converter.Factory delegate ) {
+		return new ParsingConverterFactory( delegate );
+	}
+
+	// ================================================
+
+	/**
+	 * The queue stamps, and whether anyone's recording
+	 */
+	private static class Stamps {
+		static boolean recording() {
+			return new ApiCallEvent().isEnabled() || new DownloadEvent().isEnabled();
+		}
+
+		static long queueWait( Request request, long now ) {
+			Long queuedAt = QUEUED.remove( request );
+			return queuedAt == null ? 0 : Math.max( 0, now - queuedAt );
+		}
+
+		// weak, so a call that's made and never run doesn't leak
+		static final Map<Request, Long> QUEUED = Collections.synchronizedMap( new WeakHashMap<>() );
+	}
+
+	/**
+	 * Nanoseconds this thread has spent blocked reading recorded
+	 * bodies, and how many bytes it read; only ever compared
+	 * against themselves
+	 */
+	private static final ThreadLocal<long[]> reads = ThreadLocal.withInitial( () -> new long[2] );
+
+	private interface Closed {
+		void closed( long bytes, long blockedNanos );
+	}
+
+	private static class ApiCallInterceptor implements Interceptor {
+		@Override
+		public Response intercept( Chain chain ) throws IOException {
+			Request request = chain.request();
+			ApiCallEvent event = new ApiCallEvent();
+			// bodies get counted for deserialization events even if calls aren't recorded
+			if( !event.isEnabled() && !new DeserializationEvent().isEnabled() ) {
+				return chain.proceed( request );
+			} // if
+			event.begin();
+			long start = System.nanoTime();
+			event.queueWait = Stamps.queueWait( request, start );
+			event.httpMethod = request.method();
+			event.endpoint = ApiRoutes.endpointFor( request.method(), request.url().getPath(), request.url().getQuery() );
+			event.template = ApiRoutes.templateFor( request.method(), request.url().getPath() );
+			if( request.body() != null ) {
+				long length = request.body().contentLength();
+				if( length >= 0 ) {
+					event.requestBytes = length;
+				} else {
+					request = request.newBuilder()
+							.method( request.method(), new CountingRequestBody( request.body(), event ) )
+							.build();
+				} // if-else
+			} // if
+
+			Response response;
+			try {
+				response = chain.proceed( request );
+			} catch( IOException | RuntimeException e ) {
+				event.networkTime = System.nanoTime() - start;
+				event.commit();
+				throw e;
+			} // try-catch
+			long headers = System.nanoTime() - start;
+			event.status = response.code();
+			if( response.body() == null ) {
+				event.networkTime = headers;
+				event.commit();
+				return response;
+			} // if
+			return response.newBuilder()
+					.body( new RecordingBody( response.body(), ( bytes, blocked ) -> {
+						event.responseBytes = bytes;
+						event.networkTime = headers + blocked;
+						event.commit();
+					} ) )
+					.build();
+		}
+	}
+
+	private static class DownloadInterceptor implements Interceptor {
+		@Override
+		public Response intercept( Chain chain ) throws IOException {
+			Request request = chain.request();
+			DownloadEvent event = new DownloadEvent();
+			if( !event.isEnabled() ) {
+				return chain.proceed( request );
+			} // if
+			event.begin();
+			long start = System.nanoTime();
+			event.queueWait = Stamps.queueWait( request, start );
+			event.url = request.urlString();
+
+			Response response;
+			try {
+				response = chain.proceed( request );
+			} catch( IOException | RuntimeException e ) {
+				event.networkTime = System.nanoTime() - start;
+				event.commit();
+				throw e;
+			} // try-catch
+			long headers = System.nanoTime() - start;
+			event.status = response.code();
+			if( response.body() == null ) {
+				event.networkTime = headers;
+				event.commit();
+				return response;
+			} // if
+			return response.newBuilder()
+					.body( new RecordingBody( response.body(), ( bytes, blocked ) -> {
+						event.bytes = bytes;
+						event.networkTime = headers + blocked;
+						event.commit();
+					} ) )
+					.build();
+		}
+	}
+
+	/**
+	 * Counts bytes and the time spent blocked reading them, and
+	 * reports both once when it's closed
+	 */
+	private static class RecordingBody extends ResponseBody {
+		RecordingBody( ResponseBody body, Closed onClose ) {
+			this.body = body;
+			this.onClose = onClose;
+		}
+
+		@Override
+		public MediaType contentType() {
+			return body.contentType();
+		}
+
+		@Override
+		public long contentLength() throws IOException {
+			return body.contentLength();
+		}
+
+		@Override
+		public synchronized BufferedSource source() throws IOException {
+			if( source == null ) {
+				source = Okio.buffer( new ForwardingSource( body.source() ) {
+					@Override
+					public long read( Buffer sink, long byteCount ) throws IOException {
+						long start = System.nanoTime();
+						long n = super.read( sink, byteCount );
+						long blocked = System.nanoTime() - start;
+						long[] thread = reads.get();
+						thread[0] += blocked;
+						blockedNanos += blocked;
+						if( n > 0 ) {
+							thread[1] += n;
+							bytes += n;
+						} // if
+						return n;
+					}
+
+					@Override
+					public void close() throws IOException {
+						if( !closed ) {
+							closed = true;
+							onClose.closed( bytes, blockedNanos );
+						} // if
+						super.close();
+					}
+
+					private long bytes = 0;
+					private long blockedNanos = 0;
+					private boolean closed = false;
+				} );
+			} // if
+			return source;
+		}
+
+		private final ResponseBody body;
+		private final Closed onClose;
+		private BufferedSource source = null;
+	}
+
+	/**
+	 * Counts an upload whose length isn't known up front as it's
+	 * written; a retry writes it again, so each write starts over
+	 */
+	private static class CountingRequestBody extends RequestBody {
+		CountingRequestBody( RequestBody body, ApiCallEvent event ) {
+			this.body = body;
+			this.event = event;
+		}
+
+		@Override
+		public MediaType contentType() {
+			return body.contentType();
+		}
+
+		@Override
+		public long contentLength() throws IOException {
+			return body.contentLength();
+		}
+
+		@Override
+		public void writeTo( BufferedSink sink ) throws IOException {
+			event.requestBytes = 0;
+			BufferedSink counting = Okio.buffer( new ForwardingSink( sink ) {
+				@Override
+				public void write( Buffer source, long byteCount ) throws IOException {
+					super.write( source, byteCount );
+					event.requestBytes += byteCount;
+				}
+			} );
+			body.writeTo( counting );
+			counting.emit();
+		}
+
+		private final RequestBody body;
+		private final ApiCallEvent event;
+	}
+
+	private static class ParsingConverterFactory extends Converter.Factory {
+		ParsingConverterFactory( Converter.Factory delegate ) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Converter<ResponseBody, ?> fromResponseBody( Type type, Annotation[] annotations ) {
+			Converter<ResponseBody, ?> converter = delegate.fromResponseBody( type, annotations );
+			if( converter == null ) {
+				return null;
+			} // if
+			String endpoint = ApiRoutes.endpointFor( annotations );
+			String template = ApiRoutes.templateFor( annotations );
+			String typeName = type.getTypeName();
+			return body -> {
+				DeserializationEvent event = new DeserializationEvent();
+				if( !event.isEnabled() ) {
+					return converter.convert( body );
+				} // if
+				long[] thread = reads.get();
+				long blockedBefore = thread[0];
+				long bytesBefore = thread[1];
+				event.begin();
+				long start = System.nanoTime();
+				try {
+					return converter.convert( body );
+				} finally {
+					long blocked = thread[0] - blockedBefore;
+					event.parseTime = Math.max( 0, System.nanoTime() - start - blocked );
+					event.bytes = thread[1] - bytesBefore;
+					event.endpoint = endpoint;
+					event.template = template;
+					event.type = typeName;
+					event.commit();
+				} // try-finally
+			};
+		}
+
+		@Override
+		public Converter<?, RequestBody> toRequestBody( Type type, Annotation[] annotations ) {
+			return delegate.toRequestBody( type, annotations );
+		}
+
+		private final Converter.Factory delegate;
+	}
+
+}
@@ -0,0 +1,760 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.model.ImgurResponseWrapper;
+import com.github.kskelm.baringo.util.ApiRoutes;
+import com.github.kskelm.baringo.util.RetrofittedImgur;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A stand-in for api.imgur.com that runs in-process, for load
+ * testing and offline benchmarks.  It answers every RetrofittedImgur
+ * route: the common ones from recorded fixtures, with the ids in
+ * the request filled in, and the rest with an empty answer of the
+ * right shape.  Latency, injected errors and Imgur's rate limits
+ * (with the usual X-RateLimit-* and X-Post-Rate-Limit-* headers)
+ * are all adjustable, and /i/anything serves an image body of
+ * whatever size you like, with an ETag and Range/If-Range support,
+ * for download tests.
+ * <pre>
+ * try( MockImgurServer mock = new MockImgurServer.Builder()
+ *         .port( 0 ) // any free port
+ *         .latency( 20, 10, TimeUnit.MILLISECONDS )
+ *         .errorRate( 0.01, 503 )
+ *         .rateLimits( 2000, 12500, 1250, 1, TimeUnit.HOURS )
+ *         .build()
+ *         .start() ) {
+ *     BaringoClient client = new BaringoClient.Builder()
+ *             .clientAuth( "id", "secret" )
+ *             .apiEndpoint( mock.getEndpoint() )
+ *             .build();
+ *     ...
+ * }
+ * </pre>
+ * Run it on its own, on port 8080 (Setup.TEST_ENDPOINT) unless
+ * told otherwise, with:
+ * <pre>
+ * java -cp baringo.jar com.github.kskelm.baringo.mock.MockImgurServer [port]
+ * </pre>
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+@SuppressWarnings("restriction")
+public class MockImgurServer implements AutoCloseable {
+
+	public static final int  DEFAULT_PORT = 8080;
+	public static final int  DEFAULT_THREADS = 32;
+	public static final long DEFAULT_IMAGE_SIZE = 1024 * 1024; // 1MB
+
+	/**
+	 * Builds a mock server; nothing is listening until start()
+	 */
+	public static class Builder {
+
+		/**
+		 * Sets the port to listen on
+		 * @param port the port, or 0 for any free one
+		 * @return This builder object
+		 */
+		public Builder port( int port ) {
+			this._port = port;
+
+			return this;
+		} // port
+
+		/**
+		 * Sets how many requests can be handled at once
+		 * @param threads handler threads
+		 * @return This builder object
+		 */
+		public Builder threads( int threads ) {
+			this._threads = Math.max( 1, threads );
+
+			return this;
+		} // threads
+
+		/**
+		 * Delays every response by a base time plus up to
+		 * jitter more, picked evenly
+		 * @param base the least delay
+		 * @param jitter the most extra delay
+		 * @param unit units for both
+		 * @return This builder object
+		 */
+		public Builder latency( long base, long jitter, TimeUnit unit ) {
+			this._latencyMs = unit.toMillis( base );
+			this._jitterMs = unit.toMillis( jitter );
+
+			return this;
+		} // latency
+
+		/**
+		 * Makes a fraction of responses very slow, on top of the
+		 * usual latency, for exercising hedging and timeouts
+		 * @param fraction between 0.0 and 1.0
+		 * @param delay how much slower
+		 * @param unit units for delay
+		 * @return This builder object
+		 */
+		public Builder tailLatency( double fraction, long delay, TimeUnit unit ) {
+			this._tailFraction = fraction;
+			this._tailMs = unit.toMillis( delay );
+
+			return this;
+		} // tailLatency
+
+		/**
+		 * Answers a fraction of API calls with an error instead
+		 * @param fraction between 0.0 and 1.0
+		 * @param status the status to answer with, e.g. 503
+		 * @return This builder object
+		 */
+		public Builder errorRate( double fraction, int status ) {
+			this._errorFraction = fraction;
+			this._errorStatus = status;
+
+			return this;
+		} // errorRate
+
+		/**
+		 * Answers the next calls to an endpoint with these statuses,
+		 * one call each and in order, then goes back to answering
+		 * normally.  A 200 in the list is an ordinary answer.
+		 * Scripted errors count as injected ones.
+		 * @param endpoint the RetrofittedImgur method name, e.g. "addAlbumImageIds"
+		 * @param statuses what to answer with
+		 * @return This builder object
+		 */
+		public Builder script( String endpoint, int... statuses ) {
+			Queue<Integer> queue = this._scripts.computeIfAbsent( endpoint, k -> new ConcurrentLinkedQueue<>() );
+			for( int status : statuses ) {
+				queue.add( status );
+			} // for
+
+			return this;
+		} // script
+
+		/**
+		 * Hands out credits the way Imgur does and answers 429
+		 * once they run out.  Every call costs a user and a client
+		 * credit and every POST a post credit too; all three come
+		 * back in full each period.  Imgur itself allows about
+		 * 12,500 client credits a day, and 2,000 user and 1,250
+		 * post credits an hour.  Unlimited by default, though the
+		 * headers are always sent.
+		 * @param user user credits per period
+		 * @param client client credits per period
+		 * @param post post credits per period
+		 * @param period how often they're refilled
+		 * @param unit units for period
+		 * @return This builder object
+		 */
+		public Builder rateLimits( int user, int client, int post, long period, TimeUnit unit ) {
+			this._userCredits = user;
+			this._clientCredits = client;
+			this._postCredits = post;
+			this._creditPeriodMs = Math.max( 1, unit.toMillis( period ) );
+
+			return this;
+		} // rateLimits
+
+		/**
+		 * Sets how big the bodies served under /i/ are
+		 * @param bytes image size
+		 * @return This builder object
+		 */
+		public Builder imageSize( long bytes ) {
+			this._imageSize = Math.max( 0, bytes );
+
+			return this;
+		} // imageSize
+
+		/**
+		 * Answers an endpoint with this JSON instead of the bundled
+		 * fixture.  {{name}} is replaced with the path parameter of
+		 * that name, {{base}} with the server's address and
+		 * {{random}} with a new random id for each response.
+		 * @param endpoint the RetrofittedImgur method name, e.g. "getAlbum"
+		 * @param json the whole response, ImgurResponseWrapper and all
+		 * @return This builder object
+		 */
+		public Builder fixture( String endpoint, String json ) {
+			this._fixtures.put( endpoint, json );
+
+			return this;
+		} // fixture
+
+		/**
+		 * Seeds the random numbers behind latency, errors and ids,
+		 * so a run can be repeated
+		 * @param seed the seed
+		 * @return This builder object
+		 */
+		public Builder seed( long seed ) {
+			this._random = new Random( seed );
+
+			return this;
+		} // seed
+
+		/**
+		 * Constructs the server, bound to its port but not started
+		 * @return the server
+		 * @throws IOException couldn't bind the port
+		 */
+		public MockImgurServer build() throws IOException {
+			return new MockImgurServer( this );
+		} // build
+
+		private int _port = DEFAULT_PORT;
+		private int _threads = DEFAULT_THREADS;
+		private long _latencyMs = 0;
+		private long _jitterMs = 0;
+		private double _tailFraction = 0.0;
+		private long _tailMs = 0;
+		private double _errorFraction = 0.0;
+		private int _errorStatus = 503;
+		private int _userCredits = Integer.MAX_VALUE;
+		private int _clientCredits = Integer.MAX_VALUE;
+		private int _postCredits = Integer.MAX_VALUE;
+		private long _creditPeriodMs = TimeUnit.HOURS.toMillis( 1 );
+		private long _imageSize = DEFAULT_IMAGE_SIZE;
+		private Map<String, String> _fixtures = new HashMap<>();
+		private Map<String, Queue<Integer>> _scripts = new HashMap<>();
+		private Random _random = new Random();
+	}
+
+	/**
+	 * Starts answering requests
+	 * @return this server
+	 */
+	public MockImgurServer start() {
+		server.start();
+		log.info( "Mock Imgur server listening on " + getEndpoint() );
+		return this;
+	}
+
+	/**
+	 * Stops the server and its threads
+	 */
+	@Override
+	public void close() {
+		server.stop( 0 );
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Returns the port the server is listening on
+	 * @return the port
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Returns the base URL to hand BaringoClient.Builder.apiEndpoint()
+	 * @return e.g. http://localhost:8080
+	 */
+	public String getEndpoint() {
+		return "http://localhost:" + getPort();
+	}
+
+	/**
+	 * Returns how many requests have been answered, images included
+	 * @return request count
+	 */
+	public long getRequestCount() {
+		return requests.get();
+	}
+
+	/**
+	 * Returns how many API calls were answered with an injected error
+	 * @return error count
+	 */
+	public long getInjectedErrors() {
+		return injectedErrors.get();
+	}
+
+	/**
+	 * Returns how many API calls were turned away for lack of credits
+	 * @return 429 count
+	 */
+	public long getRateLimited() {
+		return rateLimited.get();
+	}
+
+	/**
+	 * Returns how many request body bytes have come in, uploads mostly
+	 * @return bytes received
+	 */
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
+	/**
+	 * Returns how many response body bytes have gone out
+	 * @return bytes sent
+	 */
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	/**
+	 * Returns the ETag images under /i/ are served with
+	 * @return a strong ETag
+	 */
+	public String getImageEtag() {
+		return "\"mock-" + imageSize + "\"";
+	}
+
+	/**
+	 * Returns how many calls each endpoint has had, sorted by name;
+	 * image requests are counted under "image"
+	 * @return endpoint name to call count
+	 */
+	public Map<String, Long> getRequestCounts() {
+		TreeMap<String, Long> counts = new TreeMap<>();
+		for( Map.Entry<String, AtomicLong> e : endpointCounts.entrySet() ) {
+			counts.put( e.getKey(), e.getValue().get() );
+		} // for
+		return Collections.unmodifiableMap( counts );
+	}
+
+	/**
+	 * Gives back every credit, as if the period had just rolled over
+	 */
+	public synchronized void resetCredits() {
+		refill( System.currentTimeMillis() );
+	}
+
+	/**
+	 * Returns the body this server answers an endpoint with, e.g.
+	 * a 60-item page for "listGallery", with its links pointing at
+	 * the given host.  For tests and benchmarks that want a
+	 * realistic response without standing up a server.
+	 * @param endpoint a RetrofittedImgur method name
+	 * @param base scheme and host for links, e.g. "https://imgur.com"
+	 * @return the JSON
+	 */
+	public static String fixture( String endpoint, String base ) {
+		Map<String, String> vars = new HashMap<>();
+		vars.put( "base", base );
+		return new String( loadFixture( endpoint ).render( vars ), StandardCharsets.UTF_8 );
+	}
+
+	public static void main( String[] args ) throws Exception {
+		new Builder()
+				.port( args.length > 0 ? Integer.parseInt( args[0] ) : DEFAULT_PORT )
+				.build()
+				.start();
+		System.out.println( "Mock Imgur server running; point apiEndpoint() at http://localhost:"
+				+ (args.length > 0 ? args[0] : DEFAULT_PORT) );
+	}
+
+	// =========================================================
+	// internal
+
+	protected MockImgurServer( Builder b ) throws IOException {
+		this.latencyMs = b._latencyMs;
+		this.jitterMs = b._jitterMs;
+		this.tailFraction = b._tailFraction;
+		this.tailMs = b._tailMs;
+		this.errorFraction = b._errorFraction;
+		this.errorStatus = b._errorStatus;
+		this.userLimit = b._userCredits;
+		this.clientLimit = b._clientCredits;
+		this.postLimit = b._postCredits;
+		this.creditPeriodMs = b._creditPeriodMs;
+		this.imageSize = b._imageSize;
+		this.random = b._random;
+		for( Map.Entry<String, String> e : b._fixtures.entrySet() ) {
+			fixtures.put( e.getKey(), new Template( e.getValue() ) );
+		} // for
+		scripts.putAll( b._scripts );
+		refill( System.currentTimeMillis() );
+
+		this.executor = Executors.newFixedThreadPool( b._threads, r -> {
+			Thread t = new Thread( r, "baringo-mock-imgur" );
+			t.setDaemon( true );
+			return t;
+		} );
+		this.server = HttpServer.create( new InetSocketAddress( b._port ), 1024 );
+		server.createContext( "/", this::handle );
+		server.setExecutor( executor );
+	} // constructor
+
+	private void handle( HttpExchange ex ) {
+		try {
+			requests.incrementAndGet();
+			bytesReceived.addAndGet( drain( ex.getRequestBody() ) );
+			String method = ex.getRequestMethod();
+			String path = ex.getRequestURI().getPath();
+			delay();
+
+			if( path.startsWith( IMAGE_PATH ) ) {
+				count( "image" );
+				serveImage( ex, path );
+				return;
+			} // if
+			String endpoint = ApiRoutes.endpointFor( method, path, ex.getRequestURI().getRawQuery() );
+			if( ApiRoutes.OTHER.equals( endpoint ) ) { // no such route
+				count( "unknown" );
+				respond( ex, 404, errorJson( 404, "No such endpoint", method, path ) );
+				return;
+			} // if
+			count( endpoint );
+
+			Headers headers = ex.getResponseHeaders();
+			if( !spendCredits( "POST".equals( method ), headers ) ) {
+				rateLimited.incrementAndGet();
+				respond( ex, 429, errorJson( 429, "Too Many Requests", method, path ) );
+				return;
+			} // if
+			Queue<Integer> script = scripts.get( endpoint );
+			Integer scripted = script != null ? script.poll() : null;
+			if( scripted != null && scripted != 200 ) {
+				injectedErrors.incrementAndGet();
+				respond( ex, scripted, errorJson( scripted, "Scripted error", method, path ) );
+				return;
+			} // if
+			if( scripted == null && errorFraction > 0 && random.nextDouble() < errorFraction ) {
+				injectedErrors.incrementAndGet();
+				respond( ex, errorStatus, errorJson( errorStatus, "Injected error", method, path ) );
+				return;
+			} // if
+
+			Map<String, String> vars = pathParams( ApiRoutes.templateFor( method, path ), path );
+			vars.put( "base", "http://" + ex.getRequestHeaders().getFirst( "Host" ) );
+			vars.put( "random", randomId() );
+			respond( ex, 200, fixtureFor( endpoint ).render( vars ) );
+		} catch( IOException | RuntimeException e ) {
+			log.fine( "Mock Imgur server request failed: " + e );
+		} finally {
+			ex.close();
+		} // try-catch-finally
+	}
+
+	private void respond( HttpExchange ex, int status, byte[] body ) throws IOException {
+		ex.getResponseHeaders().set( "Content-Type", "application/json" );
+		if( "HEAD".equals( ex.getRequestMethod() ) ) {
+			ex.sendResponseHeaders( status, -1 );
+			return;
+		} // if
+		ex.sendResponseHeaders( status, body.length );
+		ex.getResponseBody().write( body );
+		bytesSent.addAndGet( body.length );
+	}
+
+	/**
+	 * Streams imageSize bytes of pattern, or the tail of it for a
+	 * "Range: bytes=N-" request, without holding it in memory.  A
+	 * Range with an If-Range that isn't this image's ETag gets the
+	 * whole thing, as if it had changed.
+	 */
+	private void serveImage( HttpExchange ex, String path ) throws IOException {
+		Headers headers = ex.getResponseHeaders();
+		headers.set( "Content-Type", path.endsWith( ".png" ) ? "image/png"
+				: path.endsWith( ".gif" ) ? "image/gif" : "image/jpeg" );
+		headers.set( "Accept-Ranges", "bytes" );
+		headers.set( "ETag", getImageEtag() );
+		long from = 0;
+		int status = 200;
+		String range = ex.getRequestHeaders().getFirst( "Range" );
+		String ifRange = ex.getRequestHeaders().getFirst( "If-Range" );
+		if( ifRange != null && !ifRange.equals( getImageEtag() ) ) {
+			range = null;
+		} // if
+		if( range != null && range.startsWith( "bytes=" ) && range.endsWith( "-" ) ) {
+			try {
+				from = Long.parseLong( range.substring( 6, range.length() - 1 ) );
+			} catch( NumberFormatException e ) {
+				from = -1;
+			} // try-catch
+			if( from < 0 || from >= imageSize ) {
+				headers.set( "Content-Range", "bytes */" + imageSize );
+				ex.sendResponseHeaders( 416, -1 );
+				return;
+			} // if
+			status = 206;
+			headers.set( "Content-Range", "bytes " + from + "-" + (imageSize - 1) + "/" + imageSize );
+		} // if
+		long length = imageSize - from;
+		if( "HEAD".equals( ex.getRequestMethod() ) ) {
+			headers.set( "Content-Length", String.valueOf( length ) );
+			ex.sendResponseHeaders( status, -1 );
+			return;
+		} // if
+		ex.sendResponseHeaders( status, length == 0 ? -1 : length );
+		OutputStream out = ex.getResponseBody();
+		long sent = 0;
+		while( sent < length ) {
+			int offset = (int)((from + sent) % IMAGE_PATTERN.length);
+			int n = (int)Math.min( IMAGE_PATTERN.length - offset, length - sent );
+			out.write( IMAGE_PATTERN, offset, n );
+			sent += n;
+		} // while
+		bytesSent.addAndGet( sent );
+	}
+
+	/**
+	 * Takes this call's credits, and sets the quota headers either way
+	 * @return false if there weren't enough
+	 */
+	private synchronized boolean spendCredits( boolean post, Headers headers ) {
+		long now = System.currentTimeMillis();
+		if( now >= resetAt ) {
+			refill( now );
+		} // if
+		boolean ok = userRemaining > 0 && clientRemaining > 0 && (!post || postRemaining > 0);
+		if( ok ) {
+			userRemaining--;
+			clientRemaining--;
+			if( post ) {
+				postRemaining--;
+			} // if
+		} // if
+		long resetSeconds = Math.max( 0, (resetAt - now + 999) / 1000 );
+		headers.set( "X-RateLimit-UserLimit", String.valueOf( userLimit ) );
+		headers.set( "X-RateLimit-UserRemaining", String.valueOf( userRemaining ) );
+		headers.set( "X-RateLimit-UserReset", String.valueOf( resetAt / 1000 ) ); // epoch seconds...
+		headers.set( "X-RateLimit-ClientLimit", String.valueOf( clientLimit ) );
+		headers.set( "X-RateLimit-ClientRemaining", String.valueOf( clientRemaining ) );
+		headers.set( "X-Post-Rate-Limit-Limit", String.valueOf( postLimit ) );
+		headers.set( "X-Post-Rate-Limit-Remaining", String.valueOf( postRemaining ) );
+		headers.set( "X-Post-Rate-Limit-Reset", String.valueOf( resetSeconds ) ); // ...but this is seconds from now
+		if( !ok ) {
+			headers.set( "Retry-After", String.valueOf( resetSeconds ) );
+		} // if
+		return ok;
+	}
+
+	private void refill( long now ) {
+		userRemaining = userLimit;
+		clientRemaining = clientLimit;
+		postRemaining = postLimit;
+		resetAt = now + creditPeriodMs;
+	}
+
+	private void delay() {
+		long ms = latencyMs;
+		if( jitterMs > 0 ) {
+			ms += (long)(random.nextDouble() * jitterMs);
+		} // if
+		if( tailFraction > 0 && random.nextDouble() < tailFraction ) {
+			ms += tailMs;
+		} // if
+		if( ms > 0 ) {
+			try {
+				Thread.sleep( ms );
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			} // try-catch
+		} // if
+	}
+
+	private void count( String endpoint ) {
+		AtomicLong n = endpointCounts.get( endpoint );
+		if( n == null ) {
+			n = endpointCounts.computeIfAbsent( endpoint, k -> new AtomicLong() );
+		} // if
+		n.incrementAndGet();
+	}
+
+	private Template fixtureFor( String endpoint ) {
+		Template t = fixtures.get( endpoint );
+		return t != null ? t : fixtures.computeIfAbsent( endpoint, MockImgurServer::loadFixture );
+	}
+
+	/**
+	 * The bundled fixture if there is one, otherwise an empty answer
+	 * of whatever type the RetrofittedImgur method returns
+	 */
+	private static Template loadFixture( String endpoint ) {
+		try( InputStream in = MockImgurServer.class.getResourceAsStream( FIXTURES + endpoint + ".json" ) ) {
+			if( in != null ) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buf = new byte[8192];
+				int n;
+				while( ( n = in.read( buf ) ) != -1 ) {
+					out.write( buf, 0, n );
+				} // while
+				return new Template( out.toString( "UTF-8" ) );
+			} // if
+		} catch( IOException e ) {
+			log.warning( "Couldn't read mock fixture for " + endpoint + ": " + e );
+		} // try-catch
+		return new Template( emptyAnswer( endpoint ) );
+	}
+
+	private static String emptyAnswer( String endpoint ) {
+		for( Method m : RetrofittedImgur.class.getDeclaredMethods() ) {
+			if( !m.getName().equals( endpoint ) ) {
+				continue;
+			} // if
+			Type call = m.getGenericReturnType();
+			Type body = call instanceof ParameterizedType
+					? ((ParameterizedType)call).getActualTypeArguments()[0]
+					: Object.class;
+			if( !(body instanceof ParameterizedType)
+					|| ((ParameterizedType)body).getRawType() != ImgurResponseWrapper.class ) {
+				return "{}";
+			} // if
+			Type data = ((ParameterizedType)body).getActualTypeArguments()[0];
+			Class<?> raw = data instanceof ParameterizedType
+					? (Class<?>)((ParameterizedType)data).getRawType()
+					: data instanceof Class ? (Class<?>)data : Object.class;
+			String value;
+			if( raw == Boolean.class ) {
+				value = "true";
+			} else if( raw == String.class ) {
+				value = "\"\"";
+			} else if( Number.class.isAssignableFrom( raw ) ) {
+				value = "0";
+			} else if( List.class.isAssignableFrom( raw ) || raw.isArray() ) {
+				value = "[]";
+			} else {
+				value = "{}";
+			} // if-else
+			return "{\"data\":" + value + ",\"success\":true,\"status\":200}";
+		} // for
+		return "{\"data\":{},\"success\":true,\"status\":200}";
+	}
+
+	private static byte[] errorJson( int status, String error, String method, String path ) {
+		return ("{\"data\":{\"error\":\"" + error + "\",\"request\":\"" + path
+				+ "\",\"method\":\"" + method + "\"},\"success\":false,\"status\":" + status + "}")
+				.getBytes( StandardCharsets.UTF_8 );
+	}
+
+	/**
+	 * Pairs up the template's {name} segments with the path's
+	 */
+	private static Map<String, String> pathParams( String template, String path ) {
+		Map<String, String> params = new HashMap<>();
+		String[] names = template.split( "/" );
+		String[] values = path.split( "/" );
+		for( int i = 0; i < names.length && i < values.length; i++ ) {
+			if( names[i].startsWith( "{" ) && names[i].endsWith( "}" ) ) {
+				params.put( names[i].substring( 1, names[i].length() - 1 ), values[i] );
+			} // if
+		} // for
+		return params;
+	}
+
+	private String randomId() {
+		char[] id = new char[7];
+		for( int i = 0; i < id.length; i++ ) {
+			id[i] = ID_CHARS.charAt( random.nextInt( ID_CHARS.length() ) );
+		} // for
+		return new String( id );
+	}
+
+	private static long drain( InputStream in ) throws IOException {
+		byte[] buf = new byte[8192];
+		long total = 0;
+		int n;
+		while( ( n = in.read( buf ) ) != -1 ) {
+			total += n;
+		} // while
+		return total;
+	}
+
+	/**
+	 * A fixture split up once at its {{placeholders}}, so answering
+	 * is one pass of appends
+	 */
+	private static class Template {
+		Template( String text ) {
+			int at = 0;
+			int open;
+			while( ( open = text.indexOf( "{{", at ) ) != -1 ) {
+				int close = text.indexOf( "}}", open );
+				if( close == -1 ) {
+					break;
+				} // if
+				literals.add( text.substring( at, open ) );
+				names.add( text.substring( open + 2, close ) );
+				at = close + 2;
+			} // while
+			literals.add( text.substring( at ) );
+		}
+
+		byte[] render( Map<String, String> vars ) {
+			StringBuilder sb = new StringBuilder();
+			for( int i = 0; i < names.size(); i++ ) {
+				sb.append( literals.get( i ) );
+				String value = vars.get( names.get( i ) );
+				sb.append( value != null ? value : "" );
+			} // for
+			sb.append( literals.get( names.size() ) );
+			return sb.toString().getBytes( StandardCharsets.UTF_8 );
+		}
+
+		private final List<String> literals = new ArrayList<>();
+		private final List<String> names = new ArrayList<>();
+	}
+
+	private static final String FIXTURES = "/com/github/kskelm/baringo/mock/fixtures/";
+	private static final String IMAGE_PATH = "/i/";
+	private static final String ID_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+	private static final byte[] IMAGE_PATTERN = new byte[64 * 1024];
+	static {
+		new Random( 0 ).nextBytes( IMAGE_PATTERN );
+	}
+	private static final Logger log = Logger.getLogger( BaringoClient.LOG_NAME );
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Random random;
+	private final long latencyMs;
+	private final long jitterMs;
+	private final double tailFraction;
+	private final long tailMs;
+	private final double errorFraction;
+	private final int errorStatus;
+	private final int userLimit;
+	private final int clientLimit;
+	private final int postLimit;
+	private final long creditPeriodMs;
+	private final long imageSize;
+	private final ConcurrentHashMap<String, Template> fixtures = new ConcurrentHashMap<>();
+	private final Map<String, Queue<Integer>> scripts = new HashMap<>();
+	private final ConcurrentHashMap<String, AtomicLong> endpointCounts = new ConcurrentHashMap<>();
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong injectedErrors = new AtomicLong();
+	private final AtomicLong rateLimited = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final AtomicLong bytesSent = new AtomicLong();
+	private int userRemaining;
+	private int clientRemaining;
+	private int postRemaining;
+	private long resetAt;
+
+}
@@ -259,6 +259,26 @@ public class Image {
 		return vote;
 	}
 
+	// =====================================================
+
+	/**
+	 * Internal only
+	 */
+	public Image() { }
+
+	/**
+	 * Internal only.  Used for images remembered by an upload index,
+	 * which only know these three things.
+	 * @param id the image id
+	 * @param deleteHash the delete hash, or null
+	 * @param link the image link, or null
+	 */
+	public Image( String id, String deleteHash, String link ) {
+		this.id = id;
+		this.deleteHash = deleteHash;
+		this.link = link;
+	} // constructor
+
 	// =====================================================
 	
 	private String id;
@@ -4,7 +4,6 @@ package com.github.kskelm.baringo.model;
 import java.util.List;
 
 import com.github.kskelm.baringo.model.gallery.GalleryItem;
-import com.github.kskelm.baringo.model.gallery.GalleryItemProxy;
 import com.github.kskelm.baringo.util.Utils;
 import com.google.gson.annotations.SerializedName;
 
@@ -54,7 +53,7 @@ public class TagGallery {
 	 * @return the items
 	 */
 	public List<GalleryItem> getItems() {
-		return _convertedItems;
+		return items;
 	}
 	@Override
 	public String toString() {
@@ -63,31 +62,12 @@ public class TagGallery {
 
 
 	// ==========================================
-	
-	/**
-	 * INTERNAL ONLY
-	 * @param items converts proxy objects to real GalleryItem objects
-	 */
-	public void setConvertedItems(List<GalleryItem> items ) {
-		this._convertedItems = items;
-	}
-	
-	/**
-	 * INTERNAL ONLY
-	 * @return list of proxy objects that you shouldn't use for anything
-	 */
-	public List<GalleryItemProxy> getInternalItems() {
-		return _internalItems;
-	}
-	
 
 	private String name;
 	private int followerCount;
 	@SerializedName("total_items")
 	private int itemCount;
 	private boolean following;
-	private List<GalleryItem> _convertedItems;
-	@SerializedName("items")
-	private List<GalleryItemProxy> _internalItems;
+	private List<GalleryItem> items;
 	
 }
@@ -2,7 +2,6 @@
 package com.github.kskelm.baringo.model;
 
 import com.github.kskelm.baringo.model.gallery.GalleryItem;
-import com.github.kskelm.baringo.model.gallery.GalleryItemProxy;
 import com.github.kskelm.baringo.util.Utils;
 import com.google.gson.annotations.SerializedName;
 
@@ -55,7 +54,7 @@ public class Topic {
 	 * @return the topItem
 	 */
 	public GalleryItem getTopItem() {
-		return _convertedTopItem;
+		return topItem;
 	}
 	
 	@Override
@@ -76,23 +75,6 @@ public class Topic {
 	private String cssClass;
 	private boolean ephemeral;
 	@SerializedName("topPost")
-	private GalleryItemProxy _internalTopItem;
-	private GalleryItem _convertedTopItem;
-
-	/**
-	 * internal filth, don't use this.
-	 * @return a proxy object
-	 */
-	public GalleryItemProxy getItemProxy() {
-		return _internalTopItem;
-	}
-	
-	/**
-	 * internal filth, don't use this
-	 * @param item - an item 
-	 */
-	public void setConvertedItem( GalleryItem item ) {
-		_convertedTopItem = item;
-	}
+	private GalleryItem topItem;
 
 } 
@@ -55,7 +55,7 @@ public class CustomGallery {
 	 * @return the items list of GalleryItems
 	 */
 	public List<GalleryItem> getItems() {
-		return _convertedItems;
+		return items;
 	}
 
 	// ================================================
@@ -65,23 +65,8 @@ public class CustomGallery {
 	private List<String> tags;
 	@SerializedName("item_count")
 	private int itemCount;
-	@SerializedName("items")
-	private List<GalleryItemProxy> _internalItems;
-	private List<GalleryItem> _convertedItems;
+	private List<GalleryItem> items;
 
-	// internal filth only
-	public void setConvertedItems(List<GalleryItem> items ) {
-		this._convertedItems = items;
-	}
-	
-	/**
-	 * Internal only, don't use this
-	 * @return list of proxy objects
-	 */
-	public List<GalleryItemProxy> getInternalItems() {
-		return _internalItems;
-	}
-	
 	public String toString() {
 		return Utils.toString( this );
 	} // toString
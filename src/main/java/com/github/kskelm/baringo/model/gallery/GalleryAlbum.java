@@ -142,7 +142,7 @@ public class GalleryAlbum extends GalleryItem {
 	public GalleryAlbum() { }
 
 	/**
-	 * Internal only
+	 * Internal only; see {@link GalleryItemProxy}
 	 * @param p proxy object
 	 */
 	public GalleryAlbum( GalleryItemProxy p ) {
@@ -132,7 +132,7 @@ public class GalleryImage extends GalleryItem {
 	public GalleryImage() { }
 	
 	/**
-	 * Internal only
+	 * Internal only; see {@link GalleryItemProxy}
 	 * @param p proxy object
 	 */
 	public GalleryImage( GalleryItemProxy p ) {
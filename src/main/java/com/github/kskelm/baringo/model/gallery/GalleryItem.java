@@ -268,11 +268,13 @@ public abstract class GalleryItem {
 	
 	// =========================================================
 	
-	public GalleryItem() {
-// TODO: WAT
-System.err.println("wat");
-	}
+	public GalleryItem() { }
 
+	/**
+	 * Gallery items are read directly by {@link GalleryItemAdapterFactory}
+	 * now; this is only left for the benchmark comparison
+	 * @param p proxy object
+	 */
 	protected GalleryItem( GalleryItemProxy p ) {
 		copyFrom( p, GalleryItem.class );
 	} // lame copy constructor
@@ -0,0 +1,277 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.model.gallery;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+import com.github.kskelm.baringo.model.Comment;
+import com.github.kskelm.baringo.model.Image;
+import com.github.kskelm.baringo.model.gallery.GalleryAlbum.Layout;
+import com.github.kskelm.baringo.model.gallery.GalleryAlbum.Privacy;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * <b>INTERNAL ONLY</b>
+ * <p>
+ * Imgur hands back images and albums mixed together in the same
+ * list, and the only way to tell them apart is is_album, which
+ * can show up anywhere in the object.  This reads each item
+ * straight off the stream into locals, then builds the one
+ * GalleryImage or GalleryAlbum it turns out to be.  No proxy
+ * object, no second copy, no reflection.
+ * <p>
+ * The flip side is that the field names are spelled out here.
+ * A new field on GalleryItem, GalleryImage or GalleryAlbum needs
+ * a case below too, or it will silently stay empty.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public class GalleryItemAdapterFactory implements TypeAdapterFactory {
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> TypeAdapter<T> create( Gson gson, TypeToken<T> type ) {
+		// only the abstract type; asking for GalleryImage or
+		// GalleryAlbum directly still gets Gson's own adapter
+		if( type.getRawType() != GalleryItem.class ) {
+			return null;
+		} // if
+		return (TypeAdapter<T>) new GalleryItemAdapter( gson );
+	} // create
+
+	// =========================================================
+
+	private static class GalleryItemAdapter extends TypeAdapter<GalleryItem> {
+
+		@Override
+		public void write( JsonWriter out, GalleryItem value ) throws IOException {
+			if( value == null ) {
+				out.nullValue();
+				return;
+			} // if
+			writeAs( out, value, value.getClass() );
+		}
+
+		@SuppressWarnings("unchecked")
+		private <X extends GalleryItem> void writeAs( JsonWriter out, GalleryItem value, Class<X> cls ) throws IOException {
+			gson.getAdapter( cls ).write( out, (X)value );
+		}
+
+		@Override
+		public GalleryItem read( JsonReader in ) throws IOException {
+			if( in.peek() == JsonToken.NULL ) {
+				in.nextNull();
+				return null;
+			} // if
+
+			// GalleryItem
+			String id = null;
+			String title = null;
+			String description = null;
+			Date uploadDate = null;
+			int views = 0;
+			String link = null;
+			String vote = null;
+			int ups = 0;
+			int downs = 0;
+			int points = 0;
+			int score = 0;
+			boolean favorite = false;
+			boolean nsfw = false;
+			int commentCount = 0;
+			List<Comment> commentPreview = null;
+			String topic = null;
+			int topicId = 0;
+			String userName = null;
+			int userId = 0;
+			boolean album = false;
+			// GalleryImage
+			String mimeType = null;
+			boolean animated = false;
+			int width = 0;
+			int height = 0;
+			int size = 0;
+			long bandwidth = 0;
+			String deleteHash = null;
+			String gifvLink = null;
+			String mp4Link = null;
+			String webmLink = null;
+			boolean looping = false;
+			GalleryItem.Section section = null;
+			// GalleryAlbum
+			String coverId = null;
+			int coverWidth = 0;
+			int coverHeight = 0;
+			Privacy privacy = null;
+			Layout layout = null;
+			int imageCount = 0;
+			List<Image> images = null;
+
+			in.beginObject();
+			while( in.hasNext() ) {
+				switch( in.nextName() ) {
+				case "id":              id = readString( in ); break;
+				case "title":           title = readString( in ); break;
+				case "description":     description = readString( in ); break;
+				case "datetime":        uploadDate = dateAdapter.read( in ); break;
+				case "views":           views = readInt( in ); break;
+				case "link":            link = readString( in ); break;
+				case "vote":            vote = readString( in ); break;
+				case "ups":             ups = readInt( in ); break;
+				case "downs":           downs = readInt( in ); break;
+				case "points":          points = readInt( in ); break;
+				case "score":           score = readInt( in ); break;
+				case "favorite":        favorite = readBoolean( in ); break;
+				case "nsfw":            nsfw = readBoolean( in ); break;
+				case "comment_count":   commentCount = readInt( in ); break;
+				case "comment_preview": commentPreview = commentsAdapter.read( in ); break;
+				case "topic":           topic = readString( in ); break;
+				case "topic_id":        topicId = readInt( in ); break;
+				case "account_url":     userName = readString( in ); break;
+				case "account_id":      userId = readInt( in ); break;
+				case "is_album":        album = readBoolean( in ); break;
+
+				case "type":            mimeType = readString( in ); break;
+				case "animated":        animated = readBoolean( in ); break;
+				case "width":           width = readInt( in ); break;
+				case "height":          height = readInt( in ); break;
+				case "size":            size = readInt( in ); break;
+				case "bandwidth":       bandwidth = readLong( in ); break;
+				case "deletehash":      deleteHash = readString( in ); break;
+				case "gifvLink":        gifvLink = readString( in ); break;
+				case "mp4Link":         mp4Link = readString( in ); break;
+				case "webmLink":        webmLink = readString( in ); break;
+				case "looping":         looping = readBoolean( in ); break;
+				case "section":         section = sectionAdapter.read( in ); break;
+
+				case "coverId":         coverId = readString( in ); break;
+				case "coverWidth":      coverWidth = readInt( in ); break;
+				case "coverHeight":     coverHeight = readInt( in ); break;
+				case "privacy":         privacy = privacyAdapter.read( in ); break;
+				case "layout":          layout = layoutAdapter.read( in ); break;
+				case "images_count":    imageCount = readInt( in ); break;
+				case "images":          images = imagesAdapter.read( in ); break;
+
+				default:                in.skipValue(); break;
+				} // switch
+			} // while
+			in.endObject();
+
+			GalleryItem item;
+			if( album ) {
+				GalleryAlbum a = new GalleryAlbum();
+				a.coverId = coverId;
+				a.coverWidth = coverWidth;
+				a.coverHeight = coverHeight;
+				a.privacy = privacy;
+				a.layout = layout;
+				a.imageCount = imageCount;
+				a.images = images;
+				item = a;
+			} else {
+				GalleryImage i = new GalleryImage();
+				i.mimeType = mimeType;
+				i.animated = animated;
+				i.width = width;
+				i.height = height;
+				i.size = size;
+				i.bandwidth = bandwidth;
+				i.deleteHash = deleteHash;
+				i.gifvLink = gifvLink;
+				i.mp4Link = mp4Link;
+				i.webmLink = webmLink;
+				i.looping = looping;
+				i.section = section;
+				item = i;
+			} // if-else
+			item.id = id;
+			item.title = title;
+			item.description = description;
+			item.uploadDate = uploadDate;
+			item.views = views;
+			item.link = link;
+			item.vote = vote;
+			item.ups = ups;
+			item.downs = downs;
+			item.points = points;
+			item.score = score;
+			item.favorite = favorite;
+			item.nsfw = nsfw;
+			item.commentCount = commentCount;
+			item.commentPreview = commentPreview;
+			item.topic = topic;
+			item.topicId = topicId;
+			item.userName = userName;
+			item.userId = userId;
+			item.album = album;
+			return item;
+		}
+
+		// These mirror what Gson's own adapters tolerate, since Imgur
+		// is fond of nulls, and of "false" where it means "nothing".
+
+		private static String readString( JsonReader in ) throws IOException {
+			JsonToken token = in.peek();
+			if( token == JsonToken.NULL ) {
+				in.nextNull();
+				return null;
+			} else if( token == JsonToken.BOOLEAN ) {
+				return Boolean.toString( in.nextBoolean() );
+			} // if-else
+			return in.nextString();
+		}
+
+		private static int readInt( JsonReader in ) throws IOException {
+			if( in.peek() == JsonToken.NULL ) {
+				in.nextNull();
+				return 0;
+			} // if
+			return in.nextInt();
+		}
+
+		private static long readLong( JsonReader in ) throws IOException {
+			if( in.peek() == JsonToken.NULL ) {
+				in.nextNull();
+				return 0;
+			} // if
+			return in.nextLong();
+		}
+
+		private static boolean readBoolean( JsonReader in ) throws IOException {
+			JsonToken token = in.peek();
+			if( token == JsonToken.NULL ) {
+				in.nextNull();
+				return false;
+			} else if( token == JsonToken.STRING ) {
+				return Boolean.parseBoolean( in.nextString() );
+			} // if-else
+			return in.nextBoolean();
+		}
+
+		GalleryItemAdapter( Gson gson ) {
+			this.gson = gson;
+			this.dateAdapter = gson.getAdapter( Date.class );
+			this.commentsAdapter = gson.getAdapter( new TypeToken<List<Comment>>(){} );
+			this.imagesAdapter = gson.getAdapter( new TypeToken<List<Image>>(){} );
+			this.sectionAdapter = gson.getAdapter( GalleryItem.Section.class );
+			this.privacyAdapter = gson.getAdapter( Privacy.class );
+			this.layoutAdapter = gson.getAdapter( Layout.class );
+		} // constructor
+
+		private final Gson gson;
+		private final TypeAdapter<Date> dateAdapter;
+		private final TypeAdapter<List<Comment>> commentsAdapter;
+		private final TypeAdapter<List<Image>> imagesAdapter;
+		private final TypeAdapter<GalleryItem.Section> sectionAdapter;
+		private final TypeAdapter<Privacy> privacyAdapter;
+		private final TypeAdapter<Layout> layoutAdapter;
+	}
+
+}
@@ -0,0 +1,269 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.util;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import retrofit.http.DELETE;
+import retrofit.http.GET;
+import retrofit.http.HEAD;
+import retrofit.http.PATCH;
+import retrofit.http.POST;
+import retrofit.http.PUT;
+import retrofit.http.Query;
+
+/**
+ * Maps an HTTP request back to the {@link RetrofittedImgur} method
+ * that made it, so per-endpoint stats can be reported under names
+ * like "getAlbum" instead of a pile of URLs with ids in them.  The
+ * routes are read off the interface's annotations once, at class
+ * load.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public final class ApiRoutes {
+
+	/**
+	 * Returns the name of the RetrofittedImgur method that matches
+	 * the request, e.g. "getAlbum" for GET /3/album/abc123.  Requests
+	 * that don't match any route (image downloads, say) all come back
+	 * as {@link #OTHER}, so they can't grow a stats table without end.
+	 * @param httpMethod GET, POST, etc.
+	 * @param path the URL path, without the query string
+	 * @return the endpoint name
+	 */
+	public static String endpointFor( String httpMethod, String path ) {
+		return endpointFor( httpMethod, path, null );
+	}
+
+	/**
+	 * Same as {@link #endpointFor(String, String)}, but tells apart
+	 * methods that share a path by the query parameters they take,
+	 * e.g. searchGallery (q_all, q_any...) from compoundSearchGallery
+	 * (q).  Methods that differ only in their form fields, like the
+	 * two /oauth2/token calls, still can't be told apart.
+	 * @param httpMethod GET, POST, etc.
+	 * @param path the URL path, without the query string
+	 * @param query the raw query string, or null if there's none
+	 * @return the endpoint name
+	 */
+	public static String endpointFor( String httpMethod, String path, String query ) {
+		Route route = routeFor( httpMethod, path, queryNames( query ) );
+		return route == null ? OTHER : route.name;
+	}
+
+	/**
+	 * Returns the path template of the RetrofittedImgur method that
+	 * matches the request, e.g. "/3/album/{albumId}"
+	 * @param httpMethod GET, POST, etc.
+	 * @param path the URL path, without the query string
+	 * @return the template, or the path itself if no route matches
+	 */
+	public static String templateFor( String httpMethod, String path ) {
+		Route route = routeFor( httpMethod, path, Collections.<String>emptySet() );
+		return route == null ? path : route.template;
+	}
+
+	/**
+	 * Returns the path template from the HTTP annotation among these
+	 * @param annotations a RetrofittedImgur method's annotations
+	 * @return the template, or null if there's no HTTP annotation
+	 */
+	public static String templateFor( Annotation[] annotations ) {
+		for( Annotation a : annotations ) {
+			String[] route = routeOf( a );
+			if( route != null ) {
+				return route[1];
+			} // if
+		} // for
+		return null;
+	}
+
+	/**
+	 * Returns the name of the RetrofittedImgur method carrying these
+	 * annotations, which is what Retrofit hands a converter factory.
+	 * Methods that share a route are told apart by which annotation
+	 * object it is; the JVM hands out the same ones for a method
+	 * every time it's asked.
+	 * @param annotations the method's annotations
+	 * @return the endpoint name, or null if there's no HTTP annotation
+	 */
+	public static String endpointFor( Annotation[] annotations ) {
+		for( Annotation a : annotations ) {
+			String[] route = routeOf( a );
+			if( route != null ) {
+				for( Route r : ROUTES ) {
+					if( r.annotation == a ) {
+						return r.name;
+					} // if
+				} // for
+				for( Route r : ROUTES ) {
+					if( r.httpMethod.equals( route[0] ) && r.template.equals( route[1] ) ) {
+						return r.name;
+					} // if
+				} // for
+				return OTHER;
+			} // if
+		} // for
+		return null;
+	}
+
+	/**
+	 * Returns the names of every API endpoint
+	 * @return the RetrofittedImgur method names
+	 */
+	public static List<String> endpointNames() {
+		List<String> names = new ArrayList<>();
+		for( Route route : ROUTES ) {
+			names.add( route.name );
+		} // for
+		return names;
+	}
+
+	/**
+	 * What requests that match no RetrofittedImgur method are
+	 * counted under
+	 */
+	public static final String OTHER = "other";
+
+	// ================================================
+
+	/**
+	 * Returns the most specific route for the request.  A route only
+	 * matches if it takes every query parameter the request has; of
+	 * those sharing a path, the one taking the fewest wins.
+	 */
+	private static Route routeFor( String httpMethod, String path, Set<String> queryNames ) {
+		for( Route route : ROUTES ) {
+			if( route.httpMethod.equals( httpMethod )
+					&& route.queryNames.containsAll( queryNames )
+					&& route.pattern.matcher( path ).matches() ) {
+				return route;
+			} // if
+		} // for
+		return null;
+	}
+
+	private static Set<String> queryNames( String query ) {
+		if( query == null || query.isEmpty() ) {
+			return Collections.emptySet();
+		} // if
+		Set<String> names = new HashSet<>();
+		for( String pair : query.split( "&" ) ) {
+			int eq = pair.indexOf( '=' );
+			names.add( eq == -1 ? pair : pair.substring( 0, eq ) );
+		} // for
+		return names;
+	}
+
+	private static class Route {
+		Route( Method method, Annotation annotation, String httpMethod, String template ) {
+			this.name = method.getName();
+			this.annotation = annotation;
+			this.httpMethod = httpMethod;
+			this.template = template;
+			Set<String> queries = new HashSet<>();
+			for( Annotation[] param : method.getParameterAnnotations() ) {
+				for( Annotation a : param ) {
+					if( a instanceof Query ) {
+						queries.add( ((Query)a).value() );
+					} // if
+				} // for
+			} // for
+			this.queryNames = queries;
+			StringBuilder regex = new StringBuilder();
+			Matcher m = PARAM.matcher( template );
+			int last = 0;
+			int literals = 0;
+			while( m.find() ) {
+				regex.append( Pattern.quote( template.substring( last, m.start() ) ) );
+				regex.append( "[^/]+" );
+				literals += m.start() - last;
+				last = m.end();
+			} // while
+			regex.append( Pattern.quote( template.substring( last ) ) );
+			literals += template.length() - last;
+			this.pattern = Pattern.compile( regex.toString() );
+			this.literalLength = literals;
+		}
+
+		final String name;
+		final Annotation annotation;
+		final String httpMethod;
+		final String template;
+		final Pattern pattern;
+		final int literalLength;
+		final Set<String> queryNames;
+	}
+
+	private static List<Route> loadRoutes() {
+		List<Route> routes = new ArrayList<>();
+		for( Method method : RetrofittedImgur.class.getDeclaredMethods() ) {
+			for( Annotation a : method.getAnnotations() ) {
+				String[] route = routeOf( a );
+				if( route != null ) {
+					routes.add( new Route( method, a, route[0], route[1] ) );
+				} // if
+			} // for
+		} // for
+		// most specific first, so /3/gallery/search/... beats /3/gallery/{section}/...
+		// and, on the same path, the one taking the fewest query parameters;
+		// then by name, so it's stable from one run to the next
+		Collections.sort( routes, ( a, b ) -> a.literalLength != b.literalLength
+				? b.literalLength - a.literalLength
+				: a.queryNames.size() != b.queryNames.size()
+				? a.queryNames.size() - b.queryNames.size()
+				: a.name.compareTo( b.name ) );
+		return routes;
+	}
+
+	/**
+	 * Returns the HTTP method and path template (minus any query
+	 * string) of a Retrofit HTTP annotation, or null if it isn't one
+	 */
+	private static String[] routeOf( Annotation a ) {
+		String httpMethod = null;
+		String template = null;
+		if( a instanceof GET ) {
+			httpMethod = "GET";
+			template = ((GET)a).value();
+		} else if( a instanceof POST ) {
+			httpMethod = "POST";
+			template = ((POST)a).value();
+		} else if( a instanceof PUT ) {
+			httpMethod = "PUT";
+			template = ((PUT)a).value();
+		} else if( a instanceof DELETE ) {
+			httpMethod = "DELETE";
+			template = ((DELETE)a).value();
+		} else if( a instanceof PATCH ) {
+			httpMethod = "PATCH";
+			template = ((PATCH)a).value();
+		} else if( a instanceof HEAD ) {
+			httpMethod = "HEAD";
+			template = ((HEAD)a).value();
+		} // if-else
+		if( httpMethod == null ) {
+			return null;
+		} // if
+		int q = template.indexOf( '?' );
+		if( q != -1 ) {
+			template = template.substring( 0, q );
+		} // if
+		return new String[] { httpMethod, template };
+	}
+
+	private ApiRoutes() {
+	}
+
+	private static final Pattern PARAM = Pattern.compile( "\\{[^}]+\\}" );
+	private static final List<Route> ROUTES = Collections.unmodifiableList( loadRoutes() );
+
+}
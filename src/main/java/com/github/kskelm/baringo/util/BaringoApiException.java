@@ -28,6 +28,15 @@ public class BaringoApiException extends Exception {
 		this.httpCode = httpCode;
 	}
 
+	/**
+	 * Wraps whatever went wrong underneath, keeping it as the cause
+	 * @param msg The message text for the exception
+	 * @param cause The exception that brought this on
+	 */
+	public BaringoApiException( String msg, Throwable cause ) {
+		super( msg, cause );
+	}
+
 	/**
 	 * Returns the HTTP code of the exception, or 0 if none
 	 * @return the httpCode
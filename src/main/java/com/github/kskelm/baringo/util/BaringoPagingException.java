@@ -0,0 +1,43 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.util;
+
+/**
+ * Thrown out of a {@link com.github.kskelm.baringo.Paged} iterator
+ * or stream when fetching a page fails.  Iterators and streams
+ * can't throw checked exceptions, so the BaringoApiException that
+ * would otherwise have been thrown rides along as the cause.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ *
+ */
+public class BaringoPagingException extends RuntimeException {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public BaringoPagingException( int page, BaringoApiException cause ) {
+		super( "Failed fetching page " + page + ": " + cause.getMessage(), cause );
+		this.page = page;
+	}
+
+	/**
+	 * Returns the page number that failed to load
+	 * @return the page number
+	 */
+	public int getPage() {
+		return page;
+	}
+
+	/**
+	 * Returns the underlying API failure
+	 * @return the exception from the failed fetch
+	 */
+	@Override
+	public synchronized BaringoApiException getCause() {
+		return (BaringoApiException)super.getCause();
+	}
+
+	private final int page;
+}
@@ -0,0 +1,105 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.util;
+
+import java.util.logging.Logger;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Request;
+
+import retrofit.Converter;
+
+/**
+ * The way into the Flight Recorder events in the jfr package.  That
+ * package is compiled for Java 11, since jdk.jfr isn't part of the
+ * Java 8 API; everything else is compiled for Java 8.  So nothing
+ * outside it names its classes.  They're looked up by name here, and
+ * on a JVM that can't load them (Java 8, or one without JFR) these
+ * all do nothing.
+ *
+ * @author Kevin Kelm (triggur@gmail.com)
+ */
+public final class Jfr {
+
+	/**
+	 * What the jfr package provides; implemented by JfrEvents
+	 */
+	public interface Hooks {
+		void queued( Request request );
+		Interceptor apiInterceptor();
+		Interceptor downloadInterceptor();
+		Converter.Factory converterFactory( Converter.Factory delegate );
+	}
+
+	/**
+	 * Whether this JVM can record Baringo's events
+	 */
+	public static final boolean AVAILABLE;
+
+	/**
+	 * Notes when a call was handed over, so its event can say how
+	 * long it sat in a queue before going out
+	 * @param request the request, exactly as it's passed to newCall()
+	 */
+	public static void queued( Request request ) {
+		if( AVAILABLE ) {
+			hooks.queued( request );
+		} // if
+	}
+
+	/**
+	 * Returns the application interceptor that emits ApiCallEvents;
+	 * it belongs at the very front of the chain.  Only call this
+	 * if {@link #AVAILABLE}.
+	 * @return the interceptor
+	 */
+	public static Interceptor apiInterceptor() {
+		return hooks.apiInterceptor();
+	}
+
+	/**
+	 * Returns the application interceptor that emits DownloadEvents.
+	 * Only call this if {@link #AVAILABLE}.
+	 * @return the interceptor
+	 */
+	public static Interceptor downloadInterceptor() {
+		return hooks.downloadInterceptor();
+	}
+
+	/**
+	 * Wraps a converter factory so the response converters it hands
+	 * out emit DeserializationEvents.  Only call this if
+	 * {@link #AVAILABLE}.
+	 * @param delegate the factory that does the work, e.g. Gson's
+	 * @return the wrapping factory
+	 */
+	public static Converter.Factory converterFactory( Converter.Factory delegate ) {
+		return hooks.converterFactory( delegate );
+	}
+
+	// ================================================
+
+	private static Hooks load() {
+		try {
+			Class.forName( "jdk.jfr.Event" );
+			return (Hooks)Class.forName( HOOKS ).newInstance();
+		} catch( ClassNotFoundException e ) {
+			return null; // no JFR here
+		} catch( ReflectiveOperationException | LinkageError e ) {
+			// e.g. UnsupportedClassVersionError on Java 8
+			Logger.getLogger( BaringoClient.LOG_NAME ).fine( "Flight Recorder events unavailable: " + e );
+			return null;
+		} // try-catch
+	}
+
+	private Jfr() {
+	}
+
+	private static final String HOOKS = "com.github.kskelm.baringo.jfr.JfrEvents";
+	private static final Hooks hooks = load();
+
+	static {
+		AVAILABLE = hooks != null;
+	}
+
+}
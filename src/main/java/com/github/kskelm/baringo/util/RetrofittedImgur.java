@@ -22,7 +22,7 @@ import com.github.kskelm.baringo.model.Topic;
 import com.github.kskelm.baringo.model.Votes;
 import com.github.kskelm.baringo.model.gallery.CustomGallery;
 import com.github.kskelm.baringo.model.gallery.GalleryImage;
-import com.github.kskelm.baringo.model.gallery.GalleryItemProxy;
+import com.github.kskelm.baringo.model.gallery.GalleryItem;
 import com.github.kskelm.baringo.model.gallery.GalleryProfile;
 import com.squareup.okhttp.RequestBody;
 
@@ -69,17 +69,17 @@ public interface RetrofittedImgur {
 			@Path("username") String userName );
 
 	@GET("/3/account/{username}/gallery_favorites/{page}/{sort}")
-	Call<ImgurResponseWrapper<List<GalleryItemProxy>>> listAccountGalleryFavorites(
+	Call<ImgurResponseWrapper<List<GalleryItem>>> listAccountGalleryFavorites(
 			@Path("username") String userName,
 			@Path("page") int page,
 			@Path("sort") Account.GallerySort sort );
 
 	@GET("/3/account/{username}/favorites")
-	Call<ImgurResponseWrapper<List<GalleryItemProxy>>> listAccountFavorites(
+	Call<ImgurResponseWrapper<List<GalleryItem>>> listAccountFavorites(
 			@Path("username") String userName );
 
 	@GET("/3/account/{username}/submissions/{page}")
-	Call<ImgurResponseWrapper<List<GalleryItemProxy>>> listAccountSubmissions(
+	Call<ImgurResponseWrapper<List<GalleryItem>>> listAccountSubmissions(
 			@Path("username") String userName,
 			@Path("page") int page );
 
@@ -279,7 +279,7 @@ public interface RetrofittedImgur {
 	// ============================================================
 			
 	@GET("/3/gallery/{section}/{sort}/{window}/{page}")
-	Call<ImgurResponseWrapper<List<GalleryItemProxy>>> listGallery(
+	Call<ImgurResponseWrapper<List<GalleryItem>>> listGallery(
 			@Path("section") String section,
 			@Path("sort") String sort,
 			@Path("window") String window,
@@ -288,7 +288,7 @@ public interface RetrofittedImgur {
 			);	
 
 	@GET("/3/g/memes/{sort}/{window}/{page}")
-	Call<ImgurResponseWrapper<List<GalleryItemProxy>>> listMemeGallery(
+	Call<ImgurResponseWrapper<List<GalleryItem>>> listMemeGallery(
 			@Path("sort") String sort,
 			@Path("window") String window,
 			@Path("page") int page
@@ -300,7 +300,7 @@ public interface RetrofittedImgur {
 //			@Path("id") String id );
 
 	@GET("/3/gallery/r/{subreddit}/{sort}/{window}/{page}")
-	Call<ImgurResponseWrapper<List<GalleryItemProxy>>> listSubredditGallery(
+	Call<ImgurResponseWrapper<List<GalleryItem>>> listSubredditGallery(
 			@Path("subreddit") String subreddit,
 			@Path("sort") String sort,
 			@Path("window") String window,
@@ -332,7 +332,7 @@ public interface RetrofittedImgur {
 			@Path("vote") String vote );
 	
 	@GET("/3/gallery/search/{sort}/{window}/{page}")
-	Call<ImgurResponseWrapper<List<GalleryItemProxy>>> searchGallery(
+	Call<ImgurResponseWrapper<List<GalleryItem>>> searchGallery(
 			@Path("sort") String sort,
 			@Path("window") String window,
 			@Path("page") int page,
@@ -344,14 +344,14 @@ public interface RetrofittedImgur {
 			@Query("q_size_px") String imageSize );
 
 	@GET("/3/gallery/search/{sort}/{window}/{page}")
-	Call<ImgurResponseWrapper<List<GalleryItemProxy>>> compoundSearchGallery(
+	Call<ImgurResponseWrapper<List<GalleryItem>>> compoundSearchGallery(
 			@Path("sort") String sort,
 			@Path("window") String window,
 			@Path("page") int page,
 			@Query("q") String compoundQuery );
 
 	@GET("/3/gallery/random/random/{page}")
-	Call<ImgurResponseWrapper<List<GalleryItemProxy>>> listRandomGallery(
+	Call<ImgurResponseWrapper<List<GalleryItem>>> listRandomGallery(
 			@Path("page") int page );
 
 	@FormUrlEncoded
@@ -519,7 +519,7 @@ public interface RetrofittedImgur {
 	
 
 	@GET("/3/topics/{topic_id}/{sort}/{window}/{page}")
-	Call<ImgurResponseWrapper<List<GalleryItemProxy>>> listTopicItems(
+	Call<ImgurResponseWrapper<List<GalleryItem>>> listTopicItems(
 			@Path("topic_id") int topicId,
 			@Path("sort") String sort,
 			@Path("window") String window,
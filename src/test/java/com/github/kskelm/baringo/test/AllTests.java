@@ -18,7 +18,25 @@ import org.junit.runners.Suite.SuiteClasses;
 	GalleryTest.class,
 	ConversationTest.class,
 	NotificationTest.class,
-	MemeTest.class
+	MemeTest.class,
+	GalleryItemAdapterTest.class,
+	EntityCacheTest.class,
+	UploadIndexTest.class,
+	InProcessMetricsTest.class,
+	MockImgurServerTest.class,
+	TrafficReplayTest.class,
+	ClientPoolTest.class,
+	SingleFlightTest.class,
+	DownloadManagerTest.class,
+	ImageDownloadTest.class,
+	HedgingPolicyTest.class,
+	RetryPolicyTest.class,
+	PagedTest.class,
+	BatchUploadTest.class,
+	RateLimiterTest.class,
+	TokenRefreshTest.class,
+	UploadBodyTest.class,
+	HttpLoggerTest.class
 })
 
 public class AllTests {
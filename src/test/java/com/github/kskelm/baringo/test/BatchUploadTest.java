@@ -0,0 +1,125 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.BatchUpload;
+import com.github.kskelm.baringo.mock.MockImgurServer;
+import com.github.kskelm.baringo.model.Album;
+
+/**
+ * Offline; uploads batches to the mock Imgur server, which is
+ * scripted to fail the calls each test cares about.
+ */
+public class BatchUploadTest extends TestCase {
+	public BatchUploadTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testRetries() throws Exception {
+		// one at a time, so the script lines up: a gets a 500 and then
+		// works, b gets a 400, c gets a 429 and then works
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.script( "uploadLocalImage", 500, 200, 400, 429, 200 ).build().start() ) {
+			BaringoClient client = clientFor( mock );
+			Album album = client.albumService().getAlbum( "batch1" );
+			BatchUpload.Report report = batch( client, 1, album, "a", "b", "c" ).run();
+
+			List<BatchUpload.Result> results = report.getResults();
+			assertEquals( "in the order added", "a.jpg", results.get( 0 ).getFileName() );
+			assertTrue( "500 retried", results.get( 0 ).isSuccess() );
+			assertEquals( "500 retried", 2, results.get( 0 ).getAttempts() );
+			assertFalse( "400 not retried", results.get( 1 ).isSuccess() );
+			assertEquals( "400 not retried", 1, results.get( 1 ).getAttempts() );
+			assertEquals( "why", 400, results.get( 1 ).getError().getHttpCode() );
+			assertNull( "no id", results.get( 1 ).getId() );
+			assertTrue( "429 retried", results.get( 2 ).isSuccess() );
+			assertEquals( "429 retried", 2, results.get( 2 ).getAttempts() );
+			assertNotNull( "delete hash", results.get( 2 ).getDeleteHash() );
+
+			assertEquals( "succeeded", 2, report.getSucceededCount() );
+			assertEquals( "failed", 1, report.getFailedCount() );
+			assertEquals( "every attempt made", Long.valueOf( 5 ), mock.getRequestCounts().get( "uploadLocalImage" ) );
+			assertSame( "the survivors went in the album", album, report.getAlbum() );
+			assertNull( "no album trouble", report.getAlbumError() );
+			assertEquals( "in one call", Long.valueOf( 1 ), mock.getRequestCounts().get( "addAlbumImageIds" ) );
+		} // try
+	}
+
+	@Test
+	public void testGivesUp() throws Exception {
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.script( "uploadLocalImage", 503, 503 ).build().start() ) {
+			BaringoClient client = clientFor( mock );
+			BatchUpload.Report report = new BatchUpload.Builder( client ).concurrency( 1 ).retries( 0 )
+					.album( client.albumService().getAlbum( "batch2" ) ).build()
+					.add( image(), "image/jpeg", "a.jpg", null, null )
+					.add( image(), "image/jpeg", "b.jpg", null, null )
+					.run();
+			for( BatchUpload.Result r : report.getResults() ) {
+				assertFalse( "no retries left", r.isSuccess() );
+				assertEquals( "one try", 1, r.getAttempts() );
+				assertEquals( "last error", 503, r.getError().getHttpCode() );
+			} // for
+			assertEquals( "nothing made it", 2, report.getFailedCount() );
+			assertNull( "so the album wasn't touched", mock.getRequestCounts().get( "addAlbumImageIds" ) );
+			assertNull( "and isn't a failure either", report.getAlbumError() );
+		} // try
+	}
+
+	@Test
+	public void testAlbumFailure() throws Exception {
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.script( "addAlbumImageIds", 403 ).build().start() ) {
+			BaringoClient client = clientFor( mock );
+			BatchUpload.Report report = batch( client, 2, client.albumService().getAlbum( "batch3" ), "a", "b" ).run();
+			assertEquals( "the uploads worked", 2, report.getSucceededCount() );
+			assertNull( "the album didn't", report.getAlbum() );
+			assertEquals( "why", 403, report.getAlbumError().getHttpCode() );
+		} // try
+	}
+
+	@Test
+	public void testWaitsForPostCredits() throws Exception {
+		// two post credits every two seconds; the third upload has to
+		// wait for them to come back rather than be turned away
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.rateLimits( 1000, 1000, 2, 2, TimeUnit.SECONDS ).build().start() ) {
+			BaringoClient client = clientFor( mock );
+			BatchUpload.Report report = batch( client, 1, null, "a", "b", "c" ).run();
+			assertEquals( "all made it", 3, report.getSucceededCount() );
+			for( BatchUpload.Result r : report.getResults() ) {
+				assertEquals( "first time", 1, r.getAttempts() );
+			} // for
+			assertEquals( "never ran out", 0, mock.getRateLimited() );
+			assertEquals( "no album", null, report.getAlbum() );
+		} // try
+	}
+
+	static BatchUpload batch( BaringoClient client, int concurrency, Album album, String... names ) {
+		BatchUpload batch = new BatchUpload.Builder( client ).concurrency( concurrency ).album( album ).build();
+		for( String name : names ) {
+			batch.add( image(), "image/jpeg", name + ".jpg", name, null );
+		} // for
+		return batch;
+	}
+
+	static ByteBuffer image() {
+		return ByteBuffer.wrap( new byte[1000] );
+	}
+
+	static BaringoClient clientFor( MockImgurServer mock ) throws Exception {
+		return new BaringoClient.Builder()
+				.clientAuth( "mock", "mock" )
+				.apiEndpoint( mock.getEndpoint() )
+				.build();
+	}
+
+}
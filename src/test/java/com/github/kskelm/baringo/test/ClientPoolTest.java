@@ -0,0 +1,102 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.ClientPool;
+import com.github.kskelm.baringo.RateLimiter;
+import com.github.kskelm.baringo.mock.MockImgurServer;
+import com.github.kskelm.baringo.model.Account;
+import com.github.kskelm.baringo.util.BaringoApiException;
+
+/**
+ * Offline; runs pooled sessions against the mock Imgur server.
+ */
+public class ClientPoolTest extends TestCase {
+	public ClientPoolTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testHttpCacheIsPerUser() throws Exception {
+		File dir = Files.createTempDirectory( "baringo-cache" ).toFile();
+		try( MockImgurServer mock = mockWithUsers() ) {
+			ClientPool pool = new ClientPool( new BaringoClient.Builder()
+					.clientAuth( "mock", "mock" )
+					.apiEndpoint( mock.getEndpoint() )
+					.httpCache( dir, 1024 * 1024 )
+					.httpCacheFreshness( 1, TimeUnit.HOURS )
+					.build() );
+			BaringoClient alice = pool.login( "alice", "alice-refresh" );
+			BaringoClient bob = pool.login( "bob", "bob-refresh" );
+
+			Account alices = alice.accountService().getAccount( "me" );
+			assertEquals( "fresh, so from the cache", alices.getBio(),
+					alice.accountService().getAccount( "me" ).getBio() );
+			assertEquals( "one trip for alice", Long.valueOf( 1 ), mock.getRequestCounts().get( "getAccount" ) );
+
+			Account bobs = bob.accountService().getAccount( "me" );
+			assertEquals( "bob went to the network", Long.valueOf( 2 ), mock.getRequestCounts().get( "getAccount" ) );
+			assertFalse( "bob didn't get alice's copy", alices.getBio().equals( bobs.getBio() ) );
+			assertEquals( "bob's is cached too", bobs.getBio(), bob.accountService().getAccount( "me" ).getBio() );
+			assertEquals( "no more trips", Long.valueOf( 2 ), mock.getRequestCounts().get( "getAccount" ) );
+		} finally {
+			for( File f : dir.listFiles() ) {
+				f.delete();
+			} // for
+			dir.delete();
+		} // try-finally
+	}
+
+	@Test
+	public void testApplicationCreditsAreShared() throws Exception {
+		// plenty of user credits, but only four for the whole app
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.rateLimits( 1000, 4, 1000, 1, TimeUnit.HOURS ).build().start() ) {
+			ClientPool pool = new ClientPool( new BaringoClient.Builder()
+					.clientAuth( "mock", "mock" )
+					.apiEndpoint( mock.getEndpoint() )
+					.rateLimit( RateLimiter.Policy.FAIL_FAST )
+					.build() );
+			BaringoClient alice = pool.login( "alice", "alice-refresh" ); // 3 left
+			BaringoClient bob = pool.login( "bob", "bob-refresh" );       // 2 left
+
+			alice.imageService().getImageInfo( "a1" );
+			alice.imageService().getImageInfo( "a2" );
+			assertEquals( "app budget spent", 0, alice.getQuota().getApplicationCreditsAvailable() );
+
+			// bob last heard there were 2 left, but alice has spent them since
+			try {
+				bob.imageService().getImageInfo( "b1" );
+				fail( "should be out of application credits" );
+			} catch( BaringoApiException e ) {
+				assertEquals( "429", 429, e.getHttpCode() );
+			} // try-catch
+			assertEquals( "stopped on the client", 1, bob.getRateLimiter().getRejectedCount() );
+			assertEquals( "never reached Imgur", 0, mock.getRateLimited() );
+		} // try
+	}
+
+	/**
+	 * A mock that hands out a different access token per login and
+	 * a different bio per account fetch
+	 */
+	private static MockImgurServer mockWithUsers() throws Exception {
+		return new MockImgurServer.Builder()
+				.port( 0 )
+				.fixture( "refreshAccessToken", "{\"access_token\":\"token-{{random}}\",\"expires_in\":3600,"
+						+ "\"token_type\":\"bearer\",\"refresh_token\":\"refresh-{{random}}\","
+						+ "\"account_id\":1,\"account_username\":\"user-{{random}}\"}" )
+				.fixture( "getAccount", "{\"data\":{\"id\":1,\"url\":\"{{username}}\",\"bio\":\"{{random}}\","
+						+ "\"reputation\":1.0,\"created\":1400000000},\"success\":true,\"status\":200}" )
+				.build()
+				.start();
+	}
+
+}
@@ -0,0 +1,119 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.DownloadManager;
+import com.github.kskelm.baringo.DownloadResult;
+import com.github.kskelm.baringo.mock.MockImgurServer;
+
+/**
+ * Offline; downloads from the mock Imgur server.
+ */
+public class DownloadManagerTest extends TestCase {
+	public DownloadManagerTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testSameFileOnce() throws Exception {
+		Path dir = Files.createTempDirectory( "baringo-dm" );
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.latency( 200, 0, TimeUnit.MILLISECONDS ).imageSize( 50000 ).build().start() ) {
+			BaringoClient client = clientFor( mock );
+			String link = mock.getEndpoint() + "/i/dupe.jpg";
+			try( DownloadManager dm = new DownloadManager.Builder( client, dir ).concurrency( 4 ).build() ) {
+				CompletableFuture<DownloadResult> a = dm.download( link, dir.resolve( "dupe.jpg" ) );
+				CompletableFuture<DownloadResult> b = dm.download( link, dir.resolve( "dupe.jpg" ) );
+				assertEquals( "a", 50000, a.get( 10, TimeUnit.SECONDS ).getSize() );
+				assertEquals( "b", 50000, b.get( 10, TimeUnit.SECONDS ).getSize() );
+				assertEquals( "one download", Long.valueOf( 1 ), mock.getRequestCounts().get( "image" ) );
+				assertEquals( "one duplicate", 1, dm.getDuplicateCount() );
+				assertEquals( "one completed", 1, dm.getCompletedCount() );
+			} // try
+			assertEquals( "in place", 50000, Files.size( dir.resolve( "dupe.jpg" ) ) );
+			assertFalse( "no partial", Files.exists( dir.resolve( "dupe.jpg.part" ) ) );
+		} finally {
+			deleteAll( dir );
+		} // try-finally
+	}
+
+	@Test
+	public void testBusyHostDoesntHoldWorkers() throws Exception {
+		Path dir = Files.createTempDirectory( "baringo-dm" );
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.latency( 500, 0, TimeUnit.MILLISECONDS ).imageSize( 1000 ).build().start() ) {
+			BaringoClient client = clientFor( mock );
+			// two names for the same server, so two hosts as far as the manager knows
+			String busy = "http://localhost:" + mock.getPort() + "/i/";
+			String quiet = "http://127.0.0.1:" + mock.getPort() + "/i/";
+			try( DownloadManager dm = new DownloadManager.Builder( client, dir )
+					.concurrency( 2 ).maxPerHost( 1 ).build() ) {
+				dm.download( quiet + "warm.jpg", dir.resolve( "warm.jpg" ) ).get( 10, TimeUnit.SECONDS );
+				long start = System.nanoTime();
+				CompletableFuture<?> a = dm.download( busy + "a1.jpg", dir.resolve( "a1.jpg" ) );
+				dm.download( busy + "a2.jpg", dir.resolve( "a2.jpg" ) );
+				dm.download( busy + "a3.jpg", dir.resolve( "a3.jpg" ) );
+				CompletableFuture<?> b = dm.download( quiet + "b.jpg", dir.resolve( "b.jpg" ) );
+				b.get( 10, TimeUnit.SECONDS );
+				long ms = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+				assertTrue( "didn't wait behind the busy host: " + ms + "ms", ms < 1000 );
+				a.get( 10, TimeUnit.SECONDS );
+			} // try
+			assertEquals( "all done", 5, dir.toFile().list().length );
+		} finally {
+			deleteAll( dir );
+		} // try-finally
+	}
+
+	@Test
+	public void testShutdownNowFailsWaiting() throws Exception {
+		Path dir = Files.createTempDirectory( "baringo-dm" );
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.latency( 300, 0, TimeUnit.MILLISECONDS ).imageSize( 1000 ).build().start() ) {
+			BaringoClient client = clientFor( mock );
+			DownloadManager dm = new DownloadManager.Builder( client, dir )
+					.concurrency( 2 ).maxPerHost( 1 ).retries( 0 ).build();
+			dm.download( mock.getEndpoint() + "/i/x1.jpg", dir.resolve( "x1.jpg" ) );
+			CompletableFuture<?> waiting = dm.download( mock.getEndpoint() + "/i/x2.jpg", dir.resolve( "x2.jpg" ) );
+			dm.shutdownNow();
+			try {
+				waiting.get( 10, TimeUnit.SECONDS );
+				fail( "should have been abandoned" );
+			} catch( ExecutionException e ) {
+				// expected
+			} // try-catch
+			dm.close();
+			assertEquals( "nothing left", 0, dm.getPendingCount() );
+		} finally {
+			deleteAll( dir );
+		} // try-finally
+	}
+
+	private static BaringoClient clientFor( MockImgurServer mock ) throws Exception {
+		return new BaringoClient.Builder()
+				.clientAuth( "mock", "mock" )
+				.apiEndpoint( mock.getEndpoint() )
+				.build();
+	}
+
+	private static void deleteAll( Path dir ) {
+		File[] files = dir.toFile().listFiles();
+		if( files != null ) {
+			for( File f : files ) {
+				f.delete();
+			} // for
+		} // if
+		dir.toFile().delete();
+	}
+
+}
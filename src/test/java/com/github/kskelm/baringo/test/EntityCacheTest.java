@@ -0,0 +1,128 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.CacheStats;
+import com.github.kskelm.baringo.EntityCache;
+import com.github.kskelm.baringo.LruEntityCache;
+import com.github.kskelm.baringo.mock.MockImgurServer;
+import com.github.kskelm.baringo.util.BaringoApiException;
+
+/**
+ * Offline; exercises the stock cache directly, and its wiring into
+ * a client against the mock Imgur server.
+ */
+public class EntityCacheTest extends TestCase {
+	public EntityCacheTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testHitsMissesAndInvalidation() {
+		LruEntityCache cache = new LruEntityCache();
+
+		assertNull( "empty cache misses", cache.get( EntityCache.Type.Image, "abc" ) );
+		cache.put( EntityCache.Type.Image, "abc", "image abc" );
+		assertEquals( "cached value comes back", "image abc", cache.get( EntityCache.Type.Image, "abc" ) );
+		assertNull( "types don't share keys", cache.get( EntityCache.Type.Album, "abc" ) );
+
+		assertTrue( "invalidate drops it", cache.invalidate( EntityCache.Type.Image, "abc" ) );
+		assertFalse( "nothing left to invalidate", cache.invalidate( EntityCache.Type.Image, "abc" ) );
+		assertNull( "gone after invalidate", cache.get( EntityCache.Type.Image, "abc" ) );
+
+		CacheStats stats = cache.getStats( EntityCache.Type.Image );
+		assertEquals( "hits", 1, stats.getHits() );
+		assertEquals( "misses", 2, stats.getMisses() );
+		assertEquals( "invalidations", 1, stats.getInvalidations() );
+		assertEquals( "hit rate", 1.0 / 3, stats.getHitRate(), 0.0001 );
+	}
+
+	@Test
+	public void testLruEviction() {
+		LruEntityCache cache = new LruEntityCache( 2 );
+
+		cache.put( EntityCache.Type.Account, "a", "A" );
+		cache.put( EntityCache.Type.Account, "b", "B" );
+		cache.get( EntityCache.Type.Account, "a" ); // b is now least recently used
+		cache.put( EntityCache.Type.Account, "c", "C" );
+
+		assertNull( "LRU entry evicted", cache.get( EntityCache.Type.Account, "b" ) );
+		assertEquals( "recently used survives", "A", cache.get( EntityCache.Type.Account, "a" ) );
+		assertEquals( "newest survives", "C", cache.get( EntityCache.Type.Account, "c" ) );
+		assertEquals( "one eviction", 1, cache.getStats( EntityCache.Type.Account ).getEvictions() );
+		assertEquals( "size capped", 2, cache.getStats( EntityCache.Type.Account ).getSize() );
+	}
+
+	@Test
+	public void testTtl() throws InterruptedException {
+		LruEntityCache cache = new LruEntityCache()
+				.ttl( EntityCache.Type.Comment, 50, TimeUnit.MILLISECONDS )
+				.ttl( EntityCache.Type.GalleryItem, 0, TimeUnit.MILLISECONDS );
+
+		cache.put( EntityCache.Type.Comment, "1", "comment" );
+		cache.put( EntityCache.Type.GalleryItem, "x", "item" );
+		assertEquals( "fresh", "comment", cache.get( EntityCache.Type.Comment, "1" ) );
+		assertNull( "ttl 0 doesn't cache", cache.get( EntityCache.Type.GalleryItem, "x" ) );
+
+		Thread.sleep( 80 );
+		assertNull( "expired", cache.get( EntityCache.Type.Comment, "1" ) );
+	}
+
+	@Test
+	public void testUncachedWhileLoading() throws Exception {
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 ).build().start() ) {
+			RacingCache cache = new RacingCache();
+			BaringoClient client = new BaringoClient.Builder()
+					.clientAuth( "mock", "mock" )
+					.apiEndpoint( mock.getEndpoint() )
+					.entityCache( cache )
+					.build();
+
+			// the update lands after the load, but before its result is cached
+			cache.beforePut = () -> client.imageService().updateImage( "abc", "new title", null );
+			client.imageService().getImageInfo( "abc" );
+			assertNull( "stale copy dropped", cache.get( EntityCache.Type.Image, "abc" ) );
+			client.imageService().getImageInfo( "abc" );
+			client.imageService().getImageInfo( "abc" );
+			assertEquals( "refetched once, then cached", Long.valueOf( 2 ),
+					mock.getRequestCounts().get( "getImageInfo" ) );
+
+			cache.beforePut = () -> client.imageService().updateImage( "def", "new title", null );
+			client.async().imageService().getImageInfo( "def" ).get( 5, TimeUnit.SECONDS );
+			assertNull( "async drops it too", cache.get( EntityCache.Type.Image, "def" ) );
+			client.async().imageService().getImageInfo( "def" ).get( 5, TimeUnit.SECONDS );
+			assertNotNull( "cached once it's a clean load", cache.get( EntityCache.Type.Image, "def" ) );
+		} // try
+	}
+
+	/**
+	 * Runs something just before the next put, once
+	 */
+	private static class RacingCache extends LruEntityCache {
+		interface Hook {
+			void run() throws BaringoApiException;
+		}
+
+		@Override
+		public void put( Type type, String key, Object value ) {
+			Hook hook = beforePut;
+			beforePut = null;
+			if( hook != null ) {
+				try {
+					hook.run();
+				} catch( BaringoApiException e ) {
+					throw new IllegalStateException( e );
+				} // try-catch
+			} // if
+			super.put( type, key, value );
+		}
+
+		volatile Hook beforePut = null;
+	}
+
+}
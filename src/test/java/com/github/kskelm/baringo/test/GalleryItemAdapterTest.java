@@ -0,0 +1,109 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.mock.MockImgurServer;
+import com.github.kskelm.baringo.model.ImgurResponseWrapper;
+import com.github.kskelm.baringo.model.gallery.GalleryAlbum;
+import com.github.kskelm.baringo.model.gallery.GalleryImage;
+import com.github.kskelm.baringo.model.gallery.GalleryItem;
+import com.github.kskelm.baringo.model.gallery.GalleryItemAdapterFactory;
+import com.github.kskelm.baringo.model.gallery.GalleryItemProxy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Offline; reads the mock Imgur server's gallery page rather than
+ * hitting Imgur.
+ */
+public class GalleryItemAdapterTest extends TestCase {
+	public GalleryItemAdapterTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testStreamingMatchesProxy() {
+		String json = MockImgurServer.fixture( "listGallery", "https://imgur.com" );
+
+		List<GalleryItem> streamed = readStreaming( json );
+		List<GalleryItem> proxied = readViaProxy( json );
+
+		assertEquals( "same number of items", proxied.size(), streamed.size() );
+		int albums = 0;
+		for( int i = 0; i < streamed.size(); i++ ) {
+			GalleryItem s = streamed.get( i );
+			GalleryItem p = proxied.get( i );
+			assertEquals( "same class", p.getClass(), s.getClass() );
+			assertEquals( "same fields", p.toString(), s.toString() );
+			if( s instanceof GalleryAlbum ) {
+				albums++;
+			} // if
+		} // for
+		assertTrue( "fixture has albums", albums > 0 );
+		assertTrue( "fixture has images", albums < streamed.size() );
+		assertTrue( "is_album honored", streamed.get( 0 ).isAlbum() );
+		assertTrue( "images are images", streamed.get( 1 ) instanceof GalleryImage );
+	}
+
+	// ==================================================
+
+	private static List<GalleryItem> readStreaming( String json ) {
+		ImgurResponseWrapper<List<GalleryItem>> out = streamingGson.fromJson( json, STREAMING_TYPE );
+		return out.getData();
+	}
+
+	// this is what GalleryService used to do
+	private static List<GalleryItem> readViaProxy( String json ) {
+		ImgurResponseWrapper<List<GalleryItemProxy>> out = proxyGson.fromJson( json, PROXY_TYPE );
+		List<GalleryItem> items = new ArrayList<>();
+		for( GalleryItemProxy proxy : out.getData() ) {
+			items.add( proxy.isAlbum() ? new GalleryAlbum( proxy ) : new GalleryImage( proxy ) );
+		} // for
+		return items;
+	}
+
+	// same as the client's own; Imgur dates are epoch seconds
+	private static class EpochDateAdapter extends TypeAdapter<Date> {
+		@Override
+		public void write( JsonWriter out, Date value ) throws IOException {
+			if( value == null ) {
+				out.nullValue();
+				return;
+			} // if
+			out.value( value.getTime() / 1000 );
+		}
+
+		@Override
+		public Date read( JsonReader in ) throws IOException {
+			if( in.peek() == JsonToken.NULL ) {
+				in.nextNull();
+				return null;
+			} // if
+			return new Date( in.nextLong() * 1000 );
+		}
+	}
+
+	private static final Type STREAMING_TYPE = new TypeToken<ImgurResponseWrapper<List<GalleryItem>>>(){}.getType();
+	private static final Type PROXY_TYPE = new TypeToken<ImgurResponseWrapper<List<GalleryItemProxy>>>(){}.getType();
+
+	private static final Gson proxyGson = new GsonBuilder()
+			.registerTypeAdapter( Date.class, new EpochDateAdapter() )
+			.create();
+	private static final Gson streamingGson = new GsonBuilder()
+			.registerTypeAdapter( Date.class, new EpochDateAdapter() )
+			.registerTypeAdapterFactory( new GalleryItemAdapterFactory() )
+			.create();
+}
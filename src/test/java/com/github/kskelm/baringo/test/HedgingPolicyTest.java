@@ -0,0 +1,175 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.HedgingPolicy;
+import com.github.kskelm.baringo.RetryPolicy;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Offline; hedges image lookups against a server that's slow the
+ * first time it's asked for certain images.
+ */
+public class HedgingPolicyTest extends TestCase {
+	public HedgingPolicyTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testHedgeWins() throws Exception {
+		try( SlowServer server = new SlowServer() ) {
+			HedgingPolicy hedging = policy( 100.0 );
+			RetryPolicy retry = new RetryPolicy.Builder().build();
+			BaringoClient client = clientFor( server, hedging, retry );
+			warmUp( client );
+
+			long start = System.nanoTime();
+			assertEquals( "answered", "slow-1", client.imageService().getImageInfo( "slow-1" ).getId() );
+			long ms = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+			assertTrue( "didn't wait for the slow one: " + ms + "ms", ms < SLOW_MS );
+			assertEquals( "hedged", 1, hedging.getHedges() );
+			assertEquals( "hedge won", 1, hedging.getHedgeWins() );
+			assertEquals( "two requests", 2, server.count( "slow-1" ) );
+			assertEquals( "the beaten call isn't a latency sample", WARM_UP,
+					hedging.getLatencies().get( "getImageInfo" ).getCount() );
+			RetryPolicy.EndpointStats stats = retry.getEndpointStats( "getImageInfo" );
+			assertEquals( "losing isn't failing", 0, stats.getConsecutiveFailures() );
+			assertEquals( "nor retried", 0, stats.getRetries() );
+		} // try
+	}
+
+	@Test
+	public void testBudget() throws Exception {
+		try( SlowServer server = new SlowServer() ) {
+			HedgingPolicy hedging = policy( 10.0 ); // not even one hedge in the first ten calls
+			BaringoClient client = clientFor( server, hedging, null );
+			warmUp( client );
+
+			client.imageService().getImageInfo( "slow-1" );
+			assertEquals( "no hedge", 0, hedging.getHedges() );
+			assertEquals( "denied", 1, hedging.getBudgetDenied() );
+			assertEquals( "one request", 1, server.count( "slow-1" ) );
+			assertEquals( "it ran its course, so it counts", WARM_UP + 1,
+					hedging.getLatencies().get( "getImageInfo" ).getCount() );
+		} // try
+	}
+
+	@Test
+	public void testHedgeNotRetried() throws Exception {
+		try( SlowServer server = new SlowServer() ) {
+			HedgingPolicy hedging = policy( 100.0 );
+			RetryPolicy retry = new RetryPolicy.Builder()
+					.maxRetries( 3 )
+					.backoff( 1, 1, TimeUnit.MILLISECONDS )
+					.build();
+			BaringoClient client = clientFor( server, hedging, retry );
+			warmUp( client );
+
+			// the original is slow but fine; the hedge gets a 503
+			assertEquals( "the original's answer", "flaky-1", client.imageService().getImageInfo( "flaky-1" ).getId() );
+			assertEquals( "hedged", 1, hedging.getHedges() );
+			assertEquals( "hedge lost", 0, hedging.getHedgeWins() );
+			assertEquals( "the hedge wasn't retried", 2, server.count( "flaky-1" ) );
+			assertEquals( "no retries", 0, retry.getRetries() );
+		} // try
+	}
+
+	private static final int WARM_UP = 5;
+	private static final long SLOW_MS = 1000;
+
+	private static HedgingPolicy policy( double budget ) {
+		return new HedgingPolicy.Builder()
+				.minSamples( WARM_UP )
+				.delayBounds( 50, 100, TimeUnit.MILLISECONDS )
+				.budget( budget )
+				.build();
+	}
+
+	private static BaringoClient clientFor( SlowServer server, HedgingPolicy hedging, RetryPolicy retry ) throws Exception {
+		BaringoClient.Builder builder = new BaringoClient.Builder()
+				.clientAuth( "mock", "mock" )
+				.apiEndpoint( server.getEndpoint() )
+				.hedging( hedging );
+		if( retry != null ) {
+			builder.retryPolicy( retry );
+		} // if
+		return builder.build();
+	}
+
+	private static void warmUp( BaringoClient client ) throws Exception {
+		for( int i = 0; i < WARM_UP; i++ ) {
+			client.imageService().getImageInfo( "fast-" + i );
+		} // for
+	}
+
+	/**
+	 * Answers image lookups right away, except the first lookup of a
+	 * "slow-" or "flaky-" image, which takes a second.  Later lookups
+	 * of a "flaky-" image get a 503.
+	 */
+	private static class SlowServer implements AutoCloseable {
+		SlowServer() throws IOException {
+			server = HttpServer.create( new InetSocketAddress( 0 ), 64 );
+			server.createContext( "/", this::handle );
+			server.setExecutor( executor );
+			server.start();
+		}
+
+		String getEndpoint() {
+			return "http://localhost:" + server.getAddress().getPort();
+		}
+
+		int count( String id ) {
+			AtomicInteger n = counts.get( id );
+			return n == null ? 0 : n.get();
+		}
+
+		@Override
+		public void close() {
+			server.stop( 0 );
+			executor.shutdownNow();
+		}
+
+		private void handle( HttpExchange ex ) throws IOException {
+			try {
+				String path = ex.getRequestURI().getPath();
+				String id = path.substring( path.lastIndexOf( '/' ) + 1 );
+				int n = counts.computeIfAbsent( id, k -> new AtomicInteger() ).incrementAndGet();
+				int status = 200;
+				if( n == 1 && (id.startsWith( "slow-" ) || id.startsWith( "flaky-" )) ) {
+					Thread.sleep( SLOW_MS );
+				} else if( n > 1 && id.startsWith( "flaky-" ) ) {
+					status = 503;
+				} // if-else
+				byte[] body = ("{\"data\":{\"id\":\"" + id + "\"},\"success\":" + (status == 200)
+						+ ",\"status\":" + status + "}").getBytes( StandardCharsets.UTF_8 );
+				ex.getResponseHeaders().set( "Content-Type", "application/json" );
+				ex.sendResponseHeaders( status, body.length );
+				ex.getResponseBody().write( body );
+			} catch( InterruptedException | IOException e ) {
+				// hung up on; the client cancelled
+			} finally {
+				ex.close();
+			} // try-catch-finally
+		}
+
+		private final HttpServer server;
+		private final ExecutorService executor = Executors.newCachedThreadPool();
+		private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+	}
+
+}
@@ -0,0 +1,237 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.HttpLogger;
+import com.squareup.okhttp.Connection;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+import okio.BufferedSink;
+
+/**
+ * Offline; runs requests through the logger with a stub chain
+ * behind it and reads back what it logged.
+ */
+public class HttpLoggerTest extends TestCase {
+	public HttpLoggerTest( String testName ) {
+		super( testName );
+	}
+
+	@Override
+	protected void setUp() {
+		log.addHandler( captured );
+		log.setUseParentHandlers( false ); // thousands of lines nobody needs to see
+	}
+
+	@Override
+	protected void tearDown() {
+		log.removeHandler( captured );
+		log.setUseParentHandlers( true );
+	}
+
+	@Test
+	public void testRedactsAuthorization() throws Exception {
+		Request request = new Request.Builder().url( URL )
+				.header( "Authorization", "Bearer s3cret-t0ken" )
+				.header( "X-Other", "shown" )
+				.build();
+		new Probe( HttpLogger.Level.HEADERS, 100, 1.0 ).intercept( new StubChain( request, "{}" ) );
+
+		String logged = captured.get( 0 );
+		assertTrue( logged, logged.contains( "Authorization: Bearer (redacted)" ) );
+		assertFalse( logged, logged.contains( "s3cret" ) );
+		assertTrue( logged, logged.contains( "X-Other: shown" ) );
+
+		Request login = new Request.Builder().url( "http://localhost/oauth2/token" )
+				.post( RequestBody.create( FORM, "client_secret=s3cret&refresh_token=s3cret" ) )
+				.build();
+		new Probe( HttpLogger.Level.BODY, 1000, 1.0 ).intercept(
+				new StubChain( login, "{\"access_token\":\"s3cret\"}" ) );
+		for( String line : captured.lines ) {
+			assertFalse( line, line.contains( "s3cret" ) );
+		} // for
+	}
+
+	@Test
+	public void testSampling() throws Exception {
+		Request request = new Request.Builder().url( URL ).build();
+		StubChain chain = new StubChain( request, "{}" );
+		HttpLogger none = new Probe( HttpLogger.Level.BASIC, 100, 0.0 );
+		for( int i = 0; i < 100; i++ ) {
+			none.intercept( chain );
+		} // for
+		assertEquals( "all went through", 100, chain.proceeded );
+		assertEquals( "none logged", 0, captured.lines.size() );
+
+		HttpLogger half = new Probe( HttpLogger.Level.BASIC, 100, 0.5 );
+		for( int i = 0; i < 2000; i++ ) {
+			half.intercept( chain );
+		} // for
+		int requests = captured.lines.size() / 2; // a line out, a line back
+		assertTrue( "about half: " + requests, requests > 800 && requests < 1200 );
+
+		captured.lines.clear();
+		log.setLevel( java.util.logging.Level.WARNING );
+		try {
+			new Probe( HttpLogger.Level.BASIC, 100, 1.0 ).intercept( chain );
+		} finally {
+			log.setLevel( null );
+		} // try-finally
+		assertEquals( "nothing logged when INFO is off", 0, captured.lines.size() );
+	}
+
+	@Test
+	public void testRequestBodies() throws Exception {
+		HttpLogger logger = new Probe( HttpLogger.Level.BODY, 100, 1.0 );
+		logger.intercept( post( RequestBody.create( JSON, "{\"title\":\"short\"}" ) ) );
+		assertTrue( captured.get( 0 ), captured.get( 0 ).endsWith( "\n{\"title\":\"short\"}" ) );
+
+		logger.intercept( post( RequestBody.create( JSON, new String( new char[200] ).replace( '\0', 'x' ) ) ) );
+		assertTrue( captured.get( 2 ), captured.get( 2 ).endsWith( "\n(200-byte body omitted)" ) );
+
+		Unknown unknown = new Unknown();
+		logger.intercept( post( unknown ) );
+		assertTrue( captured.get( 4 ), captured.get( 4 ).endsWith( "\n(unknown-length body omitted)" ) );
+		assertFalse( "not written out just for the log", unknown.written );
+
+		logger.intercept( post( RequestBody.create( MediaType.parse( "image/jpeg" ), new byte[10] ) ) );
+		assertTrue( captured.get( 6 ), captured.get( 6 ).endsWith( "\n(binary body omitted)" ) );
+	}
+
+	@Test
+	public void testResponseTruncated() throws Exception {
+		String big = "{\"data\":\"" + new String( new char[300] ).replace( '\0', 'y' ) + "\"}";
+		Request request = new Request.Builder().url( URL ).build();
+		Response response = new Probe( HttpLogger.Level.BODY, 100, 1.0 ).intercept( new StubChain( request, big ) );
+
+		String logged = captured.get( 1 );
+		assertTrue( logged, logged.endsWith( "\n" + big.substring( 0, 100 ) + "... (truncated at 100 bytes)" ) );
+		assertEquals( "the caller still gets all of it", big, response.body().string() );
+
+		new Probe( HttpLogger.Level.BODY, 100, 1.0 ).intercept( new StubChain( request, "{\"data\":1}" ) );
+		assertTrue( captured.get( 3 ), captured.get( 3 ).endsWith( "\n{\"data\":1}" ) );
+	}
+
+	static StubChain post( RequestBody body ) {
+		return new StubChain( new Request.Builder().url( URL ).post( body ).build(), "{}" );
+	}
+
+	/**
+	 * Gets at HttpLogger's protected constructor
+	 */
+	private static class Probe extends HttpLogger {
+		Probe( Level level, long bodyLimit, double sampleRate ) {
+			super( level, bodyLimit, sampleRate );
+		}
+	}
+
+	/**
+	 * The rest of the chain: answers every request with the same JSON
+	 */
+	private static class StubChain implements Interceptor.Chain {
+		StubChain( Request request, String json ) {
+			this.request = request;
+			this.json = json;
+		}
+
+		@Override
+		public Request request() {
+			return request;
+		}
+
+		@Override
+		public Response proceed( Request request ) {
+			proceeded++;
+			return new Response.Builder()
+					.request( request )
+					.protocol( Protocol.HTTP_1_1 )
+					.code( 200 )
+					.message( "OK" )
+					.body( ResponseBody.create( JSON, json ) )
+					.build();
+		}
+
+		@Override
+		public Connection connection() {
+			return null;
+		}
+
+		int proceeded = 0;
+		private final Request request;
+		private final String json;
+	}
+
+	/**
+	 * A text body of unknown length that notes whether it was written
+	 */
+	private static class Unknown extends RequestBody {
+		@Override
+		public MediaType contentType() {
+			return JSON;
+		}
+
+		@Override
+		public long contentLength() {
+			return -1;
+		}
+
+		@Override
+		public void writeTo( BufferedSink sink ) throws IOException {
+			written = true;
+			sink.writeUtf8( "{}" );
+		}
+
+		boolean written = false;
+	}
+
+	/**
+	 * Keeps the logger's messages
+	 */
+	private static class Captured extends Handler {
+		@Override
+		public void publish( LogRecord record ) {
+			String msg = record.getMessage();
+			if( msg.startsWith( "-->" ) || msg.startsWith( "<--" ) ) {
+				lines.add( msg );
+			} // if
+		}
+
+		String get( int i ) {
+			return lines.get( i );
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+
+		final List<String> lines = new CopyOnWriteArrayList<>();
+	}
+
+	private static final String URL = "http://localhost/3/image/abc";
+	private static final MediaType JSON = MediaType.parse( "application/json" );
+	private static final MediaType FORM = MediaType.parse( "application/x-www-form-urlencoded" );
+	private static final Logger log = Logger.getLogger( BaringoClient.LOG_NAME );
+
+	private final Captured captured = new Captured();
+
+}
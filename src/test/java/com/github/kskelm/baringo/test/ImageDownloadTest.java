@@ -0,0 +1,329 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.DownloadResult;
+import com.github.kskelm.baringo.mock.MockImgurServer;
+
+/**
+ * Offline; downloads to files from the mock Imgur server, and from a
+ * scripted server for the answers the mock won't give (bodies cut
+ * short, wrong ranges, weak ETags).
+ */
+public class ImageDownloadTest extends TestCase {
+	public ImageDownloadTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testDownloadToFile() throws Exception {
+		Path dir = Files.createTempDirectory( "baringo-dl" );
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.imageSize( 700 * 1024 ).build().start() ) { // a few trips through the write loop
+			BaringoClient client = clientFor( mock.getEndpoint() );
+			String link = mock.getEndpoint() + "/i/big.jpg";
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			client.imageService().downloadImage( link, expected );
+
+			Path target = dir.resolve( "big.jpg" );
+			Files.write( target, "old".getBytes( StandardCharsets.UTF_8 ) );
+			assertEquals( "length", 700 * 1024, client.imageService().downloadImage( link, target, true ) );
+			assertTrue( "same bytes", Arrays.equals( expected.toByteArray(), Files.readAllBytes( target ) ) );
+			assertEquals( "renamed over the old one, temp file gone", 1, dir.toFile().list().length );
+
+			if( Files.getFileStore( dir ).supportsFileAttributeView( PosixFileAttributeView.class ) ) {
+				Path plain = Files.createFile( dir.resolve( "plain" ) );
+				assertEquals( "permissions like any new file", Files.getPosixFilePermissions( plain ),
+						Files.getPosixFilePermissions( target ) );
+			} // if
+		} finally {
+			deleteAll( dir );
+		} // try-finally
+	}
+
+	@Test
+	public void testShortRead() throws Exception {
+		Path dir = Files.createTempDirectory( "baringo-dl" );
+		String cut = ScriptedServer.reply( "200 OK", "ETag: \"v1\"\r\n", 0, 1000, 400 );
+		try( ScriptedServer server = new ScriptedServer( cut, cut ) ) {
+			BaringoClient client = clientFor( server.getEndpoint() );
+			Path target = dir.resolve( "short.jpg" );
+			Files.write( target, "old".getBytes( StandardCharsets.UTF_8 ) );
+			try {
+				client.imageService().downloadImage( server.getEndpoint() + "/i/short.jpg", target, false );
+				fail( "the download ended early" );
+			} catch( IOException e ) {
+				// expected
+			} // try-catch
+			assertEquals( "target untouched", "old", new String( Files.readAllBytes( target ), StandardCharsets.UTF_8 ) );
+			assertEquals( "temp file cleaned up", 1, dir.toFile().list().length );
+
+			try {
+				client.imageService().downloadImageResumable( server.getEndpoint() + "/i/short.jpg", target, 1, null );
+				fail( "the download ended early" );
+			} catch( IOException e ) {
+				// expected
+			} // try-catch
+			assertEquals( "what arrived was kept", 400, Files.size( dir.resolve( "short.jpg.part" ) ) );
+			assertEquals( "target still untouched", 3, Files.size( target ) );
+		} finally {
+			deleteAll( dir );
+		} // try-finally
+	}
+
+	@Test
+	public void testDroppedConnection() throws Exception {
+		Path dir = Files.createTempDirectory( "baringo-dl" );
+		String whole = ScriptedServer.reply( "200 OK", "ETag: \"v1\"\r\n", 0, 1000, 1000 );
+		try( ScriptedServer server = new ScriptedServer( null, whole ) ) {
+			BaringoClient client = clientFor( server.getEndpoint() );
+			Path target = dir.resolve( "dropped.jpg" );
+			DownloadResult result = client.imageService().downloadImageResumable(
+					server.getEndpoint() + "/i/dropped.jpg", target, 2, null );
+			assertEquals( "second try", 2, result.getAttempts() );
+			assertTrue( "all there", Arrays.equals( ScriptedServer.body( 1000 ), Files.readAllBytes( target ) ) );
+		} finally {
+			deleteAll( dir );
+		} // try-finally
+	}
+
+	@Test
+	public void testResume() throws Exception {
+		Path dir = Files.createTempDirectory( "baringo-dl" );
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.imageSize( 100000 ).build().start() ) {
+			BaringoClient client = clientFor( mock.getEndpoint() );
+			String link = mock.getEndpoint() + "/i/resume.jpg";
+			byte[] full = fetch( client, link );
+			Path target = dir.resolve( "resume.jpg" );
+			Files.write( dir.resolve( "resume.jpg.part" ), Arrays.copyOf( full, 30000 ) );
+			Files.write( dir.resolve( "resume.jpg.part.meta" ), mock.getImageEtag().getBytes( StandardCharsets.UTF_8 ) );
+
+			DownloadResult result = client.imageService().downloadImageResumable( link, target, 1, null );
+			assertEquals( "picked up", 30000, result.getBytesResumed() );
+			assertEquals( "just the rest", 70000, result.getBytesDownloaded() );
+			assertTrue( "stitched right", Arrays.equals( full, Files.readAllBytes( target ) ) );
+			assertEquals( "partial and meta gone", 1, dir.toFile().list().length );
+		} finally {
+			deleteAll( dir );
+		} // try-finally
+	}
+
+	@Test
+	public void testChangedFile() throws Exception {
+		Path dir = Files.createTempDirectory( "baringo-dl" );
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.imageSize( 100000 ).build().start() ) {
+			BaringoClient client = clientFor( mock.getEndpoint() );
+			String link = mock.getEndpoint() + "/i/changed.jpg";
+			Path target = dir.resolve( "changed.jpg" );
+			Files.write( dir.resolve( "changed.jpg.part" ), new byte[30000] ); // some older version
+			Files.write( dir.resolve( "changed.jpg.part.meta" ), "\"older\"".getBytes( StandardCharsets.UTF_8 ) );
+
+			DownloadResult result = client.imageService().downloadImageResumable( link, target, 1, null );
+			assertEquals( "If-Range didn't match, so nothing resumed", 0, result.getBytesResumed() );
+			assertTrue( "the new version, whole", Arrays.equals( fetch( client, link ), Files.readAllBytes( target ) ) );
+		} finally {
+			deleteAll( dir );
+		} // try-finally
+	}
+
+	@Test
+	public void testRangeNotSatisfiable() throws Exception {
+		Path dir = Files.createTempDirectory( "baringo-dl" );
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.imageSize( 10000 ).build().start() ) {
+			BaringoClient client = clientFor( mock.getEndpoint() );
+			String link = mock.getEndpoint() + "/i/shrunk.jpg";
+			Path target = dir.resolve( "shrunk.jpg" );
+			Files.write( dir.resolve( "shrunk.jpg.part" ), new byte[20000] ); // longer than the file is now
+			Files.write( dir.resolve( "shrunk.jpg.part.meta" ), mock.getImageEtag().getBytes( StandardCharsets.UTF_8 ) );
+
+			DownloadResult result = client.imageService().downloadImageResumable( link, target, 1, null );
+			assertEquals( "started over within the one attempt", 10000, result.getSize() );
+			assertEquals( "no resume", 0, result.getBytesResumed() );
+			assertEquals( "416, then the whole file", Long.valueOf( 2 ), mock.getRequestCounts().get( "image" ) );
+		} finally {
+			deleteAll( dir );
+		} // try-finally
+	}
+
+	@Test
+	public void testWrongRange() throws Exception {
+		Path dir = Files.createTempDirectory( "baringo-dl" );
+		// asked for bytes=400-, but the server sends it all as a 206
+		String wrong = ScriptedServer.reply( "206 Partial Content",
+				"ETag: \"v1\"\r\nContent-Range: bytes 0-999/1000\r\n", 0, 1000, 1000 );
+		String whole = ScriptedServer.reply( "200 OK", "ETag: \"v1\"\r\n", 0, 1000, 1000 );
+		try( ScriptedServer server = new ScriptedServer( wrong, whole ) ) {
+			BaringoClient client = clientFor( server.getEndpoint() );
+			Path target = dir.resolve( "wrong.jpg" );
+			Files.write( dir.resolve( "wrong.jpg.part" ), Arrays.copyOf( ScriptedServer.body( 1000 ), 400 ) );
+			Files.write( dir.resolve( "wrong.jpg.part.meta" ), "\"v1\"".getBytes( StandardCharsets.UTF_8 ) );
+
+			DownloadResult result = client.imageService().downloadImageResumable(
+					server.getEndpoint() + "/i/wrong.jpg", target, 1, null );
+			assertEquals( "whole file", 1000, result.getSize() );
+			assertTrue( "not stitched from the wrong place",
+					Arrays.equals( ScriptedServer.body( 1000 ), Files.readAllBytes( target ) ) );
+			assertTrue( "asked for a range first", server.getRequests().get( 0 ).contains( "Range: bytes=400-" ) );
+			assertFalse( "then for the whole thing", server.getRequests().get( 1 ).contains( "Range:" ) );
+		} finally {
+			deleteAll( dir );
+		} // try-finally
+	}
+
+	@Test
+	public void testWeakEtag() throws Exception {
+		Path dir = Files.createTempDirectory( "baringo-dl" );
+		String cut = ScriptedServer.reply( "200 OK", "ETag: W/\"v1\"\r\n", 0, 1000, 400 );
+		String whole = ScriptedServer.reply( "200 OK", "ETag: W/\"v1\"\r\n", 0, 1000, 1000 );
+		try( ScriptedServer server = new ScriptedServer( cut, whole ) ) {
+			BaringoClient client = clientFor( server.getEndpoint() );
+			Path target = dir.resolve( "weak.jpg" );
+			try {
+				client.imageService().downloadImageResumable( server.getEndpoint() + "/i/weak.jpg", target, 1, null );
+				fail( "the download ended early" );
+			} catch( IOException e ) {
+				// expected
+			} // try-catch
+			assertTrue( "partial kept", Files.exists( dir.resolve( "weak.jpg.part" ) ) );
+			assertFalse( "but a weak ETag can't vouch for it", Files.exists( dir.resolve( "weak.jpg.part.meta" ) ) );
+
+			DownloadResult result = client.imageService().downloadImageResumable(
+					server.getEndpoint() + "/i/weak.jpg", target, 1, null );
+			assertEquals( "started over", 0, result.getBytesResumed() );
+			assertFalse( "no Range asked for", server.getRequests().get( 1 ).contains( "Range:" ) );
+			assertTrue( "whole file", Arrays.equals( ScriptedServer.body( 1000 ), Files.readAllBytes( target ) ) );
+		} finally {
+			deleteAll( dir );
+		} // try-finally
+	}
+
+	private static byte[] fetch( BaringoClient client, String link ) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		client.imageService().downloadImage( link, out );
+		return out.toByteArray();
+	}
+
+	static BaringoClient clientFor( String endpoint ) throws Exception {
+		return new BaringoClient.Builder()
+				.clientAuth( "mock", "mock" )
+				.apiEndpoint( endpoint )
+				.build();
+	}
+
+	static void deleteAll( Path dir ) {
+		File[] files = dir.toFile().listFiles();
+		if( files != null ) {
+			for( File f : files ) {
+				f.delete();
+			} // for
+		} // if
+		dir.toFile().delete();
+	}
+
+	/**
+	 * Answers each connection with the next of a list of raw
+	 * responses, sending only the first few bytes of a body if told
+	 * to, and keeps the requests' headers
+	 */
+	/**
+	 * Answers one connection per reply, in order; a null reply drops
+	 * the connection as soon as it's made
+	 */
+	static class ScriptedServer implements AutoCloseable {
+		ScriptedServer( String... replies ) throws IOException {
+			this.socket = new ServerSocket( 0 );
+			Thread thread = new Thread( () -> {
+				for( String reply : replies ) {
+					try( Socket s = socket.accept() ) {
+						if( reply == null ) {
+							continue; // hang up before reading anything
+						} // if
+						requests.add( readHead( s.getInputStream() ) );
+						OutputStream out = s.getOutputStream();
+						out.write( reply.getBytes( StandardCharsets.ISO_8859_1 ) );
+						out.flush();
+					} catch( IOException e ) {
+						return; // closed
+					} // try-catch
+				} // for
+			} );
+			thread.setDaemon( true );
+			thread.start();
+		}
+
+		/**
+		 * Makes a response with a body of length bytes from
+		 * {@link #body(int)}, of which only send are sent
+		 */
+		static String reply( String status, String headers, int from, int length, int send ) {
+			StringBuilder sb = new StringBuilder( "HTTP/1.1 " ).append( status ).append( "\r\n" )
+					.append( "Content-Type: image/jpeg\r\n" ).append( headers )
+					.append( "Content-Length: " ).append( length ).append( "\r\nConnection: close\r\n\r\n" );
+			byte[] body = body( from + send );
+			for( int i = from; i < from + send; i++ ) {
+				sb.append( (char)(body[i] & 0xFF) );
+			} // for
+			return sb.toString();
+		}
+
+		/** The file the scripts are serving pieces of */
+		static byte[] body( int length ) {
+			byte[] b = new byte[length];
+			for( int i = 0; i < length; i++ ) {
+				b[i] = (byte)(i % 251);
+			} // for
+			return b;
+		}
+
+		String getEndpoint() {
+			return "http://localhost:" + socket.getLocalPort();
+		}
+
+		List<String> getRequests() {
+			return requests;
+		}
+
+		@Override
+		public void close() throws IOException {
+			socket.close();
+		}
+
+		private static String readHead( InputStream in ) throws IOException {
+			StringBuilder head = new StringBuilder();
+			for( int state = 0; state < 4; ) {
+				int b = in.read();
+				if( b == -1 ) {
+					break;
+				} // if
+				head.append( (char)b );
+				state = (b == '\r' || b == '\n') ? state + 1 : 0;
+			} // for
+			return head.toString();
+		}
+
+		private final ServerSocket socket;
+		private final List<String> requests = new CopyOnWriteArrayList<>();
+	}
+
+}
@@ -1,12 +1,14 @@
 /** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
 package com.github.kskelm.baringo.test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 
 import org.junit.Test;
 import junit.framework.TestCase;
 
+import com.github.kskelm.baringo.DownloadTransport;
 import com.github.kskelm.baringo.model.Image;
 import com.github.kskelm.baringo.model.Image.ThumbnailType;
 import com.github.kskelm.baringo.util.BaringoApiException;
@@ -102,6 +104,25 @@ public class ImageTest extends TestCase {
 		assertTrue( length == image.getSize() );
 	}	
 
+	@Test
+	public void testDownloadReusesConnections() throws BaringoApiException, IOException {
+		Setup setup = new Setup();
+
+		Image image = setup.getClient()
+				.imageService().getImageInfo( Setup.TEST_IMAGE_ID );
+
+		DownloadTransport transport = setup.getClient().getDownloadTransport();
+		long misses = transport.getPoolMisses();
+
+		for( int i = 0; i < 3; i++ ) {
+			setup.getClient().imageService()
+					.downloadImage( image.getLink(), new ByteArrayOutputStream() );
+		} // for
+
+		assertEquals( "only one new connection", misses + 1, transport.getPoolMisses() );
+		assertTrue( "later downloads reused it", transport.getPoolHits() >= 2 );
+	}	
+
 	@Test
 	public void testUpdateImageInfo() throws BaringoApiException {
 		Setup setup = new Setup();
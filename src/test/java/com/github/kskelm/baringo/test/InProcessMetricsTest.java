@@ -0,0 +1,76 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.InProcessMetrics;
+import com.github.kskelm.baringo.util.ApiRoutes;
+import com.github.kskelm.baringo.util.RetrofittedImgur;
+
+/**
+ * Offline; feeds the in-process metrics directly.
+ */
+public class InProcessMetricsTest extends TestCase {
+	public InProcessMetricsTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testSnapshot() {
+		InProcessMetrics metrics = new InProcessMetrics();
+		for( int i = 1; i <= 1000; i++ ) {
+			metrics.callStarted( "getAlbum" );
+			metrics.callFinished( "getAlbum", i == 1000 ? 500 : 200, TimeUnit.MILLISECONDS.toNanos( i ) );
+			metrics.responseRead( "getAlbum", i );
+		} // for
+		metrics.callStarted( "getAlbum" );
+		metrics.retried( "getAlbum" );
+		metrics.deserialized( "getAlbum", TimeUnit.MICROSECONDS.toNanos( 300 ) );
+
+		InProcessMetrics.Snapshot snap = metrics.snapshot( "getAlbum" );
+		assertEquals( "calls", 1000, snap.getCalls() );
+		assertEquals( "in flight", 1, snap.getInFlight() );
+		assertEquals( "retries", 1, snap.getRetries() );
+		assertEquals( "errors", 1, snap.getErrors() );
+		assertEquals( "200s", Long.valueOf( 999 ), snap.getStatusCounts().get( 200 ) );
+		assertEquals( "max bytes", 1000, snap.getMaxResponseBytes() );
+		assertEquals( "mean bytes", 500.5, snap.getMeanResponseBytes(), 0.001 );
+		assertWithin( "p50", 500, snap.getP50( TimeUnit.MILLISECONDS ) );
+		assertWithin( "p99", 990, snap.getP99( TimeUnit.MILLISECONDS ) );
+		assertWithin( "p999", 999, snap.getP999( TimeUnit.MILLISECONDS ) );
+		assertWithin( "parse", 300, snap.getDeserializeP50( TimeUnit.MICROSECONDS ) );
+
+		metrics.reset();
+		snap = metrics.snapshot( "getAlbum" );
+		assertEquals( "reset calls", 0, snap.getCalls() );
+		assertEquals( "reset keeps in-flight", 1, snap.getInFlight() );
+		assertNull( "never called", metrics.snapshot( "getImageInfo" ) );
+	}
+
+	@Test
+	public void testEndpointNames() throws NoSuchMethodException {
+		assertEquals( "by url", "getAlbum", ApiRoutes.endpointFor( "GET", "/3/album/abc123" ) );
+		assertEquals( "by annotation", "getAlbum", ApiRoutes.endpointFor(
+				RetrofittedImgur.class.getMethod( "getAlbum", String.class ).getAnnotations() ) );
+		assertEquals( "off the API", ApiRoutes.OTHER, ApiRoutes.endpointFor( "GET", "/i/abc123.jpg" ) );
+		assertEquals( "by query", "searchGallery", ApiRoutes.endpointFor(
+				"GET", "/3/gallery/search/time/all/0", "q_all=cats&q_type=png" ) );
+		assertEquals( "by query", "compoundSearchGallery", ApiRoutes.endpointFor(
+				"GET", "/3/gallery/search/time/all/0", "q=cats%20AND%20dogs" ) );
+		for( Method m : RetrofittedImgur.class.getDeclaredMethods() ) {
+			if( "searchGallery".equals( m.getName() ) || "compoundSearchGallery".equals( m.getName() ) ) {
+				assertEquals( "by annotation", m.getName(), ApiRoutes.endpointFor( m.getAnnotations() ) );
+			} // if
+		} // for
+	}
+
+	private static void assertWithin( String what, long expected, long actual ) {
+		// the histogram's buckets are good to about 6%
+		assertTrue( what + " was " + actual, Math.abs( actual - expected ) <= expected * 0.07 );
+	}
+
+}
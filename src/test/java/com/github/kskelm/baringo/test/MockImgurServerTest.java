@@ -0,0 +1,107 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.mock.MockImgurServer;
+import com.github.kskelm.baringo.model.Album;
+import com.github.kskelm.baringo.model.Image;
+import com.github.kskelm.baringo.util.BaringoApiException;
+
+/**
+ * Offline; points a client at the mock Imgur server.
+ */
+public class MockImgurServerTest extends TestCase {
+	public MockImgurServerTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testFixtures() throws Exception {
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 ).imageSize( 100000 ).build().start() ) {
+			BaringoClient client = clientFor( mock );
+
+			Image image = client.imageService().getImageInfo( "AbCdEfG" );
+			assertEquals( "id from the path", "AbCdEfG", image.getId() );
+			assertEquals( "link points home", mock.getEndpoint() + "/i/AbCdEfG.jpg", image.getLink() );
+
+			Album album = client.albumService().getAlbum( "xyz123" );
+			assertEquals( "album id", "xyz123", album.getId() );
+			assertFalse( "album has images", album.getImages().isEmpty() );
+
+			assertTrue( "no fixture, but the right shape",
+					client.imageService().deleteImage( "whatever" ) );
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			assertEquals( "image size", 100000, client.imageService().downloadImage( image.getLink(), out ) );
+			assertEquals( "counted", Long.valueOf( 1 ), mock.getRequestCounts().get( "getImageInfo" ) );
+		} // try
+	}
+
+	@Test
+	public void testRateLimits() throws Exception {
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.rateLimits( 3, 100, 100, 1, TimeUnit.HOURS ).build().start() ) {
+			BaringoClient client = clientFor( mock );
+			for( int i = 0; i < 3; i++ ) {
+				client.imageService().getImageInfo( "img" + i );
+			} // for
+			assertEquals( "quota headers read", 0, client.getQuota().getUserCreditsAvailable() );
+			assertEquals( "limit", 3, client.getQuota().getUserCreditsAllocated() );
+			try {
+				client.imageService().getImageInfo( "one-too-many" );
+				fail( "should have run out of credits" );
+			} catch( BaringoApiException e ) {
+				assertEquals( "429", 429, e.getHttpCode() );
+			} // try-catch
+			assertEquals( "counted", 1, mock.getRateLimited() );
+
+			mock.resetCredits();
+			assertEquals( "credits back", "again", client.imageService().getImageInfo( "again" ).getId() );
+		} // try
+	}
+
+	@Test
+	public void testInjectedErrors() throws Exception {
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 ).errorRate( 1.0, 503 ).build().start() ) {
+			try {
+				clientFor( mock ).albumService().getAlbum( "abc" );
+				fail( "every call should fail" );
+			} catch( BaringoApiException e ) {
+				assertEquals( "503", 503, e.getHttpCode() );
+			} // try-catch
+			assertEquals( "counted", 1, mock.getInjectedErrors() );
+		} // try
+	}
+
+	@Test
+	public void testScript() throws Exception {
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.script( "getAlbum", 500, 200, 404 ).build().start() ) {
+			BaringoClient client = clientFor( mock );
+			int[] expected = { 500, 200, 404, 200 };
+			for( int i = 0; i < expected.length; i++ ) {
+				try {
+					client.albumService().getAlbum( "abc" + i );
+					assertEquals( "call " + i, expected[i], 200 );
+				} catch( BaringoApiException e ) {
+					assertEquals( "call " + i, expected[i], e.getHttpCode() );
+				} // try-catch
+			} // for
+			assertEquals( "counted", 2, mock.getInjectedErrors() );
+		} // try
+	}
+
+	private static BaringoClient clientFor( MockImgurServer mock ) throws BaringoApiException {
+		return new BaringoClient.Builder()
+				.clientAuth( "mock", "mock" )
+				.apiEndpoint( mock.getEndpoint() )
+				.build();
+	}
+
+}
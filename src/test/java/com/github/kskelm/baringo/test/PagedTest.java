@@ -0,0 +1,173 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.Paged;
+import com.github.kskelm.baringo.util.BaringoApiException;
+import com.github.kskelm.baringo.util.BaringoPagingException;
+
+/**
+ * Offline; walks pages served by a stub fetcher.
+ */
+public class PagedTest extends TestCase {
+	public PagedTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testWalksEveryPage() {
+		Pages pages = new Pages( 3, 2 ); // three pages of two, then an empty one
+		pages.completeAll();
+		List<String> items = new ArrayList<>();
+		for( String item : new Probe<>( 0, pages ) ) {
+			items.add( item );
+		} // for
+		assertEquals( "in order", Arrays.asList( "0.0", "0.1", "1.0", "1.1", "2.0", "2.1" ), items );
+		assertEquals( "stopped at the empty page", Arrays.asList( 0, 1, 2, 3 ), pages.requested );
+	}
+
+	@Test
+	public void testLazy() {
+		Pages pages = new Pages( 3, 2 );
+		pages.completeAll();
+		Probe<String> paged = new Probe<>( 0, pages );
+		Iterator<String> it = paged.iterator();
+		Stream<String> stream = paged.stream();
+		assertEquals( "nothing fetched yet", Collections.emptyList(), pages.requested );
+		assertEquals( "first", "0.0", it.next() );
+		assertEquals( "the first page, and the next one", Arrays.asList( 0, 1 ), pages.requested );
+		assertEquals( "a fresh walk starts over", "0.0", stream.findFirst().get() );
+		stream.close();
+	}
+
+	@Test
+	public void testPrefetch() {
+		Pages pages = new Pages( 3, 2 );
+		pages.complete( 0 );
+		Iterator<String> it = new Probe<>( 0, pages ).iterator();
+		assertEquals( "first", "0.0", it.next() );
+		assertTrue( "next page asked for", pages.requested.contains( 1 ) );
+		assertFalse( "and not waited on", pages.future( 1 ).isDone() );
+		assertEquals( "rest of the page", "0.1", it.next() );
+		assertFalse( "still not waited on", pages.future( 1 ).isDone() );
+		pages.complete( 1 );
+		assertEquals( "next page", "1.0", it.next() );
+		assertTrue( "page after that asked for", pages.requested.contains( 2 ) );
+	}
+
+	@Test
+	public void testFirstPage() {
+		Pages pages = new Pages( 3, 1 );
+		pages.completeAll();
+		List<String> items = new Probe<>( 1, pages ).stream().collect( Collectors.toList() );
+		assertEquals( "conversations start at 1", Arrays.asList( "1.0", "2.0" ), items );
+		assertEquals( "page 0 never asked for", Integer.valueOf( 1 ), pages.requested.get( 0 ) );
+	}
+
+	@Test
+	public void testFailure() {
+		Pages pages = new Pages( 3, 2 );
+		BaringoApiException boom = new BaringoApiException( "boom", 500 );
+		pages.complete( 0 );
+		pages.future( 1 ).completeExceptionally( boom );
+		Iterator<String> it = new Probe<>( 0, pages ).iterator();
+		it.next();
+		it.next();
+		try {
+			it.next();
+			fail( "page 1 failed" );
+		} catch( BaringoPagingException e ) {
+			assertEquals( "which page", 1, e.getPage() );
+			assertSame( "what went wrong", boom, e.getCause() );
+		} // try-catch
+		assertFalse( "and that's the end", it.hasNext() );
+
+		pages = new Pages( 3, 2 );
+		IllegalStateException odd = new IllegalStateException( "odd" );
+		pages.future( 0 ).completeExceptionally( odd );
+		try {
+			new Probe<>( 0, pages ).iterator().next();
+			fail( "page 0 failed" );
+		} catch( BaringoPagingException e ) {
+			assertEquals( "which page", 0, e.getPage() );
+			assertSame( "not an API exception, but still there", odd, e.getCause().getCause() );
+		} // try-catch
+	}
+
+	@Test
+	public void testCloseCancels() {
+		Pages pages = new Pages( 3, 2 );
+		pages.complete( 0 );
+		try( Stream<String> stream = new Probe<>( 0, pages ).stream() ) {
+			assertEquals( "first", "0.0", stream.findFirst().get() );
+			assertFalse( "prefetching", pages.future( 1 ).isDone() );
+		} // try
+		assertTrue( "prefetch cancelled", pages.future( 1 ).isCancelled() );
+		assertEquals( "nothing more asked for", Arrays.asList( 0, 1 ), pages.requested );
+	}
+
+	/**
+	 * Gets at Paged's protected constructor
+	 */
+	private static class Probe<T> extends Paged<T> {
+		Probe( int firstPage, IntFunction<CompletableFuture<List<T>>> fetcher ) {
+			super( firstPage, fetcher );
+		}
+	}
+
+	/**
+	 * A stub fetcher.  Hands out a future per page, which the test
+	 * completes when it likes, and notes the order pages were asked
+	 * for in.  Pages past the last are empty.
+	 */
+	private static class Pages implements IntFunction<CompletableFuture<List<String>>> {
+		Pages( int count, int size ) {
+			this.count = count;
+			this.size = size;
+		}
+
+		@Override
+		public CompletableFuture<List<String>> apply( int page ) {
+			requested.add( page );
+			return future( page );
+		}
+
+		CompletableFuture<List<String>> future( int page ) {
+			return futures.computeIfAbsent( page, k -> new CompletableFuture<>() );
+		}
+
+		void complete( int page ) {
+			List<String> items = new ArrayList<>();
+			for( int i = 0; page < count && i < size; i++ ) {
+				items.add( page + "." + i );
+			} // for
+			future( page ).complete( items );
+		}
+
+		void completeAll() {
+			for( int page = 0; page <= count; page++ ) {
+				complete( page );
+			} // for
+		}
+
+		final List<Integer> requested = Collections.synchronizedList( new ArrayList<>() );
+		private final Map<Integer, CompletableFuture<List<String>>> futures = new ConcurrentHashMap<>();
+		private final int count;
+		private final int size;
+	}
+
+}
@@ -0,0 +1,162 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.io.InterruptedIOException;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.Quota;
+import com.github.kskelm.baringo.RateLimiter;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+
+/**
+ * Offline; feeds the limiter quotas directly and asks it to admit
+ * requests.  Each test's budget is 10 credits a second with a
+ * burst of 1, so a credit comes back every 100ms.
+ */
+public class RateLimiterTest extends TestCase {
+	public RateLimiterTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testUnknownLetsThrough() throws Exception {
+		Probe limiter = new Probe( RateLimiter.Policy.FAIL_FAST );
+		for( int i = 0; i < 20; i++ ) {
+			assertNull( "no quota yet, nothing to go on", limiter.admit( GET ) );
+		} // for
+		assertEquals( "free", 0, limiter.getWaitMillis( "GET" ) );
+
+		limiter.update( new Credits().user( 0, 1000 ) );
+		assertTrue( "dry now", limiter.getWaitMillis( "GET" ) > 0 );
+		limiter = new Probe( RateLimiter.Policy.OFF );
+		limiter.update( new Credits().user( 0, 1000 ) );
+		assertNull( "but OFF doesn't care", limiter.admit( GET ) );
+	}
+
+	@Test
+	public void testRefill() throws Exception {
+		Probe limiter = new Probe( RateLimiter.Policy.FAIL_FAST );
+		limiter.update( new Credits().user( 10, 1000 ) );
+		assertNull( "the one credit the burst allows", limiter.admit( GET ) );
+
+		Response resp = limiter.admit( GET );
+		assertNotNull( "and no more", resp );
+		assertEquals( "a 429", 429, resp.code() );
+		assertEquals( "made up by the client", "GET", resp.header( Probe.clientLimitedHeader() ) );
+		assertEquals( "retry in a second, rounded up", "1", resp.header( "Retry-After" ) );
+		assertEquals( "counted", 1, limiter.getRejectedCount() );
+		long waitMs = limiter.getWaitMillis( "GET" );
+		assertTrue( "about 100ms to the next one: " + waitMs, waitMs > 0 && waitMs <= 100 );
+		assertEquals( "POSTs are another bucket", 0, limiter.getWaitMillis( "POST" ) );
+
+		Thread.sleep( waitMs + 20 );
+		assertNull( "refilled", limiter.admit( GET ) );
+	}
+
+	@Test
+	public void testApplicationCredits() throws Exception {
+		Probe limiter = new Probe( RateLimiter.Policy.FAIL_FAST );
+		limiter.update( new Credits().user( 10, 1000 ).application( 0 ) );
+		Response resp = limiter.admit( GET );
+		assertNotNull( "the user has credits, the app doesn't", resp );
+		assertEquals( "which ran out", "application", resp.header( Probe.clientLimitedHeader() ) );
+		assertNull( "POSTs don't spend them", limiter.admit( POST ) );
+
+		RateLimiter session = limiter.copy();
+		assertTrue( "sessions share them", session.getWaitMillis( "GET" ) > 0 );
+	}
+
+	@Test
+	public void testBlockWaits() throws Exception {
+		Probe limiter = new Probe( RateLimiter.Policy.BLOCK );
+		limiter.update( new Credits().post( 10, 1000 ) );
+		long start = System.nanoTime();
+		assertNull( "goes ahead", limiter.admit( POST ) );
+		assertNull( "goes ahead, eventually", limiter.admit( POST ) );
+		long tookMs = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+		assertTrue( "waited for the refill: " + tookMs, tookMs >= 80 && tookMs < 1000 );
+		assertEquals( "counted", 1, limiter.getThrottledCount() );
+		long waitedMs = limiter.getWaitedMillis();
+		assertTrue( "about 100ms: " + waitedMs, waitedMs > 80 && waitedMs <= 100 );
+		assertEquals( "nothing rejected", 0, limiter.getRejectedCount() );
+	}
+
+	@Test
+	public void testWhenAvailable() throws Exception {
+		Probe limiter = new Probe( RateLimiter.Policy.FAIL_FAST );
+		assertTrue( "nothing to wait for", limiter.whenAvailable( "GET" ).isDone() );
+
+		limiter.update( new Credits().user( 10, 1000 ) );
+		assertNull( limiter.admit( GET ) );
+		long start = System.nanoTime();
+		CompletableFuture<Void> ready = limiter.whenAvailable( "GET" );
+		assertFalse( "has to wait", ready.isDone() );
+		ready.get( 1, TimeUnit.SECONDS );
+		long tookMs = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+		assertTrue( "for the refill: " + tookMs, tookMs >= 80 );
+		assertNull( "and then there's a credit", limiter.admit( GET ) );
+	}
+
+	/**
+	 * Gets at RateLimiter's protected constructor and methods
+	 */
+	private static class Probe extends RateLimiter {
+		Probe( Policy policy ) {
+			super( policy, 1 );
+		}
+
+		@Override
+		protected Response admit( Request request ) throws InterruptedIOException {
+			return super.admit( request );
+		}
+
+		@Override
+		protected void update( Quota quota ) {
+			super.update( quota );
+		}
+
+		@Override
+		protected RateLimiter copy() {
+			return super.copy();
+		}
+
+		static String clientLimitedHeader() {
+			return CLIENT_LIMITED_HEADER;
+		}
+	}
+
+	/**
+	 * A Quota as the headers would have left it
+	 */
+	private static class Credits extends Quota {
+		Credits user( int remaining, long resetInMs ) {
+			setUserCreditsAvailable( remaining );
+			setUserCreditResetDate( new Date( System.currentTimeMillis() + resetInMs ) );
+			return this;
+		}
+
+		Credits application( int remaining ) {
+			setApplicationCreditsAllocated( 12500 );
+			setApplicationCreditsAvailable( remaining );
+			return this;
+		}
+
+		Credits post( int remaining, long resetInMs ) {
+			setPostCreditsAvailable( remaining );
+			setPostCreditResetDate( new Date( System.currentTimeMillis() + resetInMs ) );
+			return this;
+		}
+	}
+
+	private static final Request GET = new Request.Builder().url( "http://localhost/3/image/abc" ).build();
+	private static final Request POST = new Request.Builder().url( "http://localhost/3/image" )
+			.post( RequestBody.create( null, new byte[0] ) ).build();
+
+}
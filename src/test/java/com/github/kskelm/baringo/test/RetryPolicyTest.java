@@ -0,0 +1,316 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.RateLimiter;
+import com.github.kskelm.baringo.RetryPolicy;
+import com.github.kskelm.baringo.RetryPolicy.BreakerState;
+import com.github.kskelm.baringo.mock.MockImgurServer;
+import com.github.kskelm.baringo.util.BaringoApiException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Offline; retries against the mock Imgur server's injected errors
+ * and rate limits, and against a server told what to answer.
+ */
+public class RetryPolicyTest extends TestCase {
+	public RetryPolicyTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testBackoff() throws Exception {
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 ).seed( 42 )
+				.errorRate( 0.5, 503 ).build().start() ) {
+			RetryPolicy retry = new RetryPolicy.Builder()
+					.maxRetries( 20 )
+					.backoff( 1, 5, TimeUnit.MILLISECONDS )
+					.circuitBreaker( 0, 0, TimeUnit.MILLISECONDS )
+					.build();
+			BaringoClient client = clientFor( mock.getEndpoint(), retry );
+			for( int i = 0; i < 20; i++ ) {
+				assertEquals( "got through", "img" + i, client.imageService().getImageInfo( "img" + i ).getId() );
+			} // for
+			assertTrue( "some failed", mock.getInjectedErrors() > 0 );
+			assertEquals( "each one retried", mock.getInjectedErrors(), retry.getRetries() );
+			assertEquals( "calls don't count retries", 20, retry.getEndpointStats( "getImageInfo" ).getCalls() );
+		} // try
+	}
+
+	@Test
+	public void testGivesUp() throws Exception {
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.errorRate( 1.0, 503 ).build().start() ) {
+			RetryPolicy retry = new RetryPolicy.Builder()
+					.maxRetries( 3 )
+					.backoff( 20, 40, TimeUnit.MILLISECONDS )
+					.circuitBreaker( 0, 0, TimeUnit.MILLISECONDS )
+					.build();
+			BaringoClient client = clientFor( mock.getEndpoint(), retry );
+			long start = System.nanoTime();
+			try {
+				client.imageService().getImageInfo( "down" );
+				fail( "never works" );
+			} catch( BaringoApiException e ) {
+				assertEquals( "503", 503, e.getHttpCode() );
+			} // try-catch
+			long ms = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+			assertEquals( "first try and three more", 4, mock.getInjectedErrors() );
+			assertTrue( "backoff stays under its ceiling: " + ms + "ms", ms < 20 + 40 + 40 + 1000 );
+			RetryPolicy.EndpointStats stats = retry.getEndpointStats( "getImageInfo" );
+			assertEquals( "retries", 3, stats.getRetries() );
+			assertEquals( "one failure", 1, stats.getFailures() );
+		} // try
+	}
+
+	@Test
+	public void testQuotaWait() throws Exception {
+		// two calls a second; the third waits for the next second
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.rateLimits( 2, 1000, 1000, 1, TimeUnit.SECONDS ).build().start() ) {
+			RetryPolicy retry = new RetryPolicy.Builder().build();
+			BaringoClient client = clientFor( mock.getEndpoint(), retry );
+			client.imageService().getImageInfo( "a" );
+			client.imageService().getImageInfo( "b" );
+			assertEquals( "waited it out", "c", client.imageService().getImageInfo( "c" ).getId() );
+			assertEquals( "one 429", 1, mock.getRateLimited() );
+			assertEquals( "one retry", 1, retry.getRetries() );
+			assertEquals( "a 429 isn't the route's fault", BreakerState.CLOSED,
+					retry.getEndpointStats( "getImageInfo" ).getState() );
+		} // try
+
+		try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+				.rateLimits( 1, 1000, 1000, 1, TimeUnit.HOURS ).build().start() ) {
+			RetryPolicy retry = new RetryPolicy.Builder()
+					.maxWait( 1, TimeUnit.SECONDS )
+					.build();
+			BaringoClient client = clientFor( mock.getEndpoint(), retry );
+			client.imageService().getImageInfo( "a" );
+			try {
+				client.imageService().getImageInfo( "b" );
+				fail( "an hour is too long to wait" );
+			} catch( BaringoApiException e ) {
+				assertEquals( "429", 429, e.getHttpCode() );
+			} // try-catch
+			assertEquals( "not retried", 0, retry.getRetries() );
+		} // try
+	}
+
+	@Test
+	public void testRetryAfterDate() throws Exception {
+		try( StatusServer server = new StatusServer() ) {
+			// a date in whole seconds, so between one and two seconds off
+			String when = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+					ZonedDateTime.now( ZoneOffset.UTC ).plusSeconds( 2 ) );
+			server.answer( 503, "Retry-After", when, 1 );
+			RetryPolicy retry = new RetryPolicy.Builder()
+					.backoff( 1, 1, TimeUnit.MILLISECONDS )
+					.build();
+			long start = System.nanoTime();
+			clientFor( server.getEndpoint(), retry ).imageService().getImageInfo( "later" );
+			long ms = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+			assertTrue( "waited for the date: " + ms + "ms", ms >= 900 );
+			assertEquals( "then retried", 2, server.getRequests() );
+		} // try
+	}
+
+	@Test
+	public void testQuotaResetWithoutRetryAfter() throws Exception {
+		try( StatusServer server = new StatusServer() ) {
+			long reset = System.currentTimeMillis() / 1000 + 2;
+			server.answer( 429, "X-RateLimit-UserReset", Long.toString( reset ), 1 );
+			RetryPolicy retry = new RetryPolicy.Builder().build();
+			clientFor( server.getEndpoint(), retry ).imageService().getImageInfo( "later" );
+			assertTrue( "waited for the reset", System.currentTimeMillis() >= reset * 1000 - 1000 );
+			assertEquals( "then retried", 2, server.getRequests() );
+		} // try
+	}
+
+	@Test
+	public void testBreaker() throws Exception {
+		try( StatusServer server = new StatusServer() ) {
+			RetryPolicy retry = new RetryPolicy.Builder()
+					.maxRetries( 0 )
+					.circuitBreaker( 3, 200, TimeUnit.MILLISECONDS )
+					.build();
+			BaringoClient client = clientFor( server.getEndpoint(), retry );
+			server.answer( 500, null, null, Integer.MAX_VALUE );
+			for( int i = 0; i < 3; i++ ) {
+				assertFalse( "not open until the third failure", stateOf( retry ) == BreakerState.OPEN );
+				expectFailure( client, "down" + i, 500 );
+			} // for
+			assertEquals( "open", BreakerState.OPEN, stateOf( retry ) );
+			assertEquals( "tripped", 1, retry.getEndpointStats( "getImageInfo" ).getTrips() );
+
+			expectFailure( client, "turned-away", 503 );
+			assertEquals( "never sent", 3, server.getRequests() );
+			assertEquals( "rejected", 1, retry.getRejected() );
+
+			Thread.sleep( 250 );
+			assertEquals( "ready for a trial", BreakerState.HALF_OPEN, stateOf( retry ) );
+			expectFailure( client, "trial", 500 );
+			assertEquals( "failed trial opens it again", BreakerState.OPEN, stateOf( retry ) );
+			assertEquals( "tripped again", 2, retry.getEndpointStats( "getImageInfo" ).getTrips() );
+
+			Thread.sleep( 250 );
+			server.answer( 200, null, null, 0 );
+			assertEquals( "trial works", "better", client.imageService().getImageInfo( "better" ).getId() );
+			assertEquals( "closed", BreakerState.CLOSED, stateOf( retry ) );
+			assertEquals( "failures forgotten", 0, retry.getEndpointStats( "getImageInfo" ).getConsecutiveFailures() );
+		} // try
+	}
+
+	@Test
+	public void testTrialTurnedAwayByLimiter() throws Exception {
+		try( StatusServer server = new StatusServer() ) {
+			RetryPolicy retry = new RetryPolicy.Builder()
+					.maxRetries( 0 )
+					.circuitBreaker( 1, 100, TimeUnit.MILLISECONDS )
+					.build();
+			BaringoClient client = new BaringoClient.Builder()
+					.clientAuth( "mock", "mock" )
+					.apiEndpoint( server.getEndpoint() )
+					.rateLimit( RateLimiter.Policy.FAIL_FAST )
+					.retryPolicy( retry )
+					.build();
+			client.imageService().getImageInfo( "warm-up" ); // so the first call isn't slow
+			// out of user credits until the next whole second but one
+			long reset = System.currentTimeMillis() / 1000 + 2;
+			server.always( "X-RateLimit-UserRemaining", "0" );
+			server.always( "X-RateLimit-UserReset", Long.toString( reset ) );
+			server.answer( 500, null, null, 1 );
+			expectFailure( client, "down", 500 );
+			assertEquals( "open", BreakerState.OPEN, stateOf( retry ) );
+
+			Thread.sleep( 150 );
+			expectFailure( client, "trial", 429 ); // our own limiter, not the server
+			assertEquals( "the trial never went out", 2, server.getRequests() );
+			assertEquals( "no verdict", BreakerState.HALF_OPEN, stateOf( retry ) );
+
+			while( System.currentTimeMillis() < reset * 1000 ) {
+				Thread.sleep( 50 );
+			} // while
+			server.always( "X-RateLimit-UserRemaining", "100" );
+			assertEquals( "the next call is the trial", "better", client.imageService().getImageInfo( "better" ).getId() );
+			assertEquals( "closed", BreakerState.CLOSED, stateOf( retry ) );
+		} // try
+	}
+
+	private static BreakerState stateOf( RetryPolicy retry ) {
+		RetryPolicy.EndpointStats stats = retry.getEndpointStats( "getImageInfo" );
+		return stats == null ? null : stats.getState();
+	}
+
+	private static void expectFailure( BaringoClient client, String id, int status ) {
+		try {
+			client.imageService().getImageInfo( id );
+			fail( id + " should have failed" );
+		} catch( BaringoApiException e ) {
+			assertEquals( id, status, e.getHttpCode() );
+		} // try-catch
+	}
+
+	private static BaringoClient clientFor( String endpoint, RetryPolicy retry ) throws Exception {
+		return new BaringoClient.Builder()
+				.clientAuth( "mock", "mock" )
+				.apiEndpoint( endpoint )
+				.retryPolicy( retry )
+				.build();
+	}
+
+	/**
+	 * Answers image lookups with a given status, with one extra
+	 * header, for so many requests, then with a 200
+	 */
+	private static class StatusServer implements AutoCloseable {
+		StatusServer() throws IOException {
+			server = HttpServer.create( new InetSocketAddress( 0 ), 64 );
+			server.createContext( "/", this::handle );
+			server.setExecutor( executor );
+			server.start();
+		}
+
+		/**
+		 * Sends this header on every answer from now on
+		 */
+		void always( String header, String value ) {
+			always.put( header, value );
+		}
+
+		synchronized void answer( int status, String header, String value, int times ) {
+			this.status = status;
+			this.header = header;
+			this.value = value;
+			this.times = times;
+		}
+
+		String getEndpoint() {
+			return "http://localhost:" + server.getAddress().getPort();
+		}
+
+		int getRequests() {
+			return requests.get();
+		}
+
+		@Override
+		public void close() {
+			server.stop( 0 );
+			executor.shutdownNow();
+		}
+
+		private void handle( HttpExchange ex ) throws IOException {
+			try {
+				requests.incrementAndGet();
+				String path = ex.getRequestURI().getPath();
+				String id = path.substring( path.lastIndexOf( '/' ) + 1 );
+				int code = 200;
+				for( Map.Entry<String, String> h : always.entrySet() ) {
+					ex.getResponseHeaders().set( h.getKey(), h.getValue() );
+				} // for
+				synchronized( this ) {
+					if( times > 0 ) {
+						times--;
+						code = status;
+						if( header != null ) {
+							ex.getResponseHeaders().set( header, value );
+						} // if
+					} // if
+				} // synchronized
+				byte[] body = ("{\"data\":{\"id\":\"" + id + "\"},\"success\":" + (code == 200)
+						+ ",\"status\":" + code + "}").getBytes( StandardCharsets.UTF_8 );
+				ex.getResponseHeaders().set( "Content-Type", "application/json" );
+				ex.sendResponseHeaders( code, body.length );
+				ex.getResponseBody().write( body );
+			} finally {
+				ex.close();
+			} // try-finally
+		}
+
+		private final HttpServer server;
+		private final ExecutorService executor = Executors.newCachedThreadPool();
+		private final AtomicInteger requests = new AtomicInteger();
+		private final Map<String, String> always = new ConcurrentHashMap<>();
+		private int status = 200;
+		private String header = null;
+		private String value = null;
+		private int times = 0;
+	}
+
+}
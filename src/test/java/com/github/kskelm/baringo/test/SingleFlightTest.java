@@ -0,0 +1,146 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.SingleFlight;
+import com.github.kskelm.baringo.util.BaringoApiException;
+
+/**
+ * Offline; drives the single-flight layer with hand-made futures
+ * standing in for HTTP calls.
+ */
+public class SingleFlightTest extends TestCase {
+	public SingleFlightTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testCoalescing() throws Exception {
+		Probe flight = new Probe();
+		AtomicInteger loads = new AtomicInteger();
+		CompletableFuture<String> call = new CompletableFuture<>();
+		Supplier<CompletableFuture<String>> loader = () -> {
+			loads.incrementAndGet();
+			return call;
+		};
+
+		CompletableFuture<String> a = flight.async( "GET /3/album/x", loader );
+		CompletableFuture<String> b = flight.async( "GET /3/album/x", loader );
+		CompletableFuture<String> c = flight.async( "GET /3/album/x", loader );
+		assertEquals( "one call", 1, loads.get() );
+		assertEquals( "two piggybacked", 2, flight.getCoalescedCount() );
+		assertEquals( "in flight", 1, flight.getInFlightCount() );
+
+		call.complete( "album" );
+		assertEquals( "a", "album", a.get( 1, TimeUnit.SECONDS ) );
+		assertEquals( "b", "album", b.get( 1, TimeUnit.SECONDS ) );
+		assertEquals( "c", "album", c.get( 1, TimeUnit.SECONDS ) );
+		assertEquals( "landed", 0, flight.getInFlightCount() );
+
+		flight.async( "GET /3/album/x", () -> {
+			loads.incrementAndGet();
+			return CompletableFuture.completedFuture( "again" );
+		} );
+		assertEquals( "done calls aren't shared", 2, loads.get() );
+	}
+
+	@Test
+	public void testErrorFanOut() throws Exception {
+		Probe flight = new Probe();
+		CompletableFuture<String> call = new CompletableFuture<>();
+		CompletableFuture<String> a = flight.async( "k", () -> call );
+		CompletableFuture<String> b = flight.async( "k", () -> call );
+		BaringoApiException boom = new BaringoApiException( "boom", 503 );
+		call.completeExceptionally( boom );
+
+		for( CompletableFuture<String> f : Arrays.asList( a, b ) ) {
+			try {
+				f.get( 1, TimeUnit.SECONDS );
+				fail( "should have failed" );
+			} catch( ExecutionException e ) {
+				assertSame( "same exception for everyone", boom, e.getCause() );
+			} // try-catch
+		} // for
+		assertEquals( "landed", 0, flight.getInFlightCount() );
+	}
+
+	@Test
+	public void testLoaderThrows() throws Exception {
+		Probe flight = new Probe();
+		CompletableFuture<String> failed = flight.async( "k", () -> {
+			throw new RejectedExecutionException( "dispatcher is shut down" );
+		} );
+		try {
+			failed.get( 1, TimeUnit.SECONDS );
+			fail( "should have failed" );
+		} catch( ExecutionException e ) {
+			assertTrue( "the throw", e.getCause() instanceof RejectedExecutionException );
+		} // try-catch
+		assertEquals( "nothing left behind", 0, flight.getInFlightCount() );
+		assertEquals( "next one isn't stuck", "ok",
+				flight.async( "k", () -> CompletableFuture.completedFuture( "ok" ) ).get( 1, TimeUnit.SECONDS ) );
+
+		try {
+			flight.sync( "s", () -> {
+				throw new IllegalStateException( "nope" );
+			} );
+			fail( "should have thrown" );
+		} catch( IllegalStateException e ) {
+			// expected
+		} // try-catch
+		assertEquals( "sync leaves nothing behind either", "ok", flight.sync( "s", () -> "ok" ) );
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		Probe flight = new Probe();
+		CompletableFuture<String> call = new CompletableFuture<>();
+		CompletableFuture<String> a = flight.async( "k", () -> call );
+		CompletableFuture<String> b = flight.async( "k", () -> call );
+
+		assertTrue( "a cancelled", a.cancel( true ) );
+		assertFalse( "b still wants it", call.isCancelled() );
+		assertTrue( "b cancelled", b.cancel( true ) );
+		assertTrue( "last one out cancels the call", call.isCancelled() );
+		assertEquals( "forgotten", 0, flight.getInFlightCount() );
+
+		CompletableFuture<String> c = flight.async( "k", () -> CompletableFuture.completedFuture( "fresh" ) );
+		assertEquals( "a new call, not the cancelled one", "fresh", c.get( 1, TimeUnit.SECONDS ) );
+
+		try {
+			a.get();
+			fail( "a was cancelled" );
+		} catch( CancellationException e ) {
+			// expected
+		} // try-catch
+	}
+
+	/**
+	 * Opens up the protected entry points
+	 */
+	private static class Probe extends SingleFlight {
+		Probe() {
+			super( true );
+		}
+
+		<T> CompletableFuture<T> async( String key, Supplier<CompletableFuture<T>> loader ) {
+			return executeAsync( key, loader );
+		}
+
+		<T> T sync( String key, Supplier<T> loader ) throws BaringoApiException {
+			return execute( key, () -> loader.get() );
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.AuthService;
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.model.OAuth2;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Offline; logs in against a stub /oauth2/token that hands out
+ * tokens about to expire, then has a crowd of threads find out
+ * at once.
+ */
+public class TokenRefreshTest extends TestCase {
+	public TokenRefreshTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testOneRefreshOnTheCallingThreads() throws Exception {
+		try( TokenServer server = new TokenServer() ) {
+			server.hand( token( "old", "refresh1", 30 ), token( "new", "refresh2", 3600 ) );
+			BaringoClient client = clientFor( server, false );
+			client.authService().setRefreshToken( "refresh0" );
+			assertTrue( "logged in, expiring soon", client.authService().getOAuth2().isExpiringSoon() );
+
+			callAtOnce( client, THREADS );
+			assertEquals( "login plus one refresh", 2, server.getTokenRequests() );
+			assertEquals( "every call used the new token", THREADS, server.bearers( "new" ) );
+			assertEquals( "new refresh token too", "refresh2", client.authService().getRefreshToken() );
+		} // try
+	}
+
+	@Test
+	public void testOneRefreshInTheBackground() throws Exception {
+		try( TokenServer server = new TokenServer() ) {
+			server.hand( token( "old", "refresh1", 30 ), token( "new", "refresh2", 3600 ) );
+			BaringoClient client = clientFor( server, true );
+			client.authService().setRefreshToken( "refresh0" );
+
+			callAtOnce( client, THREADS );
+			AuthService auth = client.authService();
+			for( int i = 0; i < 100 && !"new".equals( auth.getOAuth2().getAccessToken() ); i++ ) {
+				Thread.sleep( 20 );
+			} // for
+			assertEquals( "renewed", "new", auth.getOAuth2().getAccessToken() );
+			assertEquals( "login plus one refresh", 2, server.getTokenRequests() );
+		} // try
+	}
+
+	@Test
+	public void testFailedRefresh() throws Exception {
+		try( TokenServer server = new TokenServer() ) {
+			server.hand( token( "old", "refresh1", 30 ), null, token( "new", "refresh2", 3600 ) );
+			BaringoClient client = clientFor( server, false );
+			AuthService auth = client.authService();
+			auth.setRefreshToken( "refresh0" );
+			OAuth2 before = auth.getOAuth2();
+
+			client.imageService().getImageInfo( "abc" );
+			assertEquals( "tried", 2, server.getTokenRequests() );
+			assertEquals( "the old token went out instead", 1, server.bearers( "old" ) );
+			assertSame( "tokens untouched", before, auth.getOAuth2() );
+			assertEquals( "refresh token untouched", "refresh1", auth.getRefreshToken() );
+			assertEquals( "still the same user", "mockuser", auth.getAuthenticatedUserName() );
+
+			client.imageService().getImageInfo( "def" );
+			assertEquals( "tried again", 3, server.getTokenRequests() );
+			assertEquals( "and got there", 1, server.bearers( "new" ) );
+			assertEquals( "all of it", "refresh2", auth.getRefreshToken() );
+		} // try
+	}
+
+	/**
+	 * Starts that many threads on getImageInfo at the same moment
+	 */
+	static void callAtOnce( BaringoClient client, int threads ) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool( threads );
+		try {
+			CountDownLatch go = new CountDownLatch( 1 );
+			List<Future<?>> calls = new ArrayList<>();
+			for( int i = 0; i < threads; i++ ) {
+				String id = "img" + i;
+				calls.add( pool.submit( () -> {
+					go.await();
+					return client.imageService().getImageInfo( id );
+				} ) );
+			} // for
+			go.countDown();
+			for( Future<?> f : calls ) {
+				f.get( 10, TimeUnit.SECONDS );
+			} // for
+		} finally {
+			pool.shutdownNow();
+		} // try-finally
+	}
+
+	static String token( String access, String refresh, int expiresIn ) {
+		return "{\"access_token\":\"" + access + "\",\"expires_in\":" + expiresIn
+				+ ",\"token_type\":\"bearer\",\"refresh_token\":\"" + refresh
+				+ "\",\"account_id\":1,\"account_username\":\"mockuser\"}";
+	}
+
+	static BaringoClient clientFor( TokenServer server, boolean background ) throws Exception {
+		return new BaringoClient.Builder()
+				.clientAuth( "mock", "mock" )
+				.apiEndpoint( server.getEndpoint() )
+				.backgroundTokenRefresh( background )
+				.build();
+	}
+
+	/**
+	 * Answers /oauth2/token with the tokens it's handed, one each,
+	 * slowly enough that callers pile up behind it; a null is a 400.
+	 * Anything else gets an image and has its bearer token noted.
+	 */
+	private static class TokenServer implements AutoCloseable {
+		TokenServer() throws IOException {
+			server = HttpServer.create( new InetSocketAddress( 0 ), 64 );
+			server.createContext( "/", this::handle );
+			server.setExecutor( executor );
+			server.start();
+		}
+
+		void hand( String... tokens ) {
+			for( String t : tokens ) {
+				this.tokens.add( t == null ? "" : t );
+			} // for
+		}
+
+		String getEndpoint() {
+			return "http://localhost:" + server.getAddress().getPort();
+		}
+
+		int getTokenRequests() {
+			return tokenRequests.get();
+		}
+
+		int bearers( String accessToken ) {
+			int n = 0;
+			for( String auth : authorizations ) {
+				if( auth.equals( "Bearer " + accessToken ) ) {
+					n++;
+				} // if
+			} // for
+			return n;
+		}
+
+		@Override
+		public void close() {
+			server.stop( 0 );
+			executor.shutdownNow();
+		}
+
+		private void handle( HttpExchange ex ) throws IOException {
+			try {
+				String path = ex.getRequestURI().getPath();
+				int code = 200;
+				String body;
+				if( path.startsWith( "/oauth2/token" ) ) {
+					tokenRequests.incrementAndGet();
+					try {
+						Thread.sleep( 200 );
+					} catch( InterruptedException e ) {
+						Thread.currentThread().interrupt();
+					} // try-catch
+					body = tokens.poll();
+					if( body == null || body.isEmpty() ) {
+						code = 400;
+						body = "{\"data\":{\"error\":\"Invalid refresh token\"},\"success\":false,\"status\":400}";
+					} // if
+				} else {
+					authorizations.add( String.valueOf( ex.getRequestHeaders().getFirst( "Authorization" ) ) );
+					String id = path.substring( path.lastIndexOf( '/' ) + 1 );
+					body = "{\"data\":{\"id\":\"" + id + "\"},\"success\":true,\"status\":200}";
+				} // if-else
+				byte[] bytes = body.getBytes( StandardCharsets.UTF_8 );
+				ex.getResponseHeaders().set( "Content-Type", "application/json" );
+				ex.sendResponseHeaders( code, bytes.length );
+				ex.getResponseBody().write( bytes );
+			} finally {
+				ex.close();
+			} // try-finally
+		}
+
+		private final ExecutorService executor = Executors.newFixedThreadPool( 16 );
+		private final HttpServer server;
+		private final Queue<String> tokens = new ConcurrentLinkedQueue<>();
+		private final Queue<String> authorizations = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger tokenRequests = new AtomicInteger();
+	}
+
+	private static final int THREADS = 8;
+
+}
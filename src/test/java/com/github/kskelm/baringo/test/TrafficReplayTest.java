@@ -0,0 +1,130 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.ReplayTransport;
+import com.github.kskelm.baringo.TrafficArchive;
+import com.github.kskelm.baringo.TrafficRecorder;
+import com.github.kskelm.baringo.mock.MockImgurServer;
+import com.github.kskelm.baringo.model.Album;
+import com.github.kskelm.baringo.model.Image;
+import com.github.kskelm.baringo.util.BaringoApiException;
+
+/**
+ * Offline; records against the mock Imgur server, then replays
+ * with it shut down.
+ */
+public class TrafficReplayTest extends TestCase {
+	public TrafficReplayTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testRecordAndReplay() throws Exception {
+		Path file = Files.createTempFile( "baringo", ".bar" );
+		try {
+			String endpoint;
+			try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+					.latency( 20, 0, TimeUnit.MILLISECONDS ).build().start();
+					TrafficRecorder recorder = TrafficRecorder.open( file ) ) {
+				endpoint = mock.getEndpoint();
+				BaringoClient client = new BaringoClient.Builder()
+						.clientAuth( "mock", "mock" )
+						.apiEndpoint( endpoint )
+						.record( recorder )
+						.build();
+				client.imageService().getImageInfo( "first" );
+				client.imageService().getImageInfo( "second" );
+				client.albumService().getAlbum( "xyz123" );
+				assertEquals( "recorded", 3, recorder.getRecorded() );
+			} // try
+
+			TrafficArchive archive = TrafficArchive.read( file );
+			assertEquals( "read back", 3, archive.size() );
+			assertEquals( "by endpoint", Integer.valueOf( 2 ), archive.getEndpointCounts().get( "getImageInfo" ) );
+			TrafficArchive.Exchange first = archive.getExchanges().get( 0 );
+			assertEquals( "status", 200, first.getStatus() );
+			assertTrue( "timed", first.getLatency( TimeUnit.MILLISECONDS ) >= 20 );
+			assertEquals( "auth blanked", "", first.getRequestHeaders().get( "Authorization" ) );
+
+			ReplayTransport replay = new ReplayTransport.Builder( archive )
+					.speed( Double.POSITIVE_INFINITY )
+					.build();
+			BaringoClient client = new BaringoClient.Builder()
+					.clientAuth( "mock", "mock" )
+					.apiEndpoint( endpoint )
+					.replay( replay )
+					.build();
+			Image image = client.imageService().getImageInfo( "second" );
+			assertEquals( "same response", "second", image.getId() );
+			Album album = client.albumService().getAlbum( "xyz123" );
+			assertEquals( "album", "xyz123", album.getId() );
+			assertEquals( "stand-in", "first", client.imageService().getImageInfo( "third" ).getId() );
+			assertEquals( "served", 2, replay.getServed() );
+			assertEquals( "substituted", 1, replay.getSubstituted() );
+
+			try {
+				client.commentService().getComment( 123 );
+				fail( "nothing recorded for it" );
+			} catch( BaringoApiException e ) {
+				assertEquals( "404", 404, e.getHttpCode() );
+			} // try-catch
+			assertEquals( "missed", 1, replay.getMissed() );
+		} finally {
+			Files.deleteIfExists( file );
+		} // try-finally
+	}
+
+	@Test
+	public void testSpeed() throws Exception {
+		Path file = Files.createTempFile( "baringo", ".bar" );
+		try {
+			String endpoint;
+			try( MockImgurServer mock = new MockImgurServer.Builder().port( 0 )
+					.latency( 200, 0, TimeUnit.MILLISECONDS ).build().start();
+					TrafficRecorder recorder = TrafficRecorder.open( file ) ) {
+				endpoint = mock.getEndpoint();
+				new BaringoClient.Builder()
+						.clientAuth( "mock", "mock" )
+						.apiEndpoint( endpoint )
+						.record( recorder )
+						.build()
+						.imageService().getImageInfo( "slow" );
+			} // try
+
+			ReplayTransport replay = new ReplayTransport.Builder( TrafficArchive.read( file ) )
+					.speed( 1.0 )
+					.build();
+			BaringoClient client = new BaringoClient.Builder()
+					.clientAuth( "mock", "mock" )
+					.apiEndpoint( endpoint )
+					.replay( replay )
+					.build();
+			long start = System.nanoTime();
+			client.imageService().getImageInfo( "slow" );
+			assertTrue( "original speed", System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos( 200 ) );
+
+			replay = new ReplayTransport.Builder( replay.getArchive() )
+					.speed( 100.0 )
+					.build();
+			client = new BaringoClient.Builder()
+					.clientAuth( "mock", "mock" )
+					.apiEndpoint( endpoint )
+					.replay( replay )
+					.build();
+			start = System.nanoTime();
+			client.imageService().getImageInfo( "slow" );
+			assertTrue( "accelerated", System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos( 150 ) );
+		} finally {
+			Files.deleteIfExists( file );
+		} // try-finally
+	}
+
+}
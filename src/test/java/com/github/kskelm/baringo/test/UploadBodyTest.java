@@ -0,0 +1,239 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.ProgressListener;
+import com.github.kskelm.baringo.UploadBody;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.squareup.okhttp.MediaType;
+
+import okio.Buffer;
+
+/**
+ * Offline; uploads from a stream, a buffer and a file to a server
+ * that keeps what it gets, and writes bodies into Okio buffers to
+ * check the edges.
+ */
+public class UploadBodyTest extends TestCase {
+	public UploadBodyTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testUploads() throws Exception {
+		Path file = Files.createTempFile( "baringo-up", ".jpg" );
+		try( UploadServer server = new UploadServer() ) {
+			Files.write( file, IMAGE );
+			BaringoClient client = new BaringoClient.Builder()
+					.clientAuth( "mock", "mock" )
+					.apiEndpoint( server.getEndpoint() )
+					.build();
+
+			client.imageService().uploadImage( new ByteArrayInputStream( IMAGE ), IMAGE.length,
+					"image/jpeg", "stream.jpg", null, null, null, null );
+			client.imageService().uploadImage( new ByteArrayInputStream( IMAGE ), -1,
+					"image/jpeg", "chunked.jpg", null, null, null, null );
+			client.imageService().uploadImage( ByteBuffer.wrap( IMAGE ),
+					"image/jpeg", "heap.jpg", null, null, null, null );
+			client.imageService().uploadImage( direct( IMAGE ),
+					"image/jpeg", "direct.jpg", null, null, null, null );
+			client.imageService().uploadImage( file, null, null, null, null, null );
+
+			List<byte[]> bodies = server.getBodies();
+			assertEquals( "all sent", 5, bodies.size() );
+			for( byte[] body : bodies ) {
+				assertTrue( "the image went through intact", indexOf( body, IMAGE ) >= 0 );
+			} // for
+		} finally {
+			Files.deleteIfExists( file );
+		} // try-finally
+	}
+
+	@Test
+	public void testBuffers() throws Exception {
+		for( ByteBuffer data : new ByteBuffer[] { ByteBuffer.wrap( IMAGE ), direct( IMAGE ) } ) {
+			data.position( 1000 ).limit( IMAGE.length - 1000 );
+			Progress progress = new Progress();
+			UploadBody body = Probe.of( data, progress );
+			assertEquals( "position to limit", IMAGE.length - 2000, body.contentLength() );
+			byte[] expected = Arrays.copyOfRange( IMAGE, 1000, IMAGE.length - 1000 );
+			assertTrue( "bytes", Arrays.equals( expected, write( body ) ) );
+			assertTrue( "and again", Arrays.equals( expected, write( body ) ) );
+			assertEquals( "caller's position left alone", 1000, data.position() );
+			assertEquals( "and limit", IMAGE.length - 1000, data.limit() );
+			assertEquals( "progress ends at the length", body.contentLength(), progress.last );
+			if( data.isDirect() ) {
+				assertTrue( "direct buffers go a chunk at a time", progress.calls > expected.length / (64 * 1024) );
+			} // if
+		} // for
+	}
+
+	@Test
+	public void testStreamOnce() throws Exception {
+		UploadBody body = Probe.of( new ByteArrayInputStream( IMAGE ), IMAGE.length, null );
+		assertTrue( "bytes", Arrays.equals( IMAGE, write( body ) ) );
+		try {
+			write( body );
+			fail( "a stream can't be sent twice" );
+		} catch( IOException e ) {
+			assertTrue( e.getMessage(), e.getMessage().contains( "can't be resent" ) );
+		} // try-catch
+	}
+
+	@Test
+	public void testLengthMismatch() throws Exception {
+		UploadBody body = Probe.of( new ByteArrayInputStream( IMAGE ), IMAGE.length + 1, null );
+		try {
+			write( body );
+			fail( "came up a byte short" );
+		} catch( IOException e ) {
+			assertTrue( e.getMessage(), e.getMessage().contains( "expected " + (IMAGE.length + 1) ) );
+		} // try-catch
+
+		Path file = Files.createTempFile( "baringo-up", ".jpg" );
+		try {
+			Files.write( file, IMAGE );
+			body = Probe.of( file, null );
+			Files.write( file, Arrays.copyOf( IMAGE, 100 ) ); // shrank after the length was read
+			write( body );
+			fail( "the file shrank" );
+		} catch( IOException e ) {
+			assertTrue( e.getMessage(), e.getMessage().contains( "but got 100" ) );
+		} finally {
+			Files.deleteIfExists( file );
+		} // try-finally
+	}
+
+	static byte[] write( UploadBody body ) throws IOException {
+		Buffer sink = new Buffer();
+		body.writeTo( sink );
+		return sink.readByteArray();
+	}
+
+	static ByteBuffer direct( byte[] bytes ) {
+		ByteBuffer buf = ByteBuffer.allocateDirect( bytes.length );
+		buf.put( bytes ).flip();
+		return buf;
+	}
+
+	static int indexOf( byte[] haystack, byte[] needle ) {
+		outer:
+		for( int i = 0; i <= haystack.length - needle.length; i++ ) {
+			for( int j = 0; j < needle.length; j++ ) {
+				if( haystack[i + j] != needle[j] ) {
+					continue outer;
+				} // if
+			} // for
+			return i;
+		} // for
+		return -1;
+	}
+
+	/**
+	 * Gets at UploadBody's protected factories
+	 */
+	private abstract static class Probe extends UploadBody {
+		private Probe() {
+			super( null, 0, null );
+		}
+
+		static UploadBody of( InputStream in, long length, ProgressListener listener ) {
+			return UploadBody.of( JPEG, in, length, listener );
+		}
+
+		static UploadBody of( ByteBuffer data, ProgressListener listener ) {
+			return UploadBody.of( JPEG, data, listener );
+		}
+
+		static UploadBody of( Path path, ProgressListener listener ) throws IOException {
+			return UploadBody.of( JPEG, path, listener );
+		}
+	}
+
+	private static class Progress implements ProgressListener {
+		@Override
+		public void onProgress( long done, long total ) {
+			last = done;
+			calls++;
+		}
+
+		long last = -1;
+		int calls = 0;
+	}
+
+	/**
+	 * Keeps every request body and answers like an upload
+	 */
+	private static class UploadServer implements AutoCloseable {
+		UploadServer() throws IOException {
+			server = HttpServer.create( new InetSocketAddress( 0 ), 64 );
+			server.createContext( "/", this::handle );
+			server.setExecutor( executor );
+			server.start();
+		}
+
+		String getEndpoint() {
+			return "http://localhost:" + server.getAddress().getPort();
+		}
+
+		List<byte[]> getBodies() {
+			return bodies;
+		}
+
+		@Override
+		public void close() {
+			server.stop( 0 );
+			executor.shutdownNow();
+		}
+
+		private void handle( HttpExchange ex ) throws IOException {
+			try {
+				ByteArrayOutputStream received = new ByteArrayOutputStream();
+				byte[] buf = new byte[8192];
+				int n;
+				while( (n = ex.getRequestBody().read( buf )) != -1 ) {
+					received.write( buf, 0, n );
+				} // while
+				bodies.add( received.toByteArray() );
+				byte[] body = "{\"data\":{\"id\":\"abc\"},\"success\":true,\"status\":200}"
+						.getBytes( StandardCharsets.UTF_8 );
+				ex.getResponseHeaders().set( "Content-Type", "application/json" );
+				ex.sendResponseHeaders( 200, body.length );
+				ex.getResponseBody().write( body );
+			} finally {
+				ex.close();
+			} // try-finally
+		}
+
+		private final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+		private final HttpServer server;
+		private final List<byte[]> bodies = new CopyOnWriteArrayList<>();
+	}
+
+	private static final MediaType JPEG = MediaType.parse( "image/jpeg" );
+	private static final byte[] IMAGE = new byte[300 * 1024];
+	static {
+		new Random( 16 ).nextBytes( IMAGE );
+	}
+
+}
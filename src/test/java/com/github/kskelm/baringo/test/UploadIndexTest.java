@@ -0,0 +1,99 @@
+/** This file is released under the Apache License 2.0. See the LICENSE file for details. **/
+package com.github.kskelm.baringo.test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+import junit.framework.TestCase;
+
+import com.github.kskelm.baringo.UploadIndex;
+import com.github.kskelm.baringo.model.Image;
+
+/**
+ * Offline; exercises the upload index file directly.
+ */
+public class UploadIndexTest extends TestCase {
+	public UploadIndexTest( String testName ) {
+		super( testName );
+	}
+
+	@Test
+	public void testPutGetAndReopen() throws IOException {
+		Path file = Files.createTempDirectory( "baringo-index" ).resolve( "uploads.idx" );
+		byte[] digest = UploadIndex.digest( null, ByteBuffer.wrap( "cat".getBytes() ) );
+
+		try( UploadIndex index = UploadIndex.open( file ) ) {
+			assertNull( "empty index misses", index.get( digest ) );
+			assertTrue( "stored", index.put( digest, new Image( "AbCdEfG", "dh123", "http://i.imgur.com/AbCdEfG.png" ) ) );
+			assertEquals( "found", "AbCdEfG", index.get( digest ).getId() );
+			assertEquals( "hits", 1, index.getHits() );
+		} // try
+
+		try( UploadIndex index = UploadIndex.open( file ) ) {
+			Image image = index.get( digest );
+			assertEquals( "survives reopening", "AbCdEfG", image.getId() );
+			assertEquals( "delete hash", "dh123", image.getDeleteHash() );
+			assertEquals( "link", "http://i.imgur.com/AbCdEfG.png", image.getLink() );
+			assertEquals( "size", 1, index.size() );
+		} // try
+	}
+
+	@Test
+	public void testDigestsAreScopedByUploader() {
+		ByteBuffer data = ByteBuffer.wrap( "same bytes".getBytes() );
+		byte[] anonymous = UploadIndex.digest( null, data );
+
+		assertTrue( "stable", Arrays.equals( anonymous, UploadIndex.digest( null, data ) ) );
+		assertFalse( "users don't share uploads", Arrays.equals( anonymous, UploadIndex.digest( "someone", data ) ) );
+		assertEquals( "position untouched", 0, data.position() );
+	}
+
+	@Test
+	public void testGrowthAndRemoval() throws IOException {
+		Path file = Files.createTempDirectory( "baringo-index" ).resolve( "uploads.idx" );
+		int n = 5000; // several doublings past the initial table
+
+		try( UploadIndex index = UploadIndex.open( file ) ) {
+			for( int i = 0; i < n; i++ ) {
+				index.put( digestOf( i ), new Image( "id" + i, "dh" + i, null ) );
+			} // for
+			assertEquals( "size", n, index.size() );
+			for( int i = 0; i < n; i++ ) {
+				assertEquals( "entry " + i, "id" + i, index.get( digestOf( i ) ).getId() );
+			} // for
+
+			assertEquals( "removed by id", 1, index.removeImage( "id7" ) );
+			assertEquals( "removed by delete hash", 1, index.removeImage( "dh8" ) );
+			assertNull( "gone", index.get( digestOf( 7 ) ) );
+			assertEquals( "neighbors still found", "id9", index.get( digestOf( 9 ) ).getId() );
+			assertTrue( "slot reusable", index.put( digestOf( 7 ), new Image( "id7b", null, null ) ) );
+			assertEquals( "size after churn", n - 1, index.size() );
+		} // try
+
+		try( UploadIndex index = UploadIndex.open( file ) ) {
+			assertEquals( "grown table reopens", "id4999", index.get( digestOf( 4999 ) ).getId() );
+			assertEquals( "reused slot", "id7b", index.get( digestOf( 7 ) ).getId() );
+		} // try
+	}
+
+	@Test
+	public void testRejectsOtherFiles() throws IOException {
+		Path file = Files.createTempFile( "baringo-index", ".idx" );
+		Files.write( file, new byte[100] );
+		try {
+			UploadIndex.open( file );
+			fail( "opened a file that isn't an index" );
+		} catch( IOException e ) {
+			// expected
+		} // try-catch
+	}
+
+	private static byte[] digestOf( int i ) {
+		return UploadIndex.digest( null, ByteBuffer.wrap( ("image " + i).getBytes() ) );
+	}
+
+}